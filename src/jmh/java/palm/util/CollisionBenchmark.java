@@ -0,0 +1,76 @@
+package palm.util;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Lookups when every key has the same hashcode, as an attacker could
+ * arrange. The keys are Strings built from the blocks "Aa" and "BB",
+ * which hash the same, so all of them land in one bucket. Tree-ified
+ * buckets keep each lookup at O(log n) instead of O(n).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    @Param({"16", "256", "4096", "65536"})
+    int size;
+
+    String[] lookups;
+    int index;
+
+    Dictionary<String, Integer> dictionary;
+    HashMap<String, Integer> hashMap;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] keys = collidingStrings(size);
+        lookups = keys.clone();
+        KeyDistribution.shuffle(lookups);
+
+        dictionary = new Dictionary<>();
+        hashMap = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            dictionary.set(keys[i], i);
+            hashMap.put(keys[i], i);
+        }
+    }
+
+    private String nextLookup() {
+        if (++index == size) index = 0;
+        return lookups[index];
+    }
+
+    @Benchmark
+    public Integer dictionaryGet() {
+        return dictionary.get(nextLookup());
+    }
+
+    @Benchmark
+    public Integer hashMapGet() {
+        return hashMap.get(nextLookup());
+    }
+
+    /**
+     * Generate distinct Strings that all have the same hashcode, by
+     * spelling out each number in binary with "Aa" for 0 and "BB" for 1.
+     */
+    static String[] collidingStrings(int count) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(count - 1, 1));
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder key = new StringBuilder(bits * 2);
+            for (int b = bits - 1; b >= 0; b--) {
+                key.append((i >>> b & 1) == 0 ? "Aa" : "BB");
+            }
+            keys[i] = key.toString();
+        }
+        return keys;
+    }
+}
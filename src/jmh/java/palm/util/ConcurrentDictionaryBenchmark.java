@@ -0,0 +1,94 @@
+package palm.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of ConcurrentDictionary against a Dictionary behind one lock
+ * and java.util.concurrent.ConcurrentHashMap, with a mix of reads and writes.
+ * <p>
+ * JMH fixes the thread count per benchmark class, so the nested subclasses
+ * run the same benchmark with 1, 4, 16 and 64 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class ConcurrentDictionaryBenchmark {
+
+    @Param({"1000000"})
+    int size;
+
+    /**
+     * Percentage of operations that are reads.
+     */
+    @Param({"90", "50"})
+    int readPercent;
+
+    @Param({"CONCURRENT", "SYNCHRONIZED", "CONCURRENT_HASH_MAP"})
+    String impl;
+
+    Integer[] keys;
+
+    ConcurrentDictionary<Integer, Integer> concurrent;
+    Dictionary<Integer, Integer> synchronizedDict;
+    ConcurrentHashMap<Integer, Integer> hashMap;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = KeyDistribution.RANDOM.boxedKeys(size);
+        concurrent = new ConcurrentDictionary<>(0, 64);
+        synchronizedDict = new Dictionary<>();
+        hashMap = new ConcurrentHashMap<>();
+        for (Integer key : keys) {
+            concurrent.set(key, key);
+            synchronizedDict.set(key, key);
+            hashMap.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Integer mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Integer key = keys[random.nextInt(size)];
+        boolean read = random.nextInt(100) < readPercent;
+
+        switch (impl) {
+            case "CONCURRENT":
+                if (read) return concurrent.get(key);
+                concurrent.set(key, key);
+                return key;
+            case "SYNCHRONIZED":
+                synchronized (synchronizedDict) {
+                    if (read) return synchronizedDict.get(key);
+                    synchronizedDict.set(key, key);
+                    return key;
+                }
+            default:
+                if (read) return hashMap.get(key);
+                hashMap.put(key, key);
+                return key;
+        }
+    }
+
+    @Threads(1)
+    public static class Threads1 extends ConcurrentDictionaryBenchmark {
+    }
+
+    @Threads(4)
+    public static class Threads4 extends ConcurrentDictionaryBenchmark {
+    }
+
+    @Threads(16)
+    public static class Threads16 extends ConcurrentDictionaryBenchmark {
+    }
+
+    @Threads(64)
+    public static class Threads64 extends ConcurrentDictionaryBenchmark {
+    }
+}
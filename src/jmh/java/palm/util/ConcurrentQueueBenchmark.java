@@ -0,0 +1,88 @@
+package palm.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Hand-off throughput with several producers and consumers, comparing
+ * ConcurrentQueue with a LinkedList behind one lock and
+ * java.util.concurrent.ConcurrentLinkedQueue.
+ * <p>
+ * Each group runs 4 producers and 4 consumers; change the split with
+ * JMH's -tg option.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentQueueBenchmark {
+
+    /**
+     * Capacity for the bounded queue, or 0 for unbounded.
+     */
+    @Param({"0", "1024"})
+    int bound;
+
+    static final Integer ITEM = 42;
+
+    ConcurrentQueue<Integer> queue;
+    LinkedList<Integer> lockedList;
+    ConcurrentLinkedQueue<Integer> javaQueue;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        queue = bound == 0 ? new ConcurrentQueue<>() : new ConcurrentQueue<>(bound);
+        lockedList = new LinkedList<>();
+        javaQueue = new ConcurrentLinkedQueue<>();
+    }
+
+    @Benchmark
+    @Group("concurrentQueue")
+    @GroupThreads(4)
+    public boolean concurrentQueueOffer() {
+        return queue.offer(ITEM);
+    }
+
+    @Benchmark
+    @Group("concurrentQueue")
+    @GroupThreads(4)
+    public Integer concurrentQueuePoll() {
+        return queue.poll();
+    }
+
+    @Benchmark
+    @Group("lockedList")
+    @GroupThreads(4)
+    public void lockedListOffer() {
+        synchronized (lockedList) {
+            lockedList.add(ITEM);
+        }
+    }
+
+    @Benchmark
+    @Group("lockedList")
+    @GroupThreads(4)
+    public Integer lockedListPoll() {
+        synchronized (lockedList) {
+            return lockedList.size() == 0 ? null : lockedList.remove(0);
+        }
+    }
+
+    @Benchmark
+    @Group("javaQueue")
+    @GroupThreads(4)
+    public boolean javaQueueOffer() {
+        return javaQueue.offer(ITEM);
+    }
+
+    @Benchmark
+    @Group("javaQueue")
+    @GroupThreads(4)
+    public Integer javaQueuePoll() {
+        return javaQueue.poll();
+    }
+}
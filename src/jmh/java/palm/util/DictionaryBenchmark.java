@@ -0,0 +1,228 @@
+package palm.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares Dictionary, SwissDictionary and CompactDictionary with
+ * java.util.HashMap.
+ * <p>
+ * Per-key operations cycle through a shuffled copy of the keys, so each
+ * invocation is one operation. The populate benchmarks build a whole
+ * table per invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    int size;
+
+    @Param({"SEQUENTIAL", "RANDOM", "COLLIDING"})
+    KeyDistribution distribution;
+
+    Object[] keys;
+    Object[] lookups;
+    Object[] misses;
+    int index;
+
+    Dictionary<Object, Object> dictionary;
+    Dictionary<Object, Object>.Cursor cursor;
+    SwissDictionary<Object, Object> swiss;
+    CompactDictionary<Object, Object> compact;
+    HashMap<Object, Object> hashMap;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // the keys are distinct, so the second half is never present
+        Object[] all = distribution.objectKeys(size * 2);
+        keys = Arrays.copyOf(all, size);
+        misses = Arrays.copyOfRange(all, size, size * 2);
+        KeyDistribution.shuffle(misses);
+        lookups = keys.clone();
+        KeyDistribution.shuffle(lookups);
+
+        dictionary = new Dictionary<>();
+        swiss = new SwissDictionary<>();
+        compact = new CompactDictionary<>();
+        hashMap = new HashMap<>();
+        for (Object key : keys) {
+            dictionary.set(key, key);
+            swiss.set(key, key);
+            compact.set(key, key);
+            hashMap.put(key, key);
+        }
+        cursor = dictionary.cursor();
+    }
+
+    private Object nextLookup() {
+        if (++index == size) index = 0;
+        return lookups[index];
+    }
+
+    @Benchmark
+    public Object dictionaryGet() {
+        return dictionary.get(nextLookup());
+    }
+
+    @Benchmark
+    public Object swissGet() {
+        return swiss.get(nextLookup());
+    }
+
+    @Benchmark
+    public Object compactGet() {
+        return compact.get(nextLookup());
+    }
+
+    @Benchmark
+    public Object hashMapGet() {
+        return hashMap.get(nextLookup());
+    }
+
+    @Benchmark
+    public boolean dictionaryContainsMiss() {
+        if (++index == size) index = 0;
+        return dictionary.containsKey(misses[index]);
+    }
+
+    @Benchmark
+    public boolean swissContainsMiss() {
+        if (++index == size) index = 0;
+        return swiss.containsKey(misses[index]);
+    }
+
+    @Benchmark
+    public boolean compactContainsMiss() {
+        if (++index == size) index = 0;
+        return compact.containsKey(misses[index]);
+    }
+
+    @Benchmark
+    public boolean hashMapContainsMiss() {
+        if (++index == size) index = 0;
+        return hashMap.containsKey(misses[index]);
+    }
+
+    /**
+     * Remove and re-add a key, so the size stays the same between invocations.
+     */
+    @Benchmark
+    public void dictionaryRemove() {
+        Object key = nextLookup();
+        dictionary.remove(key);
+        dictionary.set(key, key);
+    }
+
+    @Benchmark
+    public void swissRemove() {
+        Object key = nextLookup();
+        swiss.remove(key);
+        swiss.set(key, key);
+    }
+
+    @Benchmark
+    public void compactRemove() {
+        Object key = nextLookup();
+        compact.remove(key);
+        compact.set(key, key);
+    }
+
+    @Benchmark
+    public void hashMapRemove() {
+        Object key = nextLookup();
+        hashMap.remove(key);
+        hashMap.put(key, key);
+    }
+
+    @Benchmark
+    public void dictionaryIterate(Blackhole bh) {
+        for (Dictionary.Entry<Object, Object> entry : dictionary) {
+            bh.consume(entry.value());
+        }
+    }
+
+    @Benchmark
+    public void dictionaryForEach(Blackhole bh) {
+        dictionary.forEach((key, value) -> bh.consume(value));
+    }
+
+    @Benchmark
+    public void dictionaryCursor(Blackhole bh) {
+        cursor.reset();
+        while (cursor.advance()) {
+            bh.consume(cursor.value());
+        }
+    }
+
+    @Benchmark
+    public void swissIterate(Blackhole bh) {
+        for (Dictionary.Entry<Object, Object> entry : swiss) {
+            bh.consume(entry.value());
+        }
+    }
+
+    @Benchmark
+    public void compactIterate(Blackhole bh) {
+        for (Dictionary.Entry<Object, Object> entry : compact) {
+            bh.consume(entry.value());
+        }
+    }
+
+    @Benchmark
+    public void compactForEach(Blackhole bh) {
+        compact.forEach((key, value) -> bh.consume(value));
+    }
+
+    @Benchmark
+    public void hashMapIterate(Blackhole bh) {
+        for (Map.Entry<Object, Object> entry : hashMap.entrySet()) {
+            bh.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public Dictionary<Object, Object> dictionaryPopulate() {
+        Dictionary<Object, Object> dict = new Dictionary<>();
+        for (Object key : keys) {
+            dict.set(key, key);
+        }
+        return dict;
+    }
+
+    @Benchmark
+    public SwissDictionary<Object, Object> swissPopulate() {
+        SwissDictionary<Object, Object> dict = new SwissDictionary<>();
+        for (Object key : keys) {
+            dict.set(key, key);
+        }
+        return dict;
+    }
+
+    @Benchmark
+    public CompactDictionary<Object, Object> compactPopulate() {
+        CompactDictionary<Object, Object> dict = new CompactDictionary<>();
+        for (Object key : keys) {
+            dict.set(key, key);
+        }
+        return dict;
+    }
+
+    @Benchmark
+    public HashMap<Object, Object> hashMapPopulate() {
+        HashMap<Object, Object> map = new HashMap<>();
+        for (Object key : keys) {
+            map.put(key, key);
+        }
+        return map;
+    }
+}
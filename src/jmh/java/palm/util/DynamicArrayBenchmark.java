@@ -0,0 +1,179 @@
+package palm.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares DynamicArray and CircularArray with java.util.ArrayList
+ * and java.util.ArrayDeque.
+ * <p>
+ * The negative param switches get to the equivalent negative index,
+ * which ArrayList has no counterpart for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamicArrayBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean negative;
+
+    Integer[] values;
+    int[] indices;
+    int index;
+
+    DynamicArray<Integer> dynamicArray;
+    CircularArray<Integer> circularArray;
+    ArrayList<Integer> arrayList;
+    ArrayDeque<Integer> arrayDeque;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        values = KeyDistribution.SEQUENTIAL.boxedKeys(size);
+        int[] random = KeyDistribution.RANDOM.keys(size);
+        indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = Math.floorMod(random[i], size);
+        }
+
+        dynamicArray = new DynamicArray<>();
+        circularArray = new CircularArray<>();
+        arrayList = new ArrayList<>();
+        arrayDeque = new ArrayDeque<>();
+        for (Integer value : values) {
+            dynamicArray.add(value);
+            circularArray.add(value);
+            arrayList.add(value);
+            arrayDeque.add(value);
+        }
+    }
+
+    private int nextIndex() {
+        if (++index == size) index = 0;
+        return indices[index];
+    }
+
+    @Benchmark
+    public Integer dynamicArrayGet() {
+        int i = nextIndex();
+        return dynamicArray.get(negative ? i - size : i);
+    }
+
+    @Benchmark
+    public Integer arrayListGet() {
+        return arrayList.get(nextIndex());
+    }
+
+    @Benchmark
+    public Integer circularArrayGet() {
+        int i = nextIndex();
+        return circularArray.get(negative ? i - size : i);
+    }
+
+    /**
+     * Insert in the middle then remove it again, so the size stays the same.
+     */
+    @Benchmark
+    public Integer dynamicArrayInsertMiddle() {
+        int mid = size / 2;
+        dynamicArray.insert(values[0], negative ? mid - size - 1 : mid);
+        return dynamicArray.remove(negative ? mid - size - 1 : mid);
+    }
+
+    @Benchmark
+    public Integer arrayListInsertMiddle() {
+        int mid = size / 2;
+        arrayList.add(mid, values[0]);
+        return arrayList.remove(mid);
+    }
+
+    @Benchmark
+    public Integer dynamicArrayAddRemoveLast() {
+        dynamicArray.add(values[0]);
+        return dynamicArray.remove(negative ? -1 : size);
+    }
+
+    @Benchmark
+    public Integer arrayListAddRemoveLast() {
+        arrayList.add(values[0]);
+        return arrayList.remove(size);
+    }
+
+    /**
+     * Add at the front then remove it again, so the size stays the same.
+     */
+    @Benchmark
+    public Integer dynamicArrayAddRemoveFirst() {
+        dynamicArray.insert(values[0], 0);
+        return dynamicArray.remove(0);
+    }
+
+    @Benchmark
+    public Integer circularArrayAddRemoveFirst() {
+        circularArray.addFirst(values[0]);
+        return circularArray.removeFirst();
+    }
+
+    @Benchmark
+    public Integer arrayDequeAddRemoveFirst() {
+        arrayDeque.addFirst(values[0]);
+        return arrayDeque.removeFirst();
+    }
+
+    /**
+     * Use the array as a FIFO queue: add at the back, take from the front.
+     */
+    @Benchmark
+    public Integer circularArrayQueue() {
+        circularArray.addLast(values[0]);
+        return circularArray.removeFirst();
+    }
+
+    @Benchmark
+    public Integer arrayDequeQueue() {
+        arrayDeque.addLast(values[0]);
+        return arrayDeque.removeFirst();
+    }
+
+    @Benchmark
+    public void dynamicArrayIterate(Blackhole bh) {
+        for (Integer value : dynamicArray) {
+            bh.consume(value);
+        }
+    }
+
+    @Benchmark
+    public void arrayListIterate(Blackhole bh) {
+        for (Integer value : arrayList) {
+            bh.consume(value);
+        }
+    }
+
+    @Benchmark
+    public DynamicArray<Integer> dynamicArrayPopulate() {
+        DynamicArray<Integer> arr = new DynamicArray<>();
+        for (Integer value : values) {
+            arr.add(value);
+        }
+        return arr;
+    }
+
+    @Benchmark
+    public ArrayList<Integer> arrayListPopulate() {
+        ArrayList<Integer> list = new ArrayList<>();
+        for (Integer value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
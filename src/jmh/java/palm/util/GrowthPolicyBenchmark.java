@@ -0,0 +1,79 @@
+package palm.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the DynamicArray growth policies. Run with {@code -prof gc} to
+ * see how much each allocates in discarded backing arrays.
+ * <p>
+ * The populate benchmarks build a whole array per invocation. The churn
+ * benchmark removes and adds at the capacity boundary of a full array,
+ * which would resize on every call without hysteresis.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrowthPolicyBenchmark {
+
+    public enum Policy {
+        DOUBLING(GrowthPolicy.doubling()),
+        ONE_AND_A_HALF(GrowthPolicy.oneAndAHalf()),
+        FIXED_CHUNK(GrowthPolicy.fixedChunk(1024)),
+        CAPPED_GEOMETRIC(GrowthPolicy.cappedGeometric(1 << 16));
+
+        final GrowthPolicy policy;
+
+        Policy(GrowthPolicy policy) {
+            this.policy = policy;
+        }
+    }
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    @Param({"DOUBLING", "ONE_AND_A_HALF", "FIXED_CHUNK", "CAPPED_GEOMETRIC"})
+    Policy policy;
+
+    Integer[] values;
+    DynamicArray<Integer> full;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        values = KeyDistribution.SEQUENTIAL.boxedKeys(size);
+        full = new DynamicArray<>(0, policy.policy);
+        for (Integer value : values) {
+            full.add(value);
+        }
+        full.trimToSize();
+    }
+
+    @Benchmark
+    public DynamicArray<Integer> populate() {
+        DynamicArray<Integer> arr = new DynamicArray<>(0, policy.policy);
+        for (Integer value : values) {
+            arr.add(value);
+        }
+        return arr;
+    }
+
+    @Benchmark
+    public DynamicArray<Integer> populatePresized() {
+        DynamicArray<Integer> arr = new DynamicArray<>(size, policy.policy);
+        for (Integer value : values) {
+            arr.add(value);
+        }
+        return arr;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Integer churn() {
+        full.add(values[0]);
+        return full.remove(-1);
+    }
+}
@@ -0,0 +1,135 @@
+package palm.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * How benchmark keys are generated.
+ */
+public enum KeyDistribution {
+
+    /**
+     * 0, 1, 2, ...
+     */
+    SEQUENTIAL,
+
+    /**
+     * Uniformly random ints, from a fixed seed so runs are comparable.
+     */
+    RANDOM,
+
+    /**
+     * {@link CollidingKey}s in groups of {@value #COLLISIONS} that share a
+     * hashcode, so each group lands in one bucket or probe sequence however
+     * a table spreads the hash. Unlike a single shared hashcode, as in
+     * CollisionBenchmark, this keeps open-addressed tables usable at large
+     * sizes. Only {@link #objectKeys(int)} generates these keys.
+     */
+    COLLIDING;
+
+    /**
+     * The number of COLLIDING keys that share each hashcode
+     */
+    static final int COLLISIONS = 16;
+
+    private static final long SEED = 42;
+
+    /**
+     * A key whose hashcode it shares with the keys of neighbouring ids.
+     * Keys are Comparable, as Integers are, so tree-ified buckets can
+     * order them.
+     */
+    public static final class CollidingKey implements Comparable<CollidingKey> {
+        private final int id;
+
+        CollidingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CollidingKey && ((CollidingKey) obj).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id / COLLISIONS;
+        }
+
+        @Override
+        public int compareTo(CollidingKey other) {
+            return Integer.compare(id, other.id);
+        }
+    }
+
+    /**
+     * Generate the given number of distinct keys.
+     *
+     * @throws IllegalStateException for COLLIDING, whose keys are not ints
+     */
+    public int[] keys(int count) {
+        int[] keys = new int[count];
+        switch (this) {
+            case SEQUENTIAL:
+                for (int i = 0; i < count; i++) {
+                    keys[i] = i;
+                }
+                break;
+            case RANDOM:
+                IntIntDictionary seen = new IntIntDictionary(count);
+                Random random = new Random(SEED);
+                for (int i = 0; i < count; ) {
+                    int key = random.nextInt();
+                    if (!seen.containsKey(key)) {
+                        seen.set(key, 1);
+                        keys[i++] = key;
+                    }
+                }
+                break;
+            case COLLIDING:
+                throw new IllegalStateException("COLLIDING keys are not ints");
+        }
+        return keys;
+    }
+
+    /**
+     * Generate the given number of distinct keys, boxed up front so that
+     * benchmarks do not measure the boxing.
+     */
+    public Integer[] boxedKeys(int count) {
+        int[] keys = keys(count);
+        Integer[] boxed = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            boxed[i] = keys[i];
+        }
+        return boxed;
+    }
+
+    /**
+     * Generate the given number of distinct keys as objects: boxed ints,
+     * or CollidingKeys for COLLIDING.
+     */
+    public Object[] objectKeys(int count) {
+        if (this != COLLIDING) {
+            return Arrays.copyOf(boxedKeys(count), count, Object[].class);
+        }
+        Object[] keys = new Object[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = new CollidingKey(i);
+        }
+        return keys;
+    }
+
+    /**
+     * Shuffle the given array in place, so lookups do not follow insertion order.
+     */
+    public static void shuffle(Object[] arr) {
+        Random random = new Random(SEED);
+        for (int i = arr.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Object tmp = arr[i];
+            arr[i] = arr[j];
+            arr[j] = tmp;
+        }
+    }
+}
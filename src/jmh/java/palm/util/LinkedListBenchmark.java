@@ -0,0 +1,198 @@
+package palm.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares LinkedList with UnrolledLinkedList, TreeList and java.util.LinkedList.
+ * <p>
+ * The negative param switches positional calls to the equivalent
+ * negative index, which walks from the tail instead of the head.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkedListBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean negative;
+
+    Integer[] values;
+    int[] indices;
+    int index;
+
+    LinkedList<Integer> linkedList;
+    UnrolledLinkedList<Integer> unrolledList;
+    TreeList<Integer> treeList;
+    java.util.LinkedList<Integer> javaList;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        values = KeyDistribution.SEQUENTIAL.boxedKeys(size);
+        int[] random = KeyDistribution.RANDOM.keys(size);
+        indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = Math.floorMod(random[i], size);
+        }
+
+        linkedList = new LinkedList<>();
+        unrolledList = new UnrolledLinkedList<>();
+        treeList = TreeList.of(values);
+        javaList = new java.util.LinkedList<>();
+        for (Integer value : values) {
+            linkedList.add(value);
+            unrolledList.add(value);
+            javaList.add(value);
+        }
+    }
+
+    private int nextIndex() {
+        if (++index == size) index = 0;
+        return indices[index];
+    }
+
+    @Benchmark
+    public Integer linkedListGet() {
+        int i = nextIndex();
+        return linkedList.get(negative ? i - size : i);
+    }
+
+    @Benchmark
+    public Integer unrolledListGet() {
+        int i = nextIndex();
+        return unrolledList.get(negative ? i - size : i);
+    }
+
+    @Benchmark
+    public Integer treeListGet() {
+        int i = nextIndex();
+        return treeList.get(negative ? i - size : i);
+    }
+
+    @Benchmark
+    public Integer javaListGet() {
+        return javaList.get(nextIndex());
+    }
+
+    /**
+     * Insert in the middle then remove it again, so the size stays the same.
+     */
+    @Benchmark
+    public Integer linkedListInsertMiddle() {
+        int mid = size / 2;
+        linkedList.insert(values[0], negative ? mid - size - 1 : mid);
+        return linkedList.remove(negative ? mid - size - 1 : mid);
+    }
+
+    @Benchmark
+    public Integer unrolledListInsertMiddle() {
+        int mid = size / 2;
+        unrolledList.insert(values[0], negative ? mid - size - 1 : mid);
+        return unrolledList.remove(negative ? mid - size - 1 : mid);
+    }
+
+    @Benchmark
+    public Integer treeListInsertMiddle() {
+        int mid = size / 2;
+        treeList.insert(values[0], negative ? mid - size - 1 : mid);
+        return treeList.remove(negative ? mid - size - 1 : mid);
+    }
+
+    /**
+     * Insert and remove at random positions, like a ranked list.
+     */
+    @Benchmark
+    public Integer treeListInsertRandom() {
+        int i = nextIndex();
+        treeList.insert(values[0], i);
+        return treeList.remove(i);
+    }
+
+    @Benchmark
+    public Integer javaListInsertMiddle() {
+        int mid = size / 2;
+        javaList.add(mid, values[0]);
+        return javaList.remove(mid);
+    }
+
+    @Benchmark
+    public Integer linkedListAddRemoveLast() {
+        linkedList.add(values[0]);
+        return linkedList.remove(negative ? -1 : size);
+    }
+
+    @Benchmark
+    public Integer unrolledListAddRemoveLast() {
+        unrolledList.add(values[0]);
+        return unrolledList.remove(negative ? -1 : size);
+    }
+
+    @Benchmark
+    public Integer javaListAddRemoveLast() {
+        javaList.add(values[0]);
+        return javaList.removeLast();
+    }
+
+    @Benchmark
+    public void linkedListIterate(Blackhole bh) {
+        for (Integer value : linkedList) {
+            bh.consume(value);
+        }
+    }
+
+    @Benchmark
+    public void unrolledListIterate(Blackhole bh) {
+        for (Integer value : unrolledList) {
+            bh.consume(value);
+        }
+    }
+
+    @Benchmark
+    public void treeListIterate(Blackhole bh) {
+        for (Integer value : treeList) {
+            bh.consume(value);
+        }
+    }
+
+    @Benchmark
+    public void javaListIterate(Blackhole bh) {
+        for (Integer value : javaList) {
+            bh.consume(value);
+        }
+    }
+
+    @Benchmark
+    public LinkedList<Integer> linkedListPopulate() {
+        LinkedList<Integer> list = new LinkedList<>();
+        for (Integer value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public UnrolledLinkedList<Integer> unrolledListPopulate() {
+        UnrolledLinkedList<Integer> list = new UnrolledLinkedList<>();
+        for (Integer value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public java.util.LinkedList<Integer> javaListPopulate() {
+        java.util.LinkedList<Integer> list = new java.util.LinkedList<>();
+        for (Integer value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,108 @@
+package palm.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares taking a snapshot and then making one change, with the mutable
+ * structures (a full copy) against the persistent ones (one path copy).
+ * The build benchmarks compare filling a persistent structure one update
+ * at a time with filling it through a transient.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    int size;
+
+    Integer[] keys;
+    int[] indices;
+    int index;
+
+    DynamicArray<Integer> dynamicArray;
+    Dictionary<Integer, Integer> dictionary;
+    PersistentVector<Integer> vector;
+    PersistentDictionary<Integer, Integer> persistentDictionary;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = KeyDistribution.RANDOM.boxedKeys(size);
+        int[] random = KeyDistribution.RANDOM.keys(size);
+        indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = Math.floorMod(random[i], size);
+        }
+
+        dynamicArray = new DynamicArray<>();
+        dictionary = new Dictionary<>();
+        for (Integer key : keys) {
+            dynamicArray.add(key);
+            dictionary.set(key, key);
+        }
+        vector = PersistentVector.from(dynamicArray);
+        persistentDictionary = PersistentDictionary.from(dictionary);
+    }
+
+    private int nextIndex() {
+        if (++index == size) index = 0;
+        return indices[index];
+    }
+
+    @Benchmark
+    public DynamicArray<Integer> dynamicArrayCopyAndAdd() {
+        DynamicArray<Integer> copy = new DynamicArray<>();
+        copy.addAll(dynamicArray);
+        copy.add(nextIndex());
+        return copy;
+    }
+
+    @Benchmark
+    public PersistentVector<Integer> vectorSet() {
+        int i = nextIndex();
+        return vector.set(i, i);
+    }
+
+    @Benchmark
+    public PersistentVector<Integer> vectorAdd() {
+        return vector.add(nextIndex());
+    }
+
+    @Benchmark
+    public Dictionary<Integer, Integer> dictionaryCopyAndSet() {
+        Dictionary<Integer, Integer> copy = new Dictionary<>();
+        copy.putAll(dictionary);
+        Integer key = keys[nextIndex()];
+        copy.set(key, -key);
+        return copy;
+    }
+
+    @Benchmark
+    public PersistentDictionary<Integer, Integer> persistentDictionarySet() {
+        Integer key = keys[nextIndex()];
+        return persistentDictionary.set(key, -key);
+    }
+
+    @Benchmark
+    public PersistentDictionary<Integer, Integer> persistentDictionaryBuild() {
+        PersistentDictionary<Integer, Integer> dict = PersistentDictionary.empty();
+        for (Integer key : keys) {
+            dict = dict.set(key, key);
+        }
+        return dict;
+    }
+
+    @Benchmark
+    public PersistentDictionary<Integer, Integer> transientDictionaryBuild() {
+        PersistentDictionary.Transient<Integer, Integer> builder = PersistentDictionary.<Integer, Integer>empty().asTransient();
+        for (Integer key : keys) {
+            builder.set(key, key);
+        }
+        return builder.persistent();
+    }
+}
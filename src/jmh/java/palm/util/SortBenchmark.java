@@ -0,0 +1,101 @@
+package palm.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the DynamicArray and IntDynamicArray sorts with sorting a
+ * java.util.ArrayList and a plain int[].
+ * <p>
+ * Each invocation sorts a fresh copy of the same random values, refilled
+ * outside the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+
+    @Param({"100000", "20000000"})
+    int size;
+
+    int[] values;
+    Integer[] boxed;
+
+    int[] intArray;
+    IntDynamicArray intDynamicArray;
+    DynamicArray<Integer> dynamicArray;
+    ArrayList<Integer> arrayList;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        values = KeyDistribution.RANDOM.keys(size);
+        boxed = KeyDistribution.RANDOM.boxedKeys(size);
+        intDynamicArray = new IntDynamicArray();
+        dynamicArray = new DynamicArray<>();
+        arrayList = new ArrayList<>(size);
+    }
+
+    @Setup(Level.Invocation)
+    public void refill() {
+        intArray = values.clone();
+        intDynamicArray.clear();
+        for (int value : values) {
+            intDynamicArray.add(value);
+        }
+        dynamicArray.clear();
+        arrayList.clear();
+        for (Integer value : boxed) {
+            dynamicArray.add(value);
+            arrayList.add(value);
+        }
+    }
+
+    @Benchmark
+    public int[] intArraySort() {
+        Arrays.sort(intArray);
+        return intArray;
+    }
+
+    @Benchmark
+    public int[] intArrayParallelSort() {
+        Arrays.parallelSort(intArray);
+        return intArray;
+    }
+
+    @Benchmark
+    public IntDynamicArray intDynamicArrayRadixSort() {
+        intDynamicArray.sort();
+        return intDynamicArray;
+    }
+
+    @Benchmark
+    public IntDynamicArray intDynamicArrayParallelSort() {
+        intDynamicArray.parallelSort();
+        return intDynamicArray;
+    }
+
+    @Benchmark
+    public DynamicArray<Integer> dynamicArraySort() {
+        dynamicArray.sort(Comparator.naturalOrder());
+        return dynamicArray;
+    }
+
+    @Benchmark
+    public DynamicArray<Integer> dynamicArrayParallelSort() {
+        dynamicArray.parallelSort(Comparator.naturalOrder());
+        return dynamicArray;
+    }
+
+    @Benchmark
+    public ArrayList<Integer> arrayListSort() {
+        arrayList.sort(Comparator.naturalOrder());
+        return arrayList;
+    }
+}
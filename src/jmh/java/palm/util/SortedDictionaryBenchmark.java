@@ -0,0 +1,103 @@
+package palm.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares SortedDictionary with java.util.TreeMap, and a range scan with
+ * filtering every entry of an unordered Dictionary.
+ * <p>
+ * The keys are the even numbers below 2 * size, so a range of rangeSize
+ * keys spans 2 * rangeSize numbers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedDictionaryBenchmark {
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    @Param({"1000"})
+    int rangeSize;
+
+    Integer[] lookups;
+    int index;
+
+    SortedDictionary<Integer, Integer> sorted;
+    TreeMap<Integer, Integer> treeMap;
+    Dictionary<Integer, Integer> dictionary;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        lookups = new Integer[size];
+        sorted = new SortedDictionary<>();
+        treeMap = new TreeMap<>();
+        dictionary = new Dictionary<>();
+        for (int i = 0; i < size; i++) {
+            Integer key = 2 * i;
+            lookups[i] = key;
+            sorted.set(key, key);
+            treeMap.put(key, key);
+            dictionary.set(key, key);
+        }
+        KeyDistribution.shuffle(lookups);
+    }
+
+    private Integer nextLookup() {
+        if (++index == size) index = 0;
+        return lookups[index];
+    }
+
+    @Benchmark
+    public Integer sortedGet() {
+        return sorted.get(nextLookup());
+    }
+
+    @Benchmark
+    public Integer treeMapGet() {
+        return treeMap.get(nextLookup());
+    }
+
+    @Benchmark
+    public Integer sortedFloor() {
+        return sorted.floorKey(nextLookup() + 1);
+    }
+
+    @Benchmark
+    public Integer treeMapFloor() {
+        return treeMap.floorKey(nextLookup() + 1);
+    }
+
+    @Benchmark
+    public void sortedRange(Blackhole bh) {
+        Integer from = nextLookup();
+        sorted.range(from, from + 2 * rangeSize).forEach((key, value) -> bh.consume(value));
+    }
+
+    @Benchmark
+    public void treeMapRange(Blackhole bh) {
+        Integer from = nextLookup();
+        for (Map.Entry<Integer, Integer> entry : treeMap.subMap(from, from + 2 * rangeSize).entrySet()) {
+            bh.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public void dictionaryFilter(Blackhole bh) {
+        int from = nextLookup();
+        int to = from + 2 * rangeSize;
+        dictionary.forEach((key, value) -> {
+            if (key >= from && key < to) {
+                bh.consume(value);
+            }
+        });
+    }
+}
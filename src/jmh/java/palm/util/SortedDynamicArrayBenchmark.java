@@ -0,0 +1,95 @@
+package palm.util;
+
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares membership checks in SortedDynamicArray with a linear
+ * DynamicArray.indexOf and java.util.TreeSet, and adding a batch with one
+ * merge against adding its elements one at a time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedDynamicArrayBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    int size;
+
+    /**
+     * The number of elements added to a full array per invocation.
+     */
+    @Param({"1000"})
+    int batchSize;
+
+    Integer[] keys;
+    Integer[] lookups;
+    DynamicArray<Integer> batch;
+    int index;
+
+    SortedDynamicArray<Integer> sorted;
+    DynamicArray<Integer> dynamicArray;
+    TreeSet<Integer> treeSet;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = KeyDistribution.RANDOM.boxedKeys(size);
+        lookups = keys.clone();
+        KeyDistribution.shuffle(lookups);
+        batch = new DynamicArray<>();
+        for (Integer key : KeyDistribution.RANDOM.boxedKeys(batchSize)) {
+            batch.add(~key);
+        }
+
+        sorted = new SortedDynamicArray<>();
+        sorted.addAll(DynamicArray.of(keys));
+        dynamicArray = DynamicArray.of(keys);
+        treeSet = new TreeSet<>();
+        for (Integer key : keys) {
+            treeSet.add(key);
+        }
+    }
+
+    private Integer nextLookup() {
+        if (++index == size) index = 0;
+        return lookups[index];
+    }
+
+    @Benchmark
+    public boolean sortedContains() {
+        return sorted.contains(nextLookup());
+    }
+
+    @Benchmark
+    public boolean dynamicArrayContains() {
+        return dynamicArray.indexOf(nextLookup()) != -1;
+    }
+
+    @Benchmark
+    public boolean treeSetContains() {
+        return treeSet.contains(nextLookup());
+    }
+
+    @Benchmark
+    public SortedDynamicArray<Integer> sortedAddAll() {
+        SortedDynamicArray<Integer> copy = new SortedDynamicArray<>();
+        copy.addAll(sorted);
+        copy.addAll(batch);
+        return copy;
+    }
+
+    @Benchmark
+    public SortedDynamicArray<Integer> sortedAddEach() {
+        SortedDynamicArray<Integer> copy = new SortedDynamicArray<>();
+        copy.addAll(sorted);
+        for (Integer item : batch) {
+            copy.add(item);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,144 @@
+package palm.util.cache;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput and hit ratio of the cache policies on skewed traces.
+ * Each operation is one get with a loader. The "hits" and "misses"
+ * counters in the results are totals, so the hit ratio of a run is
+ * hits / (hits + misses).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+    private static final int TRACE_LENGTH = 1 << 20;
+    private static final int KEY_SPACE = 1 << 17;
+
+    public enum Policy {
+        LRU, TINY_LFU;
+
+        Cache<Integer, Integer> create(int maximumSize) {
+            return this == LRU ? new LruCache<>(maximumSize) : new TinyLfuCache<>(maximumSize);
+        }
+    }
+
+    public enum Trace {
+        /**
+         * Zipf-distributed keys, where a few keys get most of the uses.
+         */
+        ZIPF,
+
+        /**
+         * The Zipf trace with every other request replaced by the next key
+         * of a sequential scan, which is never requested again.
+         */
+        ZIPF_WITH_SCAN;
+
+        Integer[] generate() {
+            Integer[] keys = new Integer[TRACE_LENGTH];
+            double[] cumulative = zipfCumulative(KEY_SPACE, 0.99);
+            Random random = new Random(42);
+            int scanKey = KEY_SPACE;
+            for (int i = 0; i < TRACE_LENGTH; i++) {
+                if (this == ZIPF_WITH_SCAN && i % 2 == 1) {
+                    keys[i] = scanKey++;
+                } else {
+                    keys[i] = rank(cumulative, random.nextDouble());
+                }
+            }
+            return keys;
+        }
+    }
+
+    @Param({"LRU", "TINY_LFU"})
+    Policy policy;
+
+    @Param({"ZIPF", "ZIPF_WITH_SCAN"})
+    Trace trace;
+
+    @Param({"1000", "10000"})
+    int maximumSize;
+
+    Integer[] keys;
+    int index;
+    Cache<Integer, Integer> cache;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long hits;
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = trace.generate();
+        cache = policy.create(maximumSize);
+        // fill the cache so the measurement starts from steady state
+        for (Integer key : keys) {
+            cache.get(key, k -> k);
+        }
+    }
+
+    @Benchmark
+    public Integer get(Counters counters) {
+        if (++index == TRACE_LENGTH) index = 0;
+        Integer key = keys[index];
+        Integer value = cache.get(key);
+        if (value == null) {
+            counters.misses++;
+            value = key;
+            cache.set(key, value);
+        } else {
+            counters.hits++;
+        }
+        return value;
+    }
+
+    //-----------------------------------------------------------
+
+    private static double[] zipfCumulative(int n, double skew) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Binary search for the first rank whose cumulative probability
+     * reaches p, then scatter it so popular keys are not all small ints.
+     */
+    private static int rank(double[] cumulative, double p) {
+        int lo = 0;
+        int hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] < p) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return (lo * 0x9E3779B1) & (KEY_SPACE - 1);
+    }
+}
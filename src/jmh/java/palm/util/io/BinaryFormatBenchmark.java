@@ -0,0 +1,130 @@
+package palm.util.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import palm.util.Dictionary;
+import palm.util.DynamicArray;
+
+/**
+ * Encode and decode throughput of BinaryFormat. The "megabytes" counter
+ * in the results is the throughput in MB/s.
+ * <p>
+ * Output goes to a reused in-memory channel, so the numbers exclude
+ * any disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryFormatBenchmark {
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    Dictionary<Integer, String> dictionary;
+    DynamicArray<Long> array;
+    ByteBuffer dictionaryBytes;
+    ByteBuffer arrayBytes;
+    BufferChannel channel;
+
+    /**
+     * Counts megabytes moved, which JMH reports per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    /**
+     * A channel writing into one growable buffer.
+     */
+    static class BufferChannel implements WritableByteChannel {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+        @Override
+        public int write(ByteBuffer src) {
+            if (src.remaining() > buffer.remaining()) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + src.remaining()));
+                buffer.flip();
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+            int count = src.remaining();
+            buffer.put(src);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        ByteBuffer contents() {
+            ByteBuffer copy = buffer.duplicate();
+            copy.flip();
+            return copy;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dictionary = new Dictionary<>(size);
+        array = new DynamicArray<>();
+        for (int i = 0; i < size; i++) {
+            dictionary.set(i, "value-" + i);
+            array.add((long) i);
+        }
+        channel = new BufferChannel();
+
+        BinaryFormat.write(dictionary, Codecs.INT, Codecs.STRING, channel);
+        dictionaryBytes = channel.contents();
+        channel = new BufferChannel();
+        BinaryFormat.write(array, Codecs.LONG, channel);
+        arrayBytes = channel.contents();
+    }
+
+    @Benchmark
+    public long writeDictionary(Throughput throughput) throws IOException {
+        channel.buffer.clear();
+        long bytes = BinaryFormat.write(dictionary, Codecs.INT, Codecs.STRING, channel);
+        throughput.megabytes += bytes / 1e6;
+        return bytes;
+    }
+
+    @Benchmark
+    public Dictionary<Integer, String> readDictionary(Throughput throughput) throws IOException {
+        throughput.megabytes += dictionaryBytes.remaining() / 1e6;
+        return BinaryFormat.readDictionary(dictionaryBytes.duplicate(), Codecs.INT, Codecs.STRING);
+    }
+
+    @Benchmark
+    public long writeArray(Throughput throughput) throws IOException {
+        channel.buffer.clear();
+        long bytes = BinaryFormat.write(array, Codecs.LONG, channel);
+        throughput.megabytes += bytes / 1e6;
+        return bytes;
+    }
+
+    @Benchmark
+    public DynamicArray<Long> readArray(Throughput throughput) throws IOException {
+        throughput.megabytes += arrayBytes.remaining() / 1e6;
+        return BinaryFormat.readDynamicArray(arrayBytes.duplicate(), Codecs.LONG);
+    }
+}
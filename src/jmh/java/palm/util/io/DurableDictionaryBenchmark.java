@@ -0,0 +1,108 @@
+package palm.util.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Write throughput of DurableDictionary under each sync policy, and
+ * recovery time from a log alone or from a snapshot plus a short log.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DurableDictionaryBenchmark {
+
+    static void deleteDir(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WriteState {
+        @Param({"ALWAYS", "BATCH_100", "EVERY_10_MS", "NEVER"})
+        String policy;
+
+        Path dir;
+        DurableDictionary<Integer, Long> dict;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("durable-bench");
+            dict = DurableDictionary.open(dir, Codecs.INT, Codecs.LONG, policy());
+        }
+
+        SyncPolicy policy() {
+            switch (policy) {
+                case "ALWAYS": return SyncPolicy.always();
+                case "BATCH_100": return SyncPolicy.everyWrites(100);
+                case "EVERY_10_MS": return SyncPolicy.everyMillis(10);
+                default: return SyncPolicy.never();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            dict.close();
+            deleteDir(dir);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void write(WriteState state) {
+        int key = state.next++ & 0xFFFFF;
+        state.dict.set(key, (long) key);
+    }
+
+    @State(Scope.Benchmark)
+    public static class RecoveryState {
+        @Param({"100000", "1000000"})
+        int size;
+
+        @Param({"false", "true"})
+        boolean snapshot;
+
+        Path dir;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("durable-bench");
+            try (DurableDictionary<Integer, Long> dict = DurableDictionary.open(
+                    dir, Codecs.INT, Codecs.LONG, SyncPolicy.never())) {
+                for (int i = 0; i < size; i++) {
+                    dict.set(i, (long) i);
+                }
+                if (snapshot) {
+                    dict.snapshot();
+                    // a short log tail to replay on top
+                    for (int i = 0; i < size / 100; i++) {
+                        dict.set(i, (long) -i);
+                    }
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteDir(dir);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int recover(RecoveryState state) throws IOException {
+        try (DurableDictionary<Integer, Long> dict = DurableDictionary.open(
+                state.dir, Codecs.INT, Codecs.LONG, SyncPolicy.never())) {
+            return dict.size();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package palm.util;
+
+/**
+ * A snapshot of the capacity of a {@link DynamicArray} and, if enabled
+ * with {@code -Dpalm.util.stats=true}, counts of its growth and shrink
+ * churn.
+ */
+public final class ArrayStats {
+    private final int size;
+    private final int capacity;
+    private final long grows;
+    private final long shrinks;
+    private final long elementsCopied;
+    private final long iterators;
+
+    ArrayStats(int size, int capacity, long grows, long shrinks, long elementsCopied, long iterators) {
+        this.size = size;
+        this.capacity = capacity;
+        this.grows = grows;
+        this.shrinks = shrinks;
+        this.elementsCopied = elementsCopied;
+        this.iterators = iterators;
+    }
+
+    /**
+     * Get the number of elements.
+     */
+    public int size() { return size; }
+
+    /**
+     * Get the number of elements there is room for.
+     */
+    public int capacity() { return capacity; }
+
+    /**
+     * Get the fraction of the capacity that is in use.
+     */
+    public double utilization() { return capacity == 0 ? 1.0 : (double) size / capacity; }
+
+    /**
+     * Check if the event counts below were being kept.
+     */
+    public boolean countersEnabled() { return Instrumentation.ENABLED; }
+
+    /**
+     * Get the number of times the capacity has grown.
+     */
+    public long growCount() { return grows; }
+
+    /**
+     * Get the number of times the capacity has shrunk.
+     */
+    public long shrinkCount() { return shrinks; }
+
+    /**
+     * Get the number of elements copied into new backing arrays. Each
+     * costs one reference, 4 or 8 bytes depending on the JVM.
+     */
+    public long elementsCopied() { return elementsCopied; }
+
+    /**
+     * Get the number of iterators and spliterators created.
+     */
+    public long iteratorCount() { return iterators; }
+
+    @Override
+    public String toString() {
+        return "ArrayStats[size=" + size + ", capacity=" + capacity
+            + ", grows=" + grows + ", shrinks=" + shrinks
+            + ", elementsCopied=" + elementsCopied + ", iterators=" + iterators + "]";
+    }
+}
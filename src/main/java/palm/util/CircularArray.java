@@ -0,0 +1,351 @@
+package palm.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A dynamically-sized array stored as a ring, so items can be added and
+ * removed at either end in O(1).
+ * <p>
+ * The items run from head round to head + size, wrapping past the end of
+ * the backing array. The capacity is always a power of two, so wrapping is
+ * a mask rather than a division. When full, the ring is unrolled into a
+ * new array twice the size, with head at 0.
+ * <p>
+ * Like {@link DynamicArray}, indices may be negative to count back from the
+ * end, so -1 is the last item.
+ *
+ * @param <T> the type of data in the array
+ */
+public class CircularArray<T> implements Iterable<T> {
+
+    /**
+     * Create a CircularArray with the specified elements.
+     * Elements are stored in the order they appear.
+     *
+     * @param elements the elements to add
+     */
+    @SafeVarargs
+    public static <E> CircularArray<E> of(E... elements) {
+        CircularArray<E> arr = new CircularArray<>(elements.length);
+        for (E elem : elements) {
+            arr.addLast(elem);
+        }
+        return arr;
+    }
+
+    /**
+     * Default capacity for a new CircularArray
+     */
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private T[] elements;
+    private int head;
+    private int size;
+
+    /**
+     * Create an empty CircularArray.
+     */
+    public CircularArray() {
+        this(0);
+    }
+
+    /**
+     * Create an empty CircularArray with room for the given number of
+     * elements before it needs to grow.
+     *
+     * @param expectedSize the number of elements expected
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    public CircularArray(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("CircularArray size cannot be negative");
+        }
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        elements = allocateArray(capacity);
+    }
+
+    /**
+     * Get the number of items currently in the array.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add the given element to the end of the array.
+     * @param item the element to add
+     */
+    public void add(T item) {
+        addLast(item);
+    }
+
+    /**
+     * Add the given element to the front of the array.
+     * @param item the element to add
+     */
+    public void addFirst(T item) {
+        ensureCapacity();
+        head = (head - 1) & mask();
+        elements[head] = item;
+        size++;
+    }
+
+    /**
+     * Add the given element to the end of the array.
+     * @param item the element to add
+     */
+    public void addLast(T item) {
+        ensureCapacity();
+        elements[(head + size) & mask()] = item;
+        size++;
+    }
+
+    /**
+     * Remove the first item.
+     *
+     * @return the item removed
+     * @throws IndexOutOfBoundsException if the array is empty
+     */
+    public T removeFirst() {
+        checkIndex(0);
+        T item = elements[head];
+        elements[head] = null;
+        head = (head + 1) & mask();
+        size--;
+        return item;
+    }
+
+    /**
+     * Remove the last item.
+     *
+     * @return the item removed
+     * @throws IndexOutOfBoundsException if the array is empty
+     */
+    public T removeLast() {
+        checkIndex(0);
+        int last = (head + size - 1) & mask();
+        T item = elements[last];
+        elements[last] = null;
+        size--;
+        return item;
+    }
+
+    /**
+     * Insert the given item at the specified index.
+     * The index must be in range 0 <= index <= size (or negative, counting
+     * back from the end). Whichever side of the index is shorter is shifted
+     * to make room.
+     *
+     * @param item the item to add
+     * @param index the index to add the item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public void insert(T item, int index) {
+        index = index < 0 ? size + index + 1 : index;
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureCapacity();
+
+        int mask = mask();
+        if (index < size / 2) {
+            head = (head - 1) & mask;
+            for (int i = 0; i < index; i++) {
+                elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+            }
+        } else {
+            for (int i = size; i > index; i--) {
+                elements[(head + i) & mask] = elements[(head + i - 1) & mask];
+            }
+        }
+        elements[(head + index) & mask] = item;
+        size++;
+    }
+
+    /**
+     * Remove the item at the specified index.
+     * Whichever side of the index is shorter is shifted to close the gap.
+     *
+     * @param index the index to remove the item from
+     * @return the item removed
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T remove(int index) {
+        index = absoluteIndex(index);
+        checkIndex(index);
+
+        int mask = mask();
+        T item = elements[(head + index) & mask];
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                elements[(head + i) & mask] = elements[(head + i - 1) & mask];
+            }
+            elements[head] = null;
+            head = (head + 1) & mask;
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+            }
+            elements[(head + size - 1) & mask] = null;
+        }
+        size--;
+        return item;
+    }
+
+    /**
+     * Get the item at the specified index.
+     *
+     * @param index the index to get the item from
+     * @return the item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T get(int index) {
+        index = absoluteIndex(index);
+        checkIndex(index);
+        return elements[(head + index) & mask()];
+    }
+
+    /**
+     * Replace the item at the specified index.
+     *
+     * @param index the index to set the item at
+     * @param item the new item
+     * @return the item that was replaced
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T set(int index, T item) {
+        index = absoluteIndex(index);
+        checkIndex(index);
+        int slot = (head + index) & mask();
+        T old = elements[slot];
+        elements[slot] = item;
+        return old;
+    }
+
+    /**
+     * Find the index that the given item appears at.
+     *
+     * @param item the item to find
+     * @return the index, or -1 if not found
+     */
+    public int indexOf(T item) {
+        int mask = mask();
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(item, elements[(head + i) & mask])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Clear all the elements from this array.
+     */
+    public void clear() {
+        Arrays.fill(elements, null);
+        head = 0;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new CircularIterator();
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED);
+    }
+
+    /**
+     * Get a sequential stream of the elements.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the elements.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class CircularIterator implements Iterator<T> {
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public T next() {
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            return elements[(head + index++) & mask()];
+        }
+    }
+
+    //----------------
+
+    @SuppressWarnings("unchecked")
+    private static <T> T[] allocateArray(int capacity) {
+        return (T[]) new Object[capacity];
+    }
+
+    private int mask() {
+        return elements.length - 1;
+    }
+
+    /**
+     * Double the capacity if full, unrolling the ring so head is at 0.
+     */
+    private void ensureCapacity() {
+        if (size < elements.length) {
+            return;
+        }
+        if (elements.length == MAX_CAPACITY) {
+            throw new IllegalStateException("CircularArray is full");
+        }
+        T[] newArr = allocateArray(elements.length * 2);
+        int firstPart = elements.length - head;
+        System.arraycopy(elements, head, newArr, 0, firstPart);
+        System.arraycopy(elements, 0, newArr, firstPart, head);
+        elements = newArr;
+        head = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private int absoluteIndex(int index) {
+        return index < 0 ? size + index : index;
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the capacity
+     */
+    int getCapacity() {
+        return elements.length;
+    }
+
+}
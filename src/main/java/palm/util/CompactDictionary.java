@@ -0,0 +1,445 @@
+package palm.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A Dictionary that remembers the order keys were first added in, laid out
+ * like CPython's dict.
+ * <p>
+ * The entries are appended to dense parallel arrays of hashes, keys and
+ * values, so there is no object per entry, and iterating is a scan of
+ * those arrays in insertion order. Lookups go through a separate index
+ * table, an open-addressed hash table whose slots hold only the position
+ * of an entry in the dense arrays. The index table uses the narrowest of
+ * byte, short or int that can hold every position, so a small dictionary
+ * spends a byte per slot on it.
+ * <p>
+ * Removing a key leaves a hole in the dense arrays and a tombstone in the
+ * index table. Both are cleared out when the dense arrays fill up and the
+ * dictionary is rebuilt, which also grows it if needed. Setting the value
+ * of a key that is already present keeps its place in the order.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public class CompactDictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
+
+    /**
+     * Create a CompactDictionary with the given entries, in order.
+     *
+     * @param entries the entries to add
+     */
+    @SafeVarargs
+    public static <K, V> CompactDictionary<K, V> of(Dictionary.Entry<K, V>... entries) {
+        CompactDictionary<K, V> dict = new CompactDictionary<>(entries.length);
+        for (Dictionary.Entry<K, V> entry : entries) {
+            dict.add(entry);
+        }
+        return dict;
+    }
+
+    private static final int MIN_TABLE_SIZE = 8;
+
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+
+    /**
+     * Index slot values that aren't entry positions
+     */
+    private static final int EMPTY = -1;
+    private static final int DELETED = -2;
+
+    private final int initialTableSize;
+
+    /**
+     * The index table, in whichever one of these is wide enough
+     */
+    private byte[] byteIndex;
+    private short[] shortIndex;
+    private int[] intIndex;
+    private int mask;
+
+    /**
+     * The dense entry arrays. Removed entries have a null key.
+     */
+    private int[] hashes;
+    private Object[] keys;
+    private Object[] values;
+
+    /**
+     * The number of entries appended, including removed ones
+     */
+    private int used;
+    private int size;
+
+    /**
+     * Create an empty CompactDictionary
+     */
+    public CompactDictionary() {
+        this(0);
+    }
+
+    /**
+     * Create an empty CompactDictionary with room for the given number of
+     * entries before it needs to grow.
+     *
+     * @param expectedSize the number of entries expected
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    public CompactDictionary(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("CompactDictionary size cannot be negative");
+        }
+        initialTableSize = tableSizeFor(expectedSize);
+        allocate(initialTableSize);
+    }
+
+    /**
+     * Get the number of entries in the dictionary.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add the given entry to the dictionary, replacing the value of any
+     * entry with the same key.
+     *
+     * @param item the entry to add
+     */
+    public void add(Dictionary.Entry<K, V> item) {
+        set(item.key, item.value);
+    }
+
+    /**
+     * Associate the value with the given key. A new key goes at the end
+     * of the order, while an existing key keeps its place.
+     *
+     * @param key the key to set
+     * @param value the value to associate with the key
+     * @throws IllegalArgumentException if key is null
+     */
+    public void set(K key, V value) {
+        checkKey(key);
+        int hash = hash(key);
+        int entry = findEntry(key, hash);
+        if (entry >= 0) {
+            values[entry] = value;
+            return;
+        }
+        if (used == keys.length) {
+            rebuild();
+        }
+        setIndex(findFreeSlot(hash), used);
+        hashes[used] = hash;
+        keys[used] = key;
+        values[used] = value;
+        used++;
+        size++;
+    }
+
+    /**
+     * Get the value associated with the given key.
+     *
+     * @param key the key to get the value of
+     * @return the value, or null if the key is not present
+     * @throws IllegalArgumentException if key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        checkKey(key);
+        int entry = findEntry(key, hash(key));
+        return entry >= 0 ? (V) values[entry] : null;
+    }
+
+    /**
+     * Check if the given key is in the dictionary.
+     *
+     * @throws IllegalArgumentException if key is null
+     */
+    public boolean containsKey(K key) {
+        checkKey(key);
+        return findEntry(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Remove the given key.
+     *
+     * @param key the key to remove
+     * @return the value that was associated with the key, or null if it
+     *         was not present
+     * @throws IllegalArgumentException if key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        checkKey(key);
+        int slot = findSlot(key, hash(key));
+        if (slot == -1) {
+            return null;
+        }
+        int entry = getIndex(slot);
+        setIndex(slot, DELETED);
+        V value = (V) values[entry];
+        keys[entry] = null;
+        values[entry] = null;
+        size--;
+        return value;
+    }
+
+    /**
+     * Clear the dictionary.
+     */
+    public void clear() {
+        allocate(initialTableSize);
+        used = 0;
+        size = 0;
+    }
+
+    /**
+     * Get an iterator over the entries in insertion order. Each entry is
+     * made as it is reached, so changing it does not change the dictionary.
+     */
+    @Override
+    public Iterator<Dictionary.Entry<K, V>> iterator() {
+        return new DenseIterator();
+    }
+
+    /**
+     * Perform the action for each key and value in insertion order,
+     * scanning the dense arrays directly.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Object[] keys = this.keys;
+        Object[] values = this.values;
+        int used = this.used;
+        for (int i = 0; i < used; i++) {
+            Object key = keys[i];
+            if (key != null) {
+                action.accept((K) key, (V) values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<Dictionary.Entry<K, V>> spliterator() {
+        return Spliterators.spliterator(iterator(), size,
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * Get a sequential stream of the entries, in insertion order.
+     */
+    public Stream<Dictionary.Entry<K, V>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the entries.
+     */
+    public Stream<Dictionary.Entry<K, V>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class DenseIterator implements Iterator<Dictionary.Entry<K, V>> {
+        private int index = skipHoles(0);
+
+        @Override
+        public boolean hasNext() {
+            return index < used;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Dictionary.Entry<K, V> next() {
+            if (index >= used) {
+                throw new NoSuchElementException();
+            }
+            Dictionary.Entry<K, V> entry = Dictionary.Entry.of((K) keys[index], (V) values[index]);
+            index = skipHoles(index + 1);
+            return entry;
+        }
+
+        private int skipHoles(int i) {
+            while (i < used && keys[i] == null) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    //----------------
+
+    /**
+     * Find the key's position in the dense arrays.
+     *
+     * @return the position, or -1 if not present
+     */
+    private int findEntry(Object key, int hash) {
+        int slot = findSlot(key, hash);
+        return slot == -1 ? -1 : getIndex(slot);
+    }
+
+    /**
+     * Find the index table slot holding the key's position. As in CPython,
+     * each step mixes in more of the hash's upper bits, so keys whose lower
+     * bits collide soon go separate ways, and once they are used up every
+     * slot is reached eventually.
+     *
+     * @return the slot, or -1 if not present
+     */
+    private int findSlot(Object key, int hash) {
+        int slot = hash & mask;
+        int perturb = hash;
+        while (true) {
+            int entry = getIndex(slot);
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry >= 0 && hashes[entry] == hash && key.equals(keys[entry])) {
+                return slot;
+            }
+            perturb >>>= 5;
+            slot = (slot * 5 + perturb + 1) & mask;
+        }
+    }
+
+    /**
+     * Find the first empty or deleted slot for a hash, following the
+     * same steps as {@link #findSlot(Object, int)}.
+     */
+    private int findFreeSlot(int hash) {
+        int slot = hash & mask;
+        int perturb = hash;
+        while (getIndex(slot) >= 0) {
+            perturb >>>= 5;
+            slot = (slot * 5 + perturb + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int getIndex(int slot) {
+        if (byteIndex != null) {
+            return byteIndex[slot];
+        }
+        if (shortIndex != null) {
+            return shortIndex[slot];
+        }
+        return intIndex[slot];
+    }
+
+    private void setIndex(int slot, int entry) {
+        if (byteIndex != null) {
+            byteIndex[slot] = (byte) entry;
+        } else if (shortIndex != null) {
+            shortIndex[slot] = (short) entry;
+        } else {
+            intIndex[slot] = entry;
+        }
+    }
+
+    /**
+     * Allocate an empty index table of the given size, and dense arrays
+     * with room for two thirds of that, so the table never gets more than
+     * two thirds full.
+     */
+    private void allocate(int tableSize) {
+        int capacity = tableSize / 3 * 2;
+        byteIndex = null;
+        shortIndex = null;
+        intIndex = null;
+        if (capacity <= Byte.MAX_VALUE) {
+            byteIndex = new byte[tableSize];
+            Arrays.fill(byteIndex, (byte) EMPTY);
+        } else if (capacity <= Short.MAX_VALUE) {
+            shortIndex = new short[tableSize];
+            Arrays.fill(shortIndex, (short) EMPTY);
+        } else {
+            intIndex = new int[tableSize];
+            Arrays.fill(intIndex, EMPTY);
+        }
+        mask = tableSize - 1;
+        hashes = new int[capacity];
+        keys = new Object[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Copy the live entries, in order, into a new table with room for
+     * twice as many, dropping the holes left by removed entries.
+     */
+    private void rebuild() {
+        int[] oldHashes = hashes;
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldUsed = used;
+
+        int tableSize = tableSizeFor(size * 2);
+        if (tableSize / 3 * 2 <= size) {
+            throw new IllegalStateException("CompactDictionary is full");
+        }
+        allocate(tableSize);
+        used = 0;
+        for (int i = 0; i < oldUsed; i++) {
+            if (oldKeys[i] != null) {
+                setIndex(findFreeSlot(oldHashes[i]), used);
+                hashes[used] = oldHashes[i];
+                keys[used] = oldKeys[i];
+                values[used] = oldValues[i];
+                used++;
+            }
+        }
+    }
+
+    /**
+     * Get the smallest table size whose dense arrays hold the given number
+     * of entries.
+     */
+    private static int tableSizeFor(int entries) {
+        int tableSize = MIN_TABLE_SIZE;
+        while (tableSize / 3 * 2 < entries && tableSize < MAX_TABLE_SIZE) {
+            tableSize <<= 1;
+        }
+        return tableSize;
+    }
+
+    private static void checkKey(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("CompactDictionary does not support null keys");
+        }
+    }
+
+    /**
+     * Spread the higher bits of the hashcode into the lower ones,
+     * since only the lower bits pick the first slot.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the number of slots in the index table
+     */
+    int getTableSize() {
+        return mask + 1;
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the number of bytes per index table slot
+     */
+    int getIndexWidth() {
+        return byteIndex != null ? 1 : shortIndex != null ? 2 : 4;
+    }
+
+}
@@ -0,0 +1,468 @@
+package palm.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe {@link Dictionary} with the same bucket layout: an array of
+ * bins, each holding a chain of entries.
+ * <p>
+ * Reads take no locks. Writes lock one of a fixed number of stripes, chosen
+ * by the low bits of the hash, so writers only contend when they hit the
+ * same stripe. The table always has at least as many bins as there are
+ * stripes, so every bin belongs to exactly one stripe.
+ * <p>
+ * Resizing moves one stripe at a time into a new table. Each moved bin is
+ * replaced by a forwarding node, which sends readers and writers on to the
+ * new table, so reads carry on during a resize and writers only wait for
+ * the stripe currently being moved.
+ * <p>
+ * Iteration is weakly consistent: it never throws because of concurrent
+ * changes, and sees every entry that was present for the whole iteration,
+ * but may or may not see entries added or removed while it runs.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class ConcurrentDictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
+
+    @SafeVarargs
+    public static <K, V> ConcurrentDictionary<K, V> of(Dictionary.Entry<K, V>...entries) {
+        ConcurrentDictionary<K, V> dict = new ConcurrentDictionary<>();
+        for (Dictionary.Entry<K, V> entry : entries) {
+            dict.add(entry);
+        }
+        return dict;
+    }
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int DEFAULT_STRIPES = 16;
+
+    /**
+     * Ratio of size/capacity to trigger growing
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Hash of forwarding nodes. Hashes of real entries are never negative.
+     */
+    private static final int MOVED = -1;
+
+    private static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Placed in a bin of the old table once its entries have been moved.
+     */
+    private static class ForwardingNode<K, V> extends Node<K, V> {
+        final AtomicReferenceArray<Node<K, V>> nextTable;
+
+        ForwardingNode(AtomicReferenceArray<Node<K, V>> nextTable) {
+            super(MOVED, null, null, null);
+            this.nextTable = nextTable;
+        }
+    }
+
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+    private final AtomicBoolean resizing = new AtomicBoolean();
+
+    private final Object[] locks;
+    private final int stripeMask;
+
+    /**
+     * Number of entries per stripe, only written while holding that stripe's lock.
+     */
+    private final AtomicIntegerArray counts;
+
+    private final int initialCapacity;
+
+    /**
+     * Create an empty ConcurrentDictionary.
+     */
+    public ConcurrentDictionary() {
+        this(0, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Create an empty ConcurrentDictionary with room for the given number
+     * of entries before it needs to grow.
+     *
+     * @param expectedSize the number of entries expected
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    public ConcurrentDictionary(int expectedSize) {
+        this(expectedSize, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Create an empty ConcurrentDictionary.
+     *
+     * @param expectedSize the number of entries expected
+     * @param concurrencyLevel the number of lock stripes, rounded up to a power of two
+     * @throws IllegalArgumentException if expectedSize is negative or concurrencyLevel is not positive
+     */
+    public ConcurrentDictionary(int expectedSize, int concurrencyLevel) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Dictionary size cannot be negative");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Concurrency level must be positive");
+        }
+        int stripes = powerOfTwoAtLeast(Math.min(concurrencyLevel, 1 << 16));
+        locks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new Object();
+        }
+        stripeMask = stripes - 1;
+        counts = new AtomicIntegerArray(stripes);
+
+        int needed = (int) Math.ceil(expectedSize / LOAD_FACTOR);
+        initialCapacity = powerOfTwoAtLeast(Math.max(needed, Math.max(DEFAULT_CAPACITY, stripes)));
+        table = new AtomicReferenceArray<>(initialCapacity);
+    }
+
+    /**
+     * Get the amount of entries in this Dictionary.
+     * While other threads are writing, this is only an estimate.
+     *
+     * @return the current size
+     */
+    public int size() {
+        long sum = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            sum += counts.get(i);
+        }
+        return (int) Math.min(sum, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Add the given entry to the Dictionary.
+     *
+     * @param item the entry to add
+     */
+    public void add(Dictionary.Entry<K, V> item) {
+        if (item == null || item.key == null) {
+            throw new IllegalArgumentException("Dictionary does not support null keys");
+        }
+        put(item.key, item.value, false);
+    }
+
+    /**
+     * Set the mapping for the given key to be the given value
+     *
+     * @param key the key
+     * @param value the new value
+     */
+    public void set(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Dictionary does not support null keys");
+        }
+        put(key, value, false);
+    }
+
+    /**
+     * Atomically set the mapping for the given key, only if it has none.
+     *
+     * @param key the key
+     * @param value the new value
+     * @return the value already mapped to the key, or null if the new value was set
+     */
+    public V setIfAbsent(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Dictionary does not support null keys");
+        }
+        return put(key, value, true);
+    }
+
+    /**
+     * Get the value associated with the given key.
+     * Never blocks.
+     *
+     * @param key the key
+     */
+    public V get(K key) {
+        Node<K, V> node = getNode(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Check if this Dictionary contains a mapping for the given key.
+     * Never blocks.
+     *
+     * @param key the key
+     * @return true if there is an entry, false otherwise
+     */
+    public boolean containsKey(K key) {
+        return getNode(key) != null;
+    }
+
+    /**
+     * Remove the entry for the given key.
+     *
+     * @param key the key of the entry to remove
+     * @return the value in the entry that was removed, or null if there was no mapping
+     */
+    public V remove(K key) {
+        if (key == null) return null;
+        int hash = hash(key);
+        int stripe = hash & stripeMask;
+
+        synchronized (locks[stripe]) {
+            AtomicReferenceArray<Node<K, V>> tab = latestTable(table, hash);
+            int index = hash & (tab.length() - 1);
+
+            Node<K, V> prev = null;
+            for (Node<K, V> node = tab.get(index); node != null; prev = node, node = node.next) {
+                if (node.hash == hash && node.key.equals(key)) {
+                    // readers already past prev still follow node.next, so unlinking is safe
+                    if (prev == null) {
+                        tab.set(index, node.next);
+                    } else {
+                        prev.next = node.next;
+                    }
+                    counts.set(stripe, counts.get(stripe) - 1);
+                    return node.value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Clear the Dictionary.
+     * Entries added by other threads while this runs may survive.
+     */
+    public void clear() {
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            synchronized (locks[stripe]) {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                for (int i = stripe; i < tab.length(); i += locks.length) {
+                    clearBin(tab, i);
+                }
+                counts.set(stripe, 0);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Dictionary.Entry<K, V>> iterator() {
+        return new EntryIterator();
+    }
+
+    private class EntryIterator implements Iterator<Dictionary.Entry<K, V>> {
+        final AtomicReferenceArray<Node<K, V>> tab = table;
+        int index;
+
+        /**
+         * Heads of chains still to visit, from bins that had been forwarded.
+         */
+        final LinkedList<Node<K, V>> pending = new LinkedList<>();
+        Node<K, V> next;
+
+        EntryIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Dictionary.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Dictionary.Entry<K, V> entry = Dictionary.Entry.of(next.key, next.value);
+            advance();
+            return entry;
+        }
+
+        private void advance() {
+            Node<K, V> node = next == null ? null : next.next;
+            while (node == null) {
+                if (pending.size() > 0) {
+                    node = pending.remove(-1);
+                } else if (index < tab.length()) {
+                    pushBin(tab, index++);
+                } else {
+                    break;
+                }
+            }
+            next = node;
+        }
+
+        private void pushBin(AtomicReferenceArray<Node<K, V>> t, int i) {
+            Node<K, V> head = t.get(i);
+            if (head instanceof ForwardingNode) {
+                AtomicReferenceArray<Node<K, V>> nextTable = ((ForwardingNode<K, V>) head).nextTable;
+                pushBin(nextTable, i);
+                pushBin(nextTable, i + t.length());
+            } else if (head != null) {
+                pending.add(head);
+            }
+        }
+    }
+
+    //-----------------------------------------------------------
+
+    private static int powerOfTwoAtLeast(int n) {
+        int cap = 1;
+        while (cap < n && cap < (1 << 30)) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    /**
+     * Spread the higher bits of the hashcode into the lower ones, and
+     * clear the sign bit so real hashes never equal MOVED.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    private Node<K, V> getNode(K key) {
+        if (key == null) return null;
+        int hash = hash(key);
+
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        Node<K, V> node = tab.get(hash & (tab.length() - 1));
+        while (node != null) {
+            if (node.hash == MOVED) {
+                tab = ((ForwardingNode<K, V>) node).nextTable;
+                node = tab.get(hash & (tab.length() - 1));
+                continue;
+            }
+            if (node.hash == hash && node.key.equals(key)) {
+                return node;
+            }
+            node = node.next;
+        }
+        return null;
+    }
+
+    /**
+     * Follow forwarding nodes to the table that currently holds the bin
+     * for the given hash. Must hold the lock for the hash's stripe, which
+     * stops that bin from being moved again.
+     */
+    private AtomicReferenceArray<Node<K, V>> latestTable(AtomicReferenceArray<Node<K, V>> tab, int hash) {
+        Node<K, V> head = tab.get(hash & (tab.length() - 1));
+        while (head instanceof ForwardingNode) {
+            tab = ((ForwardingNode<K, V>) head).nextTable;
+            head = tab.get(hash & (tab.length() - 1));
+        }
+        return tab;
+    }
+
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        int hash = hash(key);
+        int stripe = hash & stripeMask;
+        AtomicReferenceArray<Node<K, V>> tab;
+        int stripeCount;
+
+        synchronized (locks[stripe]) {
+            tab = latestTable(table, hash);
+            int index = hash & (tab.length() - 1);
+
+            Node<K, V> head = tab.get(index);
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                if (node.hash == hash && node.key.equals(key)) {
+                    V old = node.value;
+                    if (!onlyIfAbsent) {
+                        node.value = value;
+                    }
+                    return old;
+                }
+            }
+            // publish at the head, so concurrent readers always see a complete chain
+            tab.set(index, new Node<>(hash, key, value, head));
+            stripeCount = counts.get(stripe) + 1;
+            counts.set(stripe, stripeCount);
+        }
+
+        int binsPerStripe = tab.length() / locks.length;
+        if (stripeCount > binsPerStripe * LOAD_FACTOR) {
+            tryResize(tab);
+        }
+        return null;
+    }
+
+    /**
+     * Double the table, unless another thread is already resizing
+     * or has already replaced the given table.
+     */
+    private void tryResize(AtomicReferenceArray<Node<K, V>> tab) {
+        if (tab.length() >= (1 << 30) || !resizing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (tab != table) {
+                return;
+            }
+            int n = tab.length();
+            AtomicReferenceArray<Node<K, V>> nextTable = new AtomicReferenceArray<>(n * 2);
+            ForwardingNode<K, V> forward = new ForwardingNode<>(nextTable);
+
+            for (int stripe = 0; stripe <= stripeMask; stripe++) {
+                synchronized (locks[stripe]) {
+                    for (int i = stripe; i < n; i += locks.length) {
+                        // copy rather than relink, so readers still walking the old chain are unaffected
+                        Node<K, V> lo = null;
+                        Node<K, V> hi = null;
+                        for (Node<K, V> node = tab.get(i); node != null; node = node.next) {
+                            if ((node.hash & n) == 0) {
+                                lo = new Node<>(node.hash, node.key, node.value, lo);
+                            } else {
+                                hi = new Node<>(node.hash, node.key, node.value, hi);
+                            }
+                        }
+                        nextTable.set(i, lo);
+                        nextTable.set(i + n, hi);
+                        tab.set(i, forward);
+                    }
+                }
+            }
+            table = nextTable;
+        } finally {
+            resizing.set(false);
+        }
+    }
+
+    private void clearBin(AtomicReferenceArray<Node<K, V>> tab, int i) {
+        Node<K, V> head = tab.get(i);
+        if (head instanceof ForwardingNode) {
+            AtomicReferenceArray<Node<K, V>> nextTable = ((ForwardingNode<K, V>) head).nextTable;
+            clearBin(nextTable, i);
+            clearBin(nextTable, i + tab.length());
+        } else {
+            tab.set(i, null);
+        }
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the number of bins in the current table
+     */
+    int getCapacity() {
+        return table.length();
+    }
+
+}
@@ -0,0 +1,280 @@
+package palm.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A lock-free FIFO queue, following Michael and Scott's algorithm.
+ * <p>
+ * Like {@link LinkedList} it is a chain of nodes from head to tail, but only
+ * singly linked: head is a dummy node whose successor is the first item, and
+ * offer and poll move tail and head forward with compare-and-set. A thread
+ * that finds tail lagging behind helps to move it, so no thread ever waits
+ * for another to finish.
+ * <p>
+ * The queue can optionally be bounded, in which case {@link #offer} returns
+ * false when it is full. Null items are not allowed, since poll and peek
+ * use null to mean empty.
+ *
+ * @param <T> the type of item stored in the queue
+ */
+public class ConcurrentQueue<T> implements Iterable<T> {
+
+    /**
+     * Create an unbounded ConcurrentQueue with the given items.
+     * The items are offered in the order they appear.
+     *
+     * @param items the items to add
+     * @return a new ConcurrentQueue
+     */
+    @SafeVarargs
+    public static <E> ConcurrentQueue<E> of(E... items) {
+        ConcurrentQueue<E> queue = new ConcurrentQueue<>();
+        for (E item : items) {
+            queue.offer(item);
+        }
+        return queue;
+    }
+
+    private static class Node<T> {
+        volatile T value;
+        volatile Node<T> next;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentQueue, Node> HEAD =
+        AtomicReferenceFieldUpdater.newUpdater(ConcurrentQueue.class, Node.class, "head");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentQueue, Node> TAIL =
+        AtomicReferenceFieldUpdater.newUpdater(ConcurrentQueue.class, Node.class, "tail");
+
+    private volatile Node<T> head;
+    private volatile Node<T> tail;
+
+    /**
+     * Maximum number of items, or -1 if unbounded.
+     */
+    private final int capacity;
+
+    /**
+     * Number of items, only kept when bounded.
+     */
+    private final AtomicInteger count;
+
+    /**
+     * Create an empty, unbounded ConcurrentQueue.
+     */
+    public ConcurrentQueue() {
+        head = tail = new Node<>(null);
+        capacity = -1;
+        count = null;
+    }
+
+    /**
+     * Create an empty ConcurrentQueue holding at most the given number of items.
+     *
+     * @param capacity the maximum number of items
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public ConcurrentQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        head = tail = new Node<>(null);
+        this.capacity = capacity;
+        count = new AtomicInteger();
+    }
+
+    /**
+     * Add the given item at the tail of the queue.
+     *
+     * @param item the item to add
+     * @return true if added, or false if the queue is bounded and full
+     * @throws IllegalArgumentException if item is null
+     */
+    public boolean offer(T item) {
+        if (item == null) {
+            throw new IllegalArgumentException("ConcurrentQueue does not support null items");
+        }
+        if (count != null && !reserveSlot()) {
+            return false;
+        }
+
+        Node<T> node = new Node<>(item);
+        while (true) {
+            Node<T> last = tail;
+            Node<T> next = last.next;
+            if (last != tail) {
+                continue;
+            }
+            if (next == null) {
+                if (NEXT.compareAndSet(last, null, node)) {
+                    // fine if this fails, another thread has already moved tail on
+                    TAIL.compareAndSet(this, last, node);
+                    return true;
+                }
+            } else {
+                // tail is lagging, help move it before retrying
+                TAIL.compareAndSet(this, last, next);
+            }
+        }
+    }
+
+    /**
+     * Remove the item at the head of the queue.
+     *
+     * @return the item removed, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        while (true) {
+            Node<T> first = head;
+            Node<T> last = tail;
+            Node<T> next = first.next;
+            if (first != head) {
+                continue;
+            }
+            if (first == last) {
+                if (next == null) {
+                    return null;
+                }
+                TAIL.compareAndSet(this, last, next);
+            } else {
+                T value = next.value;
+                if (HEAD.compareAndSet(this, first, next)) {
+                    // next is the new dummy node, drop its value for the GC
+                    next.value = null;
+                    if (count != null) {
+                        count.decrementAndGet();
+                    }
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the item at the head of the queue without removing it.
+     *
+     * @return the item, or null if the queue is empty
+     */
+    public T peek() {
+        while (true) {
+            Node<T> first = head;
+            Node<T> next = first.next;
+            if (next == null) {
+                return null;
+            }
+            T value = next.value;
+            if (first == head) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Check if the queue currently has no items.
+     */
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    /**
+     * Get the current number of items in the queue.
+     * This is O(1) when bounded, but walks the whole queue when unbounded,
+     * and is only an estimate while other threads are using the queue.
+     *
+     * @return the current size
+     */
+    public int size() {
+        if (count != null) {
+            return count.get();
+        }
+        int size = 0;
+        for (Node<T> node = head.next; node != null && size < Integer.MAX_VALUE; node = node.next) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Get the maximum number of items.
+     *
+     * @return the capacity, or -1 if unbounded
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = count.get();
+            if (current >= capacity) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    //-------------------------------------------------
+
+    /**
+     * The iterator is weakly consistent: it never throws because of
+     * concurrent changes, but may or may not see them.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new QueueIterator();
+    }
+
+    private class QueueIterator implements Iterator<T> {
+        Node<T> node = head;
+        T nextValue;
+
+        QueueIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextValue != null;
+        }
+
+        @Override
+        public T next() {
+            if (nextValue == null) {
+                throw new NoSuchElementException();
+            }
+            T value = nextValue;
+            advance();
+            return value;
+        }
+
+        /**
+         * Skip nodes whose value was cleared by a poll since we reached them.
+         */
+        private void advance() {
+            nextValue = null;
+            while (nextValue == null && node != null) {
+                node = node.next;
+                if (node != null) {
+                    nextValue = node.value;
+                }
+            }
+        }
+    }
+
+}
@@ -1,6 +1,13 @@
 package palm.util;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Dictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
     
@@ -26,9 +33,7 @@ public class Dictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
 
         @Override
         public boolean equals(Object obj) {
-            System.out.println("In Entry.equals()");
             if (obj == this) return true;
-            System.out.println("Not identical objects");
 
             if (obj instanceof Entry<?, ?>) {
                 Entry<?,?> other = (Entry<?,?>) obj;
@@ -54,13 +59,64 @@ public class Dictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
         return dict;
     }
 
+    /**
+     * Default number of buckets for a new Dictionary
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Ratio of size/capacity to trigger growing
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Number of old bucket slots moved into the new table on each write.
+     * With a doubling table and the load factor above, this always finishes
+     * a migration before the next resize is due.
+     */
+    private static final int MIGRATION_STEP = 2;
+
+    private int initialCapacity;
     private int capacity;
     private Bucket<K, V>[] buckets;
     private int size;
 
+    /**
+     * The previous table while a resize is in progress, otherwise null.
+     * Slots below migrateIndex have already been moved into buckets.
+     */
+    private Bucket<K, V>[] oldBuckets;
+    private int migrateIndex;
+
+    /**
+     * Event counts for stats(), only kept if Instrumentation is enabled
+     */
+    private long resizes;
+    private long entriesMigrated;
+    private long treeifications;
+    private long iterators;
+
+    /**
+     * Create an empty Dictionary.
+     */
     public Dictionary() {
-        capacity = 16;
-        buckets = allocateArray();
+        this(0);
+    }
+
+    /**
+     * Create an empty Dictionary with room for the given number of entries
+     * before it needs to grow.
+     * 
+     * @param expectedSize the number of entries expected
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    public Dictionary(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Dictionary size cannot be negative");
+        }
+        initialCapacity = capacityFor(expectedSize);
+        capacity = initialCapacity;
+        buckets = allocateArray(capacity);
     }
 
     /**
@@ -81,10 +137,12 @@ public class Dictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
         if (item == null || item.key == null) {
             throw new IllegalArgumentException("Dictionary does not support null keys");
         }
+        migrateStep();
         Entry<K, V> entry = getEntry(item.key);
         if (entry == null) {
-            getBucketForAdd(item.key).add(item);
+            addToBucket(item);
             size++;
+            growIfNeeded();
         } else {
             entry.value = item.value;
         }
@@ -97,10 +155,12 @@ public class Dictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
      * @param value the new value
      */
     public void set(K key, V value) {
+        migrateStep();
         Entry<K, V> entry = getEntry(key);
         if (entry == null) {
-            getBucketForAdd(key).add(Entry.of(key, value));
+            addToBucket(Entry.of(key, value));
             size++;
+            growIfNeeded();
         } else {
             entry.value = value;
         }
@@ -133,40 +193,346 @@ public class Dictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
      * @return the value in the entry that was removed, or null if there was no mapping
      */
     public V remove(K key) {
-        Bucket<K, V> bucket = getBucket(key);
-        if (bucket == null) {
-            return null;
+        if (key == null) return null;
+        migrateStep();
+
+        Entry<K, V> entry = removeFrom(buckets, key);
+        if (entry == null && oldBuckets != null) {
+            entry = removeFrom(oldBuckets, key);
         }
-        
-        Entry<K, V> entry = bucket.findEntry(key);
         if (entry == null) {
             return null;
         }
 
-        bucket.remove(entry);
         size--;
         return entry.value;
     }
 
+    /**
+     * Set a mapping for every entry in the given Dictionary. The table is
+     * grown once, up front, to hold both, instead of resizing along the way.
+     * 
+     * @param other the entries to copy
+     */
+    public void putAll(Dictionary<? extends K, ? extends V> other) {
+        int needed = capacityFor(size + other.size());
+        if (needed > capacity) {
+            resize(needed);
+        }
+        for (Entry<? extends K, ? extends V> entry : other) {
+            set(entry.key, entry.value);
+        }
+    }
+
+    /**
+     * Remove every entry that matches the filter, in a single pass.
+     * 
+     * @param filter returns true for entries to remove
+     * @return true if any entries were removed
+     */
+    public boolean removeIf(Predicate<? super Entry<K, V>> filter) {
+        int before = size;
+        if (oldBuckets != null) {
+            removeIf(oldBuckets, filter);
+        }
+        removeIf(buckets, filter);
+        return size != before;
+    }
+
+    /**
+     * Get a snapshot of the shape of this Dictionary: load factor, chain
+     * lengths, tree bins and, if enabled, event counts. This walks every
+     * bucket, so it is O(capacity).
+     * 
+     * @return the stats
+     */
+    public DictionaryStats stats() {
+        int[] histogram = new int[1];
+        int treeBins = 0;
+        int oldLength = oldBuckets == null ? 0 : oldBuckets.length;
+        // migrated slots of the old table are empty, so skip them
+        for (int i = oldBuckets == null ? 0 : migrateIndex; i < oldLength + capacity; i++) {
+            Bucket<K, V> bucket = i < oldLength ? oldBuckets[i] : buckets[i - oldLength];
+            int length = bucket == null ? 0 : bucket.size();
+            if (length >= histogram.length) {
+                histogram = Arrays.copyOf(histogram, length + 1);
+            }
+            histogram[length]++;
+            if (bucket != null && bucket.isTree()) {
+                treeBins++;
+            }
+        }
+        return new DictionaryStats(size, capacity, histogram, treeBins, oldBuckets != null,
+            resizes, entriesMigrated, treeifications, iterators);
+    }
+
     /**
      * Clear the Dictionary
      */
     public void clear() {
-        capacity = 16;
-        buckets = allocateArray();
+        capacity = initialCapacity;
+        buckets = allocateArray(capacity);
+        oldBuckets = null;
+        migrateIndex = 0;
         size = 0;
     }
     
     @Override
     public Iterator<Entry<K, V>> iterator() {
+        if (Instrumentation.ENABLED) {
+            iterators++;
+        }
         return new EntryIterator();
     }
 
+    /**
+     * Splits by ranges of buckets. While a resize is in progress, the
+     * range covers the old table's slots followed by the new table's.
+     */
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        if (Instrumentation.ENABLED) {
+            iterators++;
+        }
+        int oldLength = oldBuckets == null ? 0 : oldBuckets.length;
+        return new EntrySpliterator<>(oldBuckets, buckets, 0, oldLength + buckets.length, size);
+    }
+
+    /**
+     * Get a sequential stream of the entries.
+     */
+    public Stream<Entry<K, V>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the entries.
+     */
+    public Stream<Entry<K, V>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Perform the action for each entry, walking the buckets directly
+     * rather than through an iterator.
+     */
+    @Override
+    public void forEach(Consumer<? super Entry<K, V>> action) {
+        if (oldBuckets != null) {
+            forEachIn(oldBuckets, migrateIndex, action);
+        }
+        forEachIn(buckets, 0, action);
+    }
+
+    /**
+     * Perform the action for each key and value.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(entry -> action.accept(entry.key, entry.value));
+    }
+
+    /**
+     * Get a cursor over the entries. Unlike an iterator, it can be kept
+     * and reused with {@link Cursor#reset()}, so repeated loops need not
+     * allocate.
+     * 
+     * @return a new cursor, positioned before the first entry
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A reusable position in the Dictionary. Call {@link #advance()} before
+     * reading the first entry. Like the iterator, it runs over the old
+     * table's slots and then the new table's while a resize is in progress.
+     */
+    public class Cursor {
+        private boolean started;
+        private int slot;
+        private int position;
+        private int bucketSize;
+        private Entry<K, V> entry;
+
+        /**
+         * Move to the next entry.
+         * 
+         * @return true if there is an entry at the new position
+         */
+        public boolean advance() {
+            if (!started) {
+                started = true;
+                slot = (oldBuckets == null ? 0 : migrateIndex) - 1;
+                position = 0;
+                bucketSize = 0;
+            }
+            int oldLength = oldBuckets == null ? 0 : oldBuckets.length;
+            if (++position < bucketSize) {
+                entry = bucketAt(oldLength, slot).entryAt(position);
+                return true;
+            }
+            int end = oldLength + buckets.length;
+            while (++slot < end) {
+                Bucket<K, V> bucket = bucketAt(oldLength, slot);
+                if (bucket != null && !bucket.isEmpty()) {
+                    position = 0;
+                    bucketSize = bucket.size();
+                    entry = bucket.entryAt(0);
+                    return true;
+                }
+            }
+            slot = end;
+            bucketSize = 0;
+            entry = null;
+            return false;
+        }
+
+        /**
+         * Get the key of the entry at the cursor.
+         *
+         * @throws IllegalStateException if the cursor is before the first
+         *         entry or past the last
+         */
+        public K key() {
+            return current().key;
+        }
+
+        /**
+         * Get the value of the entry at the cursor.
+         *
+         * @throws IllegalStateException if the cursor is before the first
+         *         entry or past the last
+         */
+        public V value() {
+            return current().value;
+        }
+
+        /**
+         * Move back to before the first entry.
+         */
+        public void reset() {
+            started = false;
+            entry = null;
+        }
+
+        private Entry<K, V> current() {
+            if (entry == null) {
+                throw new IllegalStateException("Cursor is not on an element");
+            }
+            return entry;
+        }
+
+        private Bucket<K, V> bucketAt(int oldLength, int i) {
+            return i < oldLength ? oldBuckets[i] : buckets[i - oldLength];
+        }
+    }
+
+    private static <K, V> void forEachIn(Bucket<K, V>[] table, int from, Consumer<? super Entry<K, V>> action) {
+        for (int i = from; i < table.length; i++) {
+            Bucket<K, V> bucket = table[i];
+            if (bucket != null) {
+                bucket.forEach(action);
+            }
+        }
+    }
+
+    private static class EntrySpliterator<K, V> implements Spliterator<Entry<K, V>> {
+        final Bucket<K, V>[] oldTable;
+        final Bucket<K, V>[] table;
+        final int oldLength;
+        int index;
+        final int fence;
+        long estimate;
+        boolean exact;
+        Iterator<Entry<K, V>> current;
+
+        EntrySpliterator(Bucket<K, V>[] oldTable, Bucket<K, V>[] table, int index, int fence, long estimate) {
+            this.oldTable = oldTable;
+            this.table = table;
+            this.oldLength = oldTable == null ? 0 : oldTable.length;
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+            this.exact = index == 0 && fence == oldLength + table.length;
+        }
+
+        private Bucket<K, V> bucketAt(int i) {
+            return i < oldLength ? oldTable[i] : table[i - oldLength];
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+            while (current == null || !current.hasNext()) {
+                if (index >= fence) {
+                    return false;
+                }
+                Bucket<K, V> bucket = bucketAt(index++);
+                current = bucket == null ? null : bucket.iterator();
+            }
+            if (estimate > 0) {
+                estimate--;
+            }
+            action.accept(current.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Entry<K, V>> action) {
+            if (current != null) {
+                current.forEachRemaining(action);
+                current = null;
+            }
+            for (; index < fence; index++) {
+                Bucket<K, V> bucket = bucketAt(index);
+                if (bucket != null) {
+                    for (Entry<K, V> entry : bucket) {
+                        action.accept(entry);
+                    }
+                }
+            }
+            estimate = 0;
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (current != null || mid <= index) {
+                return null;
+            }
+            estimate >>>= 1;
+            exact = false;
+            EntrySpliterator<K, V> prefix = new EntrySpliterator<>(oldTable, table, index, mid, estimate);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL | (exact ? SIZED : 0);
+        }
+    }
+
+    /**
+     * Iterates the not-yet-migrated part of the old table (if any) first,
+     * then the current table.
+     */
     private class EntryIterator implements Iterator<Entry<K, V>> {
-        int bucketIndex = 0;
+        Bucket<K, V>[] table;
+        int bucketIndex;
         Iterator<Entry<K, V>> bucketIterator;
 
         EntryIterator() {
+            if (oldBuckets != null) {
+                table = oldBuckets;
+                bucketIndex = migrateIndex;
+            } else {
+                table = buckets;
+            }
             bucketIterator = nextBucketIterator();
         }
 
@@ -185,27 +551,58 @@ public class Dictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
         }
 
         private Iterator<Entry<K, V>> nextBucketIterator() {
-            if (bucketIndex >= capacity) return null;
-            
-            while (buckets[bucketIndex] == null) {
-                bucketIndex++;
-                if (bucketIndex >= capacity) {
+            while (true) {
+                while (bucketIndex < table.length) {
+                    Bucket<K, V> bucket = table[bucketIndex++];
+                    if (bucket != null && !bucket.isEmpty()) {
+                        return bucket.iterator();
+                    }
+                }
+                if (table == buckets) {
                     return null;
                 }
+                table = buckets;
+                bucketIndex = 0;
             }
-            return buckets[bucketIndex++].iterator();
         }
     }
 
     //-----------------------------------------------------------
 
     @SuppressWarnings("unchecked")
-    private Bucket<K, V>[] allocateArray() {
+    private static <K, V> Bucket<K, V>[] allocateArray(int capacity) {
         return (Bucket<K, V>[]) new Bucket[capacity];
     }
 
+    /**
+     * Smallest power of two capacity that holds the given number of
+     * entries without passing the load factor.
+     */
+    private static int capacityFor(int expectedSize) {
+        int needed = (int) Math.ceil(expectedSize / LOAD_FACTOR);
+        int cap = DEFAULT_CAPACITY;
+        while (cap < needed && cap < (1 << 30)) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    /**
+     * Spread the higher bits of the hashcode into the lower ones,
+     * since only the lower bits pick the bucket.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int indexFor(Object key, int length) {
+        return hash(key) & (length - 1);
+    }
+
     /**
      * Get the entry from the bucket associated with the key's hash value.
+     * While a resize is in progress, the old table is checked as well.
      * 
      * @param key
      * @return
@@ -213,49 +610,255 @@ public class Dictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
     private Entry<K, V> getEntry(K key) {
         if (key == null) return null;
 
-        Bucket<K, V> bucket = getBucket(key);
+        Entry<K, V> entry = findIn(buckets, key);
+        if (entry == null && oldBuckets != null) {
+            entry = findIn(oldBuckets, key);
+        }
+        return entry;
+    }
+
+    private Entry<K, V> findIn(Bucket<K, V>[] table, K key) {
+        Bucket<K, V> bucket = table[indexFor(key, table.length)];
         return bucket == null ? null : bucket.findEntry(key);
     }
 
+    private Entry<K, V> removeFrom(Bucket<K, V>[] table, K key) {
+        Bucket<K, V> bucket = table[indexFor(key, table.length)];
+        if (bucket == null) {
+            return null;
+        }
+        Entry<K, V> entry = bucket.findEntry(key);
+        if (entry != null) {
+            bucket.remove(entry);
+        }
+        return entry;
+    }
+
     /**
      * Get the bucket based on the hashcode of the key.
      * Creates a new bucket if needed, so never returns null.
+     * New entries always go into the current table.
      * 
      * @param key
      * @return
      */
     private Bucket<K, V> getBucketForAdd(K key) {
-        int index = key.hashCode() % capacity;
+        int index = indexFor(key, capacity);
         if (buckets[index] == null) {
             buckets[index] = new Bucket<K, V>();
         }
         return buckets[index];
     }
 
+    private void addToBucket(Entry<K, V> entry) {
+        if (getBucketForAdd(entry.key).add(entry) && Instrumentation.ENABLED) {
+            treeifications++;
+        }
+    }
+
     /**
-     * Get the bucket based on the hashcode of the key.
-     * Does not create a new bucket, no returns null if no entries exist
-     * in the bucket slot.
+     * Start a resize once the load factor is passed. Entries are not moved
+     * here; they are moved a few buckets at a time by later writes.
      */
-    private Bucket<K, V> getBucket(K key) {
-        int index = key.hashCode() % capacity;
-        return buckets[index];
+    private void growIfNeeded() {
+        if (size <= capacity * LOAD_FACTOR || capacity >= (1 << 30)) {
+            return;
+        }
+        if (oldBuckets != null) {
+            // only one migration at a time
+            finishMigration();
+        }
+        oldBuckets = buckets;
+        migrateIndex = 0;
+        capacity = capacity * 2;
+        buckets = allocateArray(capacity);
+        if (Instrumentation.ENABLED) {
+            resizes++;
+        }
+    }
+
+    /**
+     * Move every entry into a new table of the given capacity at once.
+     */
+    private void resize(int newCapacity) {
+        if (oldBuckets != null) {
+            finishMigration();
+        }
+        oldBuckets = buckets;
+        capacity = newCapacity;
+        buckets = allocateArray(capacity);
+        if (Instrumentation.ENABLED) {
+            resizes++;
+        }
+        finishMigration();
+    }
+
+    private void removeIf(Bucket<K, V>[] table, Predicate<? super Entry<K, V>> filter) {
+        for (Bucket<K, V> bucket : table) {
+            if (bucket != null) {
+                size -= bucket.removeIf(filter);
+            }
+        }
+    }
+
+    /**
+     * Move the next few buckets of the old table (if any) into the new one.
+     * Only writes call this, so reads and iteration never move entries.
+     */
+    private void migrateStep() {
+        if (oldBuckets == null) return;
+
+        int end = Math.min(migrateIndex + MIGRATION_STEP, oldBuckets.length);
+        while (migrateIndex < end) {
+            migrateBucket(migrateIndex++);
+        }
+        if (migrateIndex >= oldBuckets.length) {
+            oldBuckets = null;
+            migrateIndex = 0;
+        }
+    }
+
+    private void finishMigration() {
+        while (migrateIndex < oldBuckets.length) {
+            migrateBucket(migrateIndex++);
+        }
+        oldBuckets = null;
+        migrateIndex = 0;
+    }
+
+    private void migrateBucket(int index) {
+        Bucket<K, V> bucket = oldBuckets[index];
+        if (bucket == null) return;
+
+        for (Entry<K, V> entry : bucket) {
+            addToBucket(entry);
+            if (Instrumentation.ENABLED) {
+                entriesMigrated++;
+            }
+        }
+        oldBuckets[index] = null;
+    }
+
+    /**
+     * (Package private only for testing)
+     * 
+     * @return the number of buckets in the current table
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * (Package private only for testing)
+     * 
+     * @return the number of buckets that have been turned into trees
+     */
+    int getTreeBinCount() {
+        int count = 0;
+        for (Bucket<K, V> bucket : buckets) {
+            if (bucket != null && bucket.isTree()) count++;
+        }
+        if (oldBuckets != null) {
+            for (Bucket<K, V> bucket : oldBuckets) {
+                if (bucket != null && bucket.isTree()) count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * (Package private only for testing)
+     * 
+     * @return true if entries are still being moved to a larger table
+     */
+    boolean isMigrating() {
+        return oldBuckets != null;
     }
 
     //--------------------------------------------------
 
+    /**
+     * The entries whose keys land on one slot. They are kept in a list,
+     * until there are more than TREEIFY_THRESHOLD, when they move into a
+     * {@link TreeBin} so colliding keys can't make lookups linear. The
+     * bucket goes back to a list once it shrinks to UNTREEIFY_THRESHOLD.
+     */
     private static class Bucket<K, V> implements Iterable<Entry<K, V>> {
-        LinkedList<Entry<K, V>> list = new LinkedList<>();
+        static final int TREEIFY_THRESHOLD = 8;
+        static final int UNTREEIFY_THRESHOLD = 6;
 
-        void add(Entry<K, V> entry) {
+        LinkedList<Entry<K, V>> list = new LinkedList<>();
+        TreeBin<K, V> tree;
+
+        /**
+         * @return true if this turned the bucket into a tree
+         */
+        boolean add(Entry<K, V> entry) {
+            if (tree != null) {
+                tree.add(entry);
+                return false;
+            }
             list.add(entry);
+            if (list.size() <= TREEIFY_THRESHOLD) {
+                return false;
+            }
+            tree = new TreeBin<>();
+            for (Entry<K, V> e : list) {
+                tree.add(e);
+            }
+            list = null;
+            return true;
         }
 
         void remove(Entry<K, V> entry) {
-            list.remove(entry);
+            if (tree == null) {
+                list.remove(entry);
+                return;
+            }
+            tree.remove(entry.key);
+            if (tree.size() <= UNTREEIFY_THRESHOLD) {
+                list = new LinkedList<>();
+                list.addAll(tree);
+                tree = null;
+            }
+        }
+
+        /**
+         * @return the number of entries removed
+         */
+        int removeIf(Predicate<? super Entry<K, V>> filter) {
+            int before = size();
+            if (tree != null) {
+                LinkedList<Entry<K, V>> entries = new LinkedList<>();
+                entries.addAll(tree);
+                entries.removeIf(filter);
+                list = new LinkedList<>();
+                tree = null;
+                for (Entry<K, V> entry : entries) {
+                    add(entry);
+                }
+            } else {
+                list.removeIf(filter);
+            }
+            return before - size();
+        }
+
+        int size() {
+            return tree != null ? tree.size() : list.size();
+        }
+
+        boolean isEmpty() {
+            return size() == 0;
+        }
+
+        boolean isTree() {
+            return tree != null;
         }
 
         Entry<K, V> findEntry(K key) {
+            if (tree != null) {
+                return tree.find(key);
+            }
             for (Entry<K, V> entry : list) {
                 if (entry.key.equals(key)) {
                     return entry;
@@ -264,9 +867,26 @@ public class Dictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
             return null;
         }
 
+        /**
+         * Get the entry at the given position in the bucket. Chains are
+         * short, so walking the list is cheap.
+         */
+        Entry<K, V> entryAt(int index) {
+            return tree != null ? tree.entryAt(index) : list.get(index);
+        }
+
+        @Override
+        public void forEach(Consumer<? super Entry<K, V>> action) {
+            if (tree != null) {
+                tree.forEach(action);
+            } else {
+                list.forEach(action);
+            }
+        }
+
         @Override
         public Iterator<Entry<K, V>> iterator() {
-            return list.iterator();
+            return tree != null ? tree.iterator() : list.iterator();
         }
     }
 
@@ -0,0 +1,114 @@
+package palm.util;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of the shape of a {@link Dictionary} and, if enabled with
+ * {@code -Dpalm.util.stats=true}, counts of what it has done.
+ * <p>
+ * The shape is measured when the snapshot is taken, by walking the
+ * buckets, so it is O(capacity). Long chains or many tree bins point at
+ * a poor hashCode.
+ */
+public final class DictionaryStats {
+    private final int size;
+    private final int capacity;
+    private final int[] chainLengths;
+    private final int treeBins;
+    private final boolean migrating;
+    private final long resizes;
+    private final long entriesMigrated;
+    private final long treeifications;
+    private final long iterators;
+
+    DictionaryStats(int size, int capacity, int[] chainLengths, int treeBins, boolean migrating,
+            long resizes, long entriesMigrated, long treeifications, long iterators) {
+        this.size = size;
+        this.capacity = capacity;
+        this.chainLengths = chainLengths;
+        this.treeBins = treeBins;
+        this.migrating = migrating;
+        this.resizes = resizes;
+        this.entriesMigrated = entriesMigrated;
+        this.treeifications = treeifications;
+        this.iterators = iterators;
+    }
+
+    /**
+     * Get the number of entries.
+     */
+    public int size() { return size; }
+
+    /**
+     * Get the number of buckets in the current table.
+     */
+    public int capacity() { return capacity; }
+
+    /**
+     * Get the ratio of entries to buckets.
+     */
+    public double loadFactor() { return (double) size / capacity; }
+
+    /**
+     * Get the histogram of chain lengths: element i is the number of
+     * buckets holding i entries. While a resize is in progress, buckets of
+     * both tables are counted.
+     */
+    public int[] chainLengthHistogram() { return chainLengths.clone(); }
+
+    /**
+     * Get the number of buckets with no entries.
+     */
+    public int emptyBuckets() { return chainLengths[0]; }
+
+    /**
+     * Get the length of the longest chain, which is the most entries a
+     * lookup may have to compare against (fewer, for tree bins).
+     */
+    public int maxChainLength() { return chainLengths.length - 1; }
+
+    /**
+     * Get the number of buckets currently stored as trees.
+     */
+    public int treeBins() { return treeBins; }
+
+    /**
+     * Check if a resize was in progress.
+     */
+    public boolean isMigrating() { return migrating; }
+
+    /**
+     * Check if the event counts below were being kept.
+     */
+    public boolean countersEnabled() { return Instrumentation.ENABLED; }
+
+    /**
+     * Get the number of times the table has been resized.
+     */
+    public long resizeCount() { return resizes; }
+
+    /**
+     * Get the number of entries moved from an old table to a new one.
+     */
+    public long entriesMigrated() { return entriesMigrated; }
+
+    /**
+     * Get the number of times a bucket has been turned into a tree.
+     */
+    public long treeifyCount() { return treeifications; }
+
+    /**
+     * Get the number of iterators and spliterators created.
+     */
+    public long iteratorCount() { return iterators; }
+
+    @Override
+    public String toString() {
+        return "DictionaryStats[size=" + size + ", capacity=" + capacity
+            + ", loadFactor=" + String.format("%.3f", loadFactor())
+            + ", emptyBuckets=" + emptyBuckets() + ", maxChainLength=" + maxChainLength()
+            + ", chainLengths=" + Arrays.toString(chainLengths) + ", treeBins=" + treeBins
+            + ", migrating=" + migrating + ", resizes=" + resizes + ", entriesMigrated=" + entriesMigrated
+            + ", treeifications=" + treeifications + ", iterators=" + iterators + "]";
+    }
+}
@@ -0,0 +1,297 @@
+package palm.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A dynamically-sized array of {@code double} values, with the same API as
+ * {@link DynamicArray} but backed by a {@code double[]}, so no values are boxed.
+ * <p>
+ * Iterating with {@link PrimitiveIterator.OfDouble#nextDouble()} rather than a for-each
+ * loop avoids boxing each element.
+ */
+public class DoubleDynamicArray implements Iterable<Double> {
+
+    /**
+     * Create an DoubleDynamicArray with the specified elements.
+     * Elements are stored in the order they appear.
+     *
+     * @param elements the elements to add
+     */
+    public static DoubleDynamicArray of(double... elements) {
+        DoubleDynamicArray arr = new DoubleDynamicArray();
+        for (double elem : elements) {
+            arr.add(elem);
+        }
+        return arr;
+    }
+
+    /**
+     * Factor for growing and shrinking the capacity
+     */
+    private static final int SCALE_FACTOR = 2;
+
+    /**
+     * Ratio of the capacity/size to trigger shrinking
+     */
+    private static final int SHRINK_RATIO = 4;
+
+    private static final int DEFAULT_CAPACITY = 5;
+
+    private int size;
+    private double[] elements;
+
+    /**
+     * Create an empty DoubleDynamicArray.
+     */
+    public DoubleDynamicArray() {
+        elements = new double[DEFAULT_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Get the number of items currently in the array.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add the given element to the end of the array.
+     * @param item the element to add
+     */
+    public void add(double item) {
+        ensureCapacity();
+        elements[size] = item;
+        size++;
+    }
+
+    /**
+     * Insert the given item at the specified index.
+     * The index must be in range 0 <= index <= size (or negative, counting
+     * back from the end).
+     *
+     * @param item the item to add
+     * @param index the index to add the item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public void insert(double item, int index) {
+        index = absoluteIndexForInsert(index);
+        checkIndexForInsert(index);
+        ensureCapacity();
+
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = item;
+        size++;
+    }
+
+    /**
+     * Remove the first occurrence of the specified value from the array.
+     *
+     * @param item the value to remove
+     * @return true if the value was present
+     */
+    public boolean removeValue(double item) {
+        int index = indexOf(item);
+        if (index == -1) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Remove the item at the specified index.
+     *
+     * @param index the index to remove the item from
+     * @return the item removed
+     */
+    public double remove(int index) {
+        index = absoluteIndex(index);
+        double item = getElement(index);
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+
+        shrinkIfNeeded();
+        return item;
+    }
+
+    /**
+     * Clear all the elements from this array.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Get the item at the specified index.
+     *
+     * @param index the index to get the item from
+     * @return the item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public double get(int index) {
+        index = absoluteIndex(index);
+        return getElement(index);
+    }
+
+    /**
+     * Replace the item at the specified index.
+     *
+     * @param index the index to set the item at
+     * @param item the new item
+     * @return the item previously at that index
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public double set(int index, double item) {
+        index = absoluteIndex(index);
+        double old = getElement(index);
+        elements[index] = item;
+        return old;
+    }
+
+    /**
+     * Find the index that the given item appears at.
+     * Values are compared like Double.equals, so NaN can be found.
+     *
+     * @param item the item to find
+     * @return the index, or -1 if not found
+     */
+    public int indexOf(double item) {
+        for (int i = 0; i < size; i++) {
+            if (Double.doubleToLongBits(item) == Double.doubleToLongBits(elements[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get a new array holding a copy of the elements.
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Sort the elements into ascending order, in place, with an LSD radix
+     * sort. It takes a fixed number of passes over the elements however
+     * they are arranged, and needs a second array of the same size.
+     * Like Arrays.sort, -0.0 comes before 0.0 and NaN comes last.
+     */
+    public void sort() {
+        RadixSort.sort(elements, 0, size);
+    }
+
+    /**
+     * Sort the elements into ascending order, in place, splitting large
+     * arrays into parts that are sorted and merged on the common
+     * fork/join pool.
+     */
+    public void parallelSort() {
+        Arrays.parallelSort(elements, 0, size);
+    }
+
+    @Override
+    public PrimitiveIterator.OfDouble iterator() {
+        return new ArrayIterator();
+    }
+
+    /**
+     * Splits by index range, so parallel streams divide the work evenly.
+     */
+    @Override
+    public Spliterator.OfDouble spliterator() {
+        return Spliterators.spliterator(elements, 0, size, Spliterator.ORDERED);
+    }
+
+    /**
+     * Get a sequential stream of the elements.
+     */
+    public DoubleStream stream() {
+        return StreamSupport.doubleStream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the elements.
+     */
+    public DoubleStream parallelStream() {
+        return StreamSupport.doubleStream(spliterator(), true);
+    }
+
+    private class ArrayIterator implements PrimitiveIterator.OfDouble {
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public double nextDouble() {
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            return elements[index++];
+        }
+    }
+
+    //----------------
+
+    private void ensureCapacity() {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length * SCALE_FACTOR);
+        }
+    }
+
+    /**
+     * Unlike DynamicArray this releases the memory, by copying into a
+     * smaller array once the array is mostly empty.
+     */
+    private void shrinkIfNeeded() {
+        int capacity = elements.length;
+        if (capacity > DEFAULT_CAPACITY && size * SHRINK_RATIO <= capacity) {
+            elements = Arrays.copyOf(elements, Math.max(DEFAULT_CAPACITY, capacity / SCALE_FACTOR));
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private void checkIndexForInsert(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private int absoluteIndex(int index) {
+        return index < 0 ? size + index : index;
+    }
+
+    private int absoluteIndexForInsert(int index) {
+        return index < 0 ? size + index + 1 : index;
+    }
+
+    private double getElement(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the capacity
+     */
+    int getCapacity() {
+        return elements.length;
+    }
+
+}
@@ -1,6 +1,16 @@
 package palm.util;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A simple dynamically-sized array.
@@ -24,25 +34,58 @@ public class DynamicArray<T> implements Iterable<T> {
         return arr;
     }
 
-    /**
-     * Factor for growing and shrinking the capacity
-     */
-    private static int SCALE_FACTOR = 2;
+    private static final int DEFAULT_CAPACITY = 5;
 
-    /**
-     * Ratio of the capacity/size to trigger shrinking
-     */
-    private static int SHRINK_RATIO = 4;
+    private final GrowthPolicy policy;
 
     private int capacity;
     private int size;
     private T[] elements;
 
+    /**
+     * Event counts for stats(), only kept if Instrumentation is enabled
+     */
+    private long grows;
+    private long shrinks;
+    private long elementsCopied;
+    private long iterators;
+
     /**
      * Create an empty DynamicArray.
      */
     public DynamicArray() {
-        capacity = 5;
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty DynamicArray with room for the given number of
+     * elements before it needs to grow. Removing elements may still
+     * shrink it below that.
+     * 
+     * @param initialCapacity the number of elements to make room for
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public DynamicArray(int initialCapacity) {
+        this(initialCapacity, GrowthPolicy.doubling());
+    }
+
+    /**
+     * Create an empty DynamicArray that grows and shrinks by the given policy.
+     * 
+     * @param initialCapacity the number of elements to make room for
+     * @param policy how to change the capacity when full or mostly empty
+     * @throws IllegalArgumentException if initialCapacity is negative or
+     *         policy is null
+     */
+    public DynamicArray(int initialCapacity, GrowthPolicy policy) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("DynamicArray capacity cannot be negative");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("DynamicArray needs a growth policy");
+        }
+        this.policy = policy;
+        capacity = initialCapacity;
         elements = allocateArray();
         size = 0;
     }
@@ -82,6 +125,85 @@ public class DynamicArray<T> implements Iterable<T> {
         size++;
     }
 
+    /**
+     * Add all of the given items to the end of the array, in order.
+     * The array grows at most once.
+     * 
+     * @param items the items to add
+     */
+    public void addAll(Iterable<? extends T> items) {
+        Object[] added = copyOf(items);
+        ensureCapacity(size + added.length);
+        System.arraycopy(added, 0, elements, size, added.length);
+        size += added.length;
+    }
+
+    /**
+     * Insert all of the given items, in order, starting at the specified index.
+     * The index must be in range 0 <= index <= size (or negative, counting
+     * back from the end). Existing items are shifted up once, rather than
+     * once per item.
+     * 
+     * @param items the items to add
+     * @param index the index to add the first item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public void insertAll(Iterable<? extends T> items, int index) {
+        index = absoluteIndexForInsert(index);
+        checkIndexForInsert(index);
+        Object[] added = copyOf(items);
+        ensureCapacity(size + added.length);
+
+        System.arraycopy(elements, index, elements, index + added.length, size - index);
+        System.arraycopy(added, 0, elements, index, added.length);
+        size += added.length;
+    }
+
+    /**
+     * Remove every item that matches the filter, in a single pass.
+     * 
+     * @param filter returns true for items to remove
+     * @return true if any items were removed
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+        int kept = 0;
+        int i = 0;
+        try {
+            for (; i < size; i++) {
+                T item = elements[i];
+                if (!filter.test(item)) {
+                    elements[kept++] = item;
+                }
+            }
+        } finally {
+            // if the filter threw, keep the items it did not get to
+            System.arraycopy(elements, i, elements, kept, size - i);
+            kept += size - i;
+            Arrays.fill(elements, kept, size, null);
+            size = kept;
+        }
+        if (size == before) {
+            return false;
+        }
+        shrinkIfNeeded();
+        return true;
+    }
+
+    /**
+     * Remove every item that is not among the given items.
+     * 
+     * @param items the items to keep
+     * @return true if any items were removed
+     */
+    public boolean retainAll(Iterable<?> items) {
+        Set<Object> keep = new HashSet<>();
+        for (Object item : items) {
+            keep.add(item);
+        }
+        return removeIf(item -> !keep.contains(item));
+    }
+
     /**
      * Remove the specified item from the array.
      * 
@@ -110,12 +232,42 @@ public class DynamicArray<T> implements Iterable<T> {
     }
 
     /**
-     * Clear all the elements from this array.
+     * Clear all the elements from this array. The capacity is kept; use
+     * {@link #trimToSize()} to release it.
      */
     public void clear() {
+        Arrays.fill(elements, 0, size, null);
         size = 0;
     }
 
+    /**
+     * Make sure there is room for at least the given number of elements,
+     * so adding up to that many does not need to grow the array.
+     * 
+     * @param minCapacity the number of elements to make room for
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > capacity) {
+            resize(policy.grow(capacity, minCapacity));
+            if (Instrumentation.ENABLED) {
+                grows++;
+            }
+        }
+    }
+
+    /**
+     * Shrink the capacity to the number of elements, releasing the rest
+     * of the backing array.
+     */
+    public void trimToSize() {
+        if (size < capacity) {
+            resize(size);
+            if (Instrumentation.ENABLED) {
+                shrinks++;
+            }
+        }
+    }
+
     /**
      * Get the item at the specified index.
      * 
@@ -143,11 +295,190 @@ public class DynamicArray<T> implements Iterable<T> {
         return -1;
 	}
 
+    /**
+     * Sort the elements in place with a stable TimSort, which finds runs
+     * that are already in order and merges them, so nearly-sorted arrays
+     * sort in close to linear time.
+     *
+     * @param comparator the order to sort into, or null for the elements'
+     *        natural order
+     */
+    public void sort(Comparator<? super T> comparator) {
+        Arrays.sort(elements, 0, size, comparator);
+    }
+
+    /**
+     * Sort the elements in place, splitting large arrays into parts that
+     * are sorted and merged on the common fork/join pool. The sort is
+     * stable, like {@link #sort(Comparator)}.
+     *
+     * @param comparator the order to sort into, or null for the elements'
+     *        natural order
+     */
+    public void parallelSort(Comparator<? super T> comparator) {
+        Arrays.parallelSort(elements, 0, size, comparator);
+    }
+
+    /**
+     * Get a snapshot of the capacity and, if enabled, counts of growth
+     * and shrink churn.
+     * 
+     * @return the stats
+     */
+    public ArrayStats stats() {
+        return new ArrayStats(size, capacity, grows, shrinks, elementsCopied, iterators);
+    }
+
     @Override
     public Iterator<T> iterator() {
+        if (Instrumentation.ENABLED) {
+            iterators++;
+        }
         return new ArrayIterator();
     }
 
+    /**
+     * Perform the action for each element in order, reading the backing
+     * array directly rather than through an iterator.
+     */
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        T[] arr = elements;
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            action.accept(arr[i]);
+        }
+    }
+
+    /**
+     * Get a cursor over the elements in order. Unlike an iterator, it can
+     * be kept and reused with {@link Cursor#reset()}, so repeated loops
+     * need not allocate.
+     * 
+     * @return a new cursor, positioned before the first element
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A reusable position in the array. Call {@link #advance()} before
+     * reading the first element.
+     */
+    public class Cursor {
+        private int index = -1;
+
+        /**
+         * Move to the next element.
+         * 
+         * @return true if there is an element at the new position
+         */
+        public boolean advance() {
+            if (index < size) {
+                index++;
+            }
+            return index < size;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        /**
+         * Get the element at the cursor.
+         *
+         * @throws IllegalStateException if the cursor is before the first
+         *         element or past the last
+         */
+        public T value() {
+            if (index < 0 || index >= size) {
+                throw new IllegalStateException("Cursor is not on an element");
+            }
+            return elements[index];
+        }
+
+        /**
+         * Move back to before the first element.
+         */
+        public void reset() {
+            index = -1;
+        }
+    }
+
+    /**
+     * Splits by index range, so parallel streams divide the work evenly.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        if (Instrumentation.ENABLED) {
+            iterators++;
+        }
+        return new ArraySpliterator(0, size);
+    }
+
+    /**
+     * Get a sequential stream of the elements.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the elements.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class ArraySpliterator implements Spliterator<T> {
+        private int index;
+        private final int fence;
+
+        ArraySpliterator(int index, int fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(elements[index++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            T[] arr = elements;
+            for (int i = index; i < fence; i++) {
+                action.accept(arr[i]);
+            }
+            index = fence;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            Spliterator<T> prefix = new ArraySpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
     private class ArrayIterator implements Iterator<T> {
         private int index = 0;
 
@@ -170,41 +501,70 @@ public class DynamicArray<T> implements Iterable<T> {
     }
 
     private void ensureCapacity() {
-        if (size == capacity) {
-            capacity = capacity * SCALE_FACTOR;
-            T[] newArr = allocateArray();
-            transferElements(newArr);
+        ensureCapacity(size + 1);
+    }
+
+    /**
+     * Copy the items into a new array, so adding an array to itself is safe.
+     */
+    private static Object[] copyOf(Iterable<?> items) {
+        if (items instanceof DynamicArray<?>) {
+            DynamicArray<?> arr = (DynamicArray<?>) items;
+            return Arrays.copyOf(arr.elements, arr.size);
+        }
+        if (items instanceof Collection<?>) {
+            return ((Collection<?>) items).toArray();
         }
+        DynamicArray<Object> buffer = new DynamicArray<>();
+        for (Object item : items) {
+            buffer.add(item);
+        }
+        return Arrays.copyOf(buffer.elements, buffer.size);
     }
 
-    private void transferElements(T[] newArr) {
-        if (newArr.length <= size) {
+    /**
+     * Copy the elements into a new backing array of the given capacity.
+     */
+    private void resize(int newCapacity) {
+        if (newCapacity < size) {
             throw new IllegalStateException();
         }
-
-        for (int i = 0; i < size; i++) {
-            newArr[i] = elements[i];
+        capacity = newCapacity;
+        T[] newArr = allocateArray();
+        System.arraycopy(elements, 0, newArr, 0, size);
+        if (Instrumentation.ENABLED) {
+            elementsCopied += size;
         }
-
         elements = newArr;
     }
 
+    /**
+     * Shrink as far as the policy allows in one copy, but not below the
+     * default capacity. A larger initial capacity is only a hint, so an
+     * array presized for a load can still give the memory back.
+     */
     private void shrinkIfNeeded() {
-        if ((capacity / size) >= SHRINK_RATIO) {
-            capacity = capacity / SCALE_FACTOR;
+        int target = capacity;
+        int next;
+        while ((next = policy.shrink(target, size)) < target) {
+            target = next;
+        }
+        target = Math.max(target, Math.min(DEFAULT_CAPACITY, capacity));
+        if (target < capacity) {
+            resize(target);
+            if (Instrumentation.ENABLED) {
+                shrinks++;
+            }
         }
     }
 
     private void shiftElementsUp(int start) {
-        for (int i = size-1; i >= start; i--) {
-            elements[i+1] = elements[i];
-        }
+        System.arraycopy(elements, start, elements, start + 1, size - start);
     }
 
     private void shiftElementsDown(int start) {
-        for (int i = start; i < size-1; i++) {
-            elements[i] = elements[i+1];
-        }
+        System.arraycopy(elements, start + 1, elements, start, size - start - 1);
+        elements[size - 1] = null;
     }
 
     private void checkIndex(int index) {
@@ -0,0 +1,149 @@
+package palm.util;
+
+/**
+ * How a {@link DynamicArray} changes its capacity as elements are added
+ * and removed.
+ * <p>
+ * Growing by a factor makes adding amortized O(1) but leaves up to that
+ * factor of unused room; growing by fixed steps wastes at most one step
+ * but copies the whole array every step. Each policy shrinks by the same
+ * step it would grow by, and only once the elements would still fit after
+ * shrinking twice, so adding and removing around a boundary does not
+ * resize back and forth.
+ */
+public final class GrowthPolicy {
+
+    private static final GrowthPolicy DOUBLING = new GrowthPolicy(2, 1, 0, 0);
+    private static final GrowthPolicy ONE_AND_A_HALF = new GrowthPolicy(3, 2, 0, 0);
+
+    /**
+     * The largest array most JVMs will allocate
+     */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /**
+     * The factor to grow by, as a fraction, when not growing by chunks
+     */
+    private final int numerator;
+    private final int denominator;
+
+    /**
+     * The fixed number of elements to grow by, or 0 to grow by the factor
+     */
+    private final int chunk;
+
+    /**
+     * The most elements to grow by at once, or 0 for no limit
+     */
+    private final int maxStep;
+
+    private GrowthPolicy(int numerator, int denominator, int chunk, int maxStep) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+        this.chunk = chunk;
+        this.maxStep = maxStep;
+    }
+
+    /**
+     * Double the capacity when full, and halve it when a quarter full.
+     * This is the default.
+     */
+    public static GrowthPolicy doubling() {
+        return DOUBLING;
+    }
+
+    /**
+     * Grow the capacity by half when full, and shrink it by a third when
+     * 4/9 full. This wastes less room than doubling, for a few more copies.
+     */
+    public static GrowthPolicy oneAndAHalf() {
+        return ONE_AND_A_HALF;
+    }
+
+    /**
+     * Grow by the given number of elements when full, and shrink by it
+     * when two chunks are unused. Adding n elements copies O(n^2 / chunk)
+     * of them, so this suits arrays with a known, modest range of sizes.
+     *
+     * @param chunk the number of elements to grow by
+     * @throws IllegalArgumentException if chunk is not positive
+     */
+    public static GrowthPolicy fixedChunk(int chunk) {
+        if (chunk <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        return new GrowthPolicy(1, 1, chunk, 0);
+    }
+
+    /**
+     * Double the capacity while small, but never grow or shrink by more
+     * than the given number of elements at once, so a large array does
+     * not reserve as much again in unused room.
+     *
+     * @param maxStep the most elements to grow by at once
+     * @throws IllegalArgumentException if maxStep is not positive
+     */
+    public static GrowthPolicy cappedGeometric(int maxStep) {
+        if (maxStep <= 0) {
+            throw new IllegalArgumentException("Maximum step must be positive");
+        }
+        return new GrowthPolicy(2, 1, 0, maxStep);
+    }
+
+    /**
+     * Get the capacity to grow to.
+     *
+     * @param capacity the current capacity
+     * @param minCapacity the capacity needed
+     * @return a capacity of at least minCapacity
+     */
+    int grow(int capacity, int minCapacity) {
+        long step;
+        if (chunk > 0) {
+            step = chunk;
+        } else {
+            step = Math.max(1, (long) capacity * (numerator - denominator) / denominator);
+            if (maxStep > 0) {
+                step = Math.min(step, maxStep);
+            }
+        }
+        return (int) Math.max(minCapacity, Math.min(capacity + step, MAX_CAPACITY));
+    }
+
+    /**
+     * Get the capacity to shrink to.
+     *
+     * @param capacity the current capacity
+     * @param size the number of elements
+     * @return a smaller capacity, or the current one if it should not shrink
+     */
+    int shrink(int capacity, int size) {
+        int smaller = smaller(capacity);
+        return size <= smaller(smaller) ? smaller : capacity;
+    }
+
+    //----------------
+
+    /**
+     * Get the capacity that would grow to the given one.
+     */
+    private int smaller(int capacity) {
+        if (chunk > 0) {
+            return Math.max(0, capacity - chunk);
+        }
+        int smaller = (int) ((long) capacity * denominator / numerator);
+        if (maxStep > 0) {
+            smaller = Math.max(smaller, capacity - maxStep);
+        }
+        return smaller;
+    }
+
+    @Override
+    public String toString() {
+        if (chunk > 0) {
+            return "GrowthPolicy[chunk=" + chunk + "]";
+        }
+        return "GrowthPolicy[factor=" + numerator + "/" + denominator
+            + (maxStep > 0 ? ", maxStep=" + maxStep : "") + "]";
+    }
+}
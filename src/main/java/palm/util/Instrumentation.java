@@ -0,0 +1,15 @@
+package palm.util;
+
+/**
+ * The switch for the event counters behind {@link Dictionary#stats()} and
+ * {@link DynamicArray#stats()}, read once from the system property
+ * {@code palm.util.stats}. Since the flag is a static final, the JIT drops
+ * the counting code altogether when it is off.
+ */
+final class Instrumentation {
+
+    private Instrumentation() {
+    }
+
+    static final boolean ENABLED = Boolean.getBoolean("palm.util.stats");
+}
@@ -1,6 +1,14 @@
 package palm.util;
 
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A simple double-linked list written as an exercise.
@@ -113,6 +121,8 @@ public class LinkedList<T> implements Iterable<T> {
 
         if (node.prev != null) {
             node.prev.next = newNode;
+        } else {
+            head = newNode;
         }
         newNode.prev = node.prev;
         node.prev = newNode;
@@ -120,6 +130,101 @@ public class LinkedList<T> implements Iterable<T> {
         size++;
     }
 
+    /**
+     * Add all of the given items at the end of the list, in order.
+     * 
+     * @param items the items to add
+     */
+    public void addAll(Iterable<? extends T> items) {
+        insertAll(items, size);
+    }
+
+    /**
+     * Insert all of the given items, in order, starting at the specified index.
+     * The index must be in range 0 <= index <= size (or negative, counting
+     * back from the end). The new nodes are linked up on their own and
+     * spliced in once, so the list is only walked to the index once.
+     * 
+     * @param items the items to add
+     * @param index the index to add the first item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public void insertAll(Iterable<? extends T> items, int index) {
+        if (index < 0) {
+            index += size + 1;
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        Node<T> first = null;
+        Node<T> last = null;
+        int count = 0;
+        for (T item : items) {
+            Node<T> node = new Node<>(item);
+            if (first == null) {
+                first = node;
+            } else {
+                last.next = node;
+                node.prev = last;
+            }
+            last = node;
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        Node<T> after = index == size ? null : getNode(index);
+        Node<T> before = after == null ? tail : after.prev;
+        first.prev = before;
+        last.next = after;
+        if (before == null) {
+            head = first;
+        } else {
+            before.next = first;
+        }
+        if (after == null) {
+            tail = last;
+        } else {
+            after.prev = last;
+        }
+        size += count;
+    }
+
+    /**
+     * Remove every item that matches the filter, in a single pass.
+     * 
+     * @param filter returns true for items to remove
+     * @return true if any items were removed
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+        Node<T> node = head;
+        while (node != null) {
+            Node<T> next = node.next;
+            if (filter.test(node.value)) {
+                removeNode(node);
+            }
+            node = next;
+        }
+        return size != before;
+    }
+
+    /**
+     * Remove every item that is not among the given items.
+     * 
+     * @param items the items to keep
+     * @return true if any items were removed
+     */
+    public boolean retainAll(Iterable<?> items) {
+        Set<Object> keep = new HashSet<>();
+        for (Object item : items) {
+            keep.add(item);
+        }
+        return removeIf(item -> !keep.contains(item));
+    }
+
     /**
      * Remove the item at the specified index.
      * 
@@ -191,13 +296,15 @@ public class LinkedList<T> implements Iterable<T> {
     private T removeNode(Node<T> node) {
         if (node.prev != null) {
             node.prev.next = node.next;
+        } else {
+            head = node.next;
         }
         if (node.next != null) {
             node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
         }
-        if (--size == 0) {
-            head = tail = null;
-        }
+        size--;
         return node.value;
     }
 
@@ -238,6 +345,157 @@ public class LinkedList<T> implements Iterable<T> {
         return new LinkedListIterator();
     }
 
+    /**
+     * Perform the action for each item in order, following the links
+     * directly rather than through an iterator.
+     */
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        for (Node<T> node = head; node != null; node = node.next) {
+            action.accept(node.value);
+        }
+    }
+
+    /**
+     * Get a cursor over the items in order. Unlike an iterator, it can be
+     * kept and reused with {@link Cursor#reset()}, so repeated loops need
+     * not allocate.
+     * 
+     * @return a new cursor, positioned before the first item
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A reusable position in the list. Call {@link #advance()} before
+     * reading the first item. If the current item is removed while a cursor
+     * is on it, the cursor still reads it, and the next {@link #advance()}
+     * moves on to the item that followed it.
+     */
+    public class Cursor {
+        private Node<T> node;
+        private boolean started;
+
+        /**
+         * Move to the next item.
+         * 
+         * @return true if there is an item at the new position
+         */
+        public boolean advance() {
+            if (!started) {
+                started = true;
+                node = head;
+            } else if (node != null) {
+                node = node.next;
+            }
+            return node != null;
+        }
+
+        /**
+         * Get the item at the cursor.
+         *
+         * @throws IllegalStateException if the cursor is before the first
+         *         item or past the last
+         */
+        public T value() {
+            if (node == null) {
+                throw new IllegalStateException("Cursor is not on an element");
+            }
+            return node.value;
+        }
+
+        /**
+         * Move back to before the first item.
+         */
+        public void reset() {
+            node = null;
+            started = false;
+        }
+    }
+
+    /**
+     * A list can't be split in the middle without walking to it, so this
+     * splits off batches from the front into arrays, each batch larger
+     * than the last.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new LinkedListSpliterator();
+    }
+
+    /**
+     * Get a sequential stream of the items.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the items.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class LinkedListSpliterator implements Spliterator<T> {
+        private static final int BATCH_UNIT = 1 << 10;
+        private static final int MAX_BATCH = 1 << 25;
+
+        Node<T> next = head;
+        int remaining = size;
+        int batch;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (remaining <= 0) {
+                return false;
+            }
+            T value = next.value;
+            next = next.next;
+            remaining--;
+            action.accept(value);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Node<T> node = next;
+            for (int i = remaining; i > 0; i--) {
+                action.accept(node.value);
+                node = node.next;
+            }
+            next = node;
+            remaining = 0;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (remaining <= 1) {
+                return null;
+            }
+            int n = Math.min(Math.min(batch + BATCH_UNIT, MAX_BATCH), remaining);
+            Object[] values = new Object[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = next.value;
+                next = next.next;
+            }
+            batch = n;
+            remaining -= n;
+            return Spliterators.spliterator(values, 0, n, ORDERED);
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
     private class LinkedListIterator implements Iterator<T> {
         Node<T> next = head;
 
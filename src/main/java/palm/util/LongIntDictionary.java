@@ -0,0 +1,335 @@
+package palm.util;
+
+/**
+ * A {@link Dictionary} specialized for {@code long} keys and {@code int} values.
+ * Keys and values are stored in primitive arrays with linear probing,
+ * so {@code get}, {@code set} and {@code containsKey} never box or allocate.
+ * <p>
+ * The key 0 marks an empty slot in the key array, so a mapping for 0 is
+ * kept in separate fields instead.
+ *
+ */
+public class LongIntDictionary {
+
+    /**
+     * Default number of slots for a new dictionary
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Ratio of size/capacity to trigger growing
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int initialCapacity;
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    /**
+     * Create an empty LongIntDictionary.
+     */
+    public LongIntDictionary() {
+        this(0);
+    }
+
+    /**
+     * Create an empty LongIntDictionary with room for the given number of entries
+     * before it needs to grow.
+     *
+     * @param expectedSize the number of entries expected
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    public LongIntDictionary(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Dictionary size cannot be negative");
+        }
+        initialCapacity = capacityFor(expectedSize);
+        allocate(initialCapacity);
+    }
+
+    /**
+     * Get the amount of entries in this Dictionary.
+     *
+     * @return the current size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Set the mapping for the given key to be the given value
+     *
+     * @param key the key
+     * @param value the new value
+     */
+    public void set(long key, int value) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        growIfNeeded();
+    }
+
+    /**
+     * Get the value associated with the given key.
+     *
+     * @param key the key
+     * @return the value, or 0 if there is no mapping
+     */
+    public int get(long key) {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * Get the value associated with the given key.
+     *
+     * @param key the key
+     * @param defaultValue the value to return if there is no mapping
+     * @return the value, or defaultValue if there is no mapping
+     */
+    public int getOrDefault(long key, int defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int i = indexOf(key);
+        return i < 0 ? defaultValue : values[i];
+    }
+
+    /**
+     * Check if this Dictionary contains a mapping for the given key.
+     *
+     * @param key the key
+     * @return true if there is an entry, false otherwise
+     */
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Remove the entry for the given key.
+     *
+     * @param key the key of the entry to remove
+     * @return the value in the entry that was removed, or 0 if there was no mapping
+     */
+    public int remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return 0;
+            }
+            int value = zeroValue;
+            hasZeroKey = false;
+            zeroValue = 0;
+            size--;
+            return value;
+        }
+
+        int i = indexOf(key);
+        if (i < 0) {
+            return 0;
+        }
+        int value = values[i];
+        deleteSlot(i);
+        size--;
+        return value;
+    }
+
+    /**
+     * Clear the Dictionary
+     */
+    public void clear() {
+        allocate(initialCapacity);
+        hasZeroKey = false;
+        zeroValue = 0;
+        size = 0;
+    }
+
+    /**
+     * Get a cursor over the entries of this Dictionary, in no particular order.
+     * The cursor does not box its keys or values and can be reused
+     * with {@link Cursor#reset()}.
+     *
+     * @return a new cursor, positioned before the first entry
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A reusable position in the Dictionary. Call {@link #advance()} before
+     * reading the first entry. Modifying the Dictionary while a cursor is in
+     * use may cause entries to be skipped or seen twice.
+     */
+    public class Cursor {
+        /**
+         * -2 is before the start, -1 is the zero key, then slot indices.
+         */
+        private int slot = -2;
+
+        /**
+         * Move to the next entry.
+         *
+         * @return true if there is an entry at the new position
+         */
+        public boolean advance() {
+            if (slot == -2) {
+                slot = -1;
+                if (hasZeroKey) {
+                    return true;
+                }
+            }
+            while (++slot < keys.length) {
+                if (keys[slot] != 0) {
+                    return true;
+                }
+            }
+            slot = keys.length;
+            return false;
+        }
+
+        /**
+         * Get the key of the entry at the cursor.
+         *
+         * @throws IllegalStateException if the cursor is before the first
+         *         entry or past the last
+         */
+        public long key() {
+            checkPosition();
+            return slot == -1 ? 0 : keys[slot];
+        }
+
+        /**
+         * Get the value of the entry at the cursor.
+         *
+         * @throws IllegalStateException if the cursor is before the first
+         *         entry or past the last
+         */
+        public int value() {
+            checkPosition();
+            return slot == -1 ? zeroValue : values[slot];
+        }
+
+        /**
+         * Move back to before the first entry.
+         */
+        public void reset() {
+            slot = -2;
+        }
+
+        private void checkPosition() {
+            if (slot == -2 || slot >= keys.length) {
+                throw new IllegalStateException("Cursor is not on an element");
+            }
+        }
+    }
+
+    //-----------------------------------------------------------
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int needed = (int) Math.ceil(expectedSize / LOAD_FACTOR);
+        int cap = DEFAULT_CAPACITY;
+        while (cap < needed && cap < (1 << 30)) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    private static int hash(long key) {
+        int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Find the slot holding the given (non-zero) key.
+     *
+     * @return the slot index, or -1 if the key is absent
+     */
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Empty the given slot, shifting later entries of the same probe run
+     * back into the gap so that no tombstones are needed.
+     */
+    private void deleteSlot(int gap) {
+        int mask = keys.length - 1;
+        int i = (gap + 1) & mask;
+        while (keys[i] != 0) {
+            int home = hash(keys[i]) & mask;
+            // the entry may only move back if the gap is not before its home slot
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+    }
+
+    private void growIfNeeded() {
+        if (size <= keys.length * LOAD_FACTOR || keys.length >= (1 << 30)) {
+            return;
+        }
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the number of slots
+     */
+    int getCapacity() {
+        return keys.length;
+    }
+
+}
@@ -0,0 +1,285 @@
+package palm.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import palm.util.io.FixedWidthCodec;
+
+/**
+ * A dynamically-sized array of fixed-width elements, stored in a file
+ * through memory-mapped segments rather than on the heap.
+ * <p>
+ * Elements are encoded with a {@link FixedWidthCodec}, which gives the width in bytes
+ * of every element. The file starts with a small header holding the size,
+ * followed by segments of a fixed number of elements. The array grows by
+ * mapping another segment, so existing elements are never copied, and
+ * paging is left to the OS. Reopening the file gives back the same array
+ * without reading it in.
+ * <p>
+ * Like {@link DynamicArray}, indices may be negative to count back from the
+ * end. This class is not thread-safe.
+ *
+ * @param <T> the type of data in the array
+ */
+public class MappedDynamicArray<T> implements Iterable<T>, Closeable {
+
+    /**
+     * Default segment size in bytes, rounded down to whole elements.
+     */
+    private static final int DEFAULT_SEGMENT_BYTES = 1 << 26;
+
+    private static final int MAGIC = 0x50444131; // "PDA1"
+    private static final int HEADER_BYTES = 64;
+    private static final int WIDTH_OFFSET = 4;
+    private static final int PER_SEGMENT_OFFSET = 8;
+    private static final int SIZE_OFFSET = 16;
+
+    /**
+     * Open the array stored in the given file, creating the file if it
+     * does not exist yet.
+     *
+     * @param file the backing file
+     * @param codec the element codec, which must match the one the file was written with
+     * @return the array
+     * @throws IOException if the file cannot be opened or mapped, or its header is corrupt
+     * @throws IllegalArgumentException if the file holds a different kind of array
+     */
+    public static <E> MappedDynamicArray<E> open(Path file, FixedWidthCodec<E> codec) throws IOException {
+        return open(file, codec, Math.max(1, DEFAULT_SEGMENT_BYTES / codec.width()));
+    }
+
+    /**
+     * Open the array stored in the given file, creating the file if it
+     * does not exist yet. The segment size only applies to new files;
+     * existing files keep the segment size they were created with.
+     *
+     * @param file the backing file
+     * @param codec the element codec, which must match the one the file was written with
+     * @param elementsPerSegment the number of elements in each mapped segment
+     * @return the array
+     * @throws IOException if the file cannot be opened or mapped, or its header is corrupt
+     * @throws IllegalArgumentException if the file holds a different kind of array
+     */
+    public static <E> MappedDynamicArray<E> open(Path file, FixedWidthCodec<E> codec, int elementsPerSegment) throws IOException {
+        if (elementsPerSegment <= 0 || (long) elementsPerSegment * codec.width() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size");
+        }
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new MappedDynamicArray<>(channel, codec, elementsPerSegment);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private final FileChannel channel;
+    private final FixedWidthCodec<T> codec;
+    private final int width;
+    private final int elementsPerSegment;
+    private final MappedByteBuffer header;
+
+    private MappedByteBuffer[] segments;
+    private int segmentCount;
+    private int size;
+
+    private MappedDynamicArray(FileChannel channel, FixedWidthCodec<T> codec, int elementsPerSegment) throws IOException {
+        this.channel = channel;
+        this.codec = codec;
+        this.width = codec.width();
+
+        boolean isNew = channel.size() == 0;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (isNew) {
+            header.putInt(0, MAGIC);
+            header.putInt(WIDTH_OFFSET, width);
+            header.putInt(PER_SEGMENT_OFFSET, elementsPerSegment);
+            header.putLong(SIZE_OFFSET, 0);
+        } else {
+            if (header.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a MappedDynamicArray file");
+            }
+            if (header.getInt(WIDTH_OFFSET) != width) {
+                throw new IllegalArgumentException("File has element width " + header.getInt(WIDTH_OFFSET)
+                    + " but the codec has width " + width);
+            }
+            elementsPerSegment = header.getInt(PER_SEGMENT_OFFSET);
+            if (elementsPerSegment <= 0 || (long) elementsPerSegment * width > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt segment size " + elementsPerSegment);
+            }
+        }
+        this.elementsPerSegment = elementsPerSegment;
+
+        long storedSize = header.getLong(SIZE_OFFSET);
+        if (storedSize < 0 || storedSize > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt size " + storedSize);
+        }
+        size = (int) storedSize;
+        segments = new MappedByteBuffer[4];
+        while ((long) segmentCount * elementsPerSegment < Math.max(size, 1)) {
+            mapSegment();
+        }
+    }
+
+    /**
+     * Get the number of items currently in the array.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add the given element to the end of the array.
+     * @param item the element to add
+     * @throws UncheckedIOException if a new segment cannot be mapped
+     */
+    public void add(T item) {
+        if (size == (long) segmentCount * elementsPerSegment) {
+            try {
+                mapSegment();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        write(size, item);
+        setSize(size + 1);
+    }
+
+    /**
+     * Get the item at the specified index.
+     *
+     * @param index the index to get the item from
+     * @return the item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T get(int index) {
+        index = absoluteIndex(index);
+        checkIndex(index);
+        return codec.read(segments[index / elementsPerSegment], (index % elementsPerSegment) * width);
+    }
+
+    /**
+     * Replace the item at the specified index.
+     *
+     * @param index the index to set the item at
+     * @param item the new item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public void set(int index, T item) {
+        index = absoluteIndex(index);
+        checkIndex(index);
+        write(index, item);
+    }
+
+    /**
+     * Remove the last item.
+     *
+     * @return the item removed
+     * @throws IndexOutOfBoundsException if the array is empty
+     */
+    public T removeLast() {
+        T item = get(-1);
+        setSize(size - 1);
+        return item;
+    }
+
+    /**
+     * Clear all the elements from this array.
+     * The file keeps its mapped segments for reuse.
+     */
+    public void clear() {
+        setSize(0);
+    }
+
+    /**
+     * Write any changes through to the storage device.
+     */
+    public void force() {
+        header.force();
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i].force();
+        }
+    }
+
+    /**
+     * Flush and close the backing file. The mapped memory is released
+     * once the buffers are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ArrayIterator();
+    }
+
+    private class ArrayIterator implements Iterator<T> {
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public T next() {
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            return get(index++);
+        }
+    }
+
+    //----------------
+
+    private void mapSegment() throws IOException {
+        if (segmentCount == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        long segmentBytes = (long) elementsPerSegment * width;
+        long position = HEADER_BYTES + segmentCount * segmentBytes;
+        // mapping past the end of the file extends it
+        segments[segmentCount++] = channel.map(FileChannel.MapMode.READ_WRITE, position, segmentBytes);
+    }
+
+    private void write(int index, T item) {
+        codec.write(segments[index / elementsPerSegment], (index % elementsPerSegment) * width, item);
+    }
+
+    private void setSize(int size) {
+        this.size = size;
+        header.putLong(SIZE_OFFSET, size);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private int absoluteIndex(int index) {
+        return index < 0 ? size + index : index;
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the number of mapped segments
+     */
+    int getSegmentCount() {
+        return segmentCount;
+    }
+
+}
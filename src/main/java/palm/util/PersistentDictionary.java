@@ -0,0 +1,664 @@
+package palm.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import palm.util.Dictionary.Entry;
+
+/**
+ * An immutable Dictionary. Every update returns a new dictionary, which
+ * shares all but the changed path with the old one, so keeping an old
+ * version around as a snapshot costs nothing.
+ * <p>
+ * The entries are stored in a hash array mapped trie: each level of the
+ * trie uses the next 5 bits of the key's hashcode to pick one of 32
+ * children, but a node only has array slots for the children it actually
+ * has, found by counting the bits set in its bitmap below the child's bit.
+ * Keys whose whole hashcodes are equal end up together in a collision
+ * node, which is searched linearly.
+ * <p>
+ * Many updates in a row can be made in place with a {@link Transient},
+ * which copies each node at most once.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public final class PersistentDictionary<K, V> implements Iterable<Entry<K, V>> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Deep enough for a bitmap node at every 5 bits of the hashcode, and
+     * a collision node below those.
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private static final PersistentDictionary<?, ?> EMPTY = new PersistentDictionary<>(0, null);
+
+    /**
+     * Get the empty dictionary.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentDictionary<K, V> empty() {
+        return (PersistentDictionary<K, V>) EMPTY;
+    }
+
+    /**
+     * Create a PersistentDictionary with the given entries. Later entries
+     * replace earlier ones with the same key.
+     *
+     * @param entries the entries to add
+     */
+    @SafeVarargs
+    public static <K, V> PersistentDictionary<K, V> of(Entry<K, V>... entries) {
+        Transient<K, V> builder = PersistentDictionary.<K, V>empty().asTransient();
+        for (Entry<K, V> entry : entries) {
+            builder.set(entry.key, entry.value);
+        }
+        return builder.persistent();
+    }
+
+    /**
+     * Create a PersistentDictionary with the entries of the given Dictionary.
+     *
+     * @param other the dictionary to copy
+     */
+    public static <K, V> PersistentDictionary<K, V> from(Dictionary<? extends K, ? extends V> other) {
+        Transient<K, V> builder = PersistentDictionary.<K, V>empty().asTransient();
+        for (Entry<? extends K, ? extends V> entry : other) {
+            builder.set(entry.key, entry.value);
+        }
+        return builder.persistent();
+    }
+
+    private final int size;
+    private final Node root;
+
+    private PersistentDictionary(int size, Node root) {
+        this.size = size;
+        this.root = root;
+    }
+
+    /**
+     * Get the number of entries in the dictionary.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the value associated with the given key.
+     *
+     * @param key the key to get the value of
+     * @return the value, or null if the key is not present
+     * @throws IllegalArgumentException if key is null
+     */
+    public V get(K key) {
+        Entry<K, V> entry = findEntry(root, key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Check if the given key is in the dictionary.
+     *
+     * @throws IllegalArgumentException if key is null
+     */
+    public boolean containsKey(K key) {
+        return findEntry(root, key) != null;
+    }
+
+    /**
+     * Get a dictionary with the key set to the given value.
+     *
+     * @param key the key to set
+     * @param value the value to associate with the key
+     * @return the new dictionary, or this one if the key already had the value
+     * @throws IllegalArgumentException if key is null
+     */
+    public PersistentDictionary<K, V> set(K key, V value) {
+        Entry<K, V> entry = Entry.of(key, value);
+        Change change = new Change();
+        Node newRoot = root == null
+            ? BitmapNode.EMPTY.set(null, 0, key.hashCode(), entry, change)
+            : root.set(null, 0, key.hashCode(), entry, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentDictionary<>(change.sizeChanged ? size + 1 : size, newRoot);
+    }
+
+    /**
+     * Get a dictionary without the given key.
+     *
+     * @param key the key to remove
+     * @return the new dictionary, or this one if the key was not present
+     * @throws IllegalArgumentException if key is null
+     */
+    public PersistentDictionary<K, V> remove(K key) {
+        checkKey(key);
+        if (root == null) {
+            return this;
+        }
+        Change change = new Change();
+        Node newRoot = root.remove(null, 0, key.hashCode(), key, change);
+        if (!change.sizeChanged) {
+            return this;
+        }
+        return size == 1 ? empty() : new PersistentDictionary<>(size - 1, newRoot);
+    }
+
+    /**
+     * Get a dictionary with all the entries of the given Dictionary added,
+     * replacing the values of any keys already present.
+     *
+     * @param other the dictionary to copy entries from
+     * @return the new dictionary
+     */
+    public PersistentDictionary<K, V> putAll(Dictionary<? extends K, ? extends V> other) {
+        Transient<K, V> builder = asTransient();
+        for (Entry<? extends K, ? extends V> entry : other) {
+            builder.set(entry.key, entry.value);
+        }
+        return builder.persistent();
+    }
+
+    /**
+     * Get a transient copy of this dictionary, for making many updates in
+     * place. This dictionary is not affected.
+     */
+    public Transient<K, V> asTransient() {
+        return new Transient<>(size, root);
+    }
+
+    /**
+     * A mutable version of a PersistentDictionary. It copies a node the
+     * first time it changes it, and after that changes the copy in place,
+     * so a batch of updates shares the copying between them.
+     * <p>
+     * Once {@link #persistent()} is called the transient can no longer be
+     * used, since the dictionary it returns shares its nodes.
+     *
+     * @param <K> the type of key
+     * @param <V> the type of value
+     */
+    public static final class Transient<K, V> {
+        private Object owner = new Object();
+        private final Change change = new Change();
+        private int size;
+        private Node root;
+
+        private Transient(int size, Node root) {
+            this.size = size;
+            this.root = root;
+        }
+
+        /**
+         * Get the number of entries in the dictionary.
+         */
+        public int size() {
+            checkEditable();
+            return size;
+        }
+
+        /**
+         * Get the value associated with the given key.
+         *
+         * @param key the key to get the value of
+         * @return the value, or null if the key is not present
+         * @throws IllegalArgumentException if key is null
+         */
+        public V get(K key) {
+            checkEditable();
+            Entry<K, V> entry = findEntry(root, key);
+            return entry == null ? null : entry.value;
+        }
+
+        /**
+         * Check if the given key is in the dictionary.
+         *
+         * @throws IllegalArgumentException if key is null
+         */
+        public boolean containsKey(K key) {
+            checkEditable();
+            return findEntry(root, key) != null;
+        }
+
+        /**
+         * Associate the value with the given key.
+         *
+         * @param key the key to set
+         * @param value the value to associate with the key
+         * @throws IllegalArgumentException if key is null
+         */
+        public void set(K key, V value) {
+            checkEditable();
+            Entry<K, V> entry = Entry.of(key, value);
+            change.sizeChanged = false;
+            Node node = root == null ? BitmapNode.EMPTY : root;
+            root = node.set(owner, 0, key.hashCode(), entry, change);
+            if (change.sizeChanged) {
+                size++;
+            }
+        }
+
+        /**
+         * Remove the given key.
+         *
+         * @param key the key to remove
+         * @return the value that was associated with the key, or null if
+         *         it was not present
+         * @throws IllegalArgumentException if key is null
+         */
+        public V remove(K key) {
+            checkEditable();
+            Entry<K, V> entry = findEntry(root, key);
+            if (entry == null) {
+                return null;
+            }
+            change.sizeChanged = false;
+            root = root.remove(owner, 0, key.hashCode(), key, change);
+            size--;
+            return entry.value;
+        }
+
+        /**
+         * Get a PersistentDictionary of the current entries. The transient
+         * can't be used after this.
+         *
+         * @return the dictionary
+         * @throws IllegalStateException if already called
+         */
+        public PersistentDictionary<K, V> persistent() {
+            checkEditable();
+            owner = null;
+            return size == 0 ? empty() : new PersistentDictionary<>(size, root);
+        }
+
+        private void checkEditable() {
+            if (owner == null) {
+                throw new IllegalStateException("Transient used after persistent()");
+            }
+        }
+    }
+
+    //----------------
+
+    /**
+     * Whether an update added or removed an entry, rather than replacing
+     * a value or finding nothing to remove.
+     */
+    private static final class Change {
+        boolean sizeChanged;
+    }
+
+    /**
+     * A trie node. The array holds entries and child nodes. Nodes made by
+     * a transient belong to it, and it may change them in place until it
+     * is made persistent.
+     */
+    private abstract static class Node {
+        final Object owner;
+        Object[] array;
+
+        Node(Object owner, Object[] array) {
+            this.owner = owner;
+            this.array = array;
+        }
+
+        abstract Entry<?, ?> find(int shift, int hash, Object key);
+
+        abstract Node set(Object owner, int shift, int hash, Entry<?, ?> entry, Change change);
+
+        /**
+         * @return the new node, or null if it is left empty
+         */
+        abstract Node remove(Object owner, int shift, int hash, Object key, Change change);
+
+        /**
+         * Get the node's only entry, if it has just one and no children,
+         * so a parent can hold the entry directly instead.
+         */
+        Entry<?, ?> single() {
+            return array.length == 1 && array[0] instanceof Entry ? (Entry<?, ?>) array[0] : null;
+        }
+
+        boolean isEditable(Object owner) {
+            return owner != null && this.owner == owner;
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        int bitmap;
+
+        BitmapNode(Object owner, int bitmap, Object[] array) {
+            super(owner, array);
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        Entry<?, ?> find(int shift, int hash, Object key) {
+            int bit = bitFor(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = array[slotFor(bit)];
+            if (slot instanceof Node) {
+                return ((Node) slot).find(shift + BITS, hash, key);
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) slot;
+            return entry.key.equals(key) ? entry : null;
+        }
+
+        @Override
+        Node set(Object owner, int shift, int hash, Entry<?, ?> entry, Change change) {
+            int bit = bitFor(hash, shift);
+            int index = slotFor(bit);
+            if ((bitmap & bit) == 0) {
+                change.sizeChanged = true;
+                Object[] newArray = new Object[array.length + 1];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = entry;
+                System.arraycopy(array, index, newArray, index + 1, array.length - index);
+                if (isEditable(owner)) {
+                    array = newArray;
+                    bitmap |= bit;
+                    return this;
+                }
+                return new BitmapNode(owner, bitmap | bit, newArray);
+            }
+            Object slot = array[index];
+            if (slot instanceof Node) {
+                Node child = ((Node) slot).set(owner, shift + BITS, hash, entry, change);
+                return child == slot ? this : withSlot(owner, index, child);
+            }
+            Entry<?, ?> existing = (Entry<?, ?>) slot;
+            if (existing.key.equals(entry.key)) {
+                return existing.value == entry.value ? this : withSlot(owner, index, entry);
+            }
+            change.sizeChanged = true;
+            return withSlot(owner, index,
+                merge(owner, shift + BITS, existing, existing.key.hashCode(), entry, hash));
+        }
+
+        @Override
+        Node remove(Object owner, int shift, int hash, Object key, Change change) {
+            int bit = bitFor(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = slotFor(bit);
+            Object slot = array[index];
+            if (slot instanceof Node) {
+                Node child = ((Node) slot).remove(owner, shift + BITS, hash, key, change);
+                if (child == slot) {
+                    return this;
+                }
+                if (child != null) {
+                    Entry<?, ?> single = child.single();
+                    return withSlot(owner, index, single != null ? single : child);
+                }
+            } else if (!((Entry<?, ?>) slot).key.equals(key)) {
+                return this;
+            } else {
+                change.sizeChanged = true;
+            }
+            // take the slot out altogether
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 1];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 1, newArray, index, array.length - index - 1);
+            if (isEditable(owner)) {
+                array = newArray;
+                bitmap ^= bit;
+                return this;
+            }
+            return new BitmapNode(owner, bitmap ^ bit, newArray);
+        }
+
+        private Node withSlot(Object owner, int index, Object value) {
+            if (isEditable(owner)) {
+                array[index] = value;
+                return this;
+            }
+            Object[] newArray = array.clone();
+            newArray[index] = value;
+            return new BitmapNode(owner, bitmap, newArray);
+        }
+
+        /**
+         * Get the index in the array of the child for the bit, which is
+         * the number of children before it.
+         */
+        private int slotFor(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    /**
+     * The entries of keys whose hashcodes are all equal.
+     */
+    private static final class CollisionNode extends Node {
+        final int hash;
+
+        CollisionNode(Object owner, int hash, Object[] array) {
+            super(owner, array);
+            this.hash = hash;
+        }
+
+        @Override
+        Entry<?, ?> find(int shift, int hash, Object key) {
+            int index = indexOf(key);
+            return index == -1 ? null : (Entry<?, ?>) array[index];
+        }
+
+        @Override
+        Node set(Object owner, int shift, int hash, Entry<?, ?> entry, Change change) {
+            if (hash != this.hash) {
+                // the hashes only agreed this far, so split above this node
+                Node parent = new BitmapNode(owner, bitFor(this.hash, shift), new Object[] {this});
+                return parent.set(owner, shift, hash, entry, change);
+            }
+            int index = indexOf(entry.key);
+            if (index != -1) {
+                if (((Entry<?, ?>) array[index]).value == entry.value) {
+                    return this;
+                }
+                if (isEditable(owner)) {
+                    array[index] = entry;
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[index] = entry;
+                return new CollisionNode(owner, hash, newArray);
+            }
+            change.sizeChanged = true;
+            Object[] newArray = new Object[array.length + 1];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = entry;
+            if (isEditable(owner)) {
+                array = newArray;
+                return this;
+            }
+            return new CollisionNode(owner, hash, newArray);
+        }
+
+        @Override
+        Node remove(Object owner, int shift, int hash, Object key, Change change) {
+            int index = indexOf(key);
+            if (index == -1) {
+                return this;
+            }
+            change.sizeChanged = true;
+            if (array.length == 1) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 1];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 1, newArray, index, array.length - index - 1);
+            if (isEditable(owner)) {
+                array = newArray;
+                return this;
+            }
+            return new CollisionNode(owner, this.hash, newArray);
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i++) {
+                if (((Entry<?, ?>) array[i]).key.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static void checkKey(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("PersistentDictionary does not support null keys");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Entry<K, V> findEntry(Node root, Object key) {
+        checkKey(key);
+        return root == null ? null : (Entry<K, V>) root.find(0, key.hashCode(), key);
+    }
+
+    private static int bitFor(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * Make a node holding two entries with different keys, splitting on
+     * as many levels as their hashcodes agree for.
+     */
+    private static Node merge(Object owner, int shift, Entry<?, ?> a, int hashA, Entry<?, ?> b, int hashB) {
+        if (hashA == hashB) {
+            return new CollisionNode(owner, hashA, new Object[] {a, b});
+        }
+        int bitA = bitFor(hashA, shift);
+        int bitB = bitFor(hashB, shift);
+        if (bitA == bitB) {
+            return new BitmapNode(owner, bitA, new Object[] {merge(owner, shift + BITS, a, hashA, b, hashB)});
+        }
+        Object[] array = Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[] {a, b} : new Object[] {b, a};
+        return new BitmapNode(owner, bitA | bitB, array);
+    }
+
+    //----------------
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new TrieIterator();
+    }
+
+    /**
+     * Perform the action for each entry, walking the trie directly.
+     */
+    @Override
+    public void forEach(Consumer<? super Entry<K, V>> action) {
+        if (root != null) {
+            forEach(root, action);
+        }
+    }
+
+    /**
+     * Perform the action for each key and value.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(entry -> action.accept(entry.key, entry.value));
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.DISTINCT | Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * Get a sequential stream of the entries.
+     */
+    public Stream<Entry<K, V>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the entries.
+     */
+    public Stream<Entry<K, V>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> void forEach(Node node, Consumer<? super Entry<K, V>> action) {
+        for (Object slot : node.array) {
+            if (slot instanceof Node) {
+                forEach((Node) slot, action);
+            } else {
+                action.accept((Entry<K, V>) slot);
+            }
+        }
+    }
+
+    /**
+     * A depth-first walk. Each level of the stack is a node's array and
+     * the index of the next slot to visit in it.
+     */
+    private class TrieIterator implements Iterator<Entry<K, V>> {
+        final Object[][] arrays = new Object[MAX_DEPTH][];
+        final int[] indices = new int[MAX_DEPTH];
+        int depth = -1;
+        Entry<K, V> next;
+
+        TrieIterator() {
+            if (root != null) {
+                arrays[++depth] = root.array;
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = next;
+            advance();
+            return entry;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            while (depth >= 0) {
+                if (indices[depth] == arrays[depth].length) {
+                    indices[depth--] = 0;
+                    continue;
+                }
+                Object slot = arrays[depth][indices[depth]++];
+                if (slot instanceof Node) {
+                    arrays[++depth] = ((Node) slot).array;
+                } else {
+                    next = (Entry<K, V>) slot;
+                    return;
+                }
+            }
+            next = null;
+        }
+    }
+
+}
@@ -0,0 +1,586 @@
+package palm.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable array. Every update returns a new vector, which shares all
+ * but the changed path with the old one, so keeping an old version around
+ * as a snapshot costs nothing.
+ * <p>
+ * The elements are stored in a trie with 32 children per node, so get and
+ * set are O(log32 n), which is at most 7 levels for an int-sized vector.
+ * The last (up to) 32 elements are kept in a separate tail array, so add
+ * and removeLast usually copy only the tail rather than a path.
+ * <p>
+ * Many updates in a row can be made in place with a {@link Transient},
+ * which copies each node at most once. Like {@link DynamicArray}, indices
+ * may be negative to count back from the end, so -1 is the last element.
+ *
+ * @param <T> the type of data in the vector
+ */
+public final class PersistentVector<T> implements Iterable<T> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    /**
+     * A trie node. Nodes made by a transient belong to it, and it may
+     * change them in place until it is made persistent.
+     */
+    private static final class Node {
+        final Object owner;
+        final Object[] array;
+
+        Node(Object owner, Object[] array) {
+            this.owner = owner;
+            this.array = array;
+        }
+    }
+
+    private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);
+
+    private static final PersistentVector<?> EMPTY =
+        new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+    /**
+     * Get the empty vector.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    /**
+     * Create a PersistentVector with the specified elements.
+     * Elements are stored in the order they appear.
+     *
+     * @param elements the elements to add
+     */
+    @SafeVarargs
+    public static <E> PersistentVector<E> of(E... elements) {
+        Transient<E> builder = PersistentVector.<E>empty().asTransient();
+        for (E elem : elements) {
+            builder.add(elem);
+        }
+        return builder.persistent();
+    }
+
+    /**
+     * Create a PersistentVector with the given items, in order.
+     *
+     * @param items the items to add
+     */
+    public static <E> PersistentVector<E> from(Iterable<? extends E> items) {
+        Transient<E> builder = PersistentVector.<E>empty().asTransient();
+        builder.addAll(items);
+        return builder.persistent();
+    }
+
+    private final int size;
+    private final int shift;
+    private final Node root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Node root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * Get the number of elements in the vector.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the element at the specified index.
+     *
+     * @param index the index to get the element from
+     * @return the element
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        index = checkIndex(index, size);
+        return (T) arrayFor(index, size, shift, root, tail)[index & MASK];
+    }
+
+    /**
+     * Get a vector with the element at the specified index replaced.
+     *
+     * @param index the index to set the element at
+     * @param item the new element
+     * @return the new vector
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public PersistentVector<T> set(int index, T item) {
+        index = checkIndex(index, size);
+        if (index >= tailOffset(size)) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = item;
+            return new PersistentVector<>(size, shift, root, newTail);
+        }
+        return new PersistentVector<>(size, shift, doSet(null, shift, root, index, item), tail);
+    }
+
+    /**
+     * Get a vector with the given element added to the end.
+     *
+     * @param item the element to add
+     * @return the new vector
+     */
+    public PersistentVector<T> add(T item) {
+        if (size - tailOffset(size) < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = item;
+            return new PersistentVector<>(size + 1, shift, root, newTail);
+        }
+        Node tailNode = new Node(null, tail);
+        int newShift = shift;
+        Node newRoot;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Node(null, new Object[WIDTH]);
+            newRoot.array[0] = root;
+            newRoot.array[1] = newPath(null, shift, tailNode);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(null, size, shift, root, tailNode);
+        }
+        return new PersistentVector<>(size + 1, newShift, newRoot, new Object[] {item});
+    }
+
+    /**
+     * Get a vector with the given items added to the end, in order.
+     *
+     * @param items the items to add
+     * @return the new vector
+     */
+    public PersistentVector<T> addAll(Iterable<? extends T> items) {
+        Transient<T> builder = asTransient();
+        builder.addAll(items);
+        return builder.persistent();
+    }
+
+    /**
+     * Get a vector without the last element.
+     *
+     * @return the new vector
+     * @throws IndexOutOfBoundsException if the vector is empty
+     */
+    public PersistentVector<T> removeLast() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (size == 1) {
+            return empty();
+        }
+        if (size - tailOffset(size) > 1) {
+            return new PersistentVector<>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+        // the last leaf in the trie becomes the tail
+        Object[] newTail = arrayFor(size - 2, size, shift, root, tail);
+        Node newRoot = popTail(null, size, shift, root);
+        int newShift = shift;
+        if (newRoot == null) {
+            newRoot = EMPTY_NODE;
+        }
+        if (shift > BITS && newRoot.array[1] == null) {
+            newRoot = (Node) newRoot.array[0];
+            newShift -= BITS;
+        }
+        return new PersistentVector<>(size - 1, newShift, newRoot, newTail);
+    }
+
+    /**
+     * Find the index that the given item appears at.
+     *
+     * @param item the item to find
+     * @return the index, or -1 if not found
+     */
+    public int indexOf(T item) {
+        int index = 0;
+        for (T value : this) {
+            if (Objects.equals(item, value)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * Check if the given item is in this vector
+     */
+    public boolean contains(T item) {
+        return indexOf(item) != -1;
+    }
+
+    /**
+     * Get a transient copy of this vector, for making many updates in
+     * place. This vector is not affected.
+     */
+    public Transient<T> asTransient() {
+        return new Transient<>(size, shift, root, Arrays.copyOf(tail, WIDTH));
+    }
+
+    /**
+     * A mutable version of a PersistentVector. It copies a node the first
+     * time it changes it, and after that changes the copy in place, so a
+     * batch of n updates copies at most n paths and usually far fewer.
+     * <p>
+     * Once {@link #persistent()} is called the transient can no longer be
+     * used, since the vector it returns shares its nodes.
+     *
+     * @param <T> the type of data in the vector
+     */
+    public static final class Transient<T> {
+        private Object owner = new Object();
+        private int size;
+        private int shift;
+        private Node root;
+        private Object[] tail;
+
+        private Transient(int size, int shift, Node root, Object[] tail) {
+            this.size = size;
+            this.shift = shift;
+            this.root = root;
+            this.tail = tail;
+        }
+
+        /**
+         * Get the number of elements in the vector.
+         */
+        public int size() {
+            checkEditable();
+            return size;
+        }
+
+        /**
+         * Get the element at the specified index.
+         *
+         * @param index the index to get the element from
+         * @return the element
+         * @throws IndexOutOfBoundsException if index is not within range
+         */
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            checkEditable();
+            index = checkIndex(index, size);
+            return (T) arrayFor(index, size, shift, root, tail)[index & MASK];
+        }
+
+        /**
+         * Replace the element at the specified index.
+         *
+         * @param index the index to set the element at
+         * @param item the new element
+         * @return the element that was replaced
+         * @throws IndexOutOfBoundsException if index is not within range
+         */
+        @SuppressWarnings("unchecked")
+        public T set(int index, T item) {
+            checkEditable();
+            index = checkIndex(index, size);
+            Object[] array = arrayFor(index, size, shift, root, tail);
+            T old = (T) array[index & MASK];
+            if (array == tail) {
+                tail[index & MASK] = item;
+            } else {
+                root = doSet(owner, shift, root, index, item);
+            }
+            return old;
+        }
+
+        /**
+         * Add the given element to the end of the vector.
+         *
+         * @param item the element to add
+         */
+        public void add(T item) {
+            checkEditable();
+            int tailSize = size - tailOffset(size);
+            if (tailSize < WIDTH) {
+                tail[tailSize] = item;
+                size++;
+                return;
+            }
+            Node tailNode = new Node(owner, tail);
+            tail = new Object[WIDTH];
+            tail[0] = item;
+            if ((size >>> BITS) > (1 << shift)) {
+                Node newRoot = new Node(owner, new Object[WIDTH]);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(owner, shift, tailNode);
+                root = newRoot;
+                shift += BITS;
+            } else {
+                root = pushTail(owner, size, shift, root, tailNode);
+            }
+            size++;
+        }
+
+        /**
+         * Add all of the given items to the end of the vector, in order.
+         *
+         * @param items the items to add
+         */
+        public void addAll(Iterable<? extends T> items) {
+            for (T item : items) {
+                add(item);
+            }
+        }
+
+        /**
+         * Remove the last element.
+         *
+         * @return the element removed
+         * @throws IndexOutOfBoundsException if the vector is empty
+         */
+        @SuppressWarnings("unchecked")
+        public T removeLast() {
+            checkEditable();
+            if (size == 0) {
+                throw new IndexOutOfBoundsException();
+            }
+            int tailSize = size - tailOffset(size);
+            T item = (T) tail[tailSize - 1];
+            if (size == 1 || tailSize > 1) {
+                tail[tailSize - 1] = null;
+                size--;
+                return item;
+            }
+            // the leaf may be shared, so the new tail is a copy of it
+            tail = arrayFor(size - 2, size, shift, root, tail).clone();
+            Node newRoot = popTail(owner, size, shift, root);
+            if (newRoot == null) {
+                newRoot = EMPTY_NODE;
+            }
+            if (shift > BITS && newRoot.array[1] == null) {
+                newRoot = (Node) newRoot.array[0];
+                shift -= BITS;
+            }
+            root = newRoot;
+            size--;
+            return item;
+        }
+
+        /**
+         * Get a PersistentVector of the current elements. The transient
+         * can't be used after this.
+         *
+         * @return the vector
+         * @throws IllegalStateException if already called
+         */
+        public PersistentVector<T> persistent() {
+            checkEditable();
+            owner = null;
+            if (size == 0) {
+                return empty();
+            }
+            return new PersistentVector<>(size, shift, root, Arrays.copyOf(tail, size - tailOffset(size)));
+        }
+
+        private void checkEditable() {
+            if (owner == null) {
+                throw new IllegalStateException("Transient used after persistent()");
+            }
+        }
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the number of levels of nodes above the leaves
+     */
+    int getDepth() {
+        return shift / BITS;
+    }
+
+    //----------------
+
+    /**
+     * The index of the first element in the tail.
+     */
+    private static int tailOffset(int size) {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private static int checkIndex(int index, int size) {
+        if (index < 0) {
+            index += size;
+        }
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return index;
+    }
+
+    /**
+     * Get the leaf array holding the element at the index.
+     */
+    private static Object[] arrayFor(int index, int size, int shift, Node root, Object[] tail) {
+        if (index >= tailOffset(size)) {
+            return tail;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.array[(index >>> level) & MASK];
+        }
+        return node.array;
+    }
+
+    /**
+     * Get the node to change: the node itself if the owner made it,
+     * otherwise a copy belonging to the owner.
+     */
+    private static Node editable(Object owner, Node node) {
+        if (owner != null && node.owner == owner) {
+            return node;
+        }
+        return new Node(owner, node.array.clone());
+    }
+
+    private static Node doSet(Object owner, int level, Node node, int index, Object item) {
+        Node ret = editable(owner, node);
+        if (level == 0) {
+            ret.array[index & MASK] = item;
+        } else {
+            int sub = (index >>> level) & MASK;
+            ret.array[sub] = doSet(owner, level - BITS, (Node) node.array[sub], index, item);
+        }
+        return ret;
+    }
+
+    /**
+     * Build a single path down to the given leaf.
+     */
+    private static Node newPath(Object owner, int level, Node leaf) {
+        if (level == 0) {
+            return leaf;
+        }
+        Node ret = new Node(owner, new Object[WIDTH]);
+        ret.array[0] = newPath(owner, level - BITS, leaf);
+        return ret;
+    }
+
+    /**
+     * Put a full tail into the trie, as the leaf after the last one.
+     *
+     * @param size the size before the new element, so the tail is full
+     */
+    private static Node pushTail(Object owner, int size, int level, Node parent, Node tailNode) {
+        int sub = ((size - 1) >>> level) & MASK;
+        Node ret = editable(owner, parent);
+        Node insert;
+        if (level == BITS) {
+            insert = tailNode;
+        } else {
+            Node child = (Node) parent.array[sub];
+            insert = child != null
+                ? pushTail(owner, size, level - BITS, child, tailNode)
+                : newPath(owner, level - BITS, tailNode);
+        }
+        ret.array[sub] = insert;
+        return ret;
+    }
+
+    /**
+     * Take the last leaf out of the trie.
+     *
+     * @return the new node, or null if it is left empty
+     */
+    private static Node popTail(Object owner, int size, int level, Node node) {
+        int sub = ((size - 2) >>> level) & MASK;
+        if (level > BITS) {
+            Node newChild = popTail(owner, size, level - BITS, (Node) node.array[sub]);
+            if (newChild == null && sub == 0) {
+                return null;
+            }
+            Node ret = editable(owner, node);
+            ret.array[sub] = newChild;
+            return ret;
+        }
+        if (sub == 0) {
+            return null;
+        }
+        Node ret = editable(owner, node);
+        ret.array[sub] = null;
+        return ret;
+    }
+
+    //----------------
+
+    @Override
+    public Iterator<T> iterator() {
+        return new VectorIterator();
+    }
+
+    /**
+     * Perform the action for each element in order, a leaf at a time.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super T> action) {
+        for (int i = 0; i < size; i += WIDTH) {
+            Object[] array = arrayFor(i, size, shift, root, tail);
+            int end = Math.min(WIDTH, size - i);
+            for (int j = 0; j < end; j++) {
+                action.accept((T) array[j]);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * Get a sequential stream of the elements.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the elements.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class VectorIterator implements Iterator<T> {
+        private int index = 0;
+        private Object[] array;
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            if ((index & MASK) == 0) {
+                array = arrayFor(index, size, shift, root, tail);
+            }
+            return (T) array[index++ & MASK];
+        }
+    }
+
+}
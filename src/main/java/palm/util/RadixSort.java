@@ -0,0 +1,197 @@
+package palm.util;
+
+import java.util.Arrays;
+
+/**
+ * Least-significant-digit radix sorts for the primitive arrays.
+ * <p>
+ * Each pass distributes the values by one 8-bit digit of their key, from
+ * the lowest digit to the highest, into a second array; since each pass
+ * is stable, the order of the lower digits is kept. The counts for every
+ * digit are taken in one pass up front, so a digit that is the same for
+ * every value (such as the high bytes of small ints) is skipped.
+ * <p>
+ * The keys are the values' bits, adjusted so that unsigned order of the
+ * keys is the signed order of the values.
+ */
+final class RadixSort {
+
+    private static final int DIGIT_BITS = 8;
+    private static final int RADIX = 1 << DIGIT_BITS;
+    private static final int DIGIT_MASK = RADIX - 1;
+
+    /**
+     * Below this size, the counting costs more than it saves.
+     */
+    private static final int MIN_RADIX_SIZE = 256;
+
+    private RadixSort() {
+
+    }
+
+    /**
+     * Sort the range of the array from index from (inclusive) to index
+     * to (exclusive) into ascending order.
+     */
+    static void sort(int[] a, int from, int to) {
+        int n = to - from;
+        if (n < MIN_RADIX_SIZE) {
+            Arrays.sort(a, from, to);
+            return;
+        }
+        int[][] counts = new int[Integer.SIZE / DIGIT_BITS][RADIX];
+        for (int i = from; i < to; i++) {
+            int key = a[i] ^ Integer.MIN_VALUE;
+            for (int d = 0; d < counts.length; d++) {
+                counts[d][(key >>> (d * DIGIT_BITS)) & DIGIT_MASK]++;
+            }
+        }
+
+        int[] src = a;
+        int srcFrom = from;
+        int[] dst = new int[n];
+        int dstFrom = 0;
+        for (int d = 0; d < counts.length; d++) {
+            int shift = d * DIGIT_BITS;
+            int[] offsets = counts[d];
+            if (!toOffsets(offsets, ((src[srcFrom] ^ Integer.MIN_VALUE) >>> shift) & DIGIT_MASK, n)) {
+                continue;
+            }
+            for (int i = srcFrom; i < srcFrom + n; i++) {
+                int value = src[i];
+                dst[dstFrom + offsets[((value ^ Integer.MIN_VALUE) >>> shift) & DIGIT_MASK]++] = value;
+            }
+            int[] swap = src;
+            src = dst;
+            dst = swap;
+            int swapFrom = srcFrom;
+            srcFrom = dstFrom;
+            dstFrom = swapFrom;
+        }
+        if (src != a) {
+            System.arraycopy(src, srcFrom, a, from, n);
+        }
+    }
+
+    /**
+     * Sort the range of the array from index from (inclusive) to index
+     * to (exclusive) into ascending order.
+     */
+    static void sort(long[] a, int from, int to) {
+        int n = to - from;
+        if (n < MIN_RADIX_SIZE) {
+            Arrays.sort(a, from, to);
+            return;
+        }
+        int[][] counts = new int[Long.SIZE / DIGIT_BITS][RADIX];
+        for (int i = from; i < to; i++) {
+            long key = a[i] ^ Long.MIN_VALUE;
+            for (int d = 0; d < counts.length; d++) {
+                counts[d][(int) (key >>> (d * DIGIT_BITS)) & DIGIT_MASK]++;
+            }
+        }
+
+        long[] src = a;
+        int srcFrom = from;
+        long[] dst = new long[n];
+        int dstFrom = 0;
+        for (int d = 0; d < counts.length; d++) {
+            int shift = d * DIGIT_BITS;
+            int[] offsets = counts[d];
+            if (!toOffsets(offsets, (int) ((src[srcFrom] ^ Long.MIN_VALUE) >>> shift) & DIGIT_MASK, n)) {
+                continue;
+            }
+            for (int i = srcFrom; i < srcFrom + n; i++) {
+                long value = src[i];
+                dst[dstFrom + offsets[(int) ((value ^ Long.MIN_VALUE) >>> shift) & DIGIT_MASK]++] = value;
+            }
+            long[] swap = src;
+            src = dst;
+            dst = swap;
+            int swapFrom = srcFrom;
+            srcFrom = dstFrom;
+            dstFrom = swapFrom;
+        }
+        if (src != a) {
+            System.arraycopy(src, srcFrom, a, from, n);
+        }
+    }
+
+    /**
+     * Sort the range of the array from index from (inclusive) to index
+     * to (exclusive) into ascending order. Like Arrays.sort, -0.0 comes
+     * before 0.0 and NaN comes last.
+     */
+    static void sort(double[] a, int from, int to) {
+        int n = to - from;
+        if (n < MIN_RADIX_SIZE) {
+            Arrays.sort(a, from, to);
+            return;
+        }
+        int[][] counts = new int[Long.SIZE / DIGIT_BITS][RADIX];
+        for (int i = from; i < to; i++) {
+            long key = key(a[i]);
+            for (int d = 0; d < counts.length; d++) {
+                counts[d][(int) (key >>> (d * DIGIT_BITS)) & DIGIT_MASK]++;
+            }
+        }
+
+        double[] src = a;
+        int srcFrom = from;
+        double[] dst = new double[n];
+        int dstFrom = 0;
+        for (int d = 0; d < counts.length; d++) {
+            int shift = d * DIGIT_BITS;
+            int[] offsets = counts[d];
+            if (!toOffsets(offsets, (int) (key(src[srcFrom]) >>> shift) & DIGIT_MASK, n)) {
+                continue;
+            }
+            for (int i = srcFrom; i < srcFrom + n; i++) {
+                double value = src[i];
+                dst[dstFrom + offsets[(int) (key(value) >>> shift) & DIGIT_MASK]++] = value;
+            }
+            double[] swap = src;
+            src = dst;
+            dst = swap;
+            int swapFrom = srcFrom;
+            srcFrom = dstFrom;
+            dstFrom = swapFrom;
+        }
+        if (src != a) {
+            System.arraycopy(src, srcFrom, a, from, n);
+        }
+    }
+
+    //----------------
+
+    /**
+     * Turn the counts for a digit into the offset each digit's values
+     * start at.
+     *
+     * @param anyDigit the digit of any one of the values
+     * @return false if every value has the same digit, so the pass can
+     *         be skipped
+     */
+    private static boolean toOffsets(int[] counts, int anyDigit, int n) {
+        if (counts[anyDigit] == n) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < RADIX; i++) {
+            int count = counts[i];
+            counts[i] = sum;
+            sum += count;
+        }
+        return true;
+    }
+
+    /**
+     * Positive doubles already order by their bits, and flipping every
+     * bit of a negative one reverses its order and puts it first. NaN is
+     * made canonical so it sorts last.
+     */
+    private static long key(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,718 @@
+package palm.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import palm.util.Dictionary.Entry;
+
+/**
+ * A Dictionary that keeps its keys in order, stored as a B+tree.
+ * <p>
+ * Every node holds up to {@link #MAX_KEYS} keys in one array, so a lookup
+ * binary-searches a few contiguous cache lines per level instead of
+ * following a pointer per comparison, and the tree is only a few levels
+ * deep. The entries themselves are all in the leaves, which are linked in
+ * key order, so iterating over the whole tree or a range of it walks the
+ * leaves' arrays one after another.
+ * <p>
+ * An inner node with n keys has n + 1 children, where every key in child i
+ * is at least key i - 1 and less than key i. Every node but the root is
+ * kept at least half full, by borrowing from or merging with a sibling
+ * after a removal.
+ *
+ * @param <K> the type of key, which must be Comparable
+ * @param <V> the type of value
+ */
+public class SortedDictionary<K extends Comparable<? super K>, V> implements Iterable<Entry<K, V>> {
+
+    /**
+     * The most keys a node can hold. With compressed references this makes
+     * a node's key array four 64-byte cache lines.
+     */
+    static final int MAX_KEYS = 64;
+
+    private static final int MIN_KEYS = MAX_KEYS / 2;
+
+    private static final Object NOT_FOUND = new Object();
+
+    private abstract static class Node {
+        final Object[] keys = new Object[MAX_KEYS];
+        int size;
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] values = new Object[MAX_KEYS];
+        Leaf prev;
+        Leaf next;
+    }
+
+    private static final class Inner extends Node {
+        final Node[] children = new Node[MAX_KEYS + 1];
+    }
+
+    private Node root;
+    private Leaf firstLeaf;
+    private int size;
+
+    /**
+     * The key to put in the parent after a node splits
+     */
+    private Object splitKey;
+
+    /**
+     * Create an empty SortedDictionary
+     */
+    public SortedDictionary() {
+        clear();
+    }
+
+    /**
+     * Get the number of entries in the dictionary.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add the given entry to the dictionary, replacing the value of any
+     * entry with the same key.
+     *
+     * @param item the entry to add
+     */
+    public void add(Entry<K, V> item) {
+        set(item.key, item.value);
+    }
+
+    /**
+     * Associate the value with the given key.
+     *
+     * @param key the key to set
+     * @param value the value to associate with the key
+     * @throws IllegalArgumentException if key is null
+     */
+    public void set(K key, V value) {
+        checkKey(key);
+        Node right = insert(root, key, value);
+        if (right != null) {
+            Inner newRoot = new Inner();
+            newRoot.keys[0] = splitKey;
+            newRoot.children[0] = root;
+            newRoot.children[1] = right;
+            newRoot.size = 1;
+            root = newRoot;
+        }
+        splitKey = null;
+    }
+
+    /**
+     * Get the value associated with the given key.
+     *
+     * @param key the key to get the value of
+     * @return the value, or null if the key is not present
+     * @throws IllegalArgumentException if key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        checkKey(key);
+        Leaf leaf = findLeaf(key);
+        int index = search(leaf, key);
+        return index >= 0 ? (V) leaf.values[index] : null;
+    }
+
+    /**
+     * Check if the given key is in the dictionary.
+     *
+     * @throws IllegalArgumentException if key is null
+     */
+    public boolean containsKey(K key) {
+        checkKey(key);
+        return search(findLeaf(key), key) >= 0;
+    }
+
+    /**
+     * Remove the given key.
+     *
+     * @param key the key to remove
+     * @return the value that was associated with the key, or null if it
+     *         was not present
+     * @throws IllegalArgumentException if key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        checkKey(key);
+        Object value = remove(root, key);
+        if (value == NOT_FOUND) {
+            return null;
+        }
+        if (root instanceof Inner && root.size == 0) {
+            root = ((Inner) root).children[0];
+        }
+        return (V) value;
+    }
+
+    /**
+     * Get the smallest key.
+     *
+     * @return the key, or null if the dictionary is empty
+     */
+    @SuppressWarnings("unchecked")
+    public K firstKey() {
+        return size == 0 ? null : (K) firstLeaf.keys[0];
+    }
+
+    /**
+     * Get the largest key.
+     *
+     * @return the key, or null if the dictionary is empty
+     */
+    @SuppressWarnings("unchecked")
+    public K lastKey() {
+        if (size == 0) {
+            return null;
+        }
+        Node node = root;
+        while (node instanceof Inner) {
+            node = ((Inner) node).children[node.size];
+        }
+        return (K) node.keys[node.size - 1];
+    }
+
+    /**
+     * Get the largest key less than or equal to the given key.
+     *
+     * @param key the key to compare with
+     * @return the key, or null if there is none
+     * @throws IllegalArgumentException if key is null
+     */
+    @SuppressWarnings("unchecked")
+    public K floorKey(K key) {
+        checkKey(key);
+        Leaf leaf = findLeaf(key);
+        int index = upperBound(leaf, key) - 1;
+        if (index >= 0) {
+            return (K) leaf.keys[index];
+        }
+        // every key in the leaf is larger, so it's the last one before it
+        Leaf prev = leaf.prev;
+        return prev == null ? null : (K) prev.keys[prev.size - 1];
+    }
+
+    /**
+     * Get the smallest key greater than or equal to the given key.
+     *
+     * @param key the key to compare with
+     * @return the key, or null if there is none
+     * @throws IllegalArgumentException if key is null
+     */
+    @SuppressWarnings("unchecked")
+    public K ceilingKey(K key) {
+        checkKey(key);
+        Leaf leaf = findLeaf(key);
+        int index = lowerBound(leaf, key);
+        if (index < leaf.size) {
+            return (K) leaf.keys[index];
+        }
+        Leaf next = leaf.next;
+        return next == null ? null : (K) next.keys[0];
+    }
+
+    /**
+     * Clear the dictionary.
+     */
+    public void clear() {
+        firstLeaf = new Leaf();
+        root = firstLeaf;
+        size = 0;
+    }
+
+    /**
+     * Get a view of the entries with keys from fromKey (inclusive) up to
+     * toKey (exclusive), in key order. The range is found when a walk over
+     * it starts, so the view follows later changes to the dictionary.
+     *
+     * @param fromKey the lowest key in the range, or null for no lower bound
+     * @param toKey the key the range stops before, or null for no upper bound
+     * @return the view
+     */
+    public Range range(K fromKey, K toKey) {
+        return new Range(fromKey, toKey);
+    }
+
+    /**
+     * A view of the entries with keys between two bounds.
+     */
+    public class Range implements Iterable<Entry<K, V>> {
+        private final K fromKey;
+        private final K toKey;
+
+        private Range(K fromKey, K toKey) {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new LeafIterator(fromKey, toKey);
+        }
+
+        /**
+         * Perform the action for each key and value in the range, walking
+         * the leaves directly.
+         */
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            forEachIn(fromKey, toKey, action);
+        }
+
+        /**
+         * Get a sequential stream of the entries in the range.
+         */
+        public Stream<Entry<K, V>> stream() {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+        }
+    }
+
+    /**
+     * Get an iterator over the entries in key order. Each entry is made as
+     * it is reached, so changing it does not change the dictionary.
+     */
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new LeafIterator(null, null);
+    }
+
+    /**
+     * Perform the action for each key and value in key order, walking the
+     * leaves directly.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEachIn(null, null, action);
+    }
+
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return Spliterators.spliterator(iterator(), size,
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * Get a sequential stream of the entries, in key order.
+     */
+    public Stream<Entry<K, V>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the number of levels in the tree
+     */
+    int getHeight() {
+        int height = 1;
+        for (Node node = root; node instanceof Inner; node = ((Inner) node).children[0]) {
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the number of leaves in the tree
+     */
+    int getLeafCount() {
+        int count = 0;
+        for (Leaf leaf = firstLeaf; leaf != null; leaf = leaf.next) {
+            count++;
+        }
+        return count;
+    }
+
+    //-----------------------------------------------------------
+
+    private static void checkKey(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("SortedDictionary does not support null keys");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends Comparable<? super K>> int compare(K key, Object other) {
+        return key.compareTo((K) other);
+    }
+
+    /**
+     * Get the index of the first key in the node that is not less than the key.
+     */
+    private static <K extends Comparable<? super K>> int lowerBound(Node node, K key) {
+        int from = 0;
+        int to = node.size;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (compare(key, node.keys[mid]) > 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Get the index of the first key in the node that is greater than the key.
+     * In an inner node, that is the index of the child the key belongs in.
+     */
+    private static <K extends Comparable<? super K>> int upperBound(Node node, K key) {
+        int from = 0;
+        int to = node.size;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (compare(key, node.keys[mid]) >= 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Find the key in the leaf.
+     *
+     * @return the index of the key, or -1 if not present
+     */
+    private static <K extends Comparable<? super K>> int search(Leaf leaf, K key) {
+        int index = lowerBound(leaf, key);
+        return index < leaf.size && compare(key, leaf.keys[index]) == 0 ? index : -1;
+    }
+
+    private Leaf findLeaf(K key) {
+        Node node = root;
+        while (node instanceof Inner) {
+            node = ((Inner) node).children[upperBound(node, key)];
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * Insert or replace the key's value in the subtree.
+     *
+     * @return the new right sibling if the node split, with splitKey set
+     *         to the key that separates them
+     */
+    private Node insert(Node node, K key, V value) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int index = lowerBound(leaf, key);
+            if (index < leaf.size && compare(key, leaf.keys[index]) == 0) {
+                leaf.values[index] = value;
+                return null;
+            }
+            size++;
+            if (leaf.size < MAX_KEYS) {
+                insertInLeaf(leaf, index, key, value);
+                return null;
+            }
+            Leaf right = splitLeaf(leaf);
+            if (index < leaf.size) {
+                insertInLeaf(leaf, index, key, value);
+            } else {
+                insertInLeaf(right, index - leaf.size, key, value);
+            }
+            splitKey = right.keys[0];
+            return right;
+        }
+
+        Inner inner = (Inner) node;
+        int index = upperBound(inner, key);
+        Node newChild = insert(inner.children[index], key, value);
+        if (newChild == null) {
+            return null;
+        }
+        if (inner.size < MAX_KEYS) {
+            insertInInner(inner, index, splitKey, newChild);
+            return null;
+        }
+        return splitInner(inner, index, splitKey, newChild);
+    }
+
+    private static void insertInLeaf(Leaf leaf, int index, Object key, Object value) {
+        System.arraycopy(leaf.keys, index, leaf.keys, index + 1, leaf.size - index);
+        System.arraycopy(leaf.values, index, leaf.values, index + 1, leaf.size - index);
+        leaf.keys[index] = key;
+        leaf.values[index] = value;
+        leaf.size++;
+    }
+
+    /**
+     * Put the key in the inner node at the index, with the child to its right.
+     */
+    private static void insertInInner(Inner inner, int index, Object key, Node child) {
+        System.arraycopy(inner.keys, index, inner.keys, index + 1, inner.size - index);
+        System.arraycopy(inner.children, index + 1, inner.children, index + 2, inner.size - index);
+        inner.keys[index] = key;
+        inner.children[index + 1] = child;
+        inner.size++;
+    }
+
+    /**
+     * Move the upper half of a full leaf into a new leaf after it.
+     */
+    private static Leaf splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf();
+        int half = MAX_KEYS / 2;
+        right.size = MAX_KEYS - half;
+        System.arraycopy(leaf.keys, half, right.keys, 0, right.size);
+        System.arraycopy(leaf.values, half, right.values, 0, right.size);
+        clear(leaf, half, MAX_KEYS);
+        leaf.size = half;
+
+        right.next = leaf.next;
+        if (right.next != null) {
+            right.next.prev = right;
+        }
+        right.prev = leaf;
+        leaf.next = right;
+        return right;
+    }
+
+    /**
+     * Split a full inner node that needs the key and child added at the
+     * index. The middle key moves up to the parent rather than being kept
+     * in either half.
+     */
+    private Node splitInner(Inner inner, int index, Object key, Node child) {
+        Object[] keys = new Object[MAX_KEYS + 1];
+        Node[] children = new Node[MAX_KEYS + 2];
+        System.arraycopy(inner.keys, 0, keys, 0, index);
+        keys[index] = key;
+        System.arraycopy(inner.keys, index, keys, index + 1, MAX_KEYS - index);
+        System.arraycopy(inner.children, 0, children, 0, index + 1);
+        children[index + 1] = child;
+        System.arraycopy(inner.children, index + 1, children, index + 2, MAX_KEYS - index);
+
+        int half = (MAX_KEYS + 1) / 2;
+        Inner right = new Inner();
+        right.size = MAX_KEYS - half;
+        System.arraycopy(keys, half + 1, right.keys, 0, right.size);
+        System.arraycopy(children, half + 1, right.children, 0, right.size + 1);
+
+        System.arraycopy(keys, 0, inner.keys, 0, half);
+        System.arraycopy(children, 0, inner.children, 0, half + 1);
+        for (int i = half; i < MAX_KEYS; i++) {
+            inner.keys[i] = null;
+            inner.children[i + 1] = null;
+        }
+        inner.size = half;
+
+        splitKey = keys[half];
+        return right;
+    }
+
+    /**
+     * Remove the key from the subtree, leaving the node possibly under
+     * half full for its parent to fix.
+     *
+     * @return the value removed, or NOT_FOUND
+     */
+    private Object remove(Node node, K key) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int index = search(leaf, key);
+            if (index < 0) {
+                return NOT_FOUND;
+            }
+            Object value = leaf.values[index];
+            System.arraycopy(leaf.keys, index + 1, leaf.keys, index, leaf.size - index - 1);
+            System.arraycopy(leaf.values, index + 1, leaf.values, index, leaf.size - index - 1);
+            leaf.size--;
+            clear(leaf, leaf.size, leaf.size + 1);
+            size--;
+            return value;
+        }
+
+        Inner inner = (Inner) node;
+        int index = upperBound(inner, key);
+        Object value = remove(inner.children[index], key);
+        if (value != NOT_FOUND && inner.children[index].size < MIN_KEYS) {
+            rebalance(inner, index);
+        }
+        return value;
+    }
+
+    /**
+     * Bring the child at the index back up to half full, by taking an
+     * entry from a sibling that can spare one, or else merging with one.
+     */
+    private void rebalance(Inner parent, int index) {
+        if (index > 0 && parent.children[index - 1].size > MIN_KEYS) {
+            borrowFromLeft(parent, index);
+        } else if (index < parent.size && parent.children[index + 1].size > MIN_KEYS) {
+            borrowFromRight(parent, index);
+        } else if (index > 0) {
+            merge(parent, index - 1);
+        } else {
+            merge(parent, index);
+        }
+    }
+
+    private static void borrowFromLeft(Inner parent, int index) {
+        Node child = parent.children[index];
+        Node left = parent.children[index - 1];
+        System.arraycopy(child.keys, 0, child.keys, 1, child.size);
+        if (child instanceof Leaf) {
+            Leaf leaf = (Leaf) child;
+            Leaf leftLeaf = (Leaf) left;
+            System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.size);
+            leaf.keys[0] = leftLeaf.keys[leftLeaf.size - 1];
+            leaf.values[0] = leftLeaf.values[leftLeaf.size - 1];
+            parent.keys[index - 1] = leaf.keys[0];
+        } else {
+            Inner inner = (Inner) child;
+            Inner leftInner = (Inner) left;
+            System.arraycopy(inner.children, 0, inner.children, 1, inner.size + 1);
+            inner.keys[0] = parent.keys[index - 1];
+            inner.children[0] = leftInner.children[leftInner.size];
+            leftInner.children[leftInner.size] = null;
+            parent.keys[index - 1] = leftInner.keys[leftInner.size - 1];
+        }
+        child.size++;
+        left.size--;
+        clear(left, left.size, left.size + 1);
+    }
+
+    private static void borrowFromRight(Inner parent, int index) {
+        Node child = parent.children[index];
+        Node right = parent.children[index + 1];
+        if (child instanceof Leaf) {
+            Leaf leaf = (Leaf) child;
+            Leaf rightLeaf = (Leaf) right;
+            leaf.keys[leaf.size] = rightLeaf.keys[0];
+            leaf.values[leaf.size] = rightLeaf.values[0];
+            System.arraycopy(rightLeaf.values, 1, rightLeaf.values, 0, rightLeaf.size - 1);
+            System.arraycopy(rightLeaf.keys, 1, rightLeaf.keys, 0, rightLeaf.size - 1);
+            parent.keys[index] = rightLeaf.keys[0];
+        } else {
+            Inner inner = (Inner) child;
+            Inner rightInner = (Inner) right;
+            inner.keys[inner.size] = parent.keys[index];
+            inner.children[inner.size + 1] = rightInner.children[0];
+            parent.keys[index] = rightInner.keys[0];
+            System.arraycopy(rightInner.keys, 1, rightInner.keys, 0, rightInner.size - 1);
+            System.arraycopy(rightInner.children, 1, rightInner.children, 0, rightInner.size);
+            rightInner.children[rightInner.size] = null;
+        }
+        child.size++;
+        right.size--;
+        clear(right, right.size, right.size + 1);
+    }
+
+    /**
+     * Merge the child after the index into the child at the index, and
+     * take the key between them out of the parent.
+     */
+    private static void merge(Inner parent, int index) {
+        Node left = parent.children[index];
+        Node right = parent.children[index + 1];
+        if (left instanceof Leaf) {
+            Leaf leftLeaf = (Leaf) left;
+            Leaf rightLeaf = (Leaf) right;
+            System.arraycopy(rightLeaf.keys, 0, leftLeaf.keys, leftLeaf.size, rightLeaf.size);
+            System.arraycopy(rightLeaf.values, 0, leftLeaf.values, leftLeaf.size, rightLeaf.size);
+            leftLeaf.size += rightLeaf.size;
+            leftLeaf.next = rightLeaf.next;
+            if (leftLeaf.next != null) {
+                leftLeaf.next.prev = leftLeaf;
+            }
+        } else {
+            Inner leftInner = (Inner) left;
+            Inner rightInner = (Inner) right;
+            leftInner.keys[leftInner.size] = parent.keys[index];
+            System.arraycopy(rightInner.keys, 0, leftInner.keys, leftInner.size + 1, rightInner.size);
+            System.arraycopy(rightInner.children, 0, leftInner.children, leftInner.size + 1, rightInner.size + 1);
+            leftInner.size += rightInner.size + 1;
+        }
+        System.arraycopy(parent.keys, index + 1, parent.keys, index, parent.size - index - 1);
+        System.arraycopy(parent.children, index + 2, parent.children, index + 1, parent.size - index - 1);
+        parent.size--;
+        parent.keys[parent.size] = null;
+        parent.children[parent.size + 1] = null;
+    }
+
+    /**
+     * Null out the node's slots from index from to index to, so removed
+     * keys, values and children can be collected.
+     */
+    private static void clear(Node node, int from, int to) {
+        for (int i = from; i < to; i++) {
+            node.keys[i] = null;
+            if (node instanceof Leaf) {
+                ((Leaf) node).values[i] = null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEachIn(K fromKey, K toKey, BiConsumer<? super K, ? super V> action) {
+        Leaf leaf = fromKey == null ? firstLeaf : findLeaf(fromKey);
+        int index = fromKey == null ? 0 : lowerBound(leaf, fromKey);
+        for (; leaf != null; leaf = leaf.next, index = 0) {
+            for (; index < leaf.size; index++) {
+                K key = (K) leaf.keys[index];
+                if (toKey != null && key.compareTo(toKey) >= 0) {
+                    return;
+                }
+                action.accept(key, (V) leaf.values[index]);
+            }
+        }
+    }
+
+    /**
+     * Walks the linked leaves from the first key in range.
+     */
+    private class LeafIterator implements Iterator<Entry<K, V>> {
+        private final K toKey;
+        private Leaf leaf;
+        private int index;
+
+        LeafIterator(K fromKey, K toKey) {
+            this.toKey = toKey;
+            leaf = fromKey == null ? firstLeaf : findLeaf(fromKey);
+            index = fromKey == null ? 0 : lowerBound(leaf, fromKey);
+            skipEmpty();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null && (toKey == null || compare(toKey, leaf.keys[index]) > 0);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = Entry.of((K) leaf.keys[index], (V) leaf.values[index]);
+            index++;
+            skipEmpty();
+            return entry;
+        }
+
+        /**
+         * Move on to the next leaf if past the end of this one.
+         */
+        private void skipEmpty() {
+            while (leaf != null && index >= leaf.size) {
+                leaf = leaf.next;
+                index = 0;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,508 @@
+package palm.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A dynamically-sized array that keeps its elements sorted by a comparator,
+ * so finding an element is a binary search rather than a scan.
+ * <p>
+ * Elements that compare equal are kept in the order they were added, and
+ * the lookups treat an element as found if it compares equal, rather than
+ * by equals. Adding one element still shifts the ones after it, but
+ * {@link #addAll(Iterable)} sorts the batch and merges it in with a single
+ * pass over the array.
+ * <p>
+ * Like {@link DynamicArray}, indices may be negative to count back from the
+ * end, so -1 is the last (largest) element.
+ *
+ * @param <T> the type of data in the array
+ */
+public class SortedDynamicArray<T> implements Iterable<T> {
+
+    /**
+     * Create a SortedDynamicArray in natural order with the specified elements.
+     *
+     * @param elements the elements to add
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs") // addAll only copies from elements
+    public static <E extends Comparable<? super E>> SortedDynamicArray<E> of(E... elements) {
+        SortedDynamicArray<E> arr = new SortedDynamicArray<>(null);
+        arr.addAll(Arrays.asList(elements));
+        return arr;
+    }
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * Factor for growing and shrinking the capacity
+     */
+    private static final int SCALE_FACTOR = 2;
+
+    /**
+     * Ratio of the capacity/size to trigger shrinking
+     */
+    private static final int SHRINK_RATIO = 4;
+
+    private final Comparator<? super T> comparator;
+    private T[] elements;
+    private int size;
+
+    /**
+     * Create an empty SortedDynamicArray in the elements' natural order,
+     * which must be Comparable.
+     */
+    public SortedDynamicArray() {
+        this(null);
+    }
+
+    /**
+     * Create an empty SortedDynamicArray.
+     *
+     * @param comparator the order to keep the elements in, or null for
+     *        their natural order
+     */
+    @SuppressWarnings("unchecked")
+    public SortedDynamicArray(Comparator<? super T> comparator) {
+        this.comparator = comparator != null
+            ? comparator
+            : (a, b) -> ((Comparable<? super T>) a).compareTo(b);
+        elements = allocateArray(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Get the number of items currently in the array.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add the given element after any that compare equal to it.
+     *
+     * @param item the element to add
+     * @return the index the element was added at
+     */
+    public int add(T item) {
+        int index = upperBound(item, 0, size);
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = item;
+        size++;
+        return index;
+    }
+
+    /**
+     * Add all of the given items. The items are sorted among themselves,
+     * then merged in from the back, so each existing element moves at
+     * most once. Items go after any existing elements that compare equal.
+     *
+     * @param items the items to add
+     */
+    @SuppressWarnings("unchecked")
+    public void addAll(Iterable<? extends T> items) {
+        T[] batch = (T[]) copyOf(items);
+        if (batch.length == 0) {
+            return;
+        }
+        Arrays.sort(batch, comparator);
+        ensureCapacity(size + batch.length);
+
+        int i = size - 1;
+        int j = batch.length - 1;
+        int k = size + batch.length - 1;
+        while (j >= 0) {
+            if (i >= 0 && comparator.compare(elements[i], batch[j]) > 0) {
+                elements[k--] = elements[i--];
+            } else {
+                elements[k--] = batch[j--];
+            }
+        }
+        size += batch.length;
+    }
+
+    /**
+     * Get the item at the specified index.
+     *
+     * @param index the index to get the item from
+     * @return the item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T get(int index) {
+        index = absoluteIndex(index);
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * Get the smallest element.
+     *
+     * @throws IndexOutOfBoundsException if the array is empty
+     */
+    public T first() {
+        return get(0);
+    }
+
+    /**
+     * Get the largest element.
+     *
+     * @throws IndexOutOfBoundsException if the array is empty
+     */
+    public T last() {
+        return get(-1);
+    }
+
+    /**
+     * Find the first index of an element that compares equal to the given
+     * item, by binary search.
+     *
+     * @param item the item to find
+     * @return the index, or -1 if not found
+     */
+    public int indexOf(T item) {
+        int index = lowerBound(item, 0, size);
+        return index < size && comparator.compare(elements[index], item) == 0 ? index : -1;
+    }
+
+    /**
+     * Check if an element that compares equal to the given item is in
+     * this array.
+     */
+    public boolean contains(T item) {
+        return indexOf(item) != -1;
+    }
+
+    /**
+     * Get the largest element less than or equal to the given item.
+     *
+     * @param item the item to compare with
+     * @return the element, or null if there is none
+     */
+    public T floor(T item) {
+        int index = upperBound(item, 0, size) - 1;
+        return index >= 0 ? elements[index] : null;
+    }
+
+    /**
+     * Get the smallest element greater than or equal to the given item.
+     *
+     * @param item the item to compare with
+     * @return the element, or null if there is none
+     */
+    public T ceiling(T item) {
+        int index = lowerBound(item, 0, size);
+        return index < size ? elements[index] : null;
+    }
+
+    /**
+     * Remove the item at the specified index.
+     *
+     * @param index the index to remove the item from
+     * @return the item removed
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T remove(int index) {
+        index = absoluteIndex(index);
+        checkIndex(index);
+        T item = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        elements[--size] = null;
+        shrinkIfNeeded();
+        return item;
+    }
+
+    /**
+     * Remove the first element that compares equal to the given item.
+     *
+     * @param item the item to remove
+     * @return the element removed, or null if it was not present
+     */
+    public T remove(T item) {
+        int index = indexOf(item);
+        return index == -1 ? null : remove(index);
+    }
+
+    /**
+     * Remove every item that matches the filter, in a single pass.
+     *
+     * @param filter returns true for items to remove
+     * @return true if any items were removed
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            T item = elements[i];
+            if (!filter.test(item)) {
+                elements[kept++] = item;
+            }
+        }
+        if (kept == size) {
+            return false;
+        }
+        Arrays.fill(elements, kept, size, null);
+        size = kept;
+        shrinkIfNeeded();
+        return true;
+    }
+
+    /**
+     * Clear all the elements from this array.
+     */
+    public void clear() {
+        elements = allocateArray(DEFAULT_CAPACITY);
+        size = 0;
+    }
+
+    /**
+     * Get a view of the elements from fromItem (inclusive) up to toItem
+     * (exclusive). The view follows later changes to this array, finding
+     * its bounds again by binary search each time it is used.
+     *
+     * @param fromItem the lowest element in the range, or null for no
+     *        lower bound
+     * @param toItem the element the range stops before, or null for no
+     *        upper bound
+     * @return the view
+     */
+    public Range range(T fromItem, T toItem) {
+        return new Range(fromItem, toItem);
+    }
+
+    /**
+     * A live view of the elements between two bounds.
+     */
+    public class Range implements Iterable<T> {
+        private final T fromItem;
+        private final T toItem;
+
+        private Range(T fromItem, T toItem) {
+            this.fromItem = fromItem;
+            this.toItem = toItem;
+        }
+
+        /**
+         * Get the number of elements in the range.
+         */
+        public int size() {
+            return Math.max(0, end() - start());
+        }
+
+        /**
+         * Get the element at the specified index within the range.
+         *
+         * @param index the index to get the element from
+         * @return the element
+         * @throws IndexOutOfBoundsException if index is not within range
+         */
+        public T get(int index) {
+            int start = start();
+            int size = Math.max(0, end() - start);
+            if (index < 0) {
+                index += size;
+            }
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException();
+            }
+            return elements[start + index];
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            int start = start();
+            return new ArrayIterator(start, Math.max(start, end()));
+        }
+
+        /**
+         * Get a sequential stream of the elements in the range.
+         */
+        public Stream<T> stream() {
+            int start = start();
+            return StreamSupport.stream(
+                Spliterators.spliterator(elements, start, Math.max(start, end()), Spliterator.ORDERED), false);
+        }
+
+        private int start() {
+            return fromItem == null ? 0 : lowerBound(fromItem, 0, size);
+        }
+
+        private int end() {
+            return toItem == null ? size : lowerBound(toItem, 0, size);
+        }
+    }
+
+    /**
+     * Get the comparator the elements are kept in order by.
+     */
+    public Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ArrayIterator(0, size);
+    }
+
+    /**
+     * Perform the action for each element in order, reading the backing
+     * array directly rather than through an iterator.
+     */
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        T[] arr = elements;
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            action.accept(arr[i]);
+        }
+    }
+
+    /**
+     * Splits by index range, so parallel streams divide the work evenly.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(elements, 0, size, Spliterator.ORDERED);
+    }
+
+    /**
+     * Get a sequential stream of the elements.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the elements.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class ArrayIterator implements Iterator<T> {
+        private int index;
+        private final int fence;
+
+        ArrayIterator(int index, int fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < fence;
+        }
+
+        @Override
+        public T next() {
+            if (index >= fence) {
+                throw new NoSuchElementException();
+            }
+            return elements[index++];
+        }
+    }
+
+    //----------------
+
+    /**
+     * Get the index of the first element that is not less than the item.
+     */
+    private int lowerBound(T item, int from, int to) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (comparator.compare(elements[mid], item) < 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Get the index of the first element that is greater than the item.
+     */
+    private int upperBound(T item, int from, int to) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (comparator.compare(elements[mid], item) <= 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T[] allocateArray(int capacity) {
+        return (T[]) new Object[capacity];
+    }
+
+    /**
+     * Copy the items into a new array, so adding an array to itself is safe.
+     */
+    private static Object[] copyOf(Iterable<?> items) {
+        if (items instanceof SortedDynamicArray<?>) {
+            SortedDynamicArray<?> arr = (SortedDynamicArray<?>) items;
+            return Arrays.copyOf(arr.elements, arr.size);
+        }
+        if (items instanceof Collection<?>) {
+            return ((Collection<?>) items).toArray();
+        }
+        Object[] copy = new Object[DEFAULT_CAPACITY];
+        int count = 0;
+        for (Object item : items) {
+            if (count == copy.length) {
+                copy = Arrays.copyOf(copy, count * SCALE_FACTOR);
+            }
+            copy[count++] = item;
+        }
+        return Arrays.copyOf(copy, count);
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(elements.length * SCALE_FACTOR, minCapacity));
+        }
+    }
+
+    /**
+     * Shrink straight to twice the size, so a removeIf that drops most of
+     * the elements releases the memory in one copy.
+     */
+    private void shrinkIfNeeded() {
+        int capacity = elements.length;
+        if (capacity > DEFAULT_CAPACITY && size * SHRINK_RATIO <= capacity) {
+            elements = Arrays.copyOf(elements, Math.max(DEFAULT_CAPACITY, size * SCALE_FACTOR));
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private int absoluteIndex(int index) {
+        return index < 0 ? size + index : index;
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the capacity
+     */
+    int getCapacity() {
+        return elements.length;
+    }
+
+}
@@ -0,0 +1,376 @@
+package palm.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An open-addressing alternative to {@link Dictionary} with the same API,
+ * laid out as flat arrays in the style of a "Swiss table".
+ * <p>
+ * Slots are split into groups of 8. Each slot has a control byte which is
+ * either EMPTY, DELETED, or the low 7 bits of the key's hash. The 8 control
+ * bytes of a group are packed into one long, so a whole group is matched
+ * against a hash fingerprint with a few word-level (SWAR) operations, and
+ * keys are only compared for slots whose fingerprint matched.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class SwissDictionary<K, V> implements Iterable<Dictionary.Entry<K, V>> {
+
+    @SafeVarargs
+    public static <K, V> SwissDictionary<K, V> of(Dictionary.Entry<K, V>...entries) {
+        SwissDictionary<K, V> dict = new SwissDictionary<>();
+        for (Dictionary.Entry<K, V> entry : entries) {
+            dict.add(entry);
+        }
+        return dict;
+    }
+
+    private static final int GROUP_WIDTH = 8;
+    private static final int DEFAULT_GROUPS = 2;
+
+    private static final long EMPTY = 0x80L;
+    private static final long DELETED = 0xFEL;
+
+    private static final long LSB = 0x0101010101010101L;
+    private static final long MSB = 0x8080808080808080L;
+    private static final long ALL_EMPTY = EMPTY * LSB;
+
+    private int initialGroups;
+    private long[] control;
+    private Object[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Slots that can still be filled before a rehash, counting
+     * DELETED slots as used.
+     */
+    private int growthLeft;
+
+    /**
+     * Create an empty SwissDictionary.
+     */
+    public SwissDictionary() {
+        this(0);
+    }
+
+    /**
+     * Create an empty SwissDictionary with room for the given number of
+     * entries before it needs to grow.
+     *
+     * @param expectedSize the number of entries expected
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    public SwissDictionary(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Dictionary size cannot be negative");
+        }
+        initialGroups = groupsFor(expectedSize);
+        allocate(initialGroups);
+    }
+
+    /**
+     * Get the amount of entries in this Dictionary.
+     *
+     * @return the current size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add the given entry to the Dictionary.
+     *
+     * @param item the entry to add
+     */
+    public void add(Dictionary.Entry<K, V> item) {
+        if (item == null || item.key == null) {
+            throw new IllegalArgumentException("Dictionary does not support null keys");
+        }
+        set(item.key, item.value);
+    }
+
+    /**
+     * Set the mapping for the given key to be the given value
+     *
+     * @param key the key
+     * @param value the new value
+     */
+    public void set(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Dictionary does not support null keys");
+        }
+        int hash = hash(key);
+        int slot = findSlot(key, hash);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+
+        if (growthLeft == 0) {
+            rehash();
+        }
+        slot = findInsertSlot(hash);
+        if (controlAt(slot) == EMPTY) {
+            growthLeft--;
+        }
+        setControl(slot, h2(hash));
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * Get the value associated with the given key.
+     *
+     * @param key the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null) return null;
+        int slot = findSlot(key, hash(key));
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Check if this Dictionary contains a mapping for the given key.
+     *
+     * @param key the key
+     * @return true if there is an entry, false otherwise
+     */
+    public boolean containsKey(K key) {
+        return key != null && findSlot(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Remove the entry for the given key.
+     *
+     * @param key the key of the entry to remove
+     * @return the value in the entry that was removed, or null if there was no mapping
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        if (key == null) return null;
+        int slot = findSlot(key, hash(key));
+        if (slot < 0) {
+            return null;
+        }
+
+        V value = (V) values[slot];
+        keys[slot] = null;
+        values[slot] = null;
+
+        // A lookup stops at the first group holding an EMPTY slot, so if this
+        // group already has one, the slot can become EMPTY without breaking
+        // any probe sequence. Otherwise it has to stay as a tombstone.
+        if (matchEmpty(control[slot / GROUP_WIDTH]) != 0) {
+            setControl(slot, EMPTY);
+            growthLeft++;
+        } else {
+            setControl(slot, DELETED);
+        }
+        size--;
+        return value;
+    }
+
+    /**
+     * Clear the Dictionary
+     */
+    public void clear() {
+        allocate(initialGroups);
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Dictionary.Entry<K, V>> iterator() {
+        return new EntryIterator();
+    }
+
+    private class EntryIterator implements Iterator<Dictionary.Entry<K, V>> {
+        int slot = nextFull(0);
+
+        @Override
+        public boolean hasNext() {
+            return slot < keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Dictionary.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Dictionary.Entry<K, V> entry = Dictionary.Entry.of((K) keys[slot], (V) values[slot]);
+            slot = nextFull(slot + 1);
+            return entry;
+        }
+
+        private int nextFull(int from) {
+            while (from < keys.length && (controlAt(from) & EMPTY) != 0) {
+                from++;
+            }
+            return from;
+        }
+    }
+
+    //-----------------------------------------------------------
+
+    private void allocate(int groups) {
+        control = new long[groups];
+        Arrays.fill(control, ALL_EMPTY);
+        keys = new Object[groups * GROUP_WIDTH];
+        values = new Object[groups * GROUP_WIDTH];
+        growthLeft = maxLoad(groups);
+    }
+
+    /**
+     * Keep at most 7/8 of the slots in use.
+     */
+    private static int maxLoad(int groups) {
+        return groups * GROUP_WIDTH - groups;
+    }
+
+    private static int groupsFor(int expectedSize) {
+        int groups = DEFAULT_GROUPS;
+        while (maxLoad(groups) < expectedSize && groups < (1 << 26)) {
+            groups <<= 1;
+        }
+        return groups;
+    }
+
+    /**
+     * Grow the table, or just clear out tombstones if at least half of
+     * the used slots are DELETED.
+     */
+    @SuppressWarnings("unchecked")
+    private void rehash() {
+        long[] oldControl = control;
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        int groups = oldControl.length;
+        if (size >= maxLoad(groups) / 2) {
+            groups *= 2;
+        }
+        allocate(groups);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long ctrl = (oldControl[i / GROUP_WIDTH] >>> ((i % GROUP_WIDTH) * 8)) & 0xFF;
+            if ((ctrl & EMPTY) == 0) {
+                int hash = hash((K) oldKeys[i]);
+                int slot = findInsertSlot(hash);
+                setControl(slot, h2(hash));
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                growthLeft--;
+            }
+        }
+    }
+
+    /**
+     * Mix the hashcode, since both the low bits (fingerprint) and
+     * the high bits (group) are used.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long h2(int hash) {
+        return hash & 0x7F;
+    }
+
+    private int firstGroup(int hash) {
+        return (hash >>> 7) & (control.length - 1);
+    }
+
+    /**
+     * Find the slot holding the given key.
+     *
+     * @return the slot index, or -1 if the key is absent
+     */
+    private int findSlot(Object key, int hash) {
+        int mask = control.length - 1;
+        int group = firstGroup(hash);
+        long h2 = h2(hash);
+
+        // triangular probing visits every group once for power of two sizes
+        for (int step = 1; ; step++) {
+            long ctrl = control[group];
+            for (long match = matchByte(ctrl, h2); match != 0; match &= match - 1) {
+                int slot = group * GROUP_WIDTH + (Long.numberOfTrailingZeros(match) >>> 3);
+                if (key.equals(keys[slot])) {
+                    return slot;
+                }
+            }
+            if (matchEmpty(ctrl) != 0 || step > mask) {
+                return -1;
+            }
+            group = (group + step) & mask;
+        }
+    }
+
+    /**
+     * Find the first EMPTY or DELETED slot along the key's probe sequence.
+     * There is always one, since the table is never full.
+     */
+    private int findInsertSlot(int hash) {
+        int mask = control.length - 1;
+        int group = firstGroup(hash);
+        for (int step = 1; ; step++) {
+            long match = matchEmptyOrDeleted(control[group]);
+            if (match != 0) {
+                return group * GROUP_WIDTH + (Long.numberOfTrailingZeros(match) >>> 3);
+            }
+            group = (group + step) & mask;
+        }
+    }
+
+    /**
+     * Set the high bit of each byte in the word equal to b.
+     * May report a false positive next to a true match, which only
+     * costs an extra key comparison.
+     */
+    private static long matchByte(long word, long b) {
+        long x = word ^ (LSB * b);
+        return (x - LSB) & ~x & MSB;
+    }
+
+    /**
+     * Set the high bit of each EMPTY byte.
+     * EMPTY and DELETED both have the high bit set; only EMPTY has bit 1 clear.
+     */
+    private static long matchEmpty(long word) {
+        return word & ~(word << 6) & MSB;
+    }
+
+    /**
+     * Set the high bit of each EMPTY or DELETED byte.
+     */
+    private static long matchEmptyOrDeleted(long word) {
+        return word & ~(word << 7) & MSB;
+    }
+
+    private long controlAt(int slot) {
+        return (control[slot / GROUP_WIDTH] >>> ((slot % GROUP_WIDTH) * 8)) & 0xFF;
+    }
+
+    private void setControl(int slot, long value) {
+        int shift = (slot % GROUP_WIDTH) * 8;
+        int group = slot / GROUP_WIDTH;
+        control[group] = (control[group] & ~(0xFFL << shift)) | (value << shift);
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the number of slots
+     */
+    int getCapacity() {
+        return keys.length;
+    }
+
+}
@@ -0,0 +1,327 @@
+package palm.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import palm.util.Dictionary.Entry;
+
+/**
+ * The entries of one {@link Dictionary} bucket, kept in a balanced (AVL)
+ * tree once the bucket has too many to scan.
+ * <p>
+ * Entries are ordered by hashcode, then by {@link Comparable#compareTo}
+ * when both keys are of the same Comparable class. Keys that collide on
+ * both still need an order to insert and remove by, so the class name,
+ * identity hashcode and finally the insertion sequence break the tie.
+ * A lookup can't use that tie-break, so for such keys it searches both
+ * subtrees; only keys that are Comparable get O(log n) lookups when every
+ * hashcode collides.
+ */
+final class TreeBin<K, V> implements Iterable<Entry<K, V>> {
+
+    /**
+     * Deeper than any AVL tree that fits in an int-sized bucket.
+     */
+    private static final int MAX_HEIGHT = 64;
+
+    private static final class Node<K, V> {
+        final Entry<K, V> entry;
+        final int hash;
+        final long seq;
+        Node<K, V> left;
+        Node<K, V> right;
+        int height = 1;
+        int size = 1;
+
+        Node(Entry<K, V> entry, long seq) {
+            this.entry = entry;
+            this.hash = entry.key.hashCode();
+            this.seq = seq;
+        }
+    }
+
+    private Node<K, V> root;
+    private int size;
+    private long nextSeq;
+
+    /**
+     * Get the number of entries in the bin.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add an entry, whose key must not already be in the bin.
+     */
+    void add(Entry<K, V> entry) {
+        root = insert(root, new Node<>(entry, nextSeq++));
+        size++;
+    }
+
+    /**
+     * Find the entry for the given key.
+     *
+     * @return the entry, or null if not present
+     */
+    Entry<K, V> find(Object key) {
+        Node<K, V> node = findNode(root, key.hashCode(), key);
+        return node == null ? null : node.entry;
+    }
+
+    /**
+     * Remove the entry for the given key.
+     *
+     * @return the entry removed, or null if not present
+     */
+    Entry<K, V> remove(Object key) {
+        Node<K, V> node = findNode(root, key.hashCode(), key);
+        if (node == null) {
+            return null;
+        }
+        root = remove(root, node);
+        size--;
+        return node.entry;
+    }
+
+    /**
+     * Get the entry at the given position in the bin's order, in O(log n).
+     *
+     * @param index the position, from 0 to size() - 1
+     */
+    Entry<K, V> entryAt(int index) {
+        Node<K, V> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.entry;
+            }
+        }
+    }
+
+    /**
+     * Perform the action for each entry, in order, without allocating.
+     */
+    @Override
+    public void forEach(Consumer<? super Entry<K, V>> action) {
+        forEach(root, action);
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the height of the tree
+     */
+    int getHeight() {
+        return height(root);
+    }
+
+    //-----------------------------------------------------------
+
+    private static <K, V> void forEach(Node<K, V> node, Consumer<? super Entry<K, V>> action) {
+        while (node != null) {
+            forEach(node.left, action);
+            action.accept(node.entry);
+            node = node.right;
+        }
+    }
+
+    private static <K, V> Node<K, V> findNode(Node<K, V> node, int hash, Object key) {
+        while (node != null) {
+            if (hash < node.hash) {
+                node = node.left;
+            } else if (hash > node.hash) {
+                node = node.right;
+            } else if (node.entry.key.equals(key)) {
+                return node;
+            } else {
+                int cmp = compareComparables(key, node.entry.key);
+                if (cmp < 0) {
+                    node = node.left;
+                } else if (cmp > 0) {
+                    node = node.right;
+                } else {
+                    // can't tell which side, so try the right and carry on left
+                    Node<K, V> found = findNode(node.right, hash, key);
+                    if (found != null) {
+                        return found;
+                    }
+                    node = node.left;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A total order over the nodes, matching the lookup order as far as
+     * the lookup order goes.
+     */
+    private static int order(Node<?, ?> a, Node<?, ?> b) {
+        if (a.hash != b.hash) {
+            return a.hash < b.hash ? -1 : 1;
+        }
+        Object x = a.entry.key;
+        Object y = b.entry.key;
+        int cmp = compareComparables(x, y);
+        if (cmp == 0) {
+            cmp = x.getClass().getName().compareTo(y.getClass().getName());
+        }
+        if (cmp == 0) {
+            cmp = Integer.compare(System.identityHashCode(x), System.identityHashCode(y));
+        }
+        if (cmp == 0) {
+            cmp = Long.compare(a.seq, b.seq);
+        }
+        return cmp;
+    }
+
+    /**
+     * Compare the keys if they are of the same Comparable class, otherwise 0.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareComparables(Object x, Object y) {
+        if (x instanceof Comparable && x.getClass() == y.getClass()) {
+            return ((Comparable) x).compareTo(y);
+        }
+        return 0;
+    }
+
+    private static <K, V> Node<K, V> insert(Node<K, V> node, Node<K, V> newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (order(newNode, node) < 0) {
+            node.left = insert(node.left, newNode);
+        } else {
+            node.right = insert(node.right, newNode);
+        }
+        return rebalance(node);
+    }
+
+    private static <K, V> Node<K, V> remove(Node<K, V> node, Node<K, V> target) {
+        if (node == target) {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // the next node takes the removed node's place
+            Node<K, V> next = node.right;
+            while (next.left != null) {
+                next = next.left;
+            }
+            next.right = removeFirst(node.right);
+            next.left = node.left;
+            return rebalance(next);
+        }
+        if (order(target, node) < 0) {
+            node.left = remove(node.left, target);
+        } else {
+            node.right = remove(node.right, target);
+        }
+        return rebalance(node);
+    }
+
+    private static <K, V> Node<K, V> removeFirst(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeFirst(node.left);
+        return rebalance(node);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node<?, ?> node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static <K, V> Node<K, V> rebalance(Node<K, V> node) {
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(Node<K, V> node) {
+        Node<K, V> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static <K, V> Node<K, V> rotateRight(Node<K, V> node) {
+        Node<K, V> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    //-----------------------------------------------------------
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new BinIterator();
+    }
+
+    private class BinIterator implements Iterator<Entry<K, V>> {
+        @SuppressWarnings("unchecked")
+        final Node<K, V>[] stack = (Node<K, V>[]) new Node<?, ?>[MAX_HEIGHT];
+        int depth;
+
+        BinIterator() {
+            pushLeft(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = stack[--depth];
+            pushLeft(node.right);
+            return node.entry;
+        }
+
+        private void pushLeft(Node<K, V> node) {
+            for (; node != null; node = node.left) {
+                stack[depth++] = node;
+            }
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package palm.util;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A list stored in a balanced (AVL) binary tree, ordered by position
+ * rather than by value.
+ * <p>
+ * Every node knows how many items are in its subtree, so the node at an
+ * index is found by comparing against the size of the left subtree on the
+ * way down. That makes get, insert and remove at any index O(log n),
+ * where {@link LinkedList} has to walk from one end. Like LinkedList,
+ * negative indices count back from the end, so -1 is the last item.
+ *
+ * @param <T> the type of item stored in the list
+ */
+public class TreeList<T> implements Iterable<T> {
+
+    /**
+     * Create a TreeList with the given items.
+     * The items are added in the order they appear.
+     *
+     * @param items the items to add
+     * @return a new TreeList
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs") // items is only read
+    public static <E> TreeList<E> of(E... items) {
+        TreeList<E> list = new TreeList<>();
+        list.root = build(items, 0, items.length);
+        return list;
+    }
+
+    /**
+     * Deeper than any AVL tree that fits in an int-sized list.
+     */
+    private static final int MAX_HEIGHT = 64;
+
+    private static class Node<T> {
+        T value;
+        Node<T> left;
+        Node<T> right;
+        int height = 1;
+        int size = 1;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    private Node<T> root;
+
+    /**
+     * Create an empty TreeList with zero elements.
+     */
+    public TreeList() {
+
+    }
+
+    /**
+     * Get the current number of items in the list.
+     *
+     * @return the current size
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Get the item at the specified index.
+     *
+     * @param index the index of the item to get.
+     * @return the item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T get(int index) {
+        return getNode(index).value;
+    }
+
+    /**
+     * Replace the item at the specified index.
+     *
+     * @param index the index of the item to replace
+     * @param item the new item
+     * @return the item that was replaced
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T set(int index, T item) {
+        Node<T> node = getNode(index);
+        T old = node.value;
+        node.value = item;
+        return old;
+    }
+
+    /**
+     * Add the given item at the end of the list.
+     *
+     * @param item the item to add
+     */
+    public void add(T item) {
+        root = insert(root, size(root), item);
+    }
+
+    /**
+     * Insert the given item at the specified index.
+     * The index must be in range 0 <= index <= size (or negative, counting
+     * back from the end).
+     *
+     * @param item the item to add
+     * @param index the index to add the item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public void insert(T item, int index) {
+        int size = size(root);
+        if (index < 0) {
+            index += size + 1;
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        root = insert(root, index, item);
+    }
+
+    /**
+     * Add all of the given items at the end of the list, in order.
+     *
+     * @param items the items to add
+     */
+    public void addAll(Iterable<? extends T> items) {
+        for (T item : items) {
+            add(item);
+        }
+    }
+
+    /**
+     * Insert all of the given items, in order, starting at the specified index.
+     * The index must be in range 0 <= index <= size (or negative, counting
+     * back from the end).
+     *
+     * @param items the items to add
+     * @param index the index to add the first item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public void insertAll(Iterable<? extends T> items, int index) {
+        int size = size(root);
+        if (index < 0) {
+            index += size + 1;
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        for (T item : items) {
+            root = insert(root, index++, item);
+        }
+    }
+
+    /**
+     * Remove the item at the specified index.
+     *
+     * @param index the index to remove the item at
+     * @return the item that was just removed
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T remove(int index) {
+        T item = get(index);
+        root = remove(root, index < 0 ? index + size(root) : index);
+        return item;
+    }
+
+    /**
+     * Remove the specified item from the list.
+     *
+     * @param item the item to remove
+     * @return the item that was just removed, or null if it was not present
+     */
+    public T remove(T item) {
+        int index = indexOf(item);
+        return index == -1 ? null : remove(index);
+    }
+
+    /**
+     * Remove every item that matches the filter. The tree is rebuilt
+     * once from the remaining items, rather than rebalanced per removal.
+     *
+     * @param filter returns true for items to remove
+     * @return true if any items were removed
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        @SuppressWarnings("unchecked")
+        T[] kept = (T[]) new Object[size(root)];
+        int count = 0;
+        for (T item : this) {
+            if (!filter.test(item)) {
+                kept[count++] = item;
+            }
+        }
+        if (count == kept.length) {
+            return false;
+        }
+        root = build(kept, 0, count);
+        return true;
+    }
+
+    /**
+     * Remove every item that is not among the given items.
+     *
+     * @param items the items to keep
+     * @return true if any items were removed
+     */
+    public boolean retainAll(Iterable<?> items) {
+        Set<Object> keep = new HashSet<>();
+        for (Object item : items) {
+            keep.add(item);
+        }
+        return removeIf(item -> !keep.contains(item));
+    }
+
+    /**
+     * Check if the given item is in this list
+     */
+    public boolean contains(T item) {
+        return indexOf(item) != -1;
+    }
+
+    /**
+     * Clear the list so it becomes empty.
+     */
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Get the index at which the given item appears in the list.
+     *
+     * @param item the item to search for
+     * @return the index of the item, or -1 if not found
+     */
+    public int indexOf(T item) {
+        int index = 0;
+        for (T value : this) {
+            if (Objects.equals(value, item)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    //-------------------------------------------------
+
+    /**
+     * Get the node at the specified index.
+     *
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    private Node<T> getNode(int index) {
+        int size = size(root);
+        if (index < -size || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (index < 0) {
+            index += size;
+        }
+
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private static <T> Node<T> insert(Node<T> node, int index, T item) {
+        if (node == null) {
+            return new Node<>(item);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            node.left = insert(node.left, index, item);
+        } else {
+            node.right = insert(node.right, index - leftSize - 1, item);
+        }
+        return rebalance(node);
+    }
+
+    private static <T> Node<T> remove(Node<T> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            node.left = remove(node.left, index);
+        } else if (index > leftSize) {
+            node.right = remove(node.right, index - leftSize - 1);
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        } else {
+            // take the next item's place, then remove it from the right subtree
+            Node<T> next = node.right;
+            while (next.left != null) {
+                next = next.left;
+            }
+            node.value = next.value;
+            node.right = remove(node.right, 0);
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Build a balanced tree from a range of the array.
+     */
+    private static <T> Node<T> build(T[] items, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        Node<T> node = new Node<>(items[mid]);
+        node.left = build(items, from, mid);
+        node.right = build(items, mid + 1, to);
+        update(node);
+        return node;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node<?> node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    /**
+     * Restore the AVL balance of the node, whose subtrees differ in
+     * height by at most 2, and update its height and size.
+     *
+     * @return the new root of the subtree
+     */
+    private static <T> Node<T> rebalance(Node<T> node) {
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private static <T> Node<T> rotateLeft(Node<T> node) {
+        Node<T> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static <T> Node<T> rotateRight(Node<T> node) {
+        Node<T> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the height of the tree
+     */
+    int getHeight() {
+        return height(root);
+    }
+
+    //-------------------------------------------------
+
+    @Override
+    public Iterator<T> iterator() {
+        return new TreeListIterator(0);
+    }
+
+    /**
+     * Get an iterator over the items from the given index to the end.
+     * Finding the starting item is O(log n), and each step after that is
+     * O(1) on average.
+     *
+     * @param fromIndex the index of the first item, which may be negative
+     *        or equal to the size
+     * @return the iterator
+     * @throws IndexOutOfBoundsException if fromIndex is not within range
+     */
+    public Iterator<T> iterator(int fromIndex) {
+        int size = size(root);
+        if (fromIndex < 0) {
+            fromIndex += size;
+        }
+        if (fromIndex < 0 || fromIndex > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new TreeListIterator(fromIndex);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size(root), Spliterator.ORDERED);
+    }
+
+    /**
+     * Get a sequential stream of the items.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the items.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * An in-order walk. The stack holds the nodes still to be visited
+     * along the current path, nearest last.
+     */
+    private class TreeListIterator implements Iterator<T> {
+        @SuppressWarnings("unchecked")
+        final Node<T>[] stack = (Node<T>[]) new Node<?>[MAX_HEIGHT];
+        int depth;
+
+        TreeListIterator(int index) {
+            Node<T> node = root;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (index <= leftSize) {
+                    stack[depth++] = node;
+                    if (index == leftSize) {
+                        break;
+                    }
+                    node = node.left;
+                } else {
+                    index -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public T next() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node<T> node = stack[--depth];
+            for (Node<T> n = node.right; n != null; n = n.left) {
+                stack[depth++] = n;
+            }
+            return node.value;
+        }
+    }
+
+}
@@ -0,0 +1,505 @@
+package palm.util;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A double-linked list that keeps several items in each node, in a small
+ * array, instead of one.
+ * <p>
+ * It has the same API as {@link LinkedList}, including negative indices,
+ * but walking it touches far fewer nodes, and neighbouring items share a
+ * cache line. A full node is split in half to make room for an insert, and
+ * a node that drops below half full after a remove is merged with its
+ * neighbour when they fit in one node, so nodes stay at least half full on
+ * average.
+ *
+ * @param <T> the type of item stored in the list
+ */
+public class UnrolledLinkedList<T> implements Iterable<T> {
+
+    /**
+     * Create an UnrolledLinkedList with the given items.
+     * The items are added in the order they appear.
+     *
+     * @param items the items to add
+     * @return a new UnrolledLinkedList
+     */
+    @SafeVarargs
+    public static <E> UnrolledLinkedList<E> of(E... items) {
+        UnrolledLinkedList<E> list = new UnrolledLinkedList<>();
+        for (E item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+
+    /**
+     * Maximum number of items in a node
+     */
+    static final int NODE_CAPACITY = 32;
+
+    private static class Node<T> {
+        final Object[] values = new Object[NODE_CAPACITY];
+        int count;
+        Node<T> next;
+        Node<T> prev;
+
+        @SuppressWarnings("unchecked")
+        T get(int offset) {
+            return (T) values[offset];
+        }
+    }
+
+    /**
+     * A node and an offset within it.
+     */
+    private static class Position<T> {
+        final Node<T> node;
+        final int offset;
+
+        Position(Node<T> node, int offset) {
+            this.node = node;
+            this.offset = offset;
+        }
+    }
+
+    private Node<T> head;
+    private Node<T> tail;
+    private int size;
+    private int nodeCount;
+
+    /**
+     * Create an empty UnrolledLinkedList with zero elements.
+     */
+    public UnrolledLinkedList() {
+
+    }
+
+    /**
+     * Get the current number of items in the list.
+     *
+     * @return the current size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the item at the specified index.
+     *
+     * @param index the index of the item to get.
+     * @return the item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T get(int index) {
+        Position<T> pos = locate(absoluteIndex(index));
+        return pos.node.get(pos.offset);
+    }
+
+    /**
+     * Add the given item at the end of the list.
+     *
+     * @param item the item to add
+     */
+    public void add(T item) {
+        if (tail == null || tail.count == NODE_CAPACITY) {
+            linkAfter(tail);
+        }
+        tail.values[tail.count++] = item;
+        size++;
+    }
+
+    /**
+     * Insert the given item at the specified index.
+     * The index must be in range 0 <= index <= size (or negative, counting
+     * back from the end).
+     *
+     * @param item the item to add
+     * @param index the index to add the item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public void insert(T item, int index) {
+        index = absoluteIndexForInsert(index);
+        if (index == size) {
+            add(item);
+            return;
+        }
+
+        Position<T> pos = locate(index);
+        Node<T> node = pos.node;
+        int offset = pos.offset;
+        if (node.count == NODE_CAPACITY) {
+            int half = NODE_CAPACITY / 2;
+            moveTail(node, half, linkAfter(node));
+            if (offset > half) {
+                node = node.next;
+                offset -= half;
+            }
+        }
+        System.arraycopy(node.values, offset, node.values, offset + 1, node.count - offset);
+        node.values[offset] = item;
+        node.count++;
+        size++;
+    }
+
+    /**
+     * Add all of the given items at the end of the list, in order.
+     *
+     * @param items the items to add
+     */
+    public void addAll(Iterable<? extends T> items) {
+        for (T item : detach(items)) {
+            add(item);
+        }
+    }
+
+    /**
+     * Insert all of the given items, in order, starting at the specified index.
+     * The index must be in range 0 <= index <= size (or negative, counting
+     * back from the end). The node at the index is split once, and the items
+     * fill new nodes between the two halves.
+     *
+     * @param items the items to add
+     * @param index the index to add the first item
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public void insertAll(Iterable<? extends T> items, int index) {
+        index = absoluteIndexForInsert(index);
+        if (index == size) {
+            addAll(items);
+            return;
+        }
+        Iterator<? extends T> it = detach(items).iterator();
+        if (!it.hasNext()) {
+            return;
+        }
+
+        Position<T> pos = locate(index);
+        Node<T> last = pos.node;
+        Node<T> rest = linkAfter(last);
+        moveTail(last, pos.offset, rest);
+        while (it.hasNext()) {
+            if (last.count == NODE_CAPACITY) {
+                last = linkAfter(last);
+            }
+            last.values[last.count++] = it.next();
+            size++;
+        }
+    }
+
+    /**
+     * Remove the item at the specified index.
+     *
+     * @param index the index to remove the item at
+     * @return the item that was just removed
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    public T remove(int index) {
+        Position<T> pos = locate(absoluteIndex(index));
+        return removeAt(pos.node, pos.offset);
+    }
+
+    /**
+     * Remove the specified item from the list.
+     *
+     * @param item the item to remove
+     * @return the item that was just removed, or null if it was not present
+     */
+    public T remove(T item) {
+        for (Node<T> node = head; node != null; node = node.next) {
+            for (int i = 0; i < node.count; i++) {
+                if (Objects.equals(node.values[i], item)) {
+                    return removeAt(node, i);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove every item that matches the filter, in a single pass.
+     * Each node is compacted in place, then merged into the previous
+     * node if they fit together.
+     *
+     * @param filter returns true for items to remove
+     * @return true if any items were removed
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+        Node<T> node = head;
+        while (node != null) {
+            Node<T> next = node.next;
+            int kept = 0;
+            for (int i = 0; i < node.count; i++) {
+                T item = node.get(i);
+                if (!filter.test(item)) {
+                    node.values[kept++] = item;
+                }
+            }
+            for (int i = kept; i < node.count; i++) {
+                node.values[i] = null;
+            }
+            size -= node.count - kept;
+            node.count = kept;
+            mergeIfSparse(node);
+            node = next;
+        }
+        return size != before;
+    }
+
+    /**
+     * Remove every item that is not among the given items.
+     *
+     * @param items the items to keep
+     * @return true if any items were removed
+     */
+    public boolean retainAll(Iterable<?> items) {
+        Set<Object> keep = new HashSet<>();
+        for (Object item : items) {
+            keep.add(item);
+        }
+        return removeIf(item -> !keep.contains(item));
+    }
+
+    /**
+     * Check if the given item is in this list
+     */
+    public boolean contains(T item) {
+        return indexOf(item) != -1;
+    }
+
+    /**
+     * Clear the list so it becomes empty.
+     */
+    public void clear() {
+        head = null;
+        tail = null;
+        size = 0;
+        nodeCount = 0;
+    }
+
+    /**
+     * Get the index at which the given item appears in the list.
+     *
+     * @param item the item to search for
+     * @return the index of the item, or -1 if not found
+     */
+    public int indexOf(T item) {
+        int start = 0;
+        for (Node<T> node = head; node != null; node = node.next) {
+            for (int i = 0; i < node.count; i++) {
+                if (Objects.equals(node.values[i], item)) {
+                    return start + i;
+                }
+            }
+            start += node.count;
+        }
+        return -1;
+    }
+
+    //-------------------------------------------------
+
+    /**
+     * Copy the items out first if they are this list, since iterating it
+     * while linking in new items would never reach the end.
+     */
+    private Iterable<? extends T> detach(Iterable<? extends T> items) {
+        if (items != this) {
+            return items;
+        }
+        DynamicArray<T> copy = new DynamicArray<>(size);
+        for (T item : this) {
+            copy.add(item);
+        }
+        return copy;
+    }
+
+    /**
+     * Find the node and offset of the given (non-negative) index,
+     * walking from whichever end is closer.
+     *
+     * @throws IndexOutOfBoundsException if index is not within range
+     */
+    private Position<T> locate(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (index < size / 2) {
+            Node<T> node = head;
+            while (index >= node.count) {
+                index -= node.count;
+                node = node.next;
+            }
+            return new Position<>(node, index);
+        }
+        Node<T> node = tail;
+        int start = size - node.count;
+        while (index < start) {
+            node = node.prev;
+            start -= node.count;
+        }
+        return new Position<>(node, index - start);
+    }
+
+    private T removeAt(Node<T> node, int offset) {
+        T item = node.get(offset);
+        System.arraycopy(node.values, offset + 1, node.values, offset, node.count - offset - 1);
+        node.values[--node.count] = null;
+        size--;
+        if (!mergeIfSparse(node) && node.next != null) {
+            mergeIfSparse(node.next);
+        }
+        return item;
+    }
+
+    /**
+     * Unlink the node if it is empty, or move its items into the previous
+     * node if it is under half full and they fit together.
+     *
+     * @return true if the node was unlinked
+     */
+    private boolean mergeIfSparse(Node<T> node) {
+        if (node.count == 0) {
+            unlink(node);
+            return true;
+        }
+        Node<T> prev = node.prev;
+        if (node.count < NODE_CAPACITY / 2 && prev != null && prev.count + node.count <= NODE_CAPACITY) {
+            System.arraycopy(node.values, 0, prev.values, prev.count, node.count);
+            prev.count += node.count;
+            unlink(node);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move the items from the given offset onwards to the start of the
+     * (empty) target node.
+     */
+    private static <T> void moveTail(Node<T> node, int offset, Node<T> target) {
+        int moved = node.count - offset;
+        System.arraycopy(node.values, offset, target.values, 0, moved);
+        for (int i = offset; i < node.count; i++) {
+            node.values[i] = null;
+        }
+        node.count = offset;
+        target.count = moved;
+    }
+
+    /**
+     * Link a new, empty node after the given one, or at the start
+     * if it is null.
+     */
+    private Node<T> linkAfter(Node<T> node) {
+        Node<T> newNode = new Node<>();
+        newNode.prev = node;
+        newNode.next = node == null ? head : node.next;
+        if (newNode.next == null) {
+            tail = newNode;
+        } else {
+            newNode.next.prev = newNode;
+        }
+        if (node == null) {
+            head = newNode;
+        } else {
+            node.next = newNode;
+        }
+        nodeCount++;
+        return newNode;
+    }
+
+    private void unlink(Node<T> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            head = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+        nodeCount--;
+    }
+
+    private int absoluteIndex(int index) {
+        return index < 0 ? size + index : index;
+    }
+
+    private int absoluteIndexForInsert(int index) {
+        index = index < 0 ? size + index + 1 : index;
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return index;
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the number of nodes
+     */
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    //-------------------------------------------------
+
+    @Override
+    public Iterator<T> iterator() {
+        return new UnrolledIterator();
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED);
+    }
+
+    /**
+     * Get a sequential stream of the items.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Get a parallel stream of the items.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class UnrolledIterator implements Iterator<T> {
+        Node<T> node = head;
+        int offset;
+
+        @Override
+        public boolean hasNext() {
+            return node != null;
+        }
+
+        @Override
+        public T next() {
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+            T value = node.get(offset++);
+            if (offset == node.count) {
+                node = node.next;
+                offset = 0;
+            }
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+package palm.util.cache;
+
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+import palm.util.Dictionary;
+
+/**
+ * The lookup, weighing and counting shared by the cache policies.
+ * Entries are found through a {@link Dictionary} from key to node; the
+ * policy decides the order of its nodes and which to evict.
+ */
+abstract class AbstractCache<K, V> implements Cache<K, V> {
+
+    final Dictionary<K, Node<K, V>> data = new Dictionary<>();
+    final long maximumWeight;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+
+    private long hits;
+    private long misses;
+    private long loads;
+    private long evictions;
+
+    AbstractCache(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        if (weigher == null) {
+            throw new IllegalArgumentException("Weigher cannot be null");
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses++;
+            onMiss(key);
+            return null;
+        }
+        hits++;
+        onAccess(node);
+        return node.value;
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null && key != null) {
+            loads++;
+            value = loader.apply(key);
+            if (value != null) {
+                set(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void set(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Cache does not support null keys or values");
+        }
+        int weight = weigher.applyAsInt(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative");
+        }
+        if (weight > maximumWeight) {
+            // it could never fit, so evict it alone rather than everything else
+            remove(key);
+            evictions++;
+            return;
+        }
+
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            node = new Node<>(key, value, weight);
+            data.set(key, node);
+            onInsert(node);
+        } else {
+            int oldWeight = node.weight;
+            node.value = value;
+            node.weight = weight;
+            onUpdate(node, weight - oldWeight);
+        }
+        evict();
+    }
+
+    @Override
+    public V remove(K key) {
+        Node<K, V> node = data.remove(key);
+        if (node == null) {
+            return null;
+        }
+        onRemove(node);
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return data.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hits, misses, loads, evictions);
+    }
+
+    /**
+     * Drop an evicted node, which the policy has already unlinked.
+     */
+    void evicted(Node<K, V> node) {
+        data.remove(node.key);
+        evictions++;
+    }
+
+    /**
+     * Called on a lookup of a key that is not cached.
+     */
+    void onMiss(K key) {
+    }
+
+    /**
+     * Called on a hit.
+     */
+    abstract void onAccess(Node<K, V> node);
+
+    /**
+     * Called once a new node is in the Dictionary.
+     */
+    abstract void onInsert(Node<K, V> node);
+
+    /**
+     * Called when a cached node is given a new value.
+     */
+    abstract void onUpdate(Node<K, V> node, int weightDelta);
+
+    /**
+     * Called once a node has been removed from the Dictionary by the user.
+     */
+    abstract void onRemove(Node<K, V> node);
+
+    /**
+     * Evict nodes until the cache is back within its maximum weight.
+     */
+    abstract void evict();
+}
@@ -0,0 +1,80 @@
+package palm.util.cache;
+
+/**
+ * A double-linked list of cache nodes, from least to most recently used,
+ * that keeps the total weight of its nodes. Every operation is O(1).
+ */
+final class AccessOrder<K, V> {
+    private Node<K, V> head;
+    private Node<K, V> tail;
+    private long weight;
+
+    /**
+     * Get the least recently used node, or null if empty.
+     */
+    Node<K, V> first() {
+        return head;
+    }
+
+    boolean isEmpty() {
+        return head == null;
+    }
+
+    /**
+     * Get the total weight of the nodes in the list.
+     */
+    long weight() {
+        return weight;
+    }
+
+    void addLast(Node<K, V> node) {
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        weight += node.weight;
+    }
+
+    void remove(Node<K, V> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            head = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        weight -= node.weight;
+    }
+
+    /**
+     * Mark the node as the most recently used.
+     */
+    void moveToEnd(Node<K, V> node) {
+        if (node != tail) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    /**
+     * Account for a node in the list changing weight.
+     */
+    void adjustWeight(long delta) {
+        weight += delta;
+    }
+
+    void clear() {
+        head = null;
+        tail = null;
+        weight = 0;
+    }
+}
@@ -0,0 +1,84 @@
+package palm.util.cache;
+
+import java.util.function.Function;
+
+/**
+ * A map from keys to values that holds at most a maximum weight of
+ * entries, evicting some when it would go over.
+ * <p>
+ * By default every entry weighs 1, so the maximum weight is the maximum
+ * number of entries. Null keys and values are not supported, so a null
+ * result always means the key is not cached.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public interface Cache<K, V> {
+
+    /**
+     * Get the value cached for the given key.
+     *
+     * @param key the key
+     * @return the value, or null if not cached
+     */
+    V get(K key);
+
+    /**
+     * Get the value cached for the given key, or compute and cache it if
+     * not present.
+     *
+     * @param key the key
+     * @param loader computes the value for a missing key; if it returns null nothing is cached
+     * @return the cached or loaded value
+     */
+    V get(K key, Function<? super K, ? extends V> loader);
+
+    /**
+     * Cache the given value for the key, replacing any value already cached.
+     * This may evict other entries, or this one if it is too heavy. An
+     * entry heavier than the maximum weight is evicted straight away, along
+     * with any value already cached for the key, and other entries are kept.
+     *
+     * @param key the key
+     * @param value the value
+     * @throws IllegalArgumentException if the key or value is null
+     */
+    void set(K key, V value);
+
+    /**
+     * Remove the entry for the given key.
+     *
+     * @param key the key
+     * @return the value that was removed, or null if it was not cached
+     */
+    V remove(K key);
+
+    /**
+     * Check if there is a value cached for the given key. This does not
+     * count as a use of the entry.
+     *
+     * @param key the key
+     * @return true if there is a value
+     */
+    boolean containsKey(K key);
+
+    /**
+     * Get the number of entries in the cache.
+     */
+    int size();
+
+    /**
+     * Get the total weight of the entries in the cache.
+     */
+    long weight();
+
+    /**
+     * Remove all entries. The statistics are kept.
+     */
+    void clear();
+
+    /**
+     * Get a snapshot of the hit, miss, load and eviction counts so far.
+     */
+    CacheStats stats();
+}
@@ -0,0 +1,59 @@
+package palm.util.cache;
+
+/**
+ * Counts of what a {@link Cache} has done, taken at one point in time.
+ */
+public final class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long loads;
+    private final long evictions;
+
+    CacheStats(long hits, long misses, long loads, long evictions) {
+        this.hits = hits;
+        this.misses = misses;
+        this.loads = loads;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Get the number of lookups that found a value.
+     */
+    public long hitCount() { return hits; }
+
+    /**
+     * Get the number of lookups that found nothing.
+     */
+    public long missCount() { return misses; }
+
+    /**
+     * Get the number of times a loader was called.
+     */
+    public long loadCount() { return loads; }
+
+    /**
+     * Get the number of entries removed to make room for others.
+     */
+    public long evictionCount() { return evictions; }
+
+    /**
+     * Get the number of lookups.
+     */
+    public long requestCount() { return hits + misses; }
+
+    /**
+     * Get the fraction of lookups that found a value.
+     *
+     * @return the hit rate, or 1 if there have been no lookups
+     */
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats[hits=" + hits + ", misses=" + misses
+            + ", loads=" + loads + ", evictions=" + evictions + "]";
+    }
+}
@@ -0,0 +1,92 @@
+package palm.util.cache;
+
+/**
+ * A count-min sketch of how often keys have been used recently, in 4-bit
+ * counters packed sixteen to a long.
+ * <p>
+ * Each key has one counter in each of four rows, and its estimate is the
+ * smallest of them, which can only overcount. Once enough increments have
+ * been made, every counter is halved, so old popularity fades.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedKeys roughly how many keys the cache holds
+     */
+    FrequencySketch(long expectedKeys) {
+        int length = 16;
+        while (length < expectedKeys && length < (1 << 26)) {
+            length <<= 1;
+        }
+        table = new long[length];
+        mask = length - 1;
+        sampleSize = 10 * length;
+    }
+
+    /**
+     * Get the estimated number of recent uses of the key, up to 15.
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < 4; row++) {
+            int shift = (start + row) << 2;
+            int count = (int) ((table[indexOf(hash, row)] >>> shift) & 0xF);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Count a use of the key.
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int row = 0; row < 4; row++) {
+            int index = indexOf(hash, row);
+            int shift = (start + row) << 2;
+            if (((table[index] >>> shift) & 0xF) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Halve every counter.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & mask;
+    }
+
+    private static int spread(int h) {
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,80 @@
+package palm.util.cache;
+
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A cache that evicts the least recently used entries.
+ * <p>
+ * Entries sit on a list in order of use, and a hit moves its entry to the
+ * end, so eviction takes from the front in O(1). This class is not
+ * thread-safe.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class LruCache<K, V> extends AbstractCache<K, V> {
+
+    private final AccessOrder<K, V> order = new AccessOrder<>();
+
+    /**
+     * Create a cache holding at most the given number of entries.
+     *
+     * @param maximumSize the maximum number of entries
+     * @throws IllegalArgumentException if maximumSize is not positive
+     */
+    public LruCache(int maximumSize) {
+        this(maximumSize, (key, value) -> 1);
+    }
+
+    /**
+     * Create a cache holding entries up to the given total weight.
+     *
+     * @param maximumWeight the maximum total weight
+     * @param weigher gives the weight of an entry
+     * @throws IllegalArgumentException if maximumWeight is not positive
+     */
+    public LruCache(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher) {
+        super(maximumWeight, weigher);
+    }
+
+    @Override
+    public long weight() {
+        return order.weight();
+    }
+
+    @Override
+    public void clear() {
+        data.clear();
+        order.clear();
+    }
+
+    @Override
+    void onAccess(Node<K, V> node) {
+        order.moveToEnd(node);
+    }
+
+    @Override
+    void onInsert(Node<K, V> node) {
+        order.addLast(node);
+    }
+
+    @Override
+    void onUpdate(Node<K, V> node, int weightDelta) {
+        order.adjustWeight(weightDelta);
+        order.moveToEnd(node);
+    }
+
+    @Override
+    void onRemove(Node<K, V> node) {
+        order.remove(node);
+    }
+
+    @Override
+    void evict() {
+        while (order.weight() > maximumWeight) {
+            Node<K, V> victim = order.first();
+            order.remove(victim);
+            evicted(victim);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package palm.util.cache;
+
+/**
+ * A cache entry, which is also its own link in an {@link AccessOrder} list,
+ * so moving or removing it never searches or allocates.
+ */
+final class Node<K, V> {
+    final K key;
+    V value;
+    int weight;
+
+    Node<K, V> prev;
+    Node<K, V> next;
+
+    /**
+     * Which list the node is in, for policies with more than one.
+     */
+    byte queue;
+
+    Node(K key, V value, int weight) {
+        this.key = key;
+        this.value = value;
+        this.weight = weight;
+    }
+}
@@ -0,0 +1,183 @@
+package palm.util.cache;
+
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A cache using the W-TinyLFU policy, which keeps popular entries even
+ * when a burst of one-off keys passes through.
+ * <p>
+ * New entries go into a small LRU window, about 1% of the maximum weight.
+ * An entry pushed out of the window is a candidate for the main space,
+ * and is only admitted if a {@link FrequencySketch} says it has been used
+ * more often than the entry it would evict. The main space is a segmented
+ * LRU: entries start on probation and are promoted to the protected
+ * segment, about 80% of the main space, when used again. Every operation
+ * is O(1). This class is not thread-safe.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class TinyLfuCache<K, V> extends AbstractCache<K, V> {
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private final AccessOrder<K, V> window = new AccessOrder<>();
+    private final AccessOrder<K, V> probation = new AccessOrder<>();
+    private final AccessOrder<K, V> protectedOrder = new AccessOrder<>();
+    private final FrequencySketch sketch;
+
+    private final long windowMaximum;
+    private final long mainMaximum;
+    private final long protectedMaximum;
+
+    /**
+     * Create a cache holding at most the given number of entries.
+     *
+     * @param maximumSize the maximum number of entries
+     * @throws IllegalArgumentException if maximumSize is not positive
+     */
+    public TinyLfuCache(int maximumSize) {
+        this(maximumSize, (key, value) -> 1);
+    }
+
+    /**
+     * Create a cache holding entries up to the given total weight.
+     *
+     * @param maximumWeight the maximum total weight
+     * @param weigher gives the weight of an entry
+     * @throws IllegalArgumentException if maximumWeight is not positive
+     */
+    public TinyLfuCache(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher) {
+        super(maximumWeight, weigher);
+        windowMaximum = Math.max(1, maximumWeight / 100);
+        mainMaximum = maximumWeight - windowMaximum;
+        protectedMaximum = mainMaximum * 4 / 5;
+        sketch = new FrequencySketch(maximumWeight);
+    }
+
+    @Override
+    public long weight() {
+        return window.weight() + probation.weight() + protectedOrder.weight();
+    }
+
+    @Override
+    public void clear() {
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedOrder.clear();
+    }
+
+    @Override
+    void onMiss(K key) {
+        if (key != null) {
+            sketch.increment(key);
+        }
+    }
+
+    @Override
+    void onAccess(Node<K, V> node) {
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToEnd(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedOrder.addLast(node);
+                demoteProtected();
+                break;
+            default:
+                protectedOrder.moveToEnd(node);
+                break;
+        }
+    }
+
+    @Override
+    void onInsert(Node<K, V> node) {
+        sketch.increment(node.key);
+        node.queue = WINDOW;
+        window.addLast(node);
+    }
+
+    @Override
+    void onUpdate(Node<K, V> node, int weightDelta) {
+        orderOf(node).adjustWeight(weightDelta);
+        onAccess(node);
+    }
+
+    @Override
+    void onRemove(Node<K, V> node) {
+        orderOf(node).remove(node);
+    }
+
+    @Override
+    void evict() {
+        while (window.weight() > windowMaximum) {
+            Node<K, V> candidate = window.first();
+            window.remove(candidate);
+            admit(candidate);
+        }
+        // an update may have made the main space heavier
+        while (probation.weight() + protectedOrder.weight() > mainMaximum) {
+            Node<K, V> victim = mainVictim();
+            orderOf(victim).remove(victim);
+            evicted(victim);
+        }
+    }
+
+    //-----------------------------------------------------------
+
+    /**
+     * Move a candidate from the window into probation if it is used more
+     * often than the entries it would push out, or else evict it.
+     */
+    private void admit(Node<K, V> candidate) {
+        if (candidate.weight > mainMaximum) {
+            evicted(candidate);
+            return;
+        }
+        while (probation.weight() + protectedOrder.weight() + candidate.weight > mainMaximum) {
+            Node<K, V> victim = mainVictim();
+            if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                evicted(candidate);
+                return;
+            }
+            orderOf(victim).remove(victim);
+            evicted(victim);
+        }
+        candidate.queue = PROBATION;
+        probation.addLast(candidate);
+    }
+
+    /**
+     * The entry to evict from the main space: the least recently used on
+     * probation, or in the protected segment if probation is empty.
+     */
+    private Node<K, V> mainVictim() {
+        return probation.isEmpty() ? protectedOrder.first() : probation.first();
+    }
+
+    private void demoteProtected() {
+        while (protectedOrder.weight() > protectedMaximum) {
+            Node<K, V> node = protectedOrder.first();
+            protectedOrder.remove(node);
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+    }
+
+    private AccessOrder<K, V> orderOf(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedOrder;
+        }
+    }
+}
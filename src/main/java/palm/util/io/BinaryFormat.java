@@ -0,0 +1,341 @@
+package palm.util.io;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+
+import palm.util.Dictionary;
+import palm.util.DynamicArray;
+import palm.util.LinkedList;
+
+/**
+ * A compact, versioned binary format for {@link DynamicArray},
+ * {@link LinkedList} and {@link Dictionary}.
+ * <p>
+ * Layout, all big-endian:
+ * <pre>
+ *   header section   int length, then: int magic, short version, byte kind, byte flags, int count
+ *   data section     long length, then the elements
+ *   checksum         int CRC32 of everything before it
+ * </pre>
+ * Each list element is a presence byte (0 for null) followed by the value
+ * if present. Each Dictionary entry is the key, then a presence byte and
+ * the value. Keys and values are written with the given {@link Codec}s.
+ * <p>
+ * Writing streams through a {@link WritableByteChannel} in fixed-size
+ * chunks, so the output never has to fit in memory. Reading decodes values
+ * straight out of a {@link ByteBuffer}, such as a mapped file, into the
+ * new structure.
+ */
+public final class BinaryFormat {
+
+    private BinaryFormat() {
+    }
+
+    public static final short VERSION = 1;
+
+    private static final int MAGIC = 0x50445346; // "PDSF"
+    private static final byte KIND_DYNAMIC_ARRAY = 1;
+    private static final byte KIND_LINKED_LIST = 2;
+    private static final byte KIND_DICTIONARY = 3;
+
+    private static final int HEADER_BYTES = 4 + 2 + 1 + 1 + 4;
+    private static final int COUNT_OFFSET = 4 + 4 + 2 + 1 + 1;
+    private static final int CHUNK_BYTES = 1 << 16;
+
+    private static final byte ABSENT = 0;
+    private static final byte PRESENT = 1;
+
+    /**
+     * Write an array to the channel.
+     *
+     * @param arr the array
+     * @param codec the codec for (non-null) elements
+     * @param out the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if the channel cannot be written
+     */
+    public static <T> long write(DynamicArray<T> arr, Codec<T> codec, WritableByteChannel out) throws IOException {
+        return writeValues(KIND_DYNAMIC_ARRAY, arr.size(), arr, codec, out);
+    }
+
+    /**
+     * Write a list to the channel.
+     *
+     * @param list the list
+     * @param codec the codec for (non-null) elements
+     * @param out the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if the channel cannot be written
+     */
+    public static <T> long write(LinkedList<T> list, Codec<T> codec, WritableByteChannel out) throws IOException {
+        return writeValues(KIND_LINKED_LIST, list.size(), list, codec, out);
+    }
+
+    /**
+     * Write a Dictionary to the channel.
+     *
+     * @param dict the Dictionary
+     * @param keyCodec the codec for keys
+     * @param valueCodec the codec for (non-null) values
+     * @param out the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if the channel cannot be written
+     */
+    public static <K, V> long write(Dictionary<K, V> dict, Codec<K> keyCodec, Codec<V> valueCodec,
+            WritableByteChannel out) throws IOException {
+        long dataBytes = 0;
+        for (Dictionary.Entry<K, V> entry : dict) {
+            dataBytes += keyCodec.sizeOf(entry.key()) + sizeOfNullable(valueCodec, entry.value());
+        }
+
+        ChunkWriter writer = new ChunkWriter(out);
+        writer.header(KIND_DICTIONARY, dict.size(), dataBytes);
+        for (Dictionary.Entry<K, V> entry : dict) {
+            ByteBuffer chunk = writer.reserve(keyCodec.sizeOf(entry.key()) + sizeOfNullable(valueCodec, entry.value()));
+            keyCodec.write(entry.key(), chunk);
+            writeNullable(valueCodec, entry.value(), chunk);
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Read an array written by {@link #write(DynamicArray, Codec, WritableByteChannel)}.
+     * The buffer's position is moved past the data read.
+     *
+     * @param in the buffer to read from
+     * @param codec the codec for elements
+     * @return the array
+     * @throws IOException if the data is corrupt, of a different kind, or a newer version
+     */
+    public static <T> DynamicArray<T> readDynamicArray(ByteBuffer in, Codec<T> codec) throws IOException {
+        ByteBuffer data = openData(in, KIND_DYNAMIC_ARRAY);
+        int count = readCount(data);
+
+        DynamicArray<T> arr = new DynamicArray<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                arr.add(readNullable(codec, data));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt data", e);
+        }
+        checkConsumed(data);
+        return arr;
+    }
+
+    /**
+     * Read a list written by {@link #write(LinkedList, Codec, WritableByteChannel)}.
+     * The buffer's position is moved past the data read.
+     *
+     * @param in the buffer to read from
+     * @param codec the codec for elements
+     * @return the list
+     * @throws IOException if the data is corrupt, of a different kind, or a newer version
+     */
+    public static <T> LinkedList<T> readLinkedList(ByteBuffer in, Codec<T> codec) throws IOException {
+        ByteBuffer data = openData(in, KIND_LINKED_LIST);
+        int count = readCount(data);
+
+        LinkedList<T> list = new LinkedList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                list.add(readNullable(codec, data));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt data", e);
+        }
+        checkConsumed(data);
+        return list;
+    }
+
+    /**
+     * Read a Dictionary written by
+     * {@link #write(Dictionary, Codec, Codec, WritableByteChannel)}.
+     * The buffer's position is moved past the data read.
+     *
+     * @param in the buffer to read from
+     * @param keyCodec the codec for keys
+     * @param valueCodec the codec for values
+     * @return the Dictionary
+     * @throws IOException if the data is corrupt, of a different kind, or a newer version
+     */
+    public static <K, V> Dictionary<K, V> readDictionary(ByteBuffer in, Codec<K> keyCodec, Codec<V> valueCodec)
+            throws IOException {
+        ByteBuffer data = openData(in, KIND_DICTIONARY);
+        int count = readCount(data);
+
+        Dictionary<K, V> dict = new Dictionary<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                K key = keyCodec.read(data);
+                dict.set(key, readNullable(valueCodec, data));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt data", e);
+        }
+        checkConsumed(data);
+        return dict;
+    }
+
+    //-----------------------------------------------------------
+
+    private static <T> long writeValues(byte kind, int count, Iterable<T> values, Codec<T> codec,
+            WritableByteChannel out) throws IOException {
+        long dataBytes = 0;
+        for (T value : values) {
+            dataBytes += sizeOfNullable(codec, value);
+        }
+
+        ChunkWriter writer = new ChunkWriter(out);
+        writer.header(kind, count, dataBytes);
+        for (T value : values) {
+            writeNullable(codec, value, writer.reserve(sizeOfNullable(codec, value)));
+        }
+        return writer.finish();
+    }
+
+    private static <T> int sizeOfNullable(Codec<T> codec, T value) {
+        return 1 + (value == null ? 0 : codec.sizeOf(value));
+    }
+
+    private static <T> void writeNullable(Codec<T> codec, T value, ByteBuffer buffer) {
+        if (value == null) {
+            buffer.put(ABSENT);
+        } else {
+            buffer.put(PRESENT);
+            codec.write(value, buffer);
+        }
+    }
+
+    private static <T> T readNullable(Codec<T> codec, ByteBuffer buffer) {
+        return buffer.get() == ABSENT ? null : codec.read(buffer);
+    }
+
+    /**
+     * Check the header and checksum of the structure at the buffer's
+     * position, and move the position past it.
+     *
+     * @return a view of the whole structure, starting at 0 and positioned at the first element
+     */
+    private static ByteBuffer openData(ByteBuffer in, byte kind) throws IOException {
+        ByteBuffer data = in.slice();
+        if (data.remaining() < 4 + HEADER_BYTES + 8 + 4) {
+            throw new IOException("Truncated data");
+        }
+        int headerBytes = data.getInt(0);
+        if (headerBytes < HEADER_BYTES || data.getInt(4) != MAGIC) {
+            throw new IOException("Not palm.util binary data");
+        }
+        short version = data.getShort(8);
+        if (version > VERSION) {
+            throw new IOException("Unsupported format version " + version);
+        }
+        if (data.get(10) != kind) {
+            throw new IOException("Data holds a different kind of structure");
+        }
+
+        long dataStart = 4L + headerBytes + 8;
+        if (dataStart + 4 > data.remaining()) {
+            throw new IOException("Truncated data");
+        }
+        long dataBytes = data.getLong((int) dataStart - 8);
+        long total = dataStart + dataBytes;
+        if (dataBytes < 0 || total + 4 > data.remaining()) {
+            throw new IOException("Truncated data");
+        }
+
+        ByteBuffer checked = data.duplicate();
+        checked.position(0).limit((int) total);
+        CRC32 crc = new CRC32();
+        crc.update(checked);
+        if ((int) crc.getValue() != data.getInt((int) total)) {
+            throw new IOException("Checksum mismatch");
+        }
+
+        data.limit((int) total).position((int) dataStart);
+        in.position(in.position() + (int) total + 4);
+        return data;
+    }
+
+    /**
+     * Get the element count from the header. Every element takes at least
+     * one byte, so a count larger than the data is corrupt.
+     */
+    private static int readCount(ByteBuffer data) throws IOException {
+        int count = data.getInt(COUNT_OFFSET);
+        if (count < 0 || count > data.remaining()) {
+            throw new IOException("Corrupt data");
+        }
+        return count;
+    }
+
+    /**
+     * Check that the elements used up exactly the data section.
+     */
+    private static void checkConsumed(ByteBuffer data) throws IOException {
+        if (data.hasRemaining()) {
+            throw new IOException("Corrupt data");
+        }
+    }
+
+    /**
+     * Collects output into a chunk, handing it to the channel and the
+     * checksum each time it fills.
+     */
+    private static class ChunkWriter {
+        final WritableByteChannel out;
+        final CRC32 crc = new CRC32();
+        ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES);
+        long written;
+
+        ChunkWriter(WritableByteChannel out) {
+            this.out = out;
+        }
+
+        void header(byte kind, int count, long dataBytes) throws IOException {
+            ByteBuffer buffer = reserve(4 + HEADER_BYTES + 8);
+            buffer.putInt(HEADER_BYTES);
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            buffer.put(kind);
+            buffer.put((byte) 0);
+            buffer.putInt(count);
+            buffer.putLong(dataBytes);
+        }
+
+        /**
+         * Get the chunk, with at least the given number of bytes free.
+         */
+        ByteBuffer reserve(int bytes) throws IOException {
+            if (bytes > chunk.remaining()) {
+                flush();
+                if (bytes > chunk.capacity()) {
+                    chunk = ByteBuffer.allocate(bytes);
+                }
+            }
+            return chunk;
+        }
+
+        void flush() throws IOException {
+            chunk.flip();
+            crc.update(chunk.duplicate());
+            while (chunk.hasRemaining()) {
+                written += out.write(chunk);
+            }
+            chunk.clear();
+        }
+
+        long finish() throws IOException {
+            flush();
+            chunk.putInt((int) crc.getValue());
+            chunk.flip();
+            while (chunk.hasRemaining()) {
+                written += out.write(chunk);
+            }
+            return written;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package palm.util.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts values to and from bytes, for writing structures to disk.
+ * Values may have different encoded sizes; codecs whose values all take
+ * the same size implement {@link FixedWidthCodec}. Null values are handled
+ * by the caller.
+ * <p>
+ * Common codecs are in {@link Codecs}.
+ *
+ * @param <T> the type of value
+ */
+public interface Codec<T> {
+
+    /**
+     * Get the number of bytes the value will take.
+     *
+     * @param value the (non-null) value
+     * @return the encoded size in bytes
+     */
+    int sizeOf(T value);
+
+    /**
+     * Write the value at the buffer's position, moving the position past it.
+     * The buffer has at least {@link #sizeOf(Object)} bytes remaining.
+     *
+     * @param value the (non-null) value
+     * @param buffer the buffer to write to
+     */
+    void write(T value, ByteBuffer buffer);
+
+    /**
+     * Read a value at the buffer's position, moving the position past it.
+     * If the buffer ends before the value does, throw
+     * BufferUnderflowException, as ByteBuffer's own get methods do.
+     *
+     * @param buffer the buffer to read from
+     * @return the value
+     */
+    T read(ByteBuffer buffer);
+}
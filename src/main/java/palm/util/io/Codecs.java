@@ -0,0 +1,154 @@
+package palm.util.io;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codecs for common types.
+ */
+public final class Codecs {
+
+    private Codecs() {
+    }
+
+    public static final FixedWidthCodec<Integer> INT = new FixedWidthCodec<Integer>() {
+        @Override
+        public int width() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Integer value) {
+            buffer.putInt(offset, value);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int offset) {
+            return buffer.getInt(offset);
+        }
+
+        @Override
+        public void write(Integer value, ByteBuffer buffer) {
+            buffer.putInt(value);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer) {
+            return buffer.getInt();
+        }
+    };
+
+    public static final FixedWidthCodec<Long> LONG = new FixedWidthCodec<Long>() {
+        @Override
+        public int width() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Long value) {
+            buffer.putLong(offset, value);
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer, int offset) {
+            return buffer.getLong(offset);
+        }
+
+        @Override
+        public void write(Long value, ByteBuffer buffer) {
+            buffer.putLong(value);
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer) {
+            return buffer.getLong();
+        }
+    };
+
+    public static final FixedWidthCodec<Double> DOUBLE = new FixedWidthCodec<Double>() {
+        @Override
+        public int width() {
+            return Double.BYTES;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Double value) {
+            buffer.putDouble(offset, value);
+        }
+
+        @Override
+        public Double read(ByteBuffer buffer, int offset) {
+            return buffer.getDouble(offset);
+        }
+
+        @Override
+        public void write(Double value, ByteBuffer buffer) {
+            buffer.putDouble(value);
+        }
+
+        @Override
+        public Double read(ByteBuffer buffer) {
+            return buffer.getDouble();
+        }
+    };
+
+    /**
+     * UTF-8 bytes, prefixed with their length as an int.
+     */
+    public static final Codec<String> STRING = new Codec<String>() {
+        @Override
+        public int sizeOf(String value) {
+            return Integer.BYTES + utf8Length(value);
+        }
+
+        @Override
+        public void write(String value, ByteBuffer buffer) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+
+        @Override
+        public String read(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length > buffer.remaining()) {
+                // the array path below would otherwise read past the limit
+                throw new BufferUnderflowException();
+            }
+            String value;
+            if (buffer.hasArray()) {
+                value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            } else {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return value;
+        }
+    };
+
+    /**
+     * Count the UTF-8 bytes of a string without encoding it.
+     */
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                // lone surrogates are encoded as '?'
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+}
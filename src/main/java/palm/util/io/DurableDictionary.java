@@ -0,0 +1,626 @@
+package palm.util.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import palm.util.Dictionary;
+
+/**
+ * A {@link Dictionary} whose changes survive a crash.
+ * <p>
+ * Every set, add and remove is written to a write-ahead log before it
+ * returns, so killing the process never loses an acknowledged write. The
+ * log is synced to the device according to a {@link SyncPolicy}. A
+ * snapshot writes the whole Dictionary to a compact binary file and empties
+ * the log, so recovery only has to load the latest snapshot and replay the
+ * writes made since.
+ * <p>
+ * Both files live in one directory: {@code snapshot.bin} and {@code wal.log}.
+ * Log records carry an increasing sequence number, and a snapshot records
+ * the last sequence number it includes, so a crash part-way through a
+ * snapshot never applies a write twice or loses one. A torn record at the
+ * end of the log (from a crash mid-write) fails its checksum and is dropped.
+ * <p>
+ * Recovery streams both files through a small buffer, so neither has to
+ * fit in memory at once. By default a snapshot is taken whenever the log
+ * grows past {@value #DEFAULT_SNAPSHOT_LOG_BYTES} bytes, which bounds how
+ * much of it there is to replay.
+ * <p>
+ * Like Dictionary, this class is not thread-safe.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class DurableDictionary<K, V> implements Iterable<Dictionary.Entry<K, V>>, Closeable {
+
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+    static final String LOG_FILE = "wal.log";
+    private static final String SNAPSHOT_TEMP_FILE = "snapshot.tmp";
+
+    private static final int SNAPSHOT_MAGIC = 0x50445331; // "PDS1"
+    private static final int SNAPSHOT_HEADER_BYTES = 4 + 8 + 4;
+
+    private static final byte OP_SET = 1;
+    private static final byte OP_SET_NULL = 2;
+    private static final byte OP_REMOVE = 3;
+
+    /**
+     * Length and checksum in front of each log record
+     */
+    private static final int RECORD_HEADER_BYTES = 4 + 4;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /**
+     * Log size that triggers a snapshot, unless another is given
+     */
+    public static final long DEFAULT_SNAPSHOT_LOG_BYTES = 64L << 20;
+
+    /**
+     * Open (and recover) the Dictionary stored in the given directory,
+     * creating it if needed. A snapshot is taken each time the log grows
+     * past {@link #DEFAULT_SNAPSHOT_LOG_BYTES}.
+     *
+     * @param dir the directory for the snapshot and log
+     * @param keyCodec the codec for keys
+     * @param valueCodec the codec for (non-null) values
+     * @param policy when to sync the log
+     * @return the recovered Dictionary
+     * @throws IOException if the files cannot be read or created
+     */
+    public static <K, V> DurableDictionary<K, V> open(Path dir, Codec<K> keyCodec, Codec<V> valueCodec,
+            SyncPolicy policy) throws IOException {
+        return open(dir, keyCodec, valueCodec, policy, DEFAULT_SNAPSHOT_LOG_BYTES);
+    }
+
+    /**
+     * Open (and recover) the Dictionary stored in the given directory,
+     * creating it if needed.
+     *
+     * @param dir the directory for the snapshot and log
+     * @param keyCodec the codec for keys
+     * @param valueCodec the codec for (non-null) values
+     * @param policy when to sync the log
+     * @param snapshotLogBytes take a snapshot once the log grows past this size, or 0 for never
+     * @return the recovered Dictionary
+     * @throws IOException if the files cannot be read or created
+     */
+    public static <K, V> DurableDictionary<K, V> open(Path dir, Codec<K> keyCodec, Codec<V> valueCodec,
+            SyncPolicy policy, long snapshotLogBytes) throws IOException {
+        Files.createDirectories(dir);
+        DurableDictionary<K, V> dict = new DurableDictionary<>(dir, keyCodec, valueCodec, policy, snapshotLogBytes);
+        try {
+            dict.recover();
+        } catch (IOException | RuntimeException e) {
+            dict.log.close();
+            throw e;
+        }
+        return dict;
+    }
+
+    private final Path dir;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final SyncPolicy policy;
+    private final long snapshotLogBytes;
+
+    private Dictionary<K, V> dict = new Dictionary<>();
+    private final FileChannel log;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Sequence number of the last write
+     */
+    private long lastSequence;
+
+    /**
+     * Size of the log file, including what is still in the buffer
+     */
+    private long logBytes;
+
+    private int unsyncedWrites;
+    private final long syncIntervalNanos;
+    private long lastSyncNanos = System.nanoTime();
+
+    private DurableDictionary(Path dir, Codec<K> keyCodec, Codec<V> valueCodec, SyncPolicy policy,
+            long snapshotLogBytes) throws IOException {
+        this.dir = dir;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.policy = policy;
+        this.snapshotLogBytes = snapshotLogBytes;
+        syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(policy.everyMillis);
+        log = FileChannel.open(dir.resolve(LOG_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Get the amount of entries in this Dictionary.
+     *
+     * @return the current size
+     */
+    public int size() {
+        return dict.size();
+    }
+
+    /**
+     * Add the given entry to the Dictionary.
+     *
+     * @param item the entry to add
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    public void add(Dictionary.Entry<K, V> item) {
+        if (item == null || item.key() == null) {
+            throw new IllegalArgumentException("Dictionary does not support null keys");
+        }
+        set(item.key(), item.value());
+    }
+
+    /**
+     * Set the mapping for the given key to be the given value
+     *
+     * @param key the key
+     * @param value the new value
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    public void set(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Dictionary does not support null keys");
+        }
+        append(value == null ? OP_SET_NULL : OP_SET, key, value);
+        dict.set(key, value);
+        afterWrite();
+    }
+
+    /**
+     * Get the value associated with the given key.
+     *
+     * @param key the key
+     */
+    public V get(K key) {
+        return dict.get(key);
+    }
+
+    /**
+     * Check if this Dictionary contains a mapping for the given key.
+     *
+     * @param key the key
+     * @return true if there is an entry, false otherwise
+     */
+    public boolean containsKey(K key) {
+        return dict.containsKey(key);
+    }
+
+    /**
+     * Remove the entry for the given key.
+     *
+     * @param key the key of the entry to remove
+     * @return the value in the entry that was removed, or null if there was no mapping
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    public V remove(K key) {
+        if (key == null || !dict.containsKey(key)) {
+            return null;
+        }
+        append(OP_REMOVE, key, null);
+        V value = dict.remove(key);
+        afterWrite();
+        return value;
+    }
+
+    @Override
+    public Iterator<Dictionary.Entry<K, V>> iterator() {
+        return dict.iterator();
+    }
+
+    /**
+     * Write out and sync every write made so far, whatever the policy.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public void flush() throws IOException {
+        writeBuffer();
+        sync();
+    }
+
+    /**
+     * Write the whole Dictionary to a new snapshot and empty the log.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        // the log must be durable up to lastSequence before it can be dropped
+        flush();
+
+        Path temp = dir.resolve(SNAPSHOT_TEMP_FILE);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeSnapshot(out);
+            out.force(true);
+        }
+        Files.move(temp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        logBytes = 0;
+    }
+
+    /**
+     * Flush the log and close the files.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            log.close();
+        }
+    }
+
+    //-----------------------------------------------------------
+
+    private void append(byte op, K key, V value) {
+        int bodyBytes = 1 + 8 + keyCodec.sizeOf(key) + (op == OP_SET ? valueCodec.sizeOf(value) : 0);
+        int recordBytes = RECORD_HEADER_BYTES + bodyBytes;
+        try {
+            if (recordBytes > buffer.remaining()) {
+                writeBuffer();
+            }
+            ByteBuffer target = recordBytes <= buffer.capacity() ? buffer : ByteBuffer.allocate(recordBytes);
+
+            int start = target.position();
+            try {
+                target.position(start + RECORD_HEADER_BYTES);
+                target.put(op);
+                target.putLong(lastSequence + 1);
+                keyCodec.write(key, target);
+                if (op == OP_SET) {
+                    valueCodec.write(value, target);
+                }
+            } catch (RuntimeException e) {
+                // don't leave half a record behind if a codec fails
+                target.position(start);
+                throw e;
+            }
+            lastSequence++;
+            target.putInt(start, bodyBytes);
+            target.putInt(start + 4, checksum(target, start + RECORD_HEADER_BYTES, bodyBytes));
+            logBytes += recordBytes;
+
+            if (target != buffer) {
+                target.flip();
+                writeFully(log, target);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void afterWrite() {
+        unsyncedWrites++;
+        try {
+            // hand every write to the OS now; only the fsync is batched
+            writeBuffer();
+            boolean due = (policy.everyWrites > 0 && unsyncedWrites >= policy.everyWrites)
+                || (syncIntervalNanos > 0 && System.nanoTime() - lastSyncNanos >= syncIntervalNanos);
+            if (due) {
+                sync();
+            }
+            if (snapshotLogBytes > 0 && logBytes >= snapshotLogBytes) {
+                snapshot();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        writeFully(log, buffer);
+        buffer.clear();
+    }
+
+    private void sync() throws IOException {
+        log.force(false);
+        unsyncedWrites = 0;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    private int checksum(ByteBuffer source, int offset, int length) {
+        ByteBuffer slice = source.duplicate();
+        slice.limit(offset + length).position(offset);
+        crc.reset();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    /**
+     * Make the rename of the snapshot durable. Not every platform can
+     * open a directory, in which case the rename is left to the OS.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // best effort
+        }
+    }
+
+    /**
+     * Snapshot layout: magic, last sequence number, entry count, then
+     * entries as (flag, key, value), then a CRC32 of everything before it.
+     */
+    private void writeSnapshot(FileChannel out) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        CRC32 snapshotCrc = new CRC32();
+
+        chunk.putInt(SNAPSHOT_MAGIC);
+        chunk.putLong(lastSequence);
+        chunk.putInt(dict.size());
+        for (Dictionary.Entry<K, V> entry : dict) {
+            int bytes = 1 + keyCodec.sizeOf(entry.key())
+                + (entry.value() == null ? 0 : valueCodec.sizeOf(entry.value()));
+            if (bytes > chunk.remaining()) {
+                writeChunk(out, chunk, snapshotCrc);
+                if (bytes > chunk.capacity()) {
+                    chunk = ByteBuffer.allocateDirect(bytes);
+                }
+            }
+            chunk.put(entry.value() == null ? OP_SET_NULL : OP_SET);
+            keyCodec.write(entry.key(), chunk);
+            if (entry.value() != null) {
+                valueCodec.write(entry.value(), chunk);
+            }
+        }
+        writeChunk(out, chunk, snapshotCrc);
+
+        chunk.putInt((int) snapshotCrc.getValue());
+        chunk.flip();
+        writeFully(out, chunk);
+    }
+
+    private static void writeChunk(FileChannel out, ByteBuffer chunk, CRC32 crc) throws IOException {
+        chunk.flip();
+        crc.update(chunk.duplicate());
+        writeFully(out, chunk);
+        chunk.clear();
+    }
+
+    private void recover() throws IOException {
+        long snapshotSequence = 0;
+        Path snapshot = dir.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            snapshotSequence = loadSnapshot(snapshot);
+        }
+        lastSequence = snapshotSequence;
+
+        long validBytes = replayLog(snapshotSequence);
+        if (validBytes < log.size()) {
+            // drop a torn record left by a crash
+            log.truncate(validBytes);
+        }
+        log.position(validBytes);
+        logBytes = validBytes;
+    }
+
+    private long loadSnapshot(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long bodyBytes = channel.size() - 4;
+            if (bodyBytes < SNAPSHOT_HEADER_BYTES) {
+                throw new IOException("Not a snapshot file: " + snapshot);
+            }
+            // check the whole file first, so a corrupt one is never half applied
+            if (!checksumMatches(channel, bodyBytes)) {
+                throw new IOException("Snapshot checksum mismatch: " + snapshot);
+            }
+
+            ChunkReader reader = new ChunkReader(channel, bodyBytes);
+            reader.fill(SNAPSHOT_HEADER_BYTES);
+            ByteBuffer data = reader.buffer();
+            if (data.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a snapshot file: " + snapshot);
+            }
+            long sequence = data.getLong();
+            int count = data.getInt();
+            dict = new Dictionary<>(count);
+            for (int i = 0; i < count; i++) {
+                readSnapshotEntry(reader, snapshot);
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Read one (flag, key, value) entry. Entries carry no length, so if the
+     * buffer runs out part-way through, read more and decode it again.
+     */
+    private void readSnapshotEntry(ChunkReader reader, Path snapshot) throws IOException {
+        while (true) {
+            ByteBuffer data = reader.buffer();
+            int start = data.position();
+            try {
+                byte flag = data.get();
+                K key = keyCodec.read(data);
+                dict.set(key, flag == OP_SET ? valueCodec.read(data) : null);
+                return;
+            } catch (BufferUnderflowException e) {
+                data.position(start);
+                if (!reader.fill(data.remaining() + 1)) {
+                    throw new IOException("Truncated snapshot: " + snapshot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check the CRC32 after the given number of bytes against those bytes.
+     */
+    private static boolean checksumMatches(FileChannel channel, long bodyBytes) throws IOException {
+        CRC32 fileCrc = new CRC32();
+        ChunkReader reader = new ChunkReader(channel, bodyBytes + 4);
+        long left = bodyBytes;
+        while (left > 0) {
+            reader.fill(1);
+            ByteBuffer data = reader.buffer();
+            int n = (int) Math.min(left, data.remaining());
+            ByteBuffer part = data.duplicate();
+            part.limit(part.position() + n);
+            fileCrc.update(part);
+            data.position(data.position() + n);
+            left -= n;
+        }
+        return reader.fill(4) && reader.buffer().getInt() == (int) fileCrc.getValue();
+    }
+
+    /**
+     * Apply every intact log record newer than the snapshot.
+     *
+     * @return the number of bytes of intact records
+     */
+    private long replayLog(long snapshotSequence) throws IOException {
+        ChunkReader reader = new ChunkReader(log, log.size());
+        while (reader.fill(RECORD_HEADER_BYTES)) {
+            ByteBuffer data = reader.buffer();
+            int bodyBytes = data.getInt(data.position());
+            int expectedCrc = data.getInt(data.position() + 4);
+            if (bodyBytes < 9 || bodyBytes > reader.remaining() - RECORD_HEADER_BYTES) {
+                break;
+            }
+            reader.fill(RECORD_HEADER_BYTES + bodyBytes);
+            data = reader.buffer();
+            int bodyStart = data.position() + RECORD_HEADER_BYTES;
+            if (checksum(data, bodyStart, bodyBytes) != expectedCrc) {
+                break;
+            }
+
+            data.position(bodyStart);
+            byte op = data.get();
+            long sequence = data.getLong();
+            K key = keyCodec.read(data);
+            V value = op == OP_SET ? valueCodec.read(data) : null;
+            data.position(bodyStart + bodyBytes);
+            if (sequence > snapshotSequence) {
+                if (op == OP_REMOVE) {
+                    dict.remove(key);
+                } else {
+                    dict.set(key, value);
+                }
+                lastSequence = sequence;
+            }
+        }
+        return reader.position();
+    }
+
+    /**
+     * Reads a file sequentially through a buffer that only grows to fit
+     * the largest record. This reads rather than maps, since a mapped log
+     * could not be truncated or a mapped snapshot replaced on every platform.
+     */
+    private static final class ChunkReader {
+        private final FileChannel channel;
+        private final long end;
+        private ByteBuffer window = ByteBuffer.allocate(BUFFER_BYTES);
+
+        /**
+         * File offset of the start of the window
+         */
+        private long windowOffset;
+
+        /**
+         * @param channel the file, read from the start
+         * @param end the file offset to stop reading at
+         */
+        ChunkReader(FileChannel channel, long end) {
+            this.channel = channel;
+            this.end = end;
+            window.limit(0);
+        }
+
+        /**
+         * Get the buffered bytes, positioned at the next unread one.
+         * Moving its position consumes them. Only valid until the next fill.
+         */
+        ByteBuffer buffer() {
+            return window;
+        }
+
+        /**
+         * Get the file offset of the next unread byte.
+         */
+        long position() {
+            return windowOffset + window.position();
+        }
+
+        /**
+         * Get the number of unread bytes, buffered or not.
+         */
+        long remaining() {
+            return end - position();
+        }
+
+        /**
+         * Make sure at least the given number of bytes are buffered.
+         *
+         * @return false if the end comes first
+         */
+        boolean fill(int bytes) throws IOException {
+            if (window.remaining() >= bytes) {
+                return true;
+            }
+            if (remaining() < bytes) {
+                return false;
+            }
+            windowOffset += window.position();
+            if (window.capacity() < bytes) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(bytes, window.capacity() * 2));
+                bigger.put(window);
+                window = bigger;
+            } else {
+                window.compact();
+            }
+            long fileOffset = windowOffset + window.position();
+            int wanted = (int) Math.min(window.remaining(), end - fileOffset);
+            window.limit(window.position() + wanted);
+            while (window.hasRemaining()) {
+                int read = channel.read(window, fileOffset);
+                if (read < 0) {
+                    throw new IOException("File ended early");
+                }
+                fileOffset += read;
+            }
+            window.flip();
+            return true;
+        }
+    }
+
+    /**
+     * (Package private only for testing)
+     *
+     * @return the current size of the log file in bytes
+     */
+    long getLogBytes() {
+        return logBytes;
+    }
+
+}
@@ -0,0 +1,64 @@
+package palm.util.io;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link Codec} whose values all take the same number of bytes, so they
+ * can also be read and written at any offset in a buffer, as
+ * {@link palm.util.MappedDynamicArray} does.
+ *
+ * @param <T> the type of value
+ */
+public interface FixedWidthCodec<T> extends Codec<T> {
+
+    /**
+     * Get the number of bytes every value takes.
+     */
+    int width();
+
+    /**
+     * Write the value at the given offset, without moving the buffer's position.
+     *
+     * @param buffer the buffer to write to
+     * @param offset the offset to write at
+     * @param value the (non-null) value
+     */
+    void write(ByteBuffer buffer, int offset, T value);
+
+    /**
+     * Read a value from the given offset, without moving the buffer's position.
+     *
+     * @param buffer the buffer to read from
+     * @param offset the offset to read at
+     * @return the value
+     */
+    T read(ByteBuffer buffer, int offset);
+
+    @Override
+    default int sizeOf(T value) {
+        return width();
+    }
+
+    @Override
+    default void write(T value, ByteBuffer buffer) {
+        int position = buffer.position();
+        if (buffer.limit() - position < width()) {
+            throw new BufferOverflowException();
+        }
+        write(buffer, position, value);
+        buffer.position(position + width());
+    }
+
+    @Override
+    default T read(ByteBuffer buffer) {
+        int position = buffer.position();
+        if (buffer.limit() - position < width()) {
+            throw new BufferUnderflowException();
+        }
+        T value = read(buffer, position);
+        buffer.position(position + width());
+        return value;
+    }
+}
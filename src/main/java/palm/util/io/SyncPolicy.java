@@ -0,0 +1,84 @@
+package palm.util.io;
+
+/**
+ * When a {@link DurableDictionary} forces its log to the storage device.
+ * <p>
+ * Every write is handed to the OS before it returns, so a process crash
+ * never loses one. Each policy decides when the log is fsync'd, trading
+ * throughput against how many recent writes a machine crash (power loss
+ * or an OS failure) can lose.
+ */
+public final class SyncPolicy {
+
+    private static final SyncPolicy ALWAYS = new SyncPolicy(1, 0);
+    private static final SyncPolicy NEVER = new SyncPolicy(0, 0);
+
+    /**
+     * Sync after this many writes, or 0 to not count writes
+     */
+    final int everyWrites;
+
+    /**
+     * Sync once this many milliseconds have passed since the last one,
+     * or 0 to not check the time
+     */
+    final long everyMillis;
+
+    private SyncPolicy(int everyWrites, long everyMillis) {
+        this.everyWrites = everyWrites;
+        this.everyMillis = everyMillis;
+    }
+
+    /**
+     * Sync after every write. No acknowledged write is ever lost,
+     * but each write waits for the device.
+     */
+    public static SyncPolicy always() {
+        return ALWAYS;
+    }
+
+    /**
+     * Group commit: sync once for every batch of the given number of writes.
+     * A machine crash loses at most the last batch.
+     *
+     * @param writes the batch size
+     * @throws IllegalArgumentException if writes is not positive
+     */
+    public static SyncPolicy everyWrites(int writes) {
+        if (writes <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        return new SyncPolicy(writes, 0);
+    }
+
+    /**
+     * Sync on the first write after the given time has passed since the
+     * last sync. A machine crash loses at most that much time's worth of
+     * writes. The interval is measured with {@link System#nanoTime()}, so
+     * changes to the wall clock don't affect it.
+     * <p>
+     * There is no background timer, since the Dictionary is not
+     * thread-safe: the time is only checked when a write arrives. The last
+     * writes before an idle period stay unsynced until the next write, so
+     * call {@link DurableDictionary#flush()} when a burst of writes ends
+     * if those must be durable within the interval too.
+     *
+     * @param millis the interval in milliseconds
+     * @throws IllegalArgumentException if millis is not positive
+     */
+    public static SyncPolicy everyMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        return new SyncPolicy(0, millis);
+    }
+
+    /**
+     * Only sync on {@link DurableDictionary#flush()}, snapshots, and close.
+     * Writes are still handed to the OS as they are made, so this only
+     * loses data if the machine itself fails.
+     */
+    public static SyncPolicy never() {
+        return NEVER;
+    }
+}
@@ -0,0 +1,216 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class CircularArrayTest {
+
+    @Nested
+    class CapacityTest {
+        @Test
+        void capacity_initial() {
+            assertEquals(8, new CircularArray<Integer>().getCapacity());
+            assertEquals(32, new CircularArray<Integer>(20).getCapacity());
+        }
+
+        @Test
+        void capacity_grows_while_wrapped() {
+            CircularArray<Integer> arr = new CircularArray<>();
+            for (int i = 0; i < 4; i++) {
+                arr.addLast(i);
+                arr.addFirst(-i - 1);
+            }
+            assertEquals(8, arr.getCapacity());
+            arr.addFirst(-5);
+            assertEquals(16, arr.getCapacity());
+            for (int i = 0; i < arr.size(); i++) {
+                assertEquals(Integer.valueOf(i - 5), arr.get(i));
+            }
+        }
+    }
+
+    @Nested
+    class DequeTest {
+        CircularArray<String> arr;
+
+        @BeforeEach
+        void initArray() {
+            arr = CircularArray.of("Foo", "Bar");
+        }
+
+        @Test
+        void add_both_ends() {
+            arr.addFirst("First");
+            arr.addLast("Last");
+            assertEquals(4, arr.size());
+            assertEquals("First", arr.get(0));
+            assertEquals("Foo", arr.get(1));
+            assertEquals("Last", arr.get(-1));
+            assertEquals("Bar", arr.get(-2));
+        }
+
+        @Test
+        void remove_both_ends() {
+            assertEquals("Foo", arr.removeFirst());
+            assertEquals("Bar", arr.removeLast());
+            assertEquals(0, arr.size());
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                arr.removeFirst();
+            });
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                arr.removeLast();
+            });
+        }
+
+        @Test
+        void get_out_of_range() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                arr.get(2);
+            });
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                arr.get(-3);
+            });
+        }
+
+        @Test
+        void set_and_indexOf() {
+            assertEquals("Bar", arr.set(-1, "Baz"));
+            assertEquals(1, arr.indexOf("Baz"));
+            assertEquals(-1, arr.indexOf("Bar"));
+        }
+
+        @Test
+        void queue_wraps_without_growing() {
+            for (int i = 0; i < 1000; i++) {
+                arr.addLast("x" + i);
+                arr.removeFirst();
+            }
+            assertEquals(8, arr.getCapacity());
+            assertEquals("x998", arr.get(0));
+            assertEquals("x999", arr.get(1));
+        }
+
+        @Test
+        void clear_test() {
+            arr.clear();
+            assertEquals(0, arr.size());
+            assertFalse(arr.iterator().hasNext());
+        }
+    }
+
+    /**
+     * Starts with the ring wrapped past the end of its array, so every
+     * shift has to cross the boundary.
+     */
+    @Nested
+    class WrapTest {
+        CircularArray<Integer> arr;
+
+        @BeforeEach
+        void initArray() {
+            arr = CircularArray.of(0, 1, 2, 3);
+            arr.addFirst(-1);
+            arr.addFirst(-2);
+            arr.addFirst(-3);
+        }
+
+        void assertItems(int... expected) {
+            assertEquals(expected.length, arr.size());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(Integer.valueOf(expected[i]), arr.get(i));
+            }
+            int i = 0;
+            for (Integer value : arr) {
+                assertEquals(Integer.valueOf(expected[i++]), value);
+            }
+        }
+
+        @Test
+        void insert_shifts_front_across_boundary() {
+            arr.insert(10, 2);
+            assertItems(-3, -2, 10, -1, 0, 1, 2, 3);
+            assertEquals(8, arr.getCapacity());
+        }
+
+        @Test
+        void insert_shifts_back_across_boundary() {
+            arr.insert(10, 5);
+            assertItems(-3, -2, -1, 0, 1, 10, 2, 3);
+            assertEquals(8, arr.getCapacity());
+        }
+
+        @Test
+        void insert_when_full_unrolls() {
+            arr.addLast(4);
+            arr.insert(10, 1);
+            assertEquals(16, arr.getCapacity());
+            assertItems(-3, 10, -2, -1, 0, 1, 2, 3, 4);
+        }
+
+        @Test
+        void remove_shifts_front_across_boundary() {
+            assertEquals(Integer.valueOf(-1), arr.remove(2));
+            assertItems(-3, -2, 0, 1, 2, 3);
+            assertEquals(Integer.valueOf(-3), arr.removeFirst());
+            assertItems(-2, 0, 1, 2, 3);
+        }
+
+        @Test
+        void remove_shifts_back_across_boundary() {
+            assertEquals(Integer.valueOf(1), arr.remove(-3));
+            assertItems(-3, -2, -1, 0, 2, 3);
+            assertEquals(Integer.valueOf(3), arr.removeLast());
+            assertItems(-3, -2, -1, 0, 2);
+        }
+
+        @Test
+        void stream_wrapped() {
+            assertEquals(0, arr.stream().mapToInt(i -> i).sum());
+            assertEquals(7, arr.parallelStream().count());
+        }
+    }
+
+    @Nested
+    class ModelTest {
+        @Test
+        void random_operations_match_array_list() {
+            Random random = new Random(3);
+            List<Integer> expected = new ArrayList<>();
+            CircularArray<Integer> arr = new CircularArray<>();
+            for (int step = 0; step < 20000; step++) {
+                int op = random.nextInt(8);
+                if (op == 0 || expected.isEmpty()) {
+                    expected.add(0, step);
+                    arr.addFirst(step);
+                } else if (op == 1) {
+                    expected.add(step);
+                    arr.addLast(step);
+                } else if (op == 2) {
+                    int index = random.nextInt(expected.size() + 1);
+                    expected.add(index, step);
+                    arr.insert(step, index);
+                } else if (op == 3) {
+                    assertEquals(expected.remove(0), arr.removeFirst());
+                } else if (op == 4) {
+                    assertEquals(expected.remove(expected.size() - 1), arr.removeLast());
+                } else if (op == 5) {
+                    int index = random.nextInt(expected.size());
+                    assertEquals(expected.remove(index), arr.remove(index - expected.size() - 1));
+                } else {
+                    int index = random.nextInt(expected.size());
+                    assertEquals(expected.get(index), arr.get(index));
+                }
+            }
+            assertEquals(expected.size(), arr.size());
+            int i = 0;
+            for (Integer value : arr) {
+                assertEquals(expected.get(i++), value);
+            }
+            assertEquals(expected.size(), arr.stream().count());
+        }
+    }
+}
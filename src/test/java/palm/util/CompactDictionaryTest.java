@@ -0,0 +1,414 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static palm.util.Dictionary.Entry;
+
+class CompactDictionaryTest {
+
+    /**
+     * Key with a fixed hashcode, to force every key down the same probe path.
+     */
+    static class Colliding {
+        final int id;
+
+        Colliding(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Colliding && ((Colliding) obj).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+
+    @Nested
+    class FactoryTest {
+        @Test
+        void dict_of_nothing() {
+            assertEquals(0, CompactDictionary.of().size());
+        }
+
+        @Test
+        void dict_of_items() {
+            assertEquals(2, CompactDictionary.of(
+                Entry.of("Foo", "Bar"),
+                Entry.of("Hello", "World")
+            ).size());
+        }
+
+        @Test
+        void negative_size() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                new CompactDictionary<String, String>(-1);
+            });
+        }
+    }
+
+    @Nested
+    class GetSetTest {
+        CompactDictionary<Integer, String> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = CompactDictionary.of(
+                Entry.of(4, "Foo"),
+                Entry.of(13, "Hello")
+            );
+        }
+
+        @Test
+        void get_existing_key() {
+            assertEquals("Hello", dict.get(13));
+            assertEquals("Foo", dict.get(4));
+        }
+
+        @Test
+        void get_non_existing_key() {
+            assertNull(dict.get(100));
+        }
+
+        @Test
+        void add_same_key() {
+            dict.add(Entry.of(4, "Bar"));
+            assertEquals(2, dict.size());
+            assertEquals("Bar", dict.get(4));
+        }
+
+        @Test
+        void set_new_key() {
+            dict.set(5, "Bar");
+            assertEquals(3, dict.size());
+            assertEquals("Bar", dict.get(5));
+        }
+
+        @Test
+        void set_null_key() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                dict.set(null, "Bar");
+            });
+        }
+
+        @Test
+        void get_null_key() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                dict.get(null);
+            });
+        }
+
+        @Test
+        void containsKey() {
+            assertTrue(dict.containsKey(4));
+            assertFalse(dict.containsKey(5));
+        }
+    }
+
+    @Nested
+    class RemoveTest {
+        CompactDictionary<String, String> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = CompactDictionary.of(
+                Entry.of("Foo", "Bar"),
+                Entry.of("Hello", "World")
+            );
+        }
+
+        @Test
+        void remove_non_existing_key() {
+            assertNull(dict.remove("Something"));
+            assertEquals(2, dict.size());
+        }
+
+        @Test
+        void remove_existing_key() {
+            assertEquals("Bar", dict.remove("Foo"));
+            assertEquals(1, dict.size());
+            assertNull(dict.get("Foo"));
+            assertEquals("World", dict.get("Hello"));
+        }
+
+        @Test
+        void remove_null_key() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                dict.remove(null);
+            });
+        }
+
+        @Test
+        void clear_test() {
+            dict.clear();
+            assertEquals(0, dict.size());
+            assertFalse(dict.containsKey("Hello"));
+            dict.set("Hello", "Again");
+            assertEquals("Again", dict.get("Hello"));
+        }
+    }
+
+    @Nested
+    class OrderTest {
+        CompactDictionary<String, Integer> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = CompactDictionary.of(
+                Entry.of("c", 1),
+                Entry.of("a", 2),
+                Entry.of("b", 3)
+            );
+        }
+
+        @Test
+        void iterates_in_insertion_order() {
+            List<String> keys = new ArrayList<>();
+            for (Entry<String, Integer> entry : dict) {
+                keys.add(entry.key());
+            }
+            assertEquals(Arrays.asList("c", "a", "b"), keys);
+        }
+
+        @Test
+        void set_existing_key_keeps_place() {
+            dict.set("c", 10);
+            assertEquals("cab", dict.stream().map(Entry::key).collect(Collectors.joining()));
+            assertEquals(Integer.valueOf(10), dict.get("c"));
+        }
+
+        @Test
+        void removed_key_goes_to_end_when_added_again() {
+            dict.remove("c");
+            assertEquals("ab", dict.stream().map(Entry::key).collect(Collectors.joining()));
+            dict.set("c", 1);
+            assertEquals("abc", dict.stream().map(Entry::key).collect(Collectors.joining()));
+        }
+
+        @Test
+        void stream_in_order() {
+            assertEquals("cab", dict.stream().map(Entry::key).collect(Collectors.joining()));
+        }
+
+        @Test
+        void iterator_skips_holes() {
+            dict.remove("c");
+            dict.remove("b");
+            Iterator<Entry<String, Integer>> it = dict.iterator();
+            assertTrue(it.hasNext());
+            assertEquals("a", it.next().key());
+            assertFalse(it.hasNext());
+            assertThrows(NoSuchElementException.class, it::next);
+        }
+
+        @Test
+        void iterate_empty() {
+            dict.clear();
+            assertFalse(dict.iterator().hasNext());
+            assertEquals(0, dict.stream().count());
+        }
+    }
+
+    /**
+     * The index table holds entry positions in bytes up to 84 entries (a
+     * 128 slot table), and in shorts up to 21844 (a 32768 slot table).
+     * These cases cross those points, where the entries are rebuilt into
+     * a wider or narrower index.
+     */
+    @Nested
+    class LayoutTest {
+        CompactDictionary<Integer, Integer> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = new CompactDictionary<>();
+        }
+
+        void assertKeys(int from, int to) {
+            assertEquals(to - from, dict.size());
+            int expected = from;
+            for (Entry<Integer, Integer> entry : dict) {
+                assertEquals(Integer.valueOf(expected), entry.key());
+                assertEquals(Integer.valueOf(-expected), entry.value());
+                expected++;
+            }
+            assertEquals(to, expected);
+            for (int i = from; i < to; i++) {
+                assertEquals(Integer.valueOf(-i), dict.get(i));
+            }
+        }
+
+        @Test
+        void byte_index_widens_to_short() {
+            for (int i = 0; i < 84; i++) {
+                dict.set(i, -i);
+            }
+            assertEquals(1, dict.getIndexWidth());
+            assertEquals(128, dict.getTableSize());
+            dict.set(84, -84);
+            assertEquals(2, dict.getIndexWidth());
+            assertEquals(256, dict.getTableSize());
+            assertKeys(0, 85);
+        }
+
+        @Test
+        void short_index_widens_to_int() {
+            for (int i = 0; i < 21844; i++) {
+                dict.set(i, -i);
+            }
+            assertEquals(2, dict.getIndexWidth());
+            assertEquals(32768, dict.getTableSize());
+            dict.set(21844, -21844);
+            assertEquals(4, dict.getIndexWidth());
+            assertEquals(65536, dict.getTableSize());
+            assertKeys(0, 21845);
+        }
+
+        @Test
+        void probes_pass_deleted_slots() {
+            // many keys share their low bits, so their probe paths cross removed slots
+            for (int i = 0; i < 84; i++) {
+                dict.set(i << 7, i);
+            }
+            for (int i = 0; i < 84; i += 2) {
+                assertEquals(Integer.valueOf(i), dict.remove(i << 7));
+            }
+            for (int i = 0; i < 84; i++) {
+                assertEquals(i % 2 == 1, dict.containsKey(i << 7));
+            }
+            assertEquals(1, dict.getIndexWidth());
+        }
+
+        @Test
+        void rebuild_drops_holes_before_widening() {
+            for (int i = 0; i < 84; i++) {
+                dict.set(i, -i);
+            }
+            for (int i = 1; i < 84; i += 2) {
+                dict.remove(i);
+            }
+            // the entry arrays are full, but half of it is holes
+            dict.set(84, -84);
+            assertEquals(1, dict.getIndexWidth());
+            assertEquals(128, dict.getTableSize());
+            assertEquals(43, dict.size());
+            int expected = 0;
+            for (Entry<Integer, Integer> entry : dict) {
+                assertEquals(Integer.valueOf(expected), entry.key());
+                expected += 2;
+            }
+            assertEquals(86, expected);
+            assertNull(dict.get(1));
+        }
+
+        @Test
+        void rebuild_narrows_index() {
+            for (int i = 0; i < 85; i++) {
+                dict.set(i, -i);
+            }
+            assertEquals(2, dict.getIndexWidth());
+            for (int i = 0; i < 80; i++) {
+                dict.remove(i);
+            }
+            for (int i = 85; i < 200; i++) {
+                dict.set(i, -i);
+                dict.remove(i);
+            }
+            assertEquals(1, dict.getIndexWidth());
+            assertEquals(16, dict.getTableSize());
+            assertKeys(80, 85);
+        }
+
+        @Test
+        void presized_width() {
+            assertEquals(1, new CompactDictionary<Integer, Integer>(84).getIndexWidth());
+            assertEquals(2, new CompactDictionary<Integer, Integer>(85).getIndexWidth());
+            assertEquals(2, new CompactDictionary<Integer, Integer>(21844).getIndexWidth());
+            assertEquals(4, new CompactDictionary<Integer, Integer>(21845).getIndexWidth());
+        }
+
+        @Test
+        void presized() {
+            CompactDictionary<Integer, Integer> dict = new CompactDictionary<>(1000);
+            int tableSize = dict.getTableSize();
+            for (int i = 0; i < 1000; i++) {
+                dict.set(i, i);
+            }
+            assertEquals(tableSize, dict.getTableSize());
+        }
+
+        @Test
+        void churn_reclaims_holes() {
+            CompactDictionary<Integer, Integer> dict = new CompactDictionary<>();
+            for (int i = 0; i < 100000; i++) {
+                dict.set(i, i);
+                dict.remove(i - 5);
+            }
+            assertEquals(5, dict.size());
+            assertTrue(dict.getTableSize() <= 32);
+            int expected = 99995;
+            for (Entry<Integer, Integer> entry : dict) {
+                assertEquals(Integer.valueOf(expected++), entry.key());
+            }
+            assertEquals(100000, expected);
+        }
+
+        @Test
+        void colliding_keys() {
+            CompactDictionary<Colliding, Integer> dict = new CompactDictionary<>();
+            for (int i = 0; i < 100; i++) {
+                dict.set(new Colliding(i), i);
+            }
+            for (int i = 0; i < 100; i += 3) {
+                dict.remove(new Colliding(i));
+            }
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i % 3 != 0, dict.containsKey(new Colliding(i)));
+            }
+            dict.set(new Colliding(0), 0);
+            assertEquals(Integer.valueOf(0), dict.get(new Colliding(0)));
+        }
+    }
+
+    @Nested
+    class ModelTest {
+        @Test
+        void matches_linked_hash_map() {
+            Random random = new Random(24);
+            CompactDictionary<Integer, Integer> dict = new CompactDictionary<>();
+            Map<Integer, Integer> model = new LinkedHashMap<>();
+            for (int step = 0; step < 50000; step++) {
+                int key = random.nextInt(2000);
+                if (random.nextInt(3) == 0) {
+                    assertEquals(model.remove(key), dict.remove(key));
+                } else {
+                    assertEquals(model.containsKey(key), dict.containsKey(key));
+                    model.put(key, step);
+                    dict.set(key, step);
+                }
+                assertEquals(model.size(), dict.size());
+            }
+            Iterator<Map.Entry<Integer, Integer>> it = model.entrySet().iterator();
+            for (Entry<Integer, Integer> entry : dict) {
+                Map.Entry<Integer, Integer> next = it.next();
+                assertEquals(next.getKey(), entry.key());
+                assertEquals(next.getValue(), entry.value());
+            }
+            assertFalse(it.hasNext());
+        }
+    }
+}
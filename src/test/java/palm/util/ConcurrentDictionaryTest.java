@@ -0,0 +1,263 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static palm.util.Dictionary.Entry;
+
+class ConcurrentDictionaryTest {
+
+    static final int THREADS = 8;
+
+    /**
+     * Run the given task on several threads, all released at once,
+     * and rethrow the first failure.
+     */
+    static void runConcurrently(int threads, IntTask task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Throwable[] failure = new Throwable[1];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(id);
+                } catch (Throwable e) {
+                    synchronized (failure) {
+                        if (failure[0] == null) failure[0] = e;
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure[0] != null) {
+            throw new AssertionError(failure[0]);
+        }
+    }
+
+    interface IntTask {
+        void run(int id) throws Exception;
+    }
+
+    @Nested
+    class GetSetTest {
+        ConcurrentDictionary<Integer, String> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = ConcurrentDictionary.of(
+                Entry.of(4, "Foo"),
+                Entry.of(13, "Hello")
+            );
+        }
+
+        @Test
+        void get_existing_key() {
+            assertEquals("Hello", dict.get(13));
+            assertEquals("Foo", dict.get(4));
+            assertNull(dict.get(100));
+        }
+
+        @Test
+        void set_same_key() {
+            dict.set(4, "Bar");
+            assertEquals(2, dict.size());
+            assertEquals("Bar", dict.get(4));
+        }
+
+        @Test
+        void setIfAbsent() {
+            assertEquals("Foo", dict.setIfAbsent(4, "Bar"));
+            assertEquals("Foo", dict.get(4));
+            assertNull(dict.setIfAbsent(5, "Bar"));
+            assertEquals("Bar", dict.get(5));
+        }
+
+        @Test
+        void remove_key() {
+            assertEquals("Foo", dict.remove(4));
+            assertNull(dict.remove(4));
+            assertEquals(1, dict.size());
+            assertFalse(dict.containsKey(4));
+        }
+
+        @Test
+        void clear_test() {
+            dict.clear();
+            assertEquals(0, dict.size());
+            assertFalse(dict.containsKey(13));
+        }
+
+        @Test
+        void many_keys_grow() {
+            for (int i = 0; i < 10000; i++) {
+                dict.set(i, "v" + i);
+            }
+            assertEquals(10000, dict.size());
+            assertTrue(dict.getCapacity() >= 10000);
+            int count = 0;
+            for (Entry<Integer, String> entry : dict) {
+                assertEquals("v" + entry.key(), entry.value());
+                count++;
+            }
+            assertEquals(10000, count);
+        }
+    }
+
+    @Nested
+    class StressTest {
+        @Test
+        void disjoint_writers_all_visible() throws InterruptedException {
+            ConcurrentDictionary<Integer, Integer> dict = new ConcurrentDictionary<>();
+            int perThread = 20000;
+            runConcurrently(THREADS, id -> {
+                for (int i = 0; i < perThread; i++) {
+                    int key = id * perThread + i;
+                    dict.set(key, key);
+                    assertEquals(Integer.valueOf(key), dict.get(key));
+                }
+            });
+            assertEquals(THREADS * perThread, dict.size());
+            for (int key = 0; key < THREADS * perThread; key++) {
+                assertEquals(Integer.valueOf(key), dict.get(key));
+            }
+        }
+
+        @Test
+        void readers_never_miss_during_resize() throws InterruptedException {
+            ConcurrentDictionary<Integer, Integer> dict = new ConcurrentDictionary<>();
+            int stable = 1000;
+            for (int i = 0; i < stable; i++) {
+                dict.set(-i - 1, i);
+            }
+            AtomicBoolean done = new AtomicBoolean();
+            runConcurrently(THREADS, id -> {
+                if (id == 0) {
+                    // keep inserting to force many resizes
+                    for (int i = 0; i < 200000; i++) {
+                        dict.set(i, i);
+                    }
+                    done.set(true);
+                } else {
+                    while (!done.get()) {
+                        for (int i = 0; i < stable; i++) {
+                            assertEquals(Integer.valueOf(i), dict.get(-i - 1));
+                        }
+                    }
+                }
+            });
+        }
+
+        @Test
+        void setIfAbsent_single_winner() throws InterruptedException {
+            ConcurrentDictionary<Integer, Integer> dict = new ConcurrentDictionary<>();
+            int keys = 5000;
+            AtomicInteger wins = new AtomicInteger();
+            runConcurrently(THREADS, id -> {
+                for (int key = 0; key < keys; key++) {
+                    if (dict.setIfAbsent(key, id) == null) {
+                        wins.incrementAndGet();
+                    }
+                }
+            });
+            assertEquals(keys, wins.get());
+            assertEquals(keys, dict.size());
+        }
+
+        @Test
+        void concurrent_set_remove_consistent_size() throws InterruptedException {
+            ConcurrentDictionary<Integer, Integer> dict = new ConcurrentDictionary<>();
+            runConcurrently(THREADS, id -> {
+                for (int round = 0; round < 10; round++) {
+                    for (int i = 0; i < 2000; i++) {
+                        dict.set(id * 100000 + i, i);
+                    }
+                    for (int i = 0; i < 2000; i += 2) {
+                        assertEquals(Integer.valueOf(i), dict.remove(id * 100000 + i));
+                    }
+                    for (int i = 1; i < 2000; i += 2) {
+                        dict.remove(id * 100000 + i);
+                    }
+                }
+            });
+            assertEquals(0, dict.size());
+            assertFalse(dict.iterator().hasNext());
+        }
+
+        @Test
+        void reads_never_go_backwards() throws InterruptedException {
+            // each writer owns one key and only ever raises its value, so a
+            // linearizable reader can never see a key's value decrease, even
+            // while the grower forces resizes underneath
+            ConcurrentDictionary<Integer, Integer> dict = new ConcurrentDictionary<>();
+            int writers = 4;
+            int rounds = 20000;
+            AtomicInteger finished = new AtomicInteger();
+            runConcurrently(THREADS, id -> {
+                if (id < writers) {
+                    for (int i = 0; i < rounds; i++) {
+                        dict.set(id, i);
+                        if (i % 3 == 0) {
+                            dict.remove(id);
+                        }
+                    }
+                    dict.set(id, rounds);
+                    finished.incrementAndGet();
+                } else if (id == writers) {
+                    for (int i = 0; i < 100000; i++) {
+                        dict.set(writers + i, i);
+                    }
+                } else {
+                    int[] last = new int[writers];
+                    while (finished.get() < writers) {
+                        for (int key = 0; key < writers; key++) {
+                            Integer value = dict.get(key);
+                            if (value != null) {
+                                assertTrue(value >= last[key], "key " + key + " went backwards");
+                                last[key] = value;
+                            }
+                        }
+                    }
+                    for (int key = 0; key < writers; key++) {
+                        assertEquals(Integer.valueOf(rounds), dict.get(key));
+                    }
+                }
+            });
+        }
+
+        @Test
+        void iterate_while_writing() throws InterruptedException {
+            ConcurrentDictionary<Integer, Integer> dict = new ConcurrentDictionary<>();
+            int stable = 500;
+            for (int i = 0; i < stable; i++) {
+                dict.set(-i - 1, i);
+            }
+            AtomicBoolean done = new AtomicBoolean();
+            runConcurrently(2, id -> {
+                if (id == 0) {
+                    for (int i = 0; i < 100000; i++) {
+                        dict.set(i, i);
+                    }
+                    done.set(true);
+                } else {
+                    while (!done.get()) {
+                        int seen = 0;
+                        for (Entry<Integer, Integer> entry : dict) {
+                            if (entry.key() < 0) seen++;
+                        }
+                        assertEquals(stable, seen);
+                    }
+                }
+            });
+        }
+    }
+}
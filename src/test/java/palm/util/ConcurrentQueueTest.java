@@ -0,0 +1,171 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+class ConcurrentQueueTest {
+
+    @Nested
+    class FactoryTest {
+        @Test
+        void queue_of_nothing() {
+            assertEquals(0, ConcurrentQueue.of().size());
+            assertTrue(ConcurrentQueue.of().isEmpty());
+        }
+
+        @Test
+        void queue_of_items() {
+            assertEquals(2, ConcurrentQueue.of("Foo", "Bar").size());
+        }
+    }
+
+    @Nested
+    class OfferPollTest {
+        ConcurrentQueue<String> queue;
+
+        @BeforeEach
+        void initQueue() {
+            queue = ConcurrentQueue.of("Foo", "Bar");
+        }
+
+        @Test
+        void poll_in_order() {
+            assertEquals("Foo", queue.poll());
+            assertEquals("Bar", queue.poll());
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+
+        @Test
+        void peek_does_not_remove() {
+            assertEquals("Foo", queue.peek());
+            assertEquals("Foo", queue.peek());
+            assertEquals(2, queue.size());
+        }
+
+        @Test
+        void peek_empty() {
+            queue.poll();
+            queue.poll();
+            assertNull(queue.peek());
+        }
+
+        @Test
+        void offer_after_empty() {
+            queue.poll();
+            queue.poll();
+            assertTrue(queue.offer("Hi"));
+            assertEquals("Hi", queue.peek());
+            assertEquals(1, queue.size());
+        }
+
+        @Test
+        void offer_null() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                queue.offer(null);
+            });
+        }
+
+        @Test
+        void iterate() {
+            queue.offer("Hi");
+            queue.poll();
+            StringBuilder sb = new StringBuilder();
+            for (String item : queue) {
+                sb.append(item);
+            }
+            assertEquals("BarHi", sb.toString());
+        }
+    }
+
+    @Nested
+    class BoundedTest {
+        @Test
+        void capacity_invalid() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                new ConcurrentQueue<String>(0);
+            });
+        }
+
+        @Test
+        void offer_when_full() {
+            ConcurrentQueue<String> queue = new ConcurrentQueue<>(2);
+            assertEquals(2, queue.capacity());
+            assertTrue(queue.offer("Foo"));
+            assertTrue(queue.offer("Bar"));
+            assertFalse(queue.offer("Hi"));
+            assertEquals(2, queue.size());
+
+            assertEquals("Foo", queue.poll());
+            assertTrue(queue.offer("Hi"));
+            assertEquals(2, queue.size());
+        }
+
+        @Test
+        void unbounded_capacity() {
+            assertEquals(-1, new ConcurrentQueue<String>().capacity());
+        }
+    }
+
+    @Nested
+    class StressTest {
+        static final int PRODUCERS = 4;
+        static final int CONSUMERS = 4;
+        static final int PER_PRODUCER = 50000;
+
+        void producersAndConsumers(ConcurrentQueue<Integer> queue) throws InterruptedException {
+            int total = PRODUCERS * PER_PRODUCER;
+            AtomicIntegerArray seen = new AtomicIntegerArray(total);
+            AtomicInteger consumed = new AtomicInteger();
+
+            ConcurrentDictionaryTest.runConcurrently(PRODUCERS + CONSUMERS, id -> {
+                if (id < PRODUCERS) {
+                    for (int i = 0; i < PER_PRODUCER; i++) {
+                        int item = id * PER_PRODUCER + i;
+                        while (!queue.offer(item)) {
+                            Thread.yield();
+                        }
+                    }
+                } else {
+                    int[] lastSeen = new int[PRODUCERS];
+                    Arrays.fill(lastSeen, -1);
+                    while (consumed.get() < total) {
+                        Integer item = queue.poll();
+                        if (item == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        consumed.incrementAndGet();
+                        assertEquals(0, seen.getAndIncrement(item), "Item consumed twice");
+
+                        // items from one producer come out in the order they went in
+                        int producer = item / PER_PRODUCER;
+                        assertTrue(item > lastSeen[producer]);
+                        lastSeen[producer] = item;
+                    }
+                }
+            });
+
+            for (int i = 0; i < total; i++) {
+                assertEquals(1, seen.get(i));
+            }
+            assertTrue(queue.isEmpty());
+        }
+
+        @Test
+        void unbounded_mpmc() throws InterruptedException {
+            producersAndConsumers(new ConcurrentQueue<>());
+        }
+
+        @Test
+        void bounded_mpmc() throws InterruptedException {
+            ConcurrentQueue<Integer> queue = new ConcurrentQueue<>(64);
+            producersAndConsumers(queue);
+            assertEquals(0, queue.size());
+        }
+    }
+}
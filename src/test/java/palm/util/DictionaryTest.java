@@ -162,4 +162,434 @@ class DictionaryTest {
             assertNull(dict.get("Foo"));
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    class GrowthTest {
+        Dictionary<Integer, String> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = new Dictionary<>();
+        }
+
+        @Test
+        void capacity_initial() {
+            assertEquals(16, dict.getCapacity());
+        }
+
+        @Test
+        void capacity_presized() {
+            assertEquals(16, new Dictionary<>(12).getCapacity());
+            assertEquals(2048, new Dictionary<>(1000).getCapacity());
+        }
+
+        @Test
+        void capacity_negative() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                new Dictionary<>(-1);
+            });
+        }
+
+        @Test
+        void capacity_grows() {
+            for (int i = 0; i < 13; i++) {
+                dict.set(i, "v" + i);
+            }
+            assertEquals(32, dict.getCapacity());
+            assertTrue(dict.isMigrating());
+        }
+
+        @Test
+        void get_during_migration() {
+            for (int i = 0; i < 13; i++) {
+                dict.set(i, "v" + i);
+            }
+            assertTrue(dict.isMigrating());
+            for (int i = 0; i < 13; i++) {
+                assertEquals("v" + i, dict.get(i));
+            }
+        }
+
+        @Test
+        void remove_during_migration() {
+            for (int i = 0; i < 13; i++) {
+                dict.set(i, "v" + i);
+            }
+            assertEquals("v12", dict.remove(12));
+            assertEquals("v0", dict.remove(0));
+            assertEquals(11, dict.size());
+            assertNull(dict.get(12));
+            assertNull(dict.get(0));
+        }
+
+        @Test
+        void iterate_during_migration() {
+            for (int i = 0; i < 13; i++) {
+                dict.set(i, "v" + i);
+            }
+            assertTrue(dict.isMigrating());
+            int count = 0;
+            for (Entry<Integer, String> entry : dict) {
+                assertEquals("v" + entry.key(), entry.value());
+                count++;
+            }
+            assertEquals(13, count);
+        }
+
+        @Test
+        void many_keys() {
+            for (int i = -5000; i < 5000; i++) {
+                dict.set(i, "v" + i);
+            }
+            assertEquals(10000, dict.size());
+            for (int i = -5000; i < 5000; i++) {
+                assertEquals("v" + i, dict.get(i));
+            }
+            for (int i = -5000; i < 5000; i += 2) {
+                dict.remove(i);
+            }
+            assertEquals(5000, dict.size());
+            assertFalse(dict.containsKey(-5000));
+            assertTrue(dict.containsKey(-4999));
+        }
+
+        @Test
+        void clear_restores_capacity() {
+            for (int i = 0; i < 100; i++) {
+                dict.set(i, "v" + i);
+            }
+            dict.clear();
+            assertEquals(16, dict.getCapacity());
+            assertFalse(dict.isMigrating());
+        }
+    }
+
+    @Nested
+    class StreamTest {
+        Dictionary<Integer, Integer> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = new Dictionary<>();
+            for (int i = 1; i <= 10000; i++) {
+                dict.set(i, i);
+            }
+        }
+
+        @Test
+        void stream_count() {
+            assertEquals(10000, dict.stream().count());
+        }
+
+        @Test
+        void parallel_stream_sum() {
+            assertEquals(50005000L, dict.parallelStream().mapToLong(Entry::value).sum());
+        }
+
+        @Test
+        void parallel_stream_during_migration() {
+            dict = new Dictionary<>();
+            for (int i = 1; i <= 13; i++) {
+                dict.set(i, i);
+            }
+            assertTrue(dict.isMigrating());
+            assertEquals(91L, dict.parallelStream().mapToLong(Entry::value).sum());
+        }
+
+        @Test
+        void spliterator_sized_until_split() {
+            java.util.Spliterator<Entry<Integer, Integer>> rest = dict.spliterator();
+            assertEquals(10000, rest.getExactSizeIfKnown());
+            assertNotNull(rest.trySplit());
+            assertEquals(-1, rest.getExactSizeIfKnown());
+        }
+    }
+
+    @Nested
+    class BulkTest {
+        @Test
+        void putAll_presizes() {
+            Dictionary<Integer, Integer> source = new Dictionary<>();
+            for (int i = 0; i < 1000; i++) {
+                source.set(i, i * 2);
+            }
+            Dictionary<Integer, Integer> dict = Dictionary.of(Entry.of(-1, -1), Entry.of(5, 0));
+            dict.putAll(source);
+            assertEquals(1001, dict.size());
+            assertEquals(2048, dict.getCapacity());
+            assertFalse(dict.isMigrating());
+            assertEquals(Integer.valueOf(10), dict.get(5));
+            assertEquals(Integer.valueOf(-1), dict.get(-1));
+        }
+
+        @Test
+        void removeIf_during_migration() {
+            Dictionary<Integer, Integer> dict = new Dictionary<>();
+            for (int i = 0; i < 13; i++) {
+                dict.set(i, i);
+            }
+            assertTrue(dict.isMigrating());
+            assertTrue(dict.removeIf(e -> e.value() % 2 == 0));
+            assertEquals(6, dict.size());
+            int count = 0;
+            for (Entry<Integer, Integer> entry : dict) {
+                assertEquals(1, entry.value() % 2);
+                count++;
+            }
+            assertEquals(6, count);
+            assertFalse(dict.removeIf(e -> e.value() % 2 == 0));
+        }
+    }
+
+    /**
+     * A key whose hashcode only has a few distinct values.
+     */
+    static class CollidingKey {
+        final int id;
+
+        CollidingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CollidingKey && ((CollidingKey) obj).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 3;
+        }
+    }
+
+    static class ComparableCollidingKey extends CollidingKey implements Comparable<ComparableCollidingKey> {
+        ComparableCollidingKey(int id) {
+            super(id);
+        }
+
+        @Override
+        public int compareTo(ComparableCollidingKey other) {
+            return Integer.compare(id, other.id);
+        }
+    }
+
+    @Nested
+    class CollisionTest {
+        void checkCollisions(java.util.function.IntFunction<CollidingKey> keyFor) {
+            Dictionary<CollidingKey, Integer> dict = new Dictionary<>();
+            for (int i = 0; i < 2000; i++) {
+                dict.set(keyFor.apply(i), i);
+            }
+            assertEquals(2000, dict.size());
+            assertEquals(3, dict.getTreeBinCount());
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(Integer.valueOf(i), dict.get(keyFor.apply(i)));
+            }
+            assertNull(dict.get(keyFor.apply(5000)));
+
+            for (int i = 0; i < 2000; i += 2) {
+                assertEquals(Integer.valueOf(i), dict.remove(keyFor.apply(i)));
+            }
+            assertEquals(1000, dict.size());
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), dict.get(keyFor.apply(i)));
+            }
+            int count = 0;
+            for (Entry<CollidingKey, Integer> entry : dict) {
+                assertEquals(entry.key().id, entry.value().intValue());
+                count++;
+            }
+            assertEquals(1000, count);
+
+            for (int i = 1; i < 1990; i += 2) {
+                dict.remove(keyFor.apply(i));
+            }
+            assertEquals(5, dict.size());
+            assertEquals(0, dict.getTreeBinCount());
+            assertEquals(Integer.valueOf(1999), dict.get(keyFor.apply(1999)));
+        }
+
+        @Test
+        void comparable_keys_treeify() {
+            checkCollisions(ComparableCollidingKey::new);
+        }
+
+        @Test
+        void non_comparable_keys_treeify() {
+            checkCollisions(CollidingKey::new);
+        }
+
+        @Test
+        void removeIf_in_tree_bins() {
+            Dictionary<CollidingKey, Integer> dict = new Dictionary<>();
+            for (int i = 0; i < 300; i++) {
+                dict.set(new ComparableCollidingKey(i), i);
+            }
+            assertTrue(dict.removeIf(e -> e.value() >= 10));
+            assertEquals(10, dict.size());
+            assertEquals(0, dict.getTreeBinCount());
+            assertEquals(Integer.valueOf(9), dict.get(new ComparableCollidingKey(9)));
+        }
+
+        @Test
+        void tree_bin_height_stays_logarithmic() {
+            TreeBin<Integer, Integer> bin = new TreeBin<>();
+            for (int i = 0; i < 10000; i++) {
+                bin.add(Entry.of(i, i));
+            }
+            assertTrue(bin.getHeight() <= 20);
+            for (int i = 0; i < 10000; i += 3) {
+                assertEquals(Integer.valueOf(i), bin.remove(i).value());
+            }
+            assertNull(bin.find(3));
+            assertEquals(Integer.valueOf(4), bin.find(4).value());
+        }
+    }
+
+    @Nested
+    class StatsTest {
+        @Test
+        void stats_shape() {
+            Dictionary<Integer, Integer> dict = new Dictionary<>();
+            for (int i = 0; i < 12; i++) {
+                dict.set(i, i);
+            }
+            DictionaryStats stats = dict.stats();
+            assertEquals(12, stats.size());
+            assertEquals(16, stats.capacity());
+            assertEquals(0.75, stats.loadFactor(), 1e-9);
+            assertEquals(4, stats.emptyBuckets());
+            assertEquals(1, stats.maxChainLength());
+            assertArrayEquals(new int[] {4, 12}, stats.chainLengthHistogram());
+            assertFalse(stats.isMigrating());
+        }
+
+        @Test
+        void stats_during_migration_counts_both_tables() {
+            Dictionary<Integer, Integer> dict = new Dictionary<>();
+            for (int i = 0; i < 13; i++) {
+                dict.set(i, i);
+            }
+            DictionaryStats stats = dict.stats();
+            assertTrue(stats.isMigrating());
+            int entries = 0;
+            int[] histogram = stats.chainLengthHistogram();
+            for (int length = 0; length < histogram.length; length++) {
+                entries += length * histogram[length];
+            }
+            assertEquals(13, entries);
+        }
+
+        @Test
+        void stats_counters() {
+            Assumptions.assumeTrue(Instrumentation.ENABLED);
+            Dictionary<CollidingKey, Integer> dict = new Dictionary<>();
+            for (int i = 0; i < 100; i++) {
+                dict.set(new CollidingKey(i), i);
+            }
+            for (Entry<CollidingKey, Integer> entry : dict) {
+                assertNotNull(entry);
+            }
+            dict.stream().count();
+            DictionaryStats stats = dict.stats();
+            assertTrue(stats.countersEnabled());
+            assertEquals(4, stats.resizeCount());
+            assertTrue(stats.entriesMigrated() > 0);
+            assertTrue(stats.treeifyCount() >= 3);
+            assertEquals(3, stats.treeBins());
+            assertEquals(2, stats.iteratorCount());
+        }
+    }
+
+    @Nested
+    class CursorTest {
+        @Test
+        void forEach_visits_all_during_migration() {
+            Dictionary<Integer, Integer> dict = new Dictionary<>();
+            for (int i = 0; i < 13; i++) {
+                dict.set(i, i * 10);
+            }
+            assertTrue(dict.isMigrating());
+            int[] sum = new int[2];
+            dict.forEach(entry -> sum[0] += entry.value());
+            dict.forEach((key, value) -> sum[1] += key);
+            assertEquals(780, sum[0]);
+            assertEquals(78, sum[1]);
+        }
+
+        @Test
+        void forEach_visits_tree_bins() {
+            Dictionary<CollidingKey, Integer> dict = new Dictionary<>();
+            for (int i = 0; i < 50; i++) {
+                dict.set(new CollidingKey(i), i);
+            }
+            int[] count = new int[1];
+            dict.forEach((key, value) -> {
+                assertEquals(key.id, value.intValue());
+                count[0]++;
+            });
+            assertEquals(50, count[0]);
+        }
+
+        @Test
+        void cursor_empty() {
+            Dictionary<String, Integer>.Cursor cursor = new Dictionary<String, Integer>().cursor();
+            assertFalse(cursor.advance());
+            assertFalse(cursor.advance());
+        }
+
+        @Test
+        void cursor_matches_iterator() {
+            Dictionary<CollidingKey, Integer> dict = new Dictionary<>();
+            for (int i = 0; i < 40; i++) {
+                dict.set(new CollidingKey(i), i);
+            }
+            Dictionary<CollidingKey, Integer>.Cursor cursor = dict.cursor();
+            for (int pass = 0; pass < 2; pass++) {
+                for (Entry<CollidingKey, Integer> entry : dict) {
+                    assertTrue(cursor.advance());
+                    assertSame(entry.key(), cursor.key());
+                    assertEquals(entry.value(), cursor.value());
+                }
+                assertFalse(cursor.advance());
+                cursor.reset();
+            }
+        }
+
+        @Test
+        void cursor_during_migration() {
+            Dictionary<Integer, Integer> dict = new Dictionary<>();
+            for (int i = 0; i < 13; i++) {
+                dict.set(i, i);
+            }
+            assertTrue(dict.isMigrating());
+            Dictionary<Integer, Integer>.Cursor cursor = dict.cursor();
+            int count = 0;
+            int sum = 0;
+            while (cursor.advance()) {
+                count++;
+                sum += cursor.value();
+            }
+            assertEquals(13, count);
+            assertEquals(78, sum);
+        }
+
+        @Test
+        void cursor_key_and_value_off_the_ends() {
+            Dictionary<String, Integer> dict = new Dictionary<>();
+            dict.set("a", 1);
+            Dictionary<String, Integer>.Cursor cursor = dict.cursor();
+            assertThrows(IllegalStateException.class, cursor::key);
+            assertThrows(IllegalStateException.class, cursor::value);
+            assertTrue(cursor.advance());
+            assertEquals("a", cursor.key());
+            assertEquals(Integer.valueOf(1), cursor.value());
+            assertFalse(cursor.advance());
+            assertThrows(IllegalStateException.class, cursor::key);
+            assertThrows(IllegalStateException.class, cursor::value);
+            cursor.reset();
+            assertThrows(IllegalStateException.class, cursor::key);
+            assertThrows(IllegalStateException.class, cursor::value);
+        }
+    }
+}
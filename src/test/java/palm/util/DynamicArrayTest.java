@@ -54,6 +54,125 @@ class DynamicArrayTest {
             assertEquals(5, list.size());
             assertEquals(10, list.getCapacity());
         }
+
+        @Test
+        void remove_to_empty() {
+            DynamicArray<Integer> list = DynamicArray.of(1, 2, 3);
+            list.remove(0);
+            list.remove(0);
+            list.remove(0);
+            assertEquals(0, list.size());
+            assertEquals(5, list.getCapacity());
+            list.add(4);
+            assertEquals(Integer.valueOf(4), list.get(0));
+        }
+
+        @Test
+        void shrinks_in_one_step_after_removeIf() {
+            DynamicArray<Integer> list = new DynamicArray<>();
+            for (int i = 0; i < 100; i++) {
+                list.add(i);
+            }
+            assertEquals(160, list.getCapacity());
+            list.removeIf(i -> i >= 3);
+            assertEquals(3, list.size());
+            assertEquals(10, list.getCapacity());
+        }
+
+        @Test
+        void no_thrashing_at_boundary() {
+            DynamicArray<Integer> list = new DynamicArray<>();
+            for (int i = 0; i < 10; i++) {
+                list.add(i);
+            }
+            list.add(10);
+            assertEquals(20, list.getCapacity());
+            for (int i = 0; i < 10; i++) {
+                list.remove(-1);
+                assertEquals(20, list.getCapacity());
+                list.add(10);
+                assertEquals(20, list.getCapacity());
+            }
+        }
+
+        @Test
+        void presized() {
+            DynamicArray<Integer> list = new DynamicArray<>(100);
+            assertEquals(100, list.getCapacity());
+            for (int i = 0; i < 100; i++) {
+                list.add(i);
+            }
+            assertEquals(100, list.getCapacity());
+            list.removeIf(i -> i > 0);
+            assertEquals(5, list.getCapacity());
+        }
+
+        @Test
+        void presized_empty() {
+            DynamicArray<Integer> list = new DynamicArray<>(0);
+            assertEquals(0, list.getCapacity());
+            list.add(1);
+            list.add(2);
+            assertEquals(2, list.size());
+            assertEquals(Integer.valueOf(2), list.get(-1));
+        }
+
+        @Test
+        void negative_capacity() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                new DynamicArray<Integer>(-1);
+            });
+        }
+
+        @Test
+        void null_policy() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                new DynamicArray<Integer>(5, null);
+            });
+        }
+
+        @Test
+        void ensureCapacity_test() {
+            DynamicArray<Integer> list = DynamicArray.of(1, 2);
+            list.ensureCapacity(3);
+            assertEquals(5, list.getCapacity());
+            list.ensureCapacity(50);
+            assertEquals(50, list.getCapacity());
+            assertEquals(Integer.valueOf(2), list.get(1));
+        }
+
+        @Test
+        void trimToSize_test() {
+            DynamicArray<Integer> list = DynamicArray.of(1, 2, 3, 4, 5, 6);
+            list.trimToSize();
+            assertEquals(6, list.getCapacity());
+            assertEquals(Integer.valueOf(6), list.get(-1));
+            list.add(7);
+            assertEquals(12, list.getCapacity());
+        }
+
+        @Test
+        void trimToSize_empty() {
+            DynamicArray<Integer> list = DynamicArray.of(1, 2);
+            list.clear();
+            list.trimToSize();
+            assertEquals(0, list.getCapacity());
+            list.add(3);
+            assertEquals(Integer.valueOf(3), list.get(0));
+        }
+
+        @Test
+        void fixed_chunk_policy() {
+            DynamicArray<Integer> list = new DynamicArray<>(4, GrowthPolicy.fixedChunk(8));
+            for (int i = 0; i < 13; i++) {
+                list.add(i);
+            }
+            assertEquals(20, list.getCapacity());
+            while (list.size() > 4) {
+                list.remove(-1);
+            }
+            assertEquals(12, list.getCapacity());
+        }
     }
 
     @Nested
@@ -246,4 +365,255 @@ class DynamicArrayTest {
             assertEquals("Bar", list.get(1), "Items should be unchanged");
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    class StreamTest {
+        DynamicArray<Integer> list;
+
+        @BeforeEach
+        void initList() {
+            list = new DynamicArray<>();
+            for (int i = 1; i <= 10000; i++) {
+                list.add(i);
+            }
+        }
+
+        @Test
+        void stream_in_order() {
+            assertEquals(Integer.valueOf(1), list.stream().findFirst().get());
+            assertEquals(10000, list.stream().count());
+        }
+
+        @Test
+        void parallel_stream_sum() {
+            assertEquals(50005000L, list.parallelStream().mapToLong(i -> i).sum());
+        }
+
+        @Test
+        void spliterator_splits_evenly() {
+            java.util.Spliterator<Integer> rest = list.spliterator();
+            java.util.Spliterator<Integer> prefix = rest.trySplit();
+            assertEquals(5000, prefix.estimateSize());
+            assertEquals(5000, rest.estimateSize());
+            assertTrue(rest.hasCharacteristics(java.util.Spliterator.SUBSIZED));
+        }
+    }
+
+    @Nested
+    class BulkTest {
+        DynamicArray<Integer> list;
+
+        @BeforeEach
+        void initList() {
+            list = DynamicArray.of(1, 2, 3);
+        }
+
+        @Test
+        void addAll_grows_once() {
+            list.addAll(java.util.Arrays.asList(4, 5, 6, 7, 8, 9, 10, 11, 12));
+            assertEquals(12, list.size());
+            assertEquals(12, list.getCapacity());
+            assertEquals(Integer.valueOf(12), list.get(-1));
+        }
+
+        @Test
+        void addAll_self() {
+            list.addAll(list);
+            assertEquals(6, list.size());
+            assertEquals(Integer.valueOf(1), list.get(3));
+            assertEquals(Integer.valueOf(3), list.get(5));
+        }
+
+        @Test
+        void insertAll_mid() {
+            list.insertAll(DynamicArray.of(7, 8), 1);
+            assertEquals(5, list.size());
+            assertEquals(Integer.valueOf(1), list.get(0));
+            assertEquals(Integer.valueOf(7), list.get(1));
+            assertEquals(Integer.valueOf(8), list.get(2));
+            assertEquals(Integer.valueOf(2), list.get(3));
+        }
+
+        @Test
+        void insertAll_negative_end() {
+            list.insertAll(DynamicArray.of(7, 8), -1);
+            assertEquals(Integer.valueOf(7), list.get(3));
+            assertEquals(Integer.valueOf(8), list.get(4));
+        }
+
+        @Test
+        void insertAll_index_over() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.insertAll(DynamicArray.of(7), 4);
+            });
+        }
+
+        @Test
+        void removeIf_compacts() {
+            for (int i = 4; i <= 20; i++) {
+                list.add(i);
+            }
+            assertTrue(list.removeIf(i -> i % 2 == 0));
+            assertEquals(10, list.size());
+            for (int i = 0; i < list.size(); i++) {
+                assertEquals(Integer.valueOf(2 * i + 1), list.get(i));
+            }
+            assertFalse(list.removeIf(i -> i % 2 == 0));
+        }
+
+        @Test
+        void removeIf_everything() {
+            assertTrue(list.removeIf(i -> true));
+            assertEquals(0, list.size());
+        }
+
+        @Test
+        void removeIf_filter_throws() {
+            assertThrows(IllegalStateException.class, () -> {
+                list.removeIf(i -> {
+                    if (i == 2) throw new IllegalStateException();
+                    return true;
+                });
+            });
+            assertEquals(2, list.size());
+            assertEquals(Integer.valueOf(2), list.get(0));
+            assertEquals(Integer.valueOf(3), list.get(1));
+        }
+
+        @Test
+        void retainAll_test() {
+            assertTrue(list.retainAll(LinkedList.of(3, 1, 9)));
+            assertEquals(2, list.size());
+            assertEquals(Integer.valueOf(1), list.get(0));
+            assertEquals(Integer.valueOf(3), list.get(1));
+        }
+    }
+
+    @Nested
+    class StatsTest {
+        @Test
+        void stats_shape() {
+            ArrayStats stats = DynamicArray.of(1, 2, 3, 4, 5, 6).stats();
+            assertEquals(6, stats.size());
+            assertEquals(10, stats.capacity());
+            assertEquals(0.6, stats.utilization(), 1e-9);
+        }
+
+        @Test
+        void stats_counters() {
+            Assumptions.assumeTrue(Instrumentation.ENABLED);
+            DynamicArray<Integer> list = new DynamicArray<>();
+            for (int i = 0; i < 21; i++) {
+                list.add(i);
+            }
+            // grows 5 -> 10 -> 20 -> 40, copying 5 + 10 + 20
+            ArrayStats stats = list.stats();
+            assertEquals(3, stats.growCount());
+            assertEquals(35, stats.elementsCopied());
+            while (list.size() > 5) {
+                list.remove(-1);
+            }
+            for (Integer value : list) {
+                assertNotNull(value);
+            }
+            stats = list.stats();
+            assertTrue(stats.shrinkCount() > 0);
+            assertEquals(1, stats.iteratorCount());
+        }
+    }
+
+    @Nested
+    class CursorTest {
+        @Test
+        void forEach_in_order() {
+            StringBuilder sb = new StringBuilder();
+            DynamicArray.of("a", "b", "c").forEach(sb::append);
+            assertEquals("abc", sb.toString());
+        }
+
+        @Test
+        void cursor_empty() {
+            DynamicArray<String>.Cursor cursor = new DynamicArray<String>().cursor();
+            assertFalse(cursor.advance());
+            assertFalse(cursor.advance());
+        }
+
+        @Test
+        void cursor_reuse() {
+            DynamicArray<Integer> list = DynamicArray.of(1, 2, 3);
+            DynamicArray<Integer>.Cursor cursor = list.cursor();
+            for (int pass = 0; pass < 2; pass++) {
+                int sum = 0;
+                while (cursor.advance()) {
+                    assertEquals(cursor.value() - 1, cursor.index());
+                    sum += cursor.value();
+                }
+                assertEquals(6, sum);
+                assertFalse(cursor.advance());
+                cursor.reset();
+            }
+        }
+
+        @Test
+        void cursor_value_off_the_ends() {
+            DynamicArray<Integer> list = DynamicArray.of(1);
+            DynamicArray<Integer>.Cursor cursor = list.cursor();
+            assertThrows(IllegalStateException.class, cursor::value);
+            assertTrue(cursor.advance());
+            assertEquals(Integer.valueOf(1), cursor.value());
+            assertFalse(cursor.advance());
+            assertThrows(IllegalStateException.class, cursor::value);
+        }
+
+        @Test
+        void cursor_value_after_remove() {
+            DynamicArray<Integer> list = DynamicArray.of(1, 2);
+            DynamicArray<Integer>.Cursor cursor = list.cursor();
+            cursor.advance();
+            cursor.advance();
+            list.remove(-1);
+            assertThrows(IllegalStateException.class, cursor::value);
+        }
+    }
+
+    @Nested
+    class SortTest {
+        @Test
+        void sort_natural_order() {
+            DynamicArray<String> list = DynamicArray.of("Foo", "Bar", "Baz");
+            list.sort(null);
+            assertEquals("Bar", list.get(0));
+            assertEquals("Baz", list.get(1));
+            assertEquals("Foo", list.get(2));
+            assertEquals(3, list.size());
+        }
+
+        @Test
+        void sort_is_stable() {
+            DynamicArray<int[]> list = new DynamicArray<>();
+            for (int i = 0; i < 1000; i++) {
+                list.add(new int[] {(i * 7919) % 10, i});
+            }
+            list.sort((a, b) -> Integer.compare(a[0], b[0]));
+            for (int i = 1; i < list.size(); i++) {
+                int[] prev = list.get(i - 1);
+                int[] cur = list.get(i);
+                assertTrue(prev[0] < cur[0] || (prev[0] == cur[0] && prev[1] < cur[1]));
+            }
+        }
+
+        @Test
+        void parallelSort_is_stable() {
+            DynamicArray<int[]> list = new DynamicArray<>();
+            for (int i = 0; i < 100000; i++) {
+                list.add(new int[] {(i * 7919) % 100, i});
+            }
+            list.parallelSort((a, b) -> Integer.compare(b[0], a[0]));
+            for (int i = 1; i < list.size(); i++) {
+                int[] prev = list.get(i - 1);
+                int[] cur = list.get(i);
+                assertTrue(prev[0] > cur[0] || (prev[0] == cur[0] && prev[1] < cur[1]));
+            }
+        }
+    }
+}
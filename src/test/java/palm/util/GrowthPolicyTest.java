@@ -0,0 +1,93 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+class GrowthPolicyTest {
+
+    @Nested
+    class GrowTest {
+        @Test
+        void doubling() {
+            assertEquals(10, GrowthPolicy.doubling().grow(5, 6));
+            assertEquals(1, GrowthPolicy.doubling().grow(0, 1));
+        }
+
+        @Test
+        void one_and_a_half() {
+            assertEquals(15, GrowthPolicy.oneAndAHalf().grow(10, 11));
+            assertEquals(2, GrowthPolicy.oneAndAHalf().grow(1, 2));
+        }
+
+        @Test
+        void fixed_chunk() {
+            assertEquals(108, GrowthPolicy.fixedChunk(8).grow(100, 101));
+        }
+
+        @Test
+        void capped_geometric() {
+            GrowthPolicy policy = GrowthPolicy.cappedGeometric(1000);
+            assertEquals(200, policy.grow(100, 101));
+            assertEquals(11000, policy.grow(10000, 10001));
+        }
+
+        @Test
+        void at_least_min_capacity() {
+            assertEquals(500, GrowthPolicy.doubling().grow(5, 500));
+            assertEquals(500, GrowthPolicy.fixedChunk(8).grow(5, 500));
+        }
+
+        @Test
+        void does_not_overflow() {
+            int grown = GrowthPolicy.doubling().grow(Integer.MAX_VALUE / 2 + 10, Integer.MAX_VALUE / 2 + 11);
+            assertTrue(grown > Integer.MAX_VALUE / 2 + 10);
+        }
+
+        @Test
+        void bad_arguments() {
+            assertThrows(IllegalArgumentException.class, () -> GrowthPolicy.fixedChunk(0));
+            assertThrows(IllegalArgumentException.class, () -> GrowthPolicy.cappedGeometric(-1));
+        }
+    }
+
+    @Nested
+    class ShrinkTest {
+        @Test
+        void doubling_at_a_quarter() {
+            assertEquals(20, GrowthPolicy.doubling().shrink(20, 6));
+            assertEquals(10, GrowthPolicy.doubling().shrink(20, 5));
+        }
+
+        @Test
+        void one_and_a_half() {
+            assertEquals(90, GrowthPolicy.oneAndAHalf().shrink(90, 41));
+            assertEquals(60, GrowthPolicy.oneAndAHalf().shrink(90, 40));
+        }
+
+        @Test
+        void fixed_chunk_at_two_unused() {
+            assertEquals(100, GrowthPolicy.fixedChunk(8).shrink(100, 85));
+            assertEquals(92, GrowthPolicy.fixedChunk(8).shrink(100, 84));
+        }
+
+        @Test
+        void capped_geometric() {
+            GrowthPolicy policy = GrowthPolicy.cappedGeometric(1000);
+            assertEquals(11000, policy.shrink(11000, 9001));
+            assertEquals(10000, policy.shrink(11000, 9000));
+        }
+
+        @Test
+        void shrinking_then_growing_gets_back() {
+            GrowthPolicy[] policies = {
+                GrowthPolicy.doubling(), GrowthPolicy.oneAndAHalf(),
+                GrowthPolicy.fixedChunk(8), GrowthPolicy.cappedGeometric(1000)
+            };
+            for (GrowthPolicy policy : policies) {
+                int shrunk = policy.shrink(12000, 0);
+                assertTrue(shrunk < 12000, policy.toString());
+                assertEquals(12000, policy.grow(shrunk, shrunk + 1), policy.toString());
+            }
+        }
+    }
+}
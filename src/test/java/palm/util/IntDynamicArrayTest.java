@@ -0,0 +1,216 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+class IntDynamicArrayTest {
+
+    @Nested
+    class FactoryTest {
+        @Test
+        void list_of_nothing() {
+            assertEquals(0, IntDynamicArray.of().size());
+        }
+
+        @Test
+        void list_of_items() {
+            assertEquals(2, IntDynamicArray.of(1, 2).size());
+        }
+    }
+
+    @Nested
+    class CapacityTest {
+        @Test
+        void capacity_grows() {
+            IntDynamicArray list = IntDynamicArray.of(1, 1, 1, 1, 1);
+            assertEquals(5, list.getCapacity());
+            list.add(2);
+            assertEquals(10, list.getCapacity());
+        }
+
+        @Test
+        void capacity_shrinks_to_empty() {
+            IntDynamicArray list = new IntDynamicArray();
+            for (int i = 0; i < 100; i++) {
+                list.add(i);
+            }
+            while (list.size() > 0) {
+                list.remove(-1);
+            }
+            assertEquals(5, list.getCapacity());
+        }
+    }
+
+    @Nested
+    class GetTest {
+        IntDynamicArray list;
+
+        @BeforeEach
+        void initList() {
+            list = IntDynamicArray.of(1, 2);
+        }
+
+        @Test
+        void get_out_of_range() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.get(-5);
+            });
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.get(list.size());
+            });
+        }
+
+        @Test
+        void get_positive_and_negative() {
+            assertEquals(1, list.get(0));
+            assertEquals(2, list.get(1));
+            assertEquals(2, list.get(-1));
+            assertEquals(1, list.get(-2));
+        }
+
+        @Test
+        void set_negative() {
+            assertEquals(2, list.set(-1, 3));
+            assertEquals(3, list.get(1));
+        }
+    }
+
+    @Nested
+    class InsertTest {
+        IntDynamicArray list;
+
+        @BeforeEach
+        void initList() {
+            list = IntDynamicArray.of(1, 2);
+        }
+
+        @Test
+        void insert_index_over() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.insert(3, 5);
+            });
+        }
+
+        @Test
+        void insert_index_positive_mid() {
+            list.insert(3, 1);
+            assertEquals(3, list.size());
+            assertEquals(1, list.get(0));
+            assertEquals(3, list.get(1));
+            assertEquals(2, list.get(2));
+        }
+
+        @Test
+        void insert_index_negative_end() {
+            list.insert(3, -1);
+            assertEquals(3, list.size());
+            assertEquals(3, list.get(-1));
+        }
+    }
+
+    @Nested
+    class RemoveTest {
+        IntDynamicArray list;
+
+        @BeforeEach
+        void initList() {
+            list = IntDynamicArray.of(1, 2, 3);
+        }
+
+        @Test
+        void remove_index_negative_valid() {
+            assertEquals(2, list.remove(-2));
+            assertEquals(2, list.size());
+            assertEquals(3, list.get(1));
+        }
+
+        @Test
+        void remove_value() {
+            assertTrue(list.removeValue(2));
+            assertFalse(list.removeValue(2));
+            assertEquals(2, list.size());
+            assertEquals(-1, list.indexOf(2));
+            assertEquals(1, list.indexOf(3));
+        }
+    }
+
+    @Nested
+    class IterateTest {
+        @Test
+        void iterate_primitive() {
+            IntDynamicArray list = IntDynamicArray.of(1, 2, 3);
+            PrimitiveIterator.OfInt it = list.iterator();
+            assertEquals(1, it.nextInt());
+            assertEquals(2, it.nextInt());
+            assertEquals(3, it.nextInt());
+            assertFalse(it.hasNext());
+        }
+
+        @Test
+        void parallel_stream_sum() {
+            IntDynamicArray list = new IntDynamicArray();
+            for (int i = 1; i <= 10000; i++) {
+                list.add(i);
+            }
+            assertEquals(50005000, list.parallelStream().sum());
+            assertEquals(10000, list.stream().count());
+        }
+    }
+
+    @Nested
+    class SortTest {
+        IntDynamicArray randomList(int n, boolean narrow) {
+            Random random = new Random(n);
+            IntDynamicArray list = new IntDynamicArray();
+            for (int i = 0; i < n; i++) {
+                list.add(narrow ? random.nextInt(100) - 50 : random.nextInt());
+            }
+            return list;
+        }
+
+        void assertSorts(IntDynamicArray list, boolean parallel) {
+            int[] expected = list.toArray();
+            Arrays.sort(expected);
+            if (parallel) {
+                list.parallelSort();
+            } else {
+                list.sort();
+            }
+            assertArrayEquals(expected, list.toArray());
+        }
+
+        @Test
+        void sort_small() {
+            assertSorts(randomList(10, false), false);
+        }
+
+        @Test
+        void sort_large() {
+            assertSorts(randomList(5000, false), false);
+        }
+
+        @Test
+        void sort_narrow_range() {
+            assertSorts(randomList(5000, true), false);
+        }
+
+        @Test
+        void sort_extremes() {
+            IntDynamicArray list = randomList(1000, false);
+            list.add(Integer.MIN_VALUE);
+            list.add(Integer.MAX_VALUE);
+            list.add(0);
+            list.add(-1);
+            assertSorts(list, false);
+        }
+
+        @Test
+        void parallelSort_large() {
+            assertSorts(randomList(100000, false), true);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package palm.util;
+
+class IntIntDictionaryTest extends PrimitiveDictionaryTest<Integer> {
+
+    @Override
+    Subject<Integer> create(int expectedSize) {
+        IntIntDictionary dict = expectedSize < 0 ? new IntIntDictionary() : new IntIntDictionary(expectedSize);
+        return new Subject<Integer>() {
+            public int size() { return dict.size(); }
+            public void set(long key, Integer value) { dict.set((int) key, value); }
+            public Integer get(long key) { return dict.get((int) key); }
+            public Integer getOrDefault(long key, Integer defaultValue) { return dict.getOrDefault((int) key, defaultValue); }
+            public boolean containsKey(long key) { return dict.containsKey((int) key); }
+            public Integer remove(long key) { return dict.remove((int) key); }
+            public void clear() { dict.clear(); }
+            public int getCapacity() { return dict.getCapacity(); }
+
+            public Cursor<Integer> cursor() {
+                IntIntDictionary.Cursor cursor = dict.cursor();
+                return new Cursor<Integer>() {
+                    public boolean advance() { return cursor.advance(); }
+                    public long key() { return cursor.key(); }
+                    public Integer value() { return cursor.value(); }
+                    public void reset() { cursor.reset(); }
+                };
+            }
+        };
+    }
+
+    @Override
+    long key(int i) {
+        return i * 7;
+    }
+
+    @Override
+    Integer value(int i) {
+        return i;
+    }
+
+    @Override
+    Integer missing() {
+        return 0;
+    }
+}
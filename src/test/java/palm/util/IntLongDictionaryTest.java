@@ -0,0 +1,44 @@
+package palm.util;
+
+class IntLongDictionaryTest extends PrimitiveDictionaryTest<Long> {
+
+    @Override
+    Subject<Long> create(int expectedSize) {
+        IntLongDictionary dict = expectedSize < 0 ? new IntLongDictionary() : new IntLongDictionary(expectedSize);
+        return new Subject<Long>() {
+            public int size() { return dict.size(); }
+            public void set(long key, Long value) { dict.set((int) key, value); }
+            public Long get(long key) { return dict.get((int) key); }
+            public Long getOrDefault(long key, Long defaultValue) { return dict.getOrDefault((int) key, defaultValue); }
+            public boolean containsKey(long key) { return dict.containsKey((int) key); }
+            public Long remove(long key) { return dict.remove((int) key); }
+            public void clear() { dict.clear(); }
+            public int getCapacity() { return dict.getCapacity(); }
+
+            public Cursor<Long> cursor() {
+                IntLongDictionary.Cursor cursor = dict.cursor();
+                return new Cursor<Long>() {
+                    public boolean advance() { return cursor.advance(); }
+                    public long key() { return cursor.key(); }
+                    public Long value() { return cursor.value(); }
+                    public void reset() { cursor.reset(); }
+                };
+            }
+        };
+    }
+
+    @Override
+    long key(int i) {
+        return i * 7;
+    }
+
+    @Override
+    Long value(int i) {
+        return (long) i;
+    }
+
+    @Override
+    Long missing() {
+        return 0L;
+    }
+}
@@ -0,0 +1,44 @@
+package palm.util;
+
+class IntObjectDictionaryTest extends PrimitiveDictionaryTest<String> {
+
+    @Override
+    Subject<String> create(int expectedSize) {
+        IntObjectDictionary<String> dict = expectedSize < 0 ? new IntObjectDictionary<>() : new IntObjectDictionary<>(expectedSize);
+        return new Subject<String>() {
+            public int size() { return dict.size(); }
+            public void set(long key, String value) { dict.set((int) key, value); }
+            public String get(long key) { return dict.get((int) key); }
+            public String getOrDefault(long key, String defaultValue) { return dict.getOrDefault((int) key, defaultValue); }
+            public boolean containsKey(long key) { return dict.containsKey((int) key); }
+            public String remove(long key) { return dict.remove((int) key); }
+            public void clear() { dict.clear(); }
+            public int getCapacity() { return dict.getCapacity(); }
+
+            public Cursor<String> cursor() {
+                IntObjectDictionary<String>.Cursor cursor = dict.cursor();
+                return new Cursor<String>() {
+                    public boolean advance() { return cursor.advance(); }
+                    public long key() { return cursor.key(); }
+                    public String value() { return cursor.value(); }
+                    public void reset() { cursor.reset(); }
+                };
+            }
+        };
+    }
+
+    @Override
+    long key(int i) {
+        return i * 7;
+    }
+
+    @Override
+    String value(int i) {
+        return "v" + i;
+    }
+
+    @Override
+    String missing() {
+        return null;
+    }
+}
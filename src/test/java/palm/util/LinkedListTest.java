@@ -233,4 +233,181 @@ class LinkedListTest {
             assertNull(list.remove("Foo"));
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    class StreamTest {
+        LinkedList<Integer> list;
+
+        @BeforeEach
+        void initList() {
+            list = new LinkedList<>();
+            for (int i = 1; i <= 10000; i++) {
+                list.add(i);
+            }
+        }
+
+        @Test
+        void stream_in_order() {
+            assertEquals(Integer.valueOf(1), list.stream().findFirst().get());
+            assertEquals(10000, list.stream().count());
+        }
+
+        @Test
+        void parallel_stream_sum() {
+            assertEquals(50005000L, list.parallelStream().mapToLong(i -> i).sum());
+        }
+
+        @Test
+        void spliterator_splits_batches() {
+            java.util.Spliterator<Integer> rest = list.spliterator();
+            java.util.Spliterator<Integer> first = rest.trySplit();
+            java.util.Spliterator<Integer> second = rest.trySplit();
+            assertEquals(1024, first.estimateSize());
+            assertEquals(2048, second.estimateSize());
+            assertEquals(10000 - 1024 - 2048, rest.estimateSize());
+        }
+    }
+
+    @Nested
+    class BulkTest {
+        LinkedList<Integer> list;
+
+        @BeforeEach
+        void initList() {
+            list = LinkedList.of(1, 2, 3);
+        }
+
+        @Test
+        void insert_index_zero() {
+            list.insert(0, 0);
+            assertEquals(Integer.valueOf(0), list.get(0));
+            assertEquals(0, list.indexOf(0));
+        }
+
+        @Test
+        void addAll_test() {
+            list.addAll(DynamicArray.of(4, 5));
+            assertEquals(5, list.size());
+            assertEquals(Integer.valueOf(5), list.get(-1));
+            assertEquals(Integer.valueOf(4), list.get(-2));
+        }
+
+        @Test
+        void insertAll_front() {
+            list.insertAll(DynamicArray.of(7, 8), 0);
+            assertEquals(5, list.size());
+            assertEquals(Integer.valueOf(7), list.get(0));
+            assertEquals(Integer.valueOf(8), list.get(1));
+            assertEquals(Integer.valueOf(1), list.get(2));
+            assertEquals(Integer.valueOf(3), list.get(-1));
+        }
+
+        @Test
+        void insertAll_mid_negative() {
+            list.insertAll(DynamicArray.of(7, 8), -2);
+            assertEquals(Integer.valueOf(2), list.get(1));
+            assertEquals(Integer.valueOf(7), list.get(2));
+            assertEquals(Integer.valueOf(8), list.get(3));
+            assertEquals(Integer.valueOf(3), list.get(4));
+            assertEquals(Integer.valueOf(7), list.get(-3));
+        }
+
+        @Test
+        void insertAll_nothing() {
+            list.insertAll(DynamicArray.of(), 1);
+            assertEquals(3, list.size());
+        }
+
+        @Test
+        void insertAll_index_over() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.insertAll(DynamicArray.of(7), 4);
+            });
+        }
+
+        @Test
+        void removeIf_test() {
+            assertTrue(list.removeIf(i -> i != 2));
+            assertEquals(1, list.size());
+            assertEquals(Integer.valueOf(2), list.get(0));
+            assertEquals(Integer.valueOf(2), list.get(-1));
+            assertFalse(list.removeIf(i -> i == 5));
+        }
+
+        @Test
+        void retainAll_test() {
+            assertTrue(list.retainAll(DynamicArray.of(3)));
+            assertEquals(1, list.size());
+            assertEquals(Integer.valueOf(3), list.get(0));
+        }
+    }
+
+    @Nested
+    class CursorTest {
+        @Test
+        void forEach_in_order() {
+            StringBuilder sb = new StringBuilder();
+            LinkedList.of("a", "b", "c").forEach(sb::append);
+            assertEquals("abc", sb.toString());
+        }
+
+        @Test
+        void cursor_empty() {
+            LinkedList<String>.Cursor cursor = new LinkedList<String>().cursor();
+            assertFalse(cursor.advance());
+            assertFalse(cursor.advance());
+        }
+
+        @Test
+        void cursor_reuse() {
+            LinkedList<Integer> list = LinkedList.of(1, 2, 3);
+            LinkedList<Integer>.Cursor cursor = list.cursor();
+            for (int pass = 0; pass < 2; pass++) {
+                int sum = 0;
+                while (cursor.advance()) {
+                    sum += cursor.value();
+                }
+                assertEquals(6, sum);
+                assertFalse(cursor.advance());
+                cursor.reset();
+            }
+        }
+
+        @Test
+        void cursor_sees_new_head_after_reset() {
+            LinkedList<Integer> list = LinkedList.of(1);
+            LinkedList<Integer>.Cursor cursor = list.cursor();
+            assertTrue(cursor.advance());
+            list.insert(0, 0);
+            cursor.reset();
+            assertTrue(cursor.advance());
+            assertEquals(Integer.valueOf(0), cursor.value());
+        }
+
+        @Test
+        void cursor_continues_after_remove() {
+            LinkedList<Integer> list = LinkedList.of(1, 2, 3);
+            LinkedList<Integer>.Cursor cursor = list.cursor();
+            cursor.advance();
+            cursor.advance();
+            assertEquals(Integer.valueOf(2), list.remove(1));
+            assertEquals(Integer.valueOf(2), cursor.value());
+            assertTrue(cursor.advance());
+            assertEquals(Integer.valueOf(3), cursor.value());
+            assertFalse(cursor.advance());
+        }
+
+        @Test
+        void cursor_value_off_the_ends() {
+            LinkedList<Integer> list = LinkedList.of(1);
+            LinkedList<Integer>.Cursor cursor = list.cursor();
+            assertThrows(IllegalStateException.class, cursor::value);
+            assertTrue(cursor.advance());
+            assertEquals(Integer.valueOf(1), cursor.value());
+            assertFalse(cursor.advance());
+            assertThrows(IllegalStateException.class, cursor::value);
+            cursor.reset();
+            assertThrows(IllegalStateException.class, cursor::value);
+        }
+    }
+}
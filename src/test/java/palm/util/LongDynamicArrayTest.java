@@ -0,0 +1,216 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+class LongDynamicArrayTest {
+
+    @Nested
+    class FactoryTest {
+        @Test
+        void list_of_nothing() {
+            assertEquals(0, LongDynamicArray.of().size());
+        }
+
+        @Test
+        void list_of_items() {
+            assertEquals(2, LongDynamicArray.of(1L, 2L).size());
+        }
+    }
+
+    @Nested
+    class CapacityTest {
+        @Test
+        void capacity_grows() {
+            LongDynamicArray list = LongDynamicArray.of(1L, 1L, 1L, 1L, 1L);
+            assertEquals(5, list.getCapacity());
+            list.add(2L);
+            assertEquals(10, list.getCapacity());
+        }
+
+        @Test
+        void capacity_shrinks_to_empty() {
+            LongDynamicArray list = new LongDynamicArray();
+            for (int i = 0; i < 100; i++) {
+                list.add(i);
+            }
+            while (list.size() > 0) {
+                list.remove(-1);
+            }
+            assertEquals(5, list.getCapacity());
+        }
+    }
+
+    @Nested
+    class GetTest {
+        LongDynamicArray list;
+
+        @BeforeEach
+        void initList() {
+            list = LongDynamicArray.of(1L, 2L);
+        }
+
+        @Test
+        void get_out_of_range() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.get(-5);
+            });
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.get(list.size());
+            });
+        }
+
+        @Test
+        void get_positive_and_negative() {
+            assertEquals(1L, list.get(0));
+            assertEquals(2L, list.get(1));
+            assertEquals(2L, list.get(-1));
+            assertEquals(1L, list.get(-2));
+        }
+
+        @Test
+        void set_negative() {
+            assertEquals(2L, list.set(-1, 3L));
+            assertEquals(3L, list.get(1));
+        }
+    }
+
+    @Nested
+    class InsertTest {
+        LongDynamicArray list;
+
+        @BeforeEach
+        void initList() {
+            list = LongDynamicArray.of(1L, 2L);
+        }
+
+        @Test
+        void insert_index_over() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.insert(3L, 5);
+            });
+        }
+
+        @Test
+        void insert_index_positive_mid() {
+            list.insert(3L, 1);
+            assertEquals(3, list.size());
+            assertEquals(1L, list.get(0));
+            assertEquals(3L, list.get(1));
+            assertEquals(2L, list.get(2));
+        }
+
+        @Test
+        void insert_index_negative_end() {
+            list.insert(3L, -1);
+            assertEquals(3, list.size());
+            assertEquals(3L, list.get(-1));
+        }
+    }
+
+    @Nested
+    class RemoveTest {
+        LongDynamicArray list;
+
+        @BeforeEach
+        void initList() {
+            list = LongDynamicArray.of(1L, 2L, 3L);
+        }
+
+        @Test
+        void remove_index_negative_valid() {
+            assertEquals(2L, list.remove(-2));
+            assertEquals(2, list.size());
+            assertEquals(3L, list.get(1));
+        }
+
+        @Test
+        void remove_value() {
+            assertTrue(list.removeValue(2L));
+            assertFalse(list.removeValue(2L));
+            assertEquals(2, list.size());
+            assertEquals(-1, list.indexOf(2L));
+            assertEquals(1, list.indexOf(3L));
+        }
+    }
+
+    @Nested
+    class IterateTest {
+        @Test
+        void iterate_primitive() {
+            LongDynamicArray list = LongDynamicArray.of(1L, 2L, 3L);
+            PrimitiveIterator.OfLong it = list.iterator();
+            assertEquals(1L, it.nextLong());
+            assertEquals(2L, it.nextLong());
+            assertEquals(3L, it.nextLong());
+            assertFalse(it.hasNext());
+        }
+
+        @Test
+        void parallel_stream_sum() {
+            LongDynamicArray list = new LongDynamicArray();
+            for (int i = 1; i <= 10000; i++) {
+                list.add(i);
+            }
+            assertEquals(50005000, list.parallelStream().sum());
+            assertEquals(10000, list.stream().count());
+        }
+    }
+
+    @Nested
+    class SortTest {
+        LongDynamicArray randomList(int n, boolean narrow) {
+            Random random = new Random(n);
+            LongDynamicArray list = new LongDynamicArray();
+            for (int i = 0; i < n; i++) {
+                list.add(narrow ? random.nextInt(100) - 50 : random.nextLong());
+            }
+            return list;
+        }
+
+        void assertSorts(LongDynamicArray list, boolean parallel) {
+            long[] expected = list.toArray();
+            Arrays.sort(expected);
+            if (parallel) {
+                list.parallelSort();
+            } else {
+                list.sort();
+            }
+            assertArrayEquals(expected, list.toArray());
+        }
+
+        @Test
+        void sort_small() {
+            assertSorts(randomList(10, false), false);
+        }
+
+        @Test
+        void sort_large() {
+            assertSorts(randomList(5000, false), false);
+        }
+
+        @Test
+        void sort_narrow_range() {
+            assertSorts(randomList(5000, true), false);
+        }
+
+        @Test
+        void sort_extremes() {
+            LongDynamicArray list = randomList(1000, false);
+            list.add(Long.MIN_VALUE);
+            list.add(Long.MAX_VALUE);
+            list.add(0);
+            list.add(-1);
+            assertSorts(list, false);
+        }
+
+        @Test
+        void parallelSort_large() {
+            assertSorts(randomList(100000, false), true);
+        }
+    }
+}
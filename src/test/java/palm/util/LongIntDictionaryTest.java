@@ -0,0 +1,44 @@
+package palm.util;
+
+class LongIntDictionaryTest extends PrimitiveDictionaryTest<Integer> {
+
+    @Override
+    Subject<Integer> create(int expectedSize) {
+        LongIntDictionary dict = expectedSize < 0 ? new LongIntDictionary() : new LongIntDictionary(expectedSize);
+        return new Subject<Integer>() {
+            public int size() { return dict.size(); }
+            public void set(long key, Integer value) { dict.set(key, value); }
+            public Integer get(long key) { return dict.get(key); }
+            public Integer getOrDefault(long key, Integer defaultValue) { return dict.getOrDefault(key, defaultValue); }
+            public boolean containsKey(long key) { return dict.containsKey(key); }
+            public Integer remove(long key) { return dict.remove(key); }
+            public void clear() { dict.clear(); }
+            public int getCapacity() { return dict.getCapacity(); }
+
+            public Cursor<Integer> cursor() {
+                LongIntDictionary.Cursor cursor = dict.cursor();
+                return new Cursor<Integer>() {
+                    public boolean advance() { return cursor.advance(); }
+                    public long key() { return cursor.key(); }
+                    public Integer value() { return cursor.value(); }
+                    public void reset() { cursor.reset(); }
+                };
+            }
+        };
+    }
+
+    @Override
+    long key(int i) {
+        return i * 3_000_000_000L;
+    }
+
+    @Override
+    Integer value(int i) {
+        return i;
+    }
+
+    @Override
+    Integer missing() {
+        return 0;
+    }
+}
@@ -0,0 +1,44 @@
+package palm.util;
+
+class LongLongDictionaryTest extends PrimitiveDictionaryTest<Long> {
+
+    @Override
+    Subject<Long> create(int expectedSize) {
+        LongLongDictionary dict = expectedSize < 0 ? new LongLongDictionary() : new LongLongDictionary(expectedSize);
+        return new Subject<Long>() {
+            public int size() { return dict.size(); }
+            public void set(long key, Long value) { dict.set(key, value); }
+            public Long get(long key) { return dict.get(key); }
+            public Long getOrDefault(long key, Long defaultValue) { return dict.getOrDefault(key, defaultValue); }
+            public boolean containsKey(long key) { return dict.containsKey(key); }
+            public Long remove(long key) { return dict.remove(key); }
+            public void clear() { dict.clear(); }
+            public int getCapacity() { return dict.getCapacity(); }
+
+            public Cursor<Long> cursor() {
+                LongLongDictionary.Cursor cursor = dict.cursor();
+                return new Cursor<Long>() {
+                    public boolean advance() { return cursor.advance(); }
+                    public long key() { return cursor.key(); }
+                    public Long value() { return cursor.value(); }
+                    public void reset() { cursor.reset(); }
+                };
+            }
+        };
+    }
+
+    @Override
+    long key(int i) {
+        return i * 3_000_000_000L;
+    }
+
+    @Override
+    Long value(int i) {
+        return (long) i;
+    }
+
+    @Override
+    Long missing() {
+        return 0L;
+    }
+}
@@ -0,0 +1,44 @@
+package palm.util;
+
+class LongObjectDictionaryTest extends PrimitiveDictionaryTest<String> {
+
+    @Override
+    Subject<String> create(int expectedSize) {
+        LongObjectDictionary<String> dict = expectedSize < 0 ? new LongObjectDictionary<>() : new LongObjectDictionary<>(expectedSize);
+        return new Subject<String>() {
+            public int size() { return dict.size(); }
+            public void set(long key, String value) { dict.set(key, value); }
+            public String get(long key) { return dict.get(key); }
+            public String getOrDefault(long key, String defaultValue) { return dict.getOrDefault(key, defaultValue); }
+            public boolean containsKey(long key) { return dict.containsKey(key); }
+            public String remove(long key) { return dict.remove(key); }
+            public void clear() { dict.clear(); }
+            public int getCapacity() { return dict.getCapacity(); }
+
+            public Cursor<String> cursor() {
+                LongObjectDictionary<String>.Cursor cursor = dict.cursor();
+                return new Cursor<String>() {
+                    public boolean advance() { return cursor.advance(); }
+                    public long key() { return cursor.key(); }
+                    public String value() { return cursor.value(); }
+                    public void reset() { cursor.reset(); }
+                };
+            }
+        };
+    }
+
+    @Override
+    long key(int i) {
+        return i * 3_000_000_000L;
+    }
+
+    @Override
+    String value(int i) {
+        return "v" + i;
+    }
+
+    @Override
+    String missing() {
+        return null;
+    }
+}
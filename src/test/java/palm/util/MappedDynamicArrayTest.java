@@ -0,0 +1,173 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import palm.util.io.Codecs;
+import palm.util.io.FixedWidthCodec;
+
+class MappedDynamicArrayTest {
+
+    Path file;
+
+    @BeforeEach
+    void createFile() throws IOException {
+        file = Files.createTempFile("mapped", ".bin");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * A two-int record, to test user codecs.
+     */
+    static class Point {
+        final int x;
+        final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    static final FixedWidthCodec<Point> POINTS = new FixedWidthCodec<Point>() {
+        public int width() { return 8; }
+        public void write(ByteBuffer buffer, int offset, Point value) {
+            buffer.putInt(offset, value.x);
+            buffer.putInt(offset + 4, value.y);
+        }
+        public Point read(ByteBuffer buffer, int offset) {
+            return new Point(buffer.getInt(offset), buffer.getInt(offset + 4));
+        }
+    };
+
+    @Nested
+    class GetTest {
+        MappedDynamicArray<Long> list;
+
+        @BeforeEach
+        void initList() throws IOException {
+            list = MappedDynamicArray.open(file, Codecs.LONG, 4);
+            list.add(10L);
+            list.add(20L);
+        }
+
+        @AfterEach
+        void closeList() throws IOException {
+            list.close();
+        }
+
+        @Test
+        void get_out_of_range() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.get(2);
+            });
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.get(-3);
+            });
+        }
+
+        @Test
+        void get_positive_and_negative() {
+            assertEquals(Long.valueOf(10), list.get(0));
+            assertEquals(Long.valueOf(20), list.get(-1));
+            assertEquals(Long.valueOf(10), list.get(-2));
+        }
+
+        @Test
+        void set_negative() {
+            list.set(-1, 30L);
+            assertEquals(Long.valueOf(30), list.get(1));
+        }
+
+        @Test
+        void remove_last() {
+            assertEquals(Long.valueOf(20), list.removeLast());
+            assertEquals(1, list.size());
+        }
+    }
+
+    @Nested
+    class GrowthTest {
+        @Test
+        void grows_by_segments() throws IOException {
+            try (MappedDynamicArray<Integer> list = MappedDynamicArray.open(file, Codecs.INT, 4)) {
+                assertEquals(1, list.getSegmentCount());
+                for (int i = 0; i < 10; i++) {
+                    list.add(i);
+                }
+                assertEquals(3, list.getSegmentCount());
+                int expected = 0;
+                for (int value : list) {
+                    assertEquals(expected++, value);
+                }
+                assertEquals(10, expected);
+            }
+        }
+    }
+
+    @Nested
+    class ReopenTest {
+        @Test
+        void reopen_keeps_contents() throws IOException {
+            try (MappedDynamicArray<Double> list = MappedDynamicArray.open(file, Codecs.DOUBLE, 4)) {
+                for (int i = 0; i < 10; i++) {
+                    list.add(i + 0.5);
+                }
+            }
+            // the segment size from the file wins
+            try (MappedDynamicArray<Double> list = MappedDynamicArray.open(file, Codecs.DOUBLE)) {
+                assertEquals(10, list.size());
+                assertEquals(3, list.getSegmentCount());
+                assertEquals(Double.valueOf(9.5), list.get(-1));
+                list.add(10.5);
+                assertEquals(11, list.size());
+            }
+        }
+
+        @Test
+        void reopen_with_wrong_codec() throws IOException {
+            MappedDynamicArray.open(file, Codecs.INT).close();
+            assertThrows(IllegalArgumentException.class, () -> {
+                MappedDynamicArray.open(file, Codecs.LONG);
+            });
+        }
+
+        @Test
+        void reopen_with_corrupt_segment_size() throws IOException {
+            MappedDynamicArray.open(file, Codecs.INT, 4).close();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ByteBuffer zero = ByteBuffer.allocate(4);
+                channel.write(zero, 8);
+            }
+            assertThrows(IOException.class, () -> {
+                MappedDynamicArray.open(file, Codecs.INT);
+            });
+        }
+
+        @Test
+        void record_codec() throws IOException {
+            try (MappedDynamicArray<Point> list = MappedDynamicArray.open(file, POINTS, 2)) {
+                list.add(new Point(1, 2));
+                list.add(new Point(3, 4));
+                list.add(new Point(5, 6));
+            }
+            try (MappedDynamicArray<Point> list = MappedDynamicArray.open(file, POINTS)) {
+                assertEquals(3, list.size());
+                assertEquals(5, list.get(-1).x);
+                assertEquals(4, list.get(1).y);
+            }
+        }
+    }
+}
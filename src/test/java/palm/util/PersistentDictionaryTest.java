@@ -0,0 +1,301 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static palm.util.Dictionary.Entry;
+
+class PersistentDictionaryTest {
+
+    /**
+     * A key with a chosen hashcode, to place it in the trie.
+     */
+    static class HashKey {
+        final int id;
+        final int hash;
+
+        HashKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HashKey && ((HashKey) obj).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Nested
+    class GetSetTest {
+        PersistentDictionary<String, Integer> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = PersistentDictionary.of(Entry.of("Foo", 1), Entry.of("Bar", 2));
+        }
+
+        @Test
+        void get_missing() {
+            assertNull(PersistentDictionary.empty().get("Foo"));
+            assertNull(dict.get("Baz"));
+        }
+
+        @Test
+        void get_null_key() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                dict.get(null);
+            });
+            assertThrows(IllegalArgumentException.class, () -> {
+                dict.set(null, 3);
+            });
+        }
+
+        @Test
+        void set_leaves_original() {
+            PersistentDictionary<String, Integer> changed = dict.set("Foo", 3).set("Baz", 4);
+            assertEquals(Integer.valueOf(1), dict.get("Foo"));
+            assertFalse(dict.containsKey("Baz"));
+            assertEquals(2, dict.size());
+            assertEquals(Integer.valueOf(3), changed.get("Foo"));
+            assertEquals(Integer.valueOf(4), changed.get("Baz"));
+            assertEquals(3, changed.size());
+        }
+
+        @Test
+        void set_same_value_is_same_dictionary() {
+            assertSame(dict, dict.set("Bar", dict.get("Bar")));
+        }
+
+        @Test
+        void from_dictionary() {
+            Dictionary<String, Integer> source = Dictionary.of(Entry.of("a", 1), Entry.of("b", 2));
+            PersistentDictionary<String, Integer> copy = PersistentDictionary.from(source);
+            source.set("c", 3);
+            assertEquals(2, copy.size());
+            assertEquals(3, copy.putAll(source).size());
+        }
+    }
+
+    @Nested
+    class RemoveTest {
+        PersistentDictionary<String, Integer> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = PersistentDictionary.of(Entry.of("Foo", 1), Entry.of("Bar", 2), Entry.of("Baz", 3));
+        }
+
+        @Test
+        void remove_leaves_original() {
+            PersistentDictionary<String, Integer> changed = dict.remove("Bar");
+            assertEquals(3, dict.size());
+            assertEquals(2, changed.size());
+            assertEquals(Integer.valueOf(2), dict.get("Bar"));
+            assertNull(changed.get("Bar"));
+            assertEquals(Integer.valueOf(3), changed.get("Baz"));
+        }
+
+        @Test
+        void remove_missing_is_same_dictionary() {
+            assertSame(dict, dict.remove("Hello"));
+        }
+
+        @Test
+        void remove_all() {
+            dict = dict.remove("Foo").remove("Bar").remove("Baz");
+            assertEquals(0, dict.size());
+            assertFalse(dict.iterator().hasNext());
+        }
+    }
+
+    /**
+     * Keys placed by hashcode, to build and take apart the deep paths and
+     * collision nodes that ordinary keys rarely reach.
+     */
+    @Nested
+    class TrieTest {
+        HashKey a = new HashKey(1, 0);
+        HashKey b = new HashKey(2, 0);
+        PersistentDictionary<HashKey, Integer> pair;
+
+        @BeforeEach
+        void initDict() {
+            // a and b share their whole hashcode, so they share a collision node
+            pair = PersistentDictionary.<HashKey, Integer>empty().set(a, 1).set(b, 2);
+        }
+
+        @Test
+        void collision_node_holds_both() {
+            assertEquals(2, pair.size());
+            assertEquals(Integer.valueOf(1), pair.get(a));
+            assertEquals(Integer.valueOf(2), pair.get(b));
+            assertNull(pair.get(new HashKey(3, 0)));
+            assertEquals(Integer.valueOf(5), pair.set(b, 5).get(b));
+            assertEquals(Integer.valueOf(2), pair.get(b));
+        }
+
+        @Test
+        void collision_node_splits() {
+            // agrees with the collision node's hash in the first 5 bits only
+            HashKey c = new HashKey(3, 1 << 5);
+            PersistentDictionary<HashKey, Integer> three = pair.set(c, 3);
+            assertEquals(3, three.size());
+            assertEquals(Integer.valueOf(1), three.get(a));
+            assertEquals(Integer.valueOf(2), three.get(b));
+            assertEquals(Integer.valueOf(3), three.get(c));
+            assertNull(pair.get(c));
+
+            PersistentDictionary<HashKey, Integer> back = three.remove(c);
+            assertEquals(2, back.size());
+            assertEquals(Integer.valueOf(1), back.get(a));
+            assertEquals(Integer.valueOf(2), back.get(b));
+        }
+
+        @Test
+        void collision_node_splits_at_last_level() {
+            // agrees with the collision node's hash in all but the top bit
+            HashKey c = new HashKey(3, 1 << 31);
+            PersistentDictionary<HashKey, Integer> three = pair.set(c, 3);
+            assertEquals(Integer.valueOf(1), three.get(a));
+            assertEquals(Integer.valueOf(2), three.get(b));
+            assertEquals(Integer.valueOf(3), three.get(c));
+            three = three.remove(a);
+            assertNull(three.get(a));
+            assertEquals(Integer.valueOf(2), three.get(b));
+            assertEquals(Integer.valueOf(3), three.get(c));
+        }
+
+        @Test
+        void collision_node_collapses() {
+            PersistentDictionary<HashKey, Integer> one = pair.remove(a);
+            assertEquals(1, one.size());
+            assertEquals(Integer.valueOf(2), one.get(b));
+            assertSame(one, one.remove(a));
+            assertEquals(0, one.remove(b).size());
+        }
+
+        @Test
+        void deep_path_collapses() {
+            // c and d agree in all but the top bits, so they sit at the bottom of a long path
+            HashKey c = new HashKey(3, 0x3fffffff);
+            HashKey d = new HashKey(4, 0x7fffffff);
+            PersistentDictionary<HashKey, Integer> four = pair.set(c, 3).set(d, 4);
+            assertEquals(4, four.size());
+            assertEquals(Integer.valueOf(3), four.get(c));
+            assertEquals(Integer.valueOf(4), four.get(d));
+            PersistentDictionary<HashKey, Integer> less = four.remove(c);
+            assertNull(less.get(c));
+            assertEquals(Integer.valueOf(4), less.get(d));
+            assertEquals(3, less.size());
+            int count = 0;
+            for (Entry<HashKey, Integer> entry : less) {
+                assertEquals(entry.key().id, entry.value().intValue());
+                count++;
+            }
+            assertEquals(3, count);
+        }
+
+        @Test
+        void transient_splits_and_collapses() {
+            PersistentDictionary.Transient<HashKey, Integer> builder = pair.asTransient();
+            HashKey c = new HashKey(3, 1 << 5);
+            builder.set(c, 3);
+            assertEquals(Integer.valueOf(1), builder.remove(a));
+            assertEquals(Integer.valueOf(2), builder.remove(b));
+            PersistentDictionary<HashKey, Integer> built = builder.persistent();
+            assertEquals(1, built.size());
+            assertEquals(Integer.valueOf(3), built.get(c));
+            assertEquals(2, pair.size());
+            assertNull(pair.get(c));
+        }
+    }
+
+    @Nested
+    class TransientTest {
+        @Test
+        void transient_leaves_original() {
+            PersistentDictionary<String, Integer> dict = PersistentDictionary.of(Entry.of("Foo", 1), Entry.of("Bar", 2));
+            PersistentDictionary.Transient<String, Integer> builder = dict.asTransient();
+            assertEquals(Integer.valueOf(1), builder.remove("Foo"));
+            builder.set("Bar", 3);
+            builder.set("Baz", 4);
+            assertNull(builder.remove("Hello"));
+            assertEquals(2, builder.size());
+            PersistentDictionary<String, Integer> changed = builder.persistent();
+            assertEquals(2, dict.size());
+            assertEquals(Integer.valueOf(2), dict.get("Bar"));
+            assertEquals(Integer.valueOf(3), changed.get("Bar"));
+            assertNull(changed.get("Foo"));
+        }
+
+        @Test
+        void transient_unusable_after_persistent() {
+            PersistentDictionary.Transient<String, Integer> builder = PersistentDictionary.<String, Integer>empty().asTransient();
+            builder.persistent();
+            assertThrows(IllegalStateException.class, () -> {
+                builder.set("Foo", 1);
+            });
+        }
+    }
+
+    @Nested
+    class ModelTest {
+        @Test
+        void random_operations_match_hash_map() {
+            Random random = new Random(11);
+            Map<Integer, Integer> expected = new HashMap<>();
+            PersistentDictionary<Integer, Integer> dict = PersistentDictionary.empty();
+            List<Map<Integer, Integer>> oldExpected = new ArrayList<>();
+            List<PersistentDictionary<Integer, Integer>> oldDicts = new ArrayList<>();
+            for (int step = 0; step < 30000; step++) {
+                // mask the hashes so they share long prefixes
+                int key = random.nextInt(5000) * 0x10001;
+                if (random.nextInt(3) == 0) {
+                    expected.remove(key);
+                    dict = dict.remove(key);
+                } else {
+                    expected.put(key, step);
+                    dict = dict.set(key, step);
+                }
+                if (step % 3000 == 0) {
+                    oldExpected.add(new HashMap<>(expected));
+                    oldDicts.add(dict);
+                }
+            }
+            oldExpected.add(expected);
+            oldDicts.add(dict);
+            for (int v = 0; v < oldDicts.size(); v++) {
+                Map<Integer, Integer> entries = oldExpected.get(v);
+                PersistentDictionary<Integer, Integer> old = oldDicts.get(v);
+                assertEquals(entries.size(), old.size());
+                int count = 0;
+                for (Entry<Integer, Integer> entry : old) {
+                    assertEquals(entries.get(entry.key()), entry.value());
+                    count++;
+                }
+                assertEquals(entries.size(), count);
+            }
+        }
+
+        @Test
+        void forEach_and_stream() {
+            PersistentDictionary<Integer, String> dict = PersistentDictionary.of(
+                Entry.of(1, "a"), Entry.of(2, "b"), Entry.of(3, "c"));
+            int[] sum = new int[1];
+            dict.forEach((key, value) -> sum[0] += key);
+            assertEquals(6, sum[0]);
+            assertEquals(6L, dict.parallelStream().mapToLong(Entry::key).sum());
+        }
+    }
+}
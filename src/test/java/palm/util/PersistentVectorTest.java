@@ -0,0 +1,297 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class PersistentVectorTest {
+
+    /**
+     * Elements per node, and so per tail
+     */
+    static final int WIDTH = 32;
+
+    static void assertItems(int size, PersistentVector<Integer> vec) {
+        assertEquals(size, vec.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(Integer.valueOf(i), vec.get(i));
+        }
+    }
+
+    @Nested
+    class GetTest {
+        PersistentVector<String> vec;
+
+        @BeforeEach
+        void initVector() {
+            vec = PersistentVector.of("Foo", "Bar");
+        }
+
+        @Test
+        void get_under() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                vec.get(-3);
+            });
+        }
+
+        @Test
+        void get_over() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                vec.get(2);
+            });
+        }
+
+        @Test
+        void get_negative() {
+            assertEquals("Bar", vec.get(-1));
+            assertEquals("Foo", vec.get(-2));
+        }
+
+        @Test
+        void indexOf_test() {
+            assertEquals(1, vec.indexOf("Bar"));
+            assertEquals(-1, vec.indexOf("Baz"));
+            assertTrue(vec.contains("Foo"));
+        }
+    }
+
+    @Nested
+    class UpdateTest {
+        @Test
+        void add_leaves_original() {
+            PersistentVector<String> vec = PersistentVector.of("Foo");
+            PersistentVector<String> more = vec.add("Bar");
+            assertEquals(1, vec.size());
+            assertEquals(2, more.size());
+            assertEquals("Bar", more.get(1));
+        }
+
+        @Test
+        void set_leaves_original() {
+            PersistentVector<String> vec = PersistentVector.of("Foo", "Bar", "Baz");
+            PersistentVector<String> changed = vec.set(1, "Hi").set(-1, "End");
+            assertEquals("Bar", vec.get(1));
+            assertEquals("Baz", vec.get(-1));
+            assertEquals("Hi", changed.get(1));
+            assertEquals("End", changed.get(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                vec.set(3, "Over");
+            });
+        }
+
+        @Test
+        void removeLast_to_empty() {
+            PersistentVector<String> vec = PersistentVector.of("Foo").removeLast();
+            assertEquals(0, vec.size());
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                vec.removeLast();
+            });
+        }
+
+        @Test
+        void addAll_test() {
+            PersistentVector<Integer> vec = PersistentVector.of(0, 1).addAll(DynamicArray.of(2, 3, 4));
+            assertItems(5, vec);
+        }
+    }
+
+    /**
+     * The tail holds the last 32 elements; these cases cross the points
+     * where it is pushed into the tree, or pulled back out.
+     */
+    @Nested
+    class BoundaryTest {
+        PersistentVector<Integer> vec;
+
+        @BeforeEach
+        void initVector() {
+            vec = PersistentVector.empty();
+            for (int i = 0; i < WIDTH; i++) {
+                vec = vec.add(i);
+            }
+        }
+
+        @Test
+        void push_full_tail() {
+            assertEquals(1, vec.getDepth());
+            PersistentVector<Integer> more = vec.add(WIDTH);
+            assertItems(WIDTH + 1, more);
+            assertItems(WIDTH, vec);
+            assertEquals(1, more.getDepth());
+        }
+
+        @Test
+        void pop_back_into_tail() {
+            PersistentVector<Integer> more = vec.add(WIDTH);
+            PersistentVector<Integer> back = more.removeLast();
+            assertItems(WIDTH, back);
+            PersistentVector<Integer> less = back.removeLast();
+            assertItems(WIDTH - 1, less);
+            assertItems(WIDTH + 1, more);
+        }
+
+        @Test
+        void set_in_tree_and_tail() {
+            PersistentVector<Integer> more = vec.add(WIDTH);
+            PersistentVector<Integer> changed = more.set(WIDTH - 1, -1).set(WIDTH, -2);
+            assertEquals(Integer.valueOf(-1), changed.get(WIDTH - 1));
+            assertEquals(Integer.valueOf(-2), changed.get(WIDTH));
+            assertItems(WIDTH + 1, more);
+        }
+
+        @Test
+        void root_grows_a_level() {
+            // the root fills at 32 leaves, plus a full tail
+            int full = WIDTH * WIDTH + WIDTH;
+            for (int i = WIDTH; i < full; i++) {
+                vec = vec.add(i);
+            }
+            assertEquals(1, vec.getDepth());
+            PersistentVector<Integer> more = vec.add(full);
+            assertEquals(2, more.getDepth());
+            assertItems(full + 1, more);
+            assertItems(full, vec);
+
+            PersistentVector<Integer> back = more.removeLast();
+            assertEquals(1, back.getDepth());
+            assertItems(full, back);
+            back = back.removeLast();
+            assertEquals(1, back.getDepth());
+            assertItems(full - 1, back);
+            assertItems(full + 1, more);
+        }
+
+        @Test
+        void root_shrinks_a_level() {
+            // one element past the first leaf of the second level
+            int size = WIDTH * WIDTH + 2 * WIDTH + 1;
+            for (int i = WIDTH; i < size; i++) {
+                vec = vec.add(i);
+            }
+            assertEquals(2, vec.getDepth());
+            PersistentVector<Integer> less = vec;
+            while (less.size() > WIDTH * WIDTH + WIDTH) {
+                less = less.removeLast();
+            }
+            assertEquals(1, less.getDepth());
+            assertItems(WIDTH * WIDTH + WIDTH, less);
+            assertItems(size, vec);
+        }
+
+        @Test
+        void transient_across_boundaries() {
+            int full = WIDTH * WIDTH + WIDTH;
+            PersistentVector.Transient<Integer> builder = vec.asTransient();
+            for (int i = WIDTH; i <= full; i++) {
+                builder.add(i);
+            }
+            assertEquals(Integer.valueOf(full), builder.removeLast());
+            assertEquals(Integer.valueOf(full - 1), builder.removeLast());
+            PersistentVector<Integer> built = builder.persistent();
+            assertEquals(1, built.getDepth());
+            assertItems(full - 1, built);
+            assertItems(WIDTH, vec);
+        }
+    }
+
+    @Nested
+    class TransientTest {
+        @Test
+        void transient_leaves_original() {
+            PersistentVector<Integer> vec = PersistentVector.of(0, 1, 2, 3, 4);
+            PersistentVector.Transient<Integer> builder = vec.asTransient();
+            for (int i = 0; i < 5; i++) {
+                builder.set(i, -i);
+            }
+            builder.add(5);
+            assertEquals(Integer.valueOf(5), builder.removeLast());
+            assertEquals(Integer.valueOf(-4), builder.removeLast());
+            PersistentVector<Integer> changed = builder.persistent();
+            assertEquals(4, changed.size());
+            assertEquals(Integer.valueOf(-2), changed.get(2));
+            assertItems(5, vec);
+        }
+
+        @Test
+        void transient_unusable_after_persistent() {
+            PersistentVector.Transient<Integer> builder = PersistentVector.of(0, 1, 2).asTransient();
+            builder.persistent();
+            assertThrows(IllegalStateException.class, () -> {
+                builder.add(3);
+            });
+            assertThrows(IllegalStateException.class, () -> {
+                builder.persistent();
+            });
+        }
+
+        @Test
+        void persistent_then_transient_again() {
+            PersistentVector.Transient<Integer> builder = PersistentVector.<Integer>empty().asTransient();
+            for (int i = 0; i < 100; i++) {
+                builder.add(i);
+            }
+            PersistentVector<Integer> first = builder.persistent();
+            PersistentVector.Transient<Integer> again = first.asTransient();
+            again.set(5, -5);
+            again.add(100);
+            PersistentVector<Integer> second = again.persistent();
+            assertEquals(Integer.valueOf(5), first.get(5));
+            assertEquals(100, first.size());
+            assertEquals(Integer.valueOf(-5), second.get(5));
+            assertEquals(101, second.size());
+        }
+    }
+
+    @Nested
+    class ModelTest {
+        @Test
+        void random_operations_match_array_list() {
+            Random random = new Random(3);
+            List<Integer> expected = new ArrayList<>();
+            PersistentVector<Integer> vec = PersistentVector.empty();
+            List<List<Integer>> oldExpected = new ArrayList<>();
+            List<PersistentVector<Integer>> oldVectors = new ArrayList<>();
+            for (int step = 0; step < 20000; step++) {
+                int op = random.nextInt(10);
+                if (op < 6 || expected.isEmpty()) {
+                    expected.add(step);
+                    vec = vec.add(step);
+                } else if (op < 8) {
+                    expected.remove(expected.size() - 1);
+                    vec = vec.removeLast();
+                } else {
+                    int index = random.nextInt(expected.size());
+                    expected.set(index, -step);
+                    vec = vec.set(index, -step);
+                }
+                if (step % 1000 == 0) {
+                    oldExpected.add(new ArrayList<>(expected));
+                    oldVectors.add(vec);
+                }
+            }
+            oldExpected.add(expected);
+            oldVectors.add(vec);
+            for (int v = 0; v < oldVectors.size(); v++) {
+                List<Integer> items = oldExpected.get(v);
+                PersistentVector<Integer> old = oldVectors.get(v);
+                assertEquals(items.size(), old.size());
+                int i = 0;
+                for (Integer value : old) {
+                    assertEquals(items.get(i++), value);
+                }
+            }
+        }
+
+        @Test
+        void forEach_and_stream() {
+            PersistentVector<Integer> vec = PersistentVector.of(1, 2, 3, 4);
+            int[] sum = new int[1];
+            vec.forEach(i -> sum[0] += i);
+            assertEquals(10, sum[0]);
+            assertEquals(10L, vec.parallelStream().mapToLong(i -> i).sum());
+        }
+    }
+}
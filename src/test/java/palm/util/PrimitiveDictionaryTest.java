@@ -0,0 +1,215 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * The cases shared by the primitive dictionaries, which have no common
+ * interface. Each subclass adapts its dictionary to {@link Subject},
+ * passing keys as longs and values boxed.
+ *
+ * @param <V> the (boxed) type of value
+ */
+abstract class PrimitiveDictionaryTest<V> {
+
+    /**
+     * A primitive dictionary under test.
+     */
+    interface Subject<V> {
+        int size();
+        void set(long key, V value);
+        V get(long key);
+        V getOrDefault(long key, V defaultValue);
+        boolean containsKey(long key);
+        V remove(long key);
+        void clear();
+        Cursor<V> cursor();
+        int getCapacity();
+    }
+
+    /**
+     * A primitive dictionary's cursor.
+     */
+    interface Cursor<V> {
+        boolean advance();
+        long key();
+        V value();
+        void reset();
+    }
+
+    /**
+     * Create an empty dictionary.
+     *
+     * @param expectedSize the size to presize for, or -1 for the default
+     */
+    abstract Subject<V> create(int expectedSize);
+
+    /**
+     * Get a distinct key for each i, spread over the key type's range.
+     */
+    abstract long key(int i);
+
+    /**
+     * Get a distinct value for each i.
+     */
+    abstract V value(int i);
+
+    /**
+     * Get the value returned for a missing key.
+     */
+    abstract V missing();
+
+    @Nested
+    class GetSetTest {
+        Subject<V> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = create(-1);
+            dict.set(4, value(4));
+            dict.set(13, value(13));
+        }
+
+        @Test
+        void get_existing_key() {
+            assertEquals(value(4), dict.get(4));
+            assertEquals(value(13), dict.get(13));
+        }
+
+        @Test
+        void get_non_existing_key() {
+            assertEquals(missing(), dict.get(100));
+            assertEquals(value(5), dict.getOrDefault(100, value(5)));
+        }
+
+        @Test
+        void set_same_key() {
+            dict.set(4, value(5));
+            assertEquals(2, dict.size());
+            assertEquals(value(5), dict.get(4));
+        }
+
+        @Test
+        void set_zero_key() {
+            assertFalse(dict.containsKey(0));
+            dict.set(0, value(5));
+            assertEquals(3, dict.size());
+            assertTrue(dict.containsKey(0));
+            assertEquals(value(5), dict.get(0));
+        }
+
+        @Test
+        void set_negative_key() {
+            dict.set(-7, value(5));
+            assertEquals(value(5), dict.get(-7));
+        }
+    }
+
+    @Nested
+    class RemoveTest {
+        Subject<V> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = create(-1);
+            dict.set(0, value(4));
+            dict.set(13, value(13));
+        }
+
+        @Test
+        void remove_non_existing_key() {
+            assertEquals(missing(), dict.remove(100));
+            assertEquals(2, dict.size());
+        }
+
+        @Test
+        void remove_existing_key() {
+            assertEquals(value(13), dict.remove(13));
+            assertEquals(1, dict.size());
+            assertFalse(dict.containsKey(13));
+        }
+
+        @Test
+        void remove_zero_key() {
+            assertEquals(value(4), dict.remove(0));
+            assertEquals(1, dict.size());
+            assertFalse(dict.containsKey(0));
+        }
+
+        @Test
+        void clear_test() {
+            dict.clear();
+            assertEquals(0, dict.size());
+            assertFalse(dict.containsKey(0));
+            assertFalse(dict.containsKey(13));
+        }
+    }
+
+    @Nested
+    class GrowthTest {
+        @Test
+        void many_keys() {
+            Subject<V> dict = create(-1);
+            for (int i = -5000; i < 5000; i++) {
+                dict.set(key(i), value(i));
+            }
+            assertEquals(10000, dict.size());
+            for (int i = -5000; i < 5000; i += 2) {
+                assertEquals(value(i), dict.remove(key(i)));
+            }
+            assertEquals(5000, dict.size());
+            for (int i = -5000; i < 5000; i++) {
+                assertEquals(i % 2 != 0, dict.containsKey(key(i)));
+            }
+        }
+
+        @Test
+        void presized() {
+            Subject<V> dict = create(1000);
+            int capacity = dict.getCapacity();
+            for (int i = 0; i < 1000; i++) {
+                dict.set(i, value(i));
+            }
+            assertEquals(capacity, dict.getCapacity());
+        }
+    }
+
+    @Nested
+    class CursorTest {
+        @Test
+        void cursor_visits_all() {
+            Subject<V> dict = create(-1);
+            for (int i = 0; i < 100; i++) {
+                dict.set(i, value(i));
+            }
+            Cursor<V> cursor = dict.cursor();
+            int count = 0;
+            while (cursor.advance()) {
+                assertEquals(value((int) cursor.key()), cursor.value());
+                count++;
+            }
+            assertEquals(100, count);
+
+            cursor.reset();
+            assertTrue(cursor.advance());
+        }
+
+        @Test
+        void cursor_key_and_value_off_the_ends() {
+            Subject<V> dict = create(-1);
+            dict.set(key(1), value(1));
+            Cursor<V> cursor = dict.cursor();
+            assertThrows(IllegalStateException.class, cursor::key);
+            assertThrows(IllegalStateException.class, cursor::value);
+            assertTrue(cursor.advance());
+            assertEquals(key(1), cursor.key());
+            assertEquals(value(1), cursor.value());
+            assertFalse(cursor.advance());
+            assertThrows(IllegalStateException.class, cursor::key);
+            assertThrows(IllegalStateException.class, cursor::value);
+            cursor.reset();
+            assertThrows(IllegalStateException.class, cursor::key);
+            assertThrows(IllegalStateException.class, cursor::value);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static palm.util.Dictionary.Entry;
+
+class SortedDictionaryTest {
+
+    static final int MAX = SortedDictionary.MAX_KEYS;
+
+    @Nested
+    class GetSetTest {
+        @Test
+        void get_missing() {
+            assertNull(new SortedDictionary<String, Integer>().get("Foo"));
+            SortedDictionary<Integer, String> dict = new SortedDictionary<>();
+            dict.set(0, "v0");
+            dict.set(10, "v10");
+            assertNull(dict.get(5));
+        }
+
+        @Test
+        void set_and_replace() {
+            SortedDictionary<String, Integer> dict = new SortedDictionary<>();
+            dict.set("Foo", 1);
+            dict.add(Entry.of("Bar", 2));
+            dict.set("Foo", 3);
+            assertEquals(2, dict.size());
+            assertEquals(Integer.valueOf(3), dict.get("Foo"));
+            assertTrue(dict.containsKey("Bar"));
+            assertFalse(dict.containsKey("Baz"));
+        }
+
+        @Test
+        void null_key() {
+            SortedDictionary<String, Integer> dict = new SortedDictionary<>();
+            assertThrows(IllegalArgumentException.class, () -> {
+                dict.set(null, 1);
+            });
+            assertThrows(IllegalArgumentException.class, () -> {
+                dict.get(null);
+            });
+        }
+
+        @Test
+        void height_stays_logarithmic() {
+            SortedDictionary<Integer, String> dict = new SortedDictionary<>();
+            for (int i = 0; i < 100000; i++) {
+                dict.set(i * 10, "v" + i * 10);
+            }
+            assertEquals(100000, dict.size());
+            assertTrue(dict.getHeight() <= 4);
+            assertEquals("v500000", dict.get(500000));
+        }
+
+        @Test
+        void iterates_in_order() {
+            SortedDictionary<Integer, Integer> dict = new SortedDictionary<>();
+            for (int i = 999; i >= 0; i--) {
+                dict.set(i, -i);
+            }
+            int expected = 0;
+            for (Entry<Integer, Integer> entry : dict) {
+                assertEquals(Integer.valueOf(expected), entry.key());
+                assertEquals(Integer.valueOf(-expected), entry.value());
+                expected++;
+            }
+            assertEquals(1000, expected);
+        }
+    }
+
+    @Nested
+    class RemoveTest {
+        @Test
+        void remove_test() {
+            SortedDictionary<Integer, String> dict = new SortedDictionary<>();
+            dict.set(40, "v40");
+            dict.set(50, "v50");
+            dict.set(60, "v60");
+            assertEquals("v50", dict.remove(50));
+            assertNull(dict.remove(50));
+            assertNull(dict.remove(51));
+            assertEquals(2, dict.size());
+            assertEquals(Integer.valueOf(40), dict.floorKey(55));
+            assertEquals(Integer.valueOf(60), dict.ceilingKey(45));
+        }
+
+        @Test
+        void remove_everything_shrinks_tree() {
+            SortedDictionary<Integer, String> dict = new SortedDictionary<>();
+            for (int i = 0; i < 10000; i++) {
+                dict.set(i * 10, "v" + i * 10);
+            }
+            assertTrue(dict.getHeight() >= 3);
+            for (int i = 0; i < 10000; i++) {
+                assertEquals("v" + i * 10, dict.remove(i * 10));
+            }
+            assertEquals(0, dict.size());
+            assertEquals(1, dict.getHeight());
+            assertFalse(dict.iterator().hasNext());
+            assertNull(dict.firstKey());
+            dict.set(1, "again");
+            assertEquals("again", dict.get(1));
+        }
+    }
+
+    /**
+     * The points where leaves and inner nodes split, and where an under
+     * half full node borrows from or merges with a sibling. Keys go in in
+     * ascending order, so every leaf but the last is left exactly half full.
+     */
+    @Nested
+    class NodeTest {
+        SortedDictionary<Integer, Integer> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = new SortedDictionary<>();
+        }
+
+        void fill(int from, int to) {
+            for (int i = from; i < to; i++) {
+                dict.set(i, -i);
+            }
+        }
+
+        void assertKeys(int from, int to) {
+            assertEquals(to - from, dict.size());
+            int expected = from;
+            for (Entry<Integer, Integer> entry : dict) {
+                assertEquals(Integer.valueOf(expected), entry.key());
+                assertEquals(Integer.valueOf(-expected), entry.value());
+                expected++;
+            }
+            assertEquals(to, expected);
+            assertEquals(Integer.valueOf(from), dict.firstKey());
+            assertEquals(Integer.valueOf(to - 1), dict.lastKey());
+        }
+
+        @Test
+        void leaf_splits_when_full() {
+            fill(0, MAX);
+            assertEquals(1, dict.getHeight());
+            assertEquals(1, dict.getLeafCount());
+            dict.set(MAX, -MAX);
+            assertEquals(2, dict.getHeight());
+            assertEquals(2, dict.getLeafCount());
+            assertKeys(0, MAX + 1);
+            assertEquals(Integer.valueOf(MAX / 2 - 1), dict.floorKey(MAX / 2 - 1));
+            assertEquals(Integer.valueOf(MAX / 2), dict.ceilingKey(MAX / 2));
+        }
+
+        @Test
+        void leaf_borrows_from_right() {
+            // leaves of MAX / 2 and MAX / 2 + 1
+            fill(0, MAX + 1);
+            dict.remove(0);
+            assertEquals(2, dict.getLeafCount());
+            assertKeys(1, MAX + 1);
+            // the borrowed key is found in its new leaf
+            assertEquals(Integer.valueOf(-MAX / 2), dict.get(MAX / 2));
+            assertEquals(Integer.valueOf(MAX / 2), dict.floorKey(MAX / 2));
+            assertEquals(Integer.valueOf(MAX / 2 + 1), dict.ceilingKey(MAX / 2 + 1));
+        }
+
+        @Test
+        void leaf_borrows_from_left() {
+            fill(0, MAX + 1);
+            dict.set(-1, 1);
+            dict.remove(MAX);
+            dict.remove(MAX - 1);
+            assertEquals(2, dict.getLeafCount());
+            assertKeys(-1, MAX - 1);
+            assertEquals(Integer.valueOf(-(MAX / 2 - 1)), dict.get(MAX / 2 - 1));
+        }
+
+        @Test
+        void leaves_merge_and_root_collapses() {
+            fill(0, MAX + 1);
+            dict.remove(MAX);
+            assertEquals(2, dict.getLeafCount());
+            dict.remove(MAX - 1);
+            assertEquals(1, dict.getLeafCount());
+            assertEquals(1, dict.getHeight());
+            assertKeys(0, MAX - 1);
+            dict.set(MAX - 1, 1 - MAX);
+            assertKeys(0, MAX);
+        }
+
+        @Test
+        void floor_falls_back_to_previous_leaf() {
+            fill(0, MAX + 1);
+            // the second leaf no longer holds the key that separates it
+            dict.set(MAX + 1, -MAX - 1);
+            dict.remove(MAX / 2);
+            assertEquals(2, dict.getLeafCount());
+            assertEquals(Integer.valueOf(MAX / 2 - 1), dict.floorKey(MAX / 2));
+            assertEquals(Integer.valueOf(MAX / 2 + 1), dict.ceilingKey(MAX / 2));
+        }
+
+        @Test
+        void inner_splits_when_full() {
+            // a root full of MAX + 1 leaves, the last one full
+            int full = MAX + 1 + MAX * MAX / 2 - 1;
+            fill(0, full);
+            assertEquals(2, dict.getHeight());
+            assertEquals(MAX + 1, dict.getLeafCount());
+            dict.set(full, -full);
+            assertEquals(3, dict.getHeight());
+            assertEquals(MAX + 2, dict.getLeafCount());
+            assertKeys(0, full + 1);
+        }
+
+        @Test
+        void inners_merge_and_root_collapses() {
+            int size = MAX + 1 + MAX * MAX / 2;
+            fill(0, size);
+            assertEquals(3, dict.getHeight());
+            dict.remove(size - 1);
+            assertEquals(3, dict.getHeight());
+            // the last two leaves merge, leaving the right inner node too small
+            dict.remove(size - 2);
+            assertEquals(2, dict.getHeight());
+            assertEquals(MAX + 1, dict.getLeafCount());
+            assertKeys(0, size - 2);
+        }
+
+        @Test
+        void inner_borrows_from_left() {
+            int size = MAX + 1 + MAX * MAX / 2;
+            for (int i = 0; i < size; i++) {
+                dict.set(2 * i, -2 * i);
+            }
+            // split the first leaf, so the left inner node has a child to spare
+            for (int i = 1; i <= MAX / 2 + 1; i++) {
+                dict.set(-i, i);
+            }
+            assertEquals(MAX + 3, dict.getLeafCount());
+            dict.remove(2 * size - 2);
+            dict.remove(2 * size - 4);
+            assertEquals(3, dict.getHeight());
+            assertEquals(MAX + 2, dict.getLeafCount());
+            int expected = -MAX / 2 - 1;
+            for (Entry<Integer, Integer> entry : dict) {
+                assertEquals(Integer.valueOf(-entry.key()), entry.value());
+                assertTrue(entry.key() >= expected);
+                expected = entry.key() + 1;
+            }
+            assertEquals(Integer.valueOf(2 * size - 6), dict.lastKey());
+            assertEquals(Integer.valueOf(2 * size - 6), dict.floorKey(2 * size));
+            assertEquals(Integer.valueOf(-MAX / 2 - 1), dict.firstKey());
+            assertEquals(Integer.valueOf(MAX + 2), dict.ceilingKey(MAX + 1));
+        }
+
+        @Test
+        void inner_borrows_from_right() {
+            // one more leaf than a split root leaves on the right
+            int size = MAX + 1 + MAX * MAX / 2 + MAX / 2;
+            fill(0, size);
+            assertEquals(MAX + 3, dict.getLeafCount());
+            dict.remove(0);
+            assertEquals(3, dict.getHeight());
+            assertEquals(MAX + 2, dict.getLeafCount());
+            assertKeys(1, size);
+            for (int i = 1; i < size; i += 7) {
+                assertEquals(Integer.valueOf(-i), dict.get(i));
+            }
+        }
+    }
+
+    @Nested
+    class NavigationTest {
+        SortedDictionary<Integer, String> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = new SortedDictionary<>();
+            for (int i = 0; i < 1000; i++) {
+                dict.set(i * 10, "v" + i * 10);
+            }
+        }
+
+        @Test
+        void first_last() {
+            assertEquals(Integer.valueOf(0), dict.firstKey());
+            assertEquals(Integer.valueOf(9990), dict.lastKey());
+            assertNull(new SortedDictionary<Integer, String>().lastKey());
+        }
+
+        @Test
+        void floor_ceiling() {
+            assertNull(dict.floorKey(-1));
+            assertEquals(Integer.valueOf(0), dict.floorKey(0));
+            assertEquals(Integer.valueOf(0), dict.floorKey(9));
+            assertEquals(Integer.valueOf(9990), dict.floorKey(100000));
+            assertEquals(Integer.valueOf(0), dict.ceilingKey(-5));
+            assertEquals(Integer.valueOf(10), dict.ceilingKey(1));
+            assertEquals(Integer.valueOf(9990), dict.ceilingKey(9990));
+            assertNull(dict.ceilingKey(9991));
+        }
+
+        @Test
+        void floor_ceiling_across_leaves() {
+            for (int key = -5; key < 10000; key += 7) {
+                int floor = Math.floorDiv(key, 10) * 10;
+                int ceiling = Math.floorDiv(key + 9, 10) * 10;
+                assertEquals(floor < 0 ? null : Integer.valueOf(floor), dict.floorKey(key));
+                assertEquals(ceiling > 9990 ? null : Integer.valueOf(Math.max(0, ceiling)), dict.ceilingKey(key));
+            }
+        }
+
+        @Test
+        void range_iteration() {
+            Iterator<Entry<Integer, String>> it = dict.range(15, 45).iterator();
+            assertEquals(Integer.valueOf(20), it.next().key());
+            assertEquals(Integer.valueOf(30), it.next().key());
+            assertEquals(Integer.valueOf(40), it.next().key());
+            assertFalse(it.hasNext());
+            assertThrows(java.util.NoSuchElementException.class, it::next);
+        }
+
+        @Test
+        void range_unbounded_and_empty() {
+            assertEquals(1000, dict.range(null, null).stream().count());
+            assertEquals(5, dict.range(null, 50).stream().count());
+            assertEquals(2, dict.range(9980, null).stream().count());
+            assertEquals(0, dict.range(500, 100).stream().count());
+            assertEquals(0, dict.range(100000, null).stream().count());
+        }
+
+        @Test
+        void range_forEach() {
+            long[] sum = new long[1];
+            dict.range(1000, 2000).forEach((key, value) -> sum[0] += key);
+            assertEquals(149500L, sum[0]);
+            dict.forEach((key, value) -> sum[0] -= key);
+            assertEquals(149500L - 4995000L, sum[0]);
+        }
+    }
+
+    @Nested
+    class ModelTest {
+        @Test
+        void random_operations_match_tree_map() {
+            Random random = new Random(23);
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            SortedDictionary<Integer, Integer> dict = new SortedDictionary<>();
+            for (int step = 0; step < 200000; step++) {
+                int key = random.nextInt(20000);
+                int op = random.nextInt(10);
+                if (op < 5) {
+                    expected.put(key, step);
+                    dict.set(key, step);
+                } else if (op < 9) {
+                    assertEquals(expected.remove(key), dict.remove(key));
+                } else {
+                    assertEquals(expected.floorKey(key), dict.floorKey(key));
+                    assertEquals(expected.ceilingKey(key), dict.ceilingKey(key));
+                }
+            }
+            assertEquals(expected.size(), dict.size());
+            Iterator<Map.Entry<Integer, Integer>> it = expected.entrySet().iterator();
+            for (Entry<Integer, Integer> entry : dict) {
+                Map.Entry<Integer, Integer> next = it.next();
+                assertEquals(next.getKey(), entry.key());
+                assertEquals(next.getValue(), entry.value());
+            }
+            assertFalse(it.hasNext());
+            int count = 0;
+            for (Entry<Integer, Integer> entry : dict.range(5000, 6000)) {
+                assertEquals(expected.get(entry.key()), entry.value());
+                count++;
+            }
+            assertEquals(expected.subMap(5000, 6000).size(), count);
+        }
+    }
+}
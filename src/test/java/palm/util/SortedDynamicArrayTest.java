@@ -0,0 +1,317 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+class SortedDynamicArrayTest {
+
+    @Nested
+    class AddTest {
+        @Test
+        void add_keeps_order() {
+            SortedDynamicArray<String> arr = new SortedDynamicArray<>();
+            assertEquals(0, arr.add("Foo"));
+            assertEquals(0, arr.add("Bar"));
+            assertEquals(2, arr.add("Qux"));
+            assertEquals(1, arr.add("Baz"));
+            assertEquals("Bar", arr.get(0));
+            assertEquals("Baz", arr.get(1));
+            assertEquals("Foo", arr.get(2));
+            assertEquals("Qux", arr.get(-1));
+        }
+
+        @Test
+        void add_equal_goes_after() {
+            SortedDynamicArray<String> arr = new SortedDynamicArray<>(String.CASE_INSENSITIVE_ORDER);
+            arr.add("foo");
+            arr.add("FOO");
+            arr.add("Foo");
+            assertEquals("foo", arr.get(0));
+            assertEquals("FOO", arr.get(1));
+            assertEquals("Foo", arr.get(2));
+        }
+
+        @Test
+        void addAll_merges() {
+            SortedDynamicArray<Integer> arr = SortedDynamicArray.of(1, 5, 9);
+            arr.addAll(DynamicArray.of(10, 0, 5, 3));
+            int[] expected = { 0, 1, 3, 5, 5, 9, 10 };
+            assertEquals(expected.length, arr.size());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(Integer.valueOf(expected[i]), arr.get(i));
+            }
+        }
+
+        @Test
+        void addAll_self() {
+            SortedDynamicArray<Integer> arr = SortedDynamicArray.of(0, 1, 2);
+            arr.addAll(arr);
+            assertEquals(6, arr.size());
+            for (int i = 0; i < 6; i++) {
+                assertEquals(Integer.valueOf(i / 2), arr.get(i));
+            }
+        }
+
+        @Test
+        void addAll_before_and_after_all() {
+            SortedDynamicArray<Integer> arr = SortedDynamicArray.of(4, 5, 6);
+            arr.addAll(DynamicArray.of(2, 1, 3));
+            arr.addAll(DynamicArray.of(8, 7));
+            assertEquals(8, arr.size());
+            for (int i = 0; i < 8; i++) {
+                assertEquals(Integer.valueOf(i + 1), arr.get(i));
+            }
+        }
+
+        @Test
+        void addAll_empty() {
+            SortedDynamicArray<Integer> arr = new SortedDynamicArray<>();
+            arr.addAll(DynamicArray.of());
+            assertEquals(0, arr.size());
+            arr.addAll(LinkedList.of(3, 1, 2));
+            assertEquals(3, arr.size());
+            assertEquals(Integer.valueOf(1), arr.first());
+            assertEquals(Integer.valueOf(3), arr.last());
+        }
+
+        @Test
+        void addAll_grows_past_double() {
+            // the batch alone is more than twice the default capacity
+            SortedDynamicArray<Integer> arr = SortedDynamicArray.of(50);
+            DynamicArray<Integer> batch = new DynamicArray<>();
+            for (int i = 99; i >= 0; i -= 3) {
+                batch.add(i);
+            }
+            arr.addAll(batch);
+            assertEquals(35, arr.size());
+            assertTrue(arr.getCapacity() >= 35);
+            for (int i = 1; i < arr.size(); i++) {
+                assertTrue(arr.get(i - 1) <= arr.get(i));
+            }
+            assertEquals(Integer.valueOf(0), arr.first());
+            assertEquals(Integer.valueOf(99), arr.last());
+        }
+
+        @Test
+        void addAll_equal_goes_after() {
+            SortedDynamicArray<int[]> arr = new SortedDynamicArray<>(Comparator.comparingInt(a -> a[0]));
+            arr.add(new int[] {1, 0});
+            arr.addAll(DynamicArray.of(new int[] {1, 1}, new int[] {0, 2}, new int[] {1, 3}));
+            assertEquals(2, arr.get(0)[1]);
+            assertEquals(0, arr.get(1)[1]);
+            assertEquals(1, arr.get(2)[1]);
+            assertEquals(3, arr.get(3)[1]);
+        }
+
+        @Test
+        void get_out_of_range() {
+            SortedDynamicArray<Integer> arr = SortedDynamicArray.of(1, 2);
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                arr.get(2);
+            });
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                arr.get(-3);
+            });
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                new SortedDynamicArray<Integer>().first();
+            });
+        }
+    }
+
+    @Nested
+    class SearchTest {
+        SortedDynamicArray<Integer> arr;
+
+        @BeforeEach
+        void initArray() {
+            arr = SortedDynamicArray.of(10, 20, 20, 30);
+        }
+
+        @Test
+        void indexOf_test() {
+            assertEquals(0, arr.indexOf(10));
+            assertEquals(1, arr.indexOf(20));
+            assertEquals(3, arr.indexOf(30));
+            assertEquals(-1, arr.indexOf(25));
+            assertEquals(-1, arr.indexOf(5));
+            assertEquals(-1, arr.indexOf(35));
+            assertTrue(arr.contains(20));
+            assertFalse(arr.contains(21));
+        }
+
+        @Test
+        void indexOf_equal_run() {
+            SortedDynamicArray<Integer> same = SortedDynamicArray.of(7, 7, 7, 7, 7);
+            assertEquals(0, same.indexOf(7));
+            assertEquals(5, same.add(7));
+            assertEquals(-1, same.indexOf(6));
+            assertEquals(-1, same.indexOf(8));
+            assertEquals(Integer.valueOf(7), same.floor(8));
+            assertNull(same.floor(6));
+            assertEquals(Integer.valueOf(7), same.ceiling(6));
+            assertNull(same.ceiling(8));
+        }
+
+        @Test
+        void add_returns_index_past_equal_run() {
+            assertEquals(3, arr.add(20));
+            assertEquals(0, arr.add(5));
+            assertEquals(6, arr.add(30));
+            assertEquals(7, arr.add(40));
+            assertEquals(2, arr.indexOf(20));
+        }
+
+        @Test
+        void floor_ceiling() {
+            assertNull(arr.floor(9));
+            assertEquals(Integer.valueOf(10), arr.floor(10));
+            assertEquals(Integer.valueOf(20), arr.floor(29));
+            assertEquals(Integer.valueOf(30), arr.floor(99));
+            assertEquals(Integer.valueOf(10), arr.ceiling(1));
+            assertEquals(Integer.valueOf(20), arr.ceiling(11));
+            assertEquals(Integer.valueOf(30), arr.ceiling(30));
+            assertNull(arr.ceiling(31));
+            assertEquals(Integer.valueOf(10), arr.first());
+            assertEquals(Integer.valueOf(30), arr.last());
+        }
+
+        @Test
+        void range_view() {
+            SortedDynamicArray<Integer>.Range range = arr.range(15, 30);
+            assertEquals(2, range.size());
+            assertEquals(Integer.valueOf(20), range.get(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                range.get(2);
+            });
+            arr.add(25);
+            arr.add(30);
+            assertEquals(3, range.size());
+            Iterator<Integer> it = range.iterator();
+            assertEquals(Integer.valueOf(20), it.next());
+            assertEquals(Integer.valueOf(20), it.next());
+            assertEquals(Integer.valueOf(25), it.next());
+            assertFalse(it.hasNext());
+            assertEquals(65, range.stream().mapToInt(i -> i).sum());
+        }
+
+        @Test
+        void range_unbounded_and_empty() {
+            assertEquals(4, arr.range(null, null).size());
+            assertEquals(3, arr.range(null, 30).size());
+            assertEquals(1, arr.range(30, null).size());
+            assertEquals(0, arr.range(30, 10).size());
+            assertFalse(arr.range(30, 10).iterator().hasNext());
+            assertEquals(0, arr.range(30, 10).stream().count());
+        }
+
+        @Test
+        void range_bounds_on_equal_run() {
+            // the run of 20s is inside a range from 20, and outside one up to 20
+            assertEquals(2, arr.range(20, 21).size());
+            assertEquals(1, arr.range(10, 20).size());
+            assertEquals(0, arr.range(20, 20).size());
+            assertEquals(0, arr.range(31, null).size());
+            assertEquals(0, arr.range(null, 10).size());
+            assertEquals(Integer.valueOf(30), arr.range(21, null).get(0));
+        }
+    }
+
+    @Nested
+    class RemoveTest {
+        @Test
+        void remove_item_and_index() {
+            SortedDynamicArray<Integer> arr = SortedDynamicArray.of(3, 1, 2, 2);
+            assertEquals(Integer.valueOf(2), arr.remove(Integer.valueOf(2)));
+            assertEquals(Integer.valueOf(3), arr.remove(-1));
+            assertNull(arr.remove(Integer.valueOf(7)));
+            assertEquals(2, arr.size());
+            assertEquals(Integer.valueOf(1), arr.get(0));
+            assertEquals(Integer.valueOf(2), arr.get(1));
+        }
+
+        @Test
+        void remove_first_of_equal_run() {
+            SortedDynamicArray<int[]> arr = new SortedDynamicArray<>(Comparator.comparingInt(a -> a[0]));
+            arr.addAll(DynamicArray.of(new int[] {1, 0}, new int[] {1, 1}, new int[] {1, 2}));
+            assertEquals(0, arr.remove(new int[] {1, -1})[1]);
+            assertEquals(1, arr.get(0)[1]);
+            assertEquals(2, arr.size());
+        }
+
+        @Test
+        void remove_shrinks_at_quarter() {
+            SortedDynamicArray<Integer> arr = new SortedDynamicArray<>();
+            for (int i = 0; i < 32; i++) {
+                arr.add(i);
+            }
+            assertEquals(32, arr.getCapacity());
+            while (arr.size() > 9) {
+                arr.remove(0);
+            }
+            assertEquals(32, arr.getCapacity());
+            arr.remove(0);
+            assertEquals(16, arr.getCapacity());
+            assertEquals(Integer.valueOf(24), arr.first());
+            assertEquals(Integer.valueOf(31), arr.last());
+        }
+
+        @Test
+        void removeIf_shrinks() {
+            SortedDynamicArray<Integer> arr = new SortedDynamicArray<>();
+            for (int i = 0; i < 1000; i++) {
+                arr.add(i);
+            }
+            assertTrue(arr.removeIf(i -> i >= 10));
+            assertFalse(arr.removeIf(i -> i >= 10));
+            assertEquals(10, arr.size());
+            assertEquals(20, arr.getCapacity());
+            assertEquals(Integer.valueOf(9), arr.last());
+            arr.clear();
+            assertEquals(0, arr.size());
+        }
+    }
+
+    @Nested
+    class ModelTest {
+        @Test
+        void random_operations_match_sorted_list() {
+            Random random = new Random(5);
+            List<Integer> expected = new ArrayList<>();
+            SortedDynamicArray<Integer> arr = new SortedDynamicArray<>(Comparator.reverseOrder());
+            for (int step = 0; step < 5000; step++) {
+                int op = random.nextInt(10);
+                if (op < 4) {
+                    int value = random.nextInt(500);
+                    expected.add(value);
+                    arr.add(value);
+                } else if (op < 5) {
+                    List<Integer> batch = new ArrayList<>();
+                    for (int i = random.nextInt(20); i > 0; i--) {
+                        batch.add(random.nextInt(500));
+                    }
+                    expected.addAll(batch);
+                    arr.addAll(batch);
+                } else if (op < 8) {
+                    Integer value = random.nextInt(500);
+                    assertEquals(expected.remove(value) ? value : null, arr.remove(value));
+                } else {
+                    Integer value = random.nextInt(500);
+                    assertEquals(expected.contains(value), arr.contains(value));
+                }
+                expected.sort(Collections.reverseOrder());
+            }
+            assertEquals(expected.size(), arr.size());
+            int i = 0;
+            for (Integer value : arr) {
+                assertEquals(expected.get(i++), value);
+            }
+        }
+    }
+}
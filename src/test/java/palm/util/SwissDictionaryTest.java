@@ -0,0 +1,208 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import static palm.util.Dictionary.Entry;
+
+class SwissDictionaryTest {
+
+    /**
+     * Key with a fixed hashcode, to force every key into the same group.
+     */
+    static class Colliding {
+        final int id;
+
+        Colliding(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Colliding && ((Colliding) obj).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+
+    @Nested
+    class FactoryTest {
+        @Test
+        void dict_of_nothing() {
+            assertEquals(0, SwissDictionary.of().size());
+        }
+
+        @Test
+        void dict_of_items() {
+            assertEquals(2, SwissDictionary.of(
+                Entry.of("Foo", "Bar"),
+                Entry.of("Hello", "World")
+            ).size());
+        }
+    }
+
+    @Nested
+    class GetSetTest {
+        SwissDictionary<Integer, String> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = SwissDictionary.of(
+                Entry.of(4, "Foo"),
+                Entry.of(13, "Hello")
+            );
+        }
+
+        @Test
+        void get_existing_key() {
+            assertEquals("Hello", dict.get(13));
+            assertEquals("Foo", dict.get(4));
+        }
+
+        @Test
+        void get_non_existing_key() {
+            assertNull(dict.get(100));
+        }
+
+        @Test
+        void add_same_key() {
+            dict.add(Entry.of(4, "Bar"));
+            assertEquals(2, dict.size());
+            assertEquals("Bar", dict.get(4));
+        }
+
+        @Test
+        void set_new_key() {
+            dict.set(5, "Bar");
+            assertEquals(3, dict.size());
+            assertEquals("Bar", dict.get(5));
+        }
+
+        @Test
+        void set_null_key() {
+            assertThrows(IllegalArgumentException.class, () -> {
+                dict.set(null, "Bar");
+            });
+        }
+
+        @Test
+        void containsKey() {
+            assertTrue(dict.containsKey(4));
+            assertFalse(dict.containsKey(5));
+        }
+    }
+
+    @Nested
+    class RemoveTest {
+        SwissDictionary<String, String> dict;
+
+        @BeforeEach
+        void initDict() {
+            dict = SwissDictionary.of(
+                Entry.of("Foo", "Bar"),
+                Entry.of("Hello", "World")
+            );
+        }
+
+        @Test
+        void remove_non_existing_key() {
+            assertNull(dict.remove("Something"));
+            assertEquals(2, dict.size());
+        }
+
+        @Test
+        void remove_existing_key() {
+            assertEquals("Bar", dict.remove("Foo"));
+            assertEquals(1, dict.size());
+            assertNull(dict.get("Foo"));
+            assertEquals("World", dict.get("Hello"));
+        }
+
+        @Test
+        void clear_test() {
+            dict.clear();
+            assertEquals(0, dict.size());
+            assertFalse(dict.containsKey("Hello"));
+        }
+    }
+
+    @Nested
+    class GrowthTest {
+        @Test
+        void many_keys() {
+            SwissDictionary<Integer, Integer> dict = new SwissDictionary<>();
+            for (int i = 0; i < 10000; i++) {
+                dict.set(i, i * 2);
+            }
+            assertEquals(10000, dict.size());
+            for (int i = 0; i < 10000; i++) {
+                assertEquals(Integer.valueOf(i * 2), dict.get(i));
+            }
+            for (int i = 0; i < 10000; i += 2) {
+                assertEquals(Integer.valueOf(i * 2), dict.remove(i));
+            }
+            assertEquals(5000, dict.size());
+            assertFalse(dict.containsKey(0));
+            assertTrue(dict.containsKey(1));
+        }
+
+        @Test
+        void presized() {
+            SwissDictionary<Integer, Integer> dict = new SwissDictionary<>(1000);
+            int capacity = dict.getCapacity();
+            for (int i = 0; i < 1000; i++) {
+                dict.set(i, i);
+            }
+            assertEquals(capacity, dict.getCapacity());
+        }
+
+        @Test
+        void colliding_keys() {
+            SwissDictionary<Colliding, Integer> dict = new SwissDictionary<>();
+            for (int i = 0; i < 100; i++) {
+                dict.set(new Colliding(i), i);
+            }
+            for (int i = 0; i < 100; i++) {
+                assertEquals(Integer.valueOf(i), dict.get(new Colliding(i)));
+            }
+            for (int i = 0; i < 100; i += 3) {
+                dict.remove(new Colliding(i));
+            }
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i % 3 != 0, dict.containsKey(new Colliding(i)));
+            }
+        }
+
+        @Test
+        void churn_reuses_tombstones() {
+            SwissDictionary<Integer, Integer> dict = new SwissDictionary<>();
+            for (int i = 0; i < 100000; i++) {
+                dict.set(i, i);
+                dict.remove(i - 5);
+            }
+            assertEquals(5, dict.size());
+            assertTrue(dict.getCapacity() <= 64);
+        }
+    }
+
+    @Nested
+    class IterateTest {
+        @Test
+        void iterate_all() {
+            SwissDictionary<Integer, String> dict = new SwissDictionary<>();
+            for (int i = 0; i < 100; i++) {
+                dict.set(i, "v" + i);
+            }
+            dict.remove(50);
+            int count = 0;
+            for (Entry<Integer, String> entry : dict) {
+                assertEquals("v" + entry.key(), entry.value());
+                count++;
+            }
+            assertEquals(99, count);
+        }
+    }
+}
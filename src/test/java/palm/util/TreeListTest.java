@@ -0,0 +1,267 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+class TreeListTest {
+
+    @Nested
+    class GetTest {
+        TreeList<String> list;
+
+        @BeforeEach
+        void initList() {
+            list = TreeList.of("Foo", "Bar");
+        }
+
+        @Test
+        void get_under() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.get(-3);
+            });
+        }
+
+        @Test
+        void get_over() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.get(2);
+            });
+        }
+
+        @Test
+        void get_negative() {
+            assertEquals("Bar", list.get(-1));
+            assertEquals("Foo", list.get(-2));
+        }
+
+        @Test
+        void set_test() {
+            assertEquals("Bar", list.set(-1, "Baz"));
+            assertEquals("Baz", list.get(1));
+        }
+
+        @Test
+        void height_stays_logarithmic() {
+            TreeList<Integer> big = new TreeList<>();
+            for (int i = 0; i < 100000; i++) {
+                big.add(i);
+            }
+            assertTrue(big.getHeight() <= 25);
+            assertEquals(Integer.valueOf(54321), big.get(54321));
+            assertEquals(Integer.valueOf(99999), big.get(-1));
+        }
+    }
+
+    @Nested
+    class RotationTest {
+        TreeList<String> list;
+
+        @BeforeEach
+        void initList() {
+            list = new TreeList<>();
+        }
+
+        void assertItems(String... expected) {
+            assertEquals(expected.length, list.size());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], list.get(i));
+                assertEquals(i, list.indexOf(expected[i]));
+            }
+        }
+
+        @Test
+        void right_right_rotates_left() {
+            list.add("a");
+            list.add("b");
+            list.add("c");
+            assertEquals(2, list.getHeight());
+            assertItems("a", "b", "c");
+        }
+
+        @Test
+        void left_left_rotates_right() {
+            list.insert("c", 0);
+            list.insert("b", 0);
+            list.insert("a", 0);
+            assertEquals(2, list.getHeight());
+            assertItems("a", "b", "c");
+        }
+
+        @Test
+        void left_right_rotates_twice() {
+            list.insert("c", 0);
+            list.insert("a", 0);
+            list.insert("b", 1);
+            assertEquals(2, list.getHeight());
+            assertItems("a", "b", "c");
+        }
+
+        @Test
+        void right_left_rotates_twice() {
+            list.add("a");
+            list.add("c");
+            list.insert("b", 1);
+            assertEquals(2, list.getHeight());
+            assertItems("a", "b", "c");
+        }
+
+        @Test
+        void remove_rotates() {
+            list.add("a");
+            list.add("b");
+            list.add("c");
+            list.add("d");
+            assertEquals(3, list.getHeight());
+            assertEquals("a", list.remove(0));
+            assertEquals(2, list.getHeight());
+            assertItems("b", "c", "d");
+        }
+    }
+
+    @Nested
+    class InsertRemoveTest {
+        @Test
+        void insert_index_over() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                TreeList.of("Foo").insert("Hi", 2);
+            });
+        }
+
+        @Test
+        void insert_index_negative() {
+            TreeList<String> list = TreeList.of("Foo", "Bar");
+            list.insert("Hi", -2);
+            list.insert("End", -1);
+            list.insert("Start", 0);
+            assertEquals(5, list.size());
+            assertEquals("Start", list.get(0));
+            assertEquals("Hi", list.get(2));
+            assertEquals("End", list.get(-1));
+        }
+
+        @Test
+        void insert_front_stays_balanced() {
+            TreeList<Integer> list = new TreeList<>();
+            for (int i = 0; i < 10000; i++) {
+                list.insert(i, 0);
+            }
+            assertTrue(list.getHeight() <= 20);
+            assertEquals(Integer.valueOf(9999), list.get(0));
+            assertEquals(Integer.valueOf(0), list.get(-1));
+        }
+
+        @Test
+        void remove_index_and_item() {
+            TreeList<String> list = TreeList.of("Foo", "Bar", "Baz");
+            assertEquals("Baz", list.remove(-1));
+            assertEquals("Foo", list.remove("Foo"));
+            assertNull(list.remove("Foo"));
+            assertEquals(1, list.size());
+            assertEquals("Bar", list.get(0));
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.remove(1);
+            });
+        }
+
+        @Test
+        void bulk_operations() {
+            TreeList<Integer> list = TreeList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+            list.insertAll(DynamicArray.of(100, 101), -3);
+            assertEquals(Integer.valueOf(100), list.get(8));
+            assertEquals(Integer.valueOf(101), list.get(9));
+            assertEquals(Integer.valueOf(8), list.get(10));
+            assertTrue(list.removeIf(i -> i >= 100 || i % 2 == 1));
+            assertEquals(5, list.size());
+            assertEquals(4, list.indexOf(8));
+            assertTrue(list.retainAll(LinkedList.of(2, 4)));
+            assertEquals(2, list.size());
+            assertEquals(Integer.valueOf(4), list.get(-1));
+        }
+
+        @Test
+        void insertAll_self() {
+            TreeList<Integer> list = TreeList.of(0, 1, 2);
+            list.insertAll(list, 1);
+            assertEquals(6, list.size());
+            int[] expected = { 0, 0, 1, 2, 1, 2 };
+            for (int i = 0; i < 6; i++) {
+                assertEquals(Integer.valueOf(expected[i]), list.get(i));
+            }
+        }
+    }
+
+    @Nested
+    class IteratorTest {
+        TreeList<Integer> list;
+
+        @BeforeEach
+        void initList() {
+            list = TreeList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        }
+
+        @Test
+        void iterate_all() {
+            int expected = 0;
+            for (Integer value : list) {
+                assertEquals(Integer.valueOf(expected++), value);
+            }
+            assertEquals(10, expected);
+        }
+
+        @Test
+        void iterate_from_every_index() {
+            for (int from = 0; from <= 10; from++) {
+                Iterator<Integer> it = list.iterator(from);
+                for (int i = from; i < 10; i++) {
+                    assertEquals(Integer.valueOf(i), it.next());
+                }
+                assertFalse(it.hasNext());
+            }
+        }
+
+        @Test
+        void iterate_from_negative() {
+            Iterator<Integer> it = list.iterator(-2);
+            assertEquals(Integer.valueOf(8), it.next());
+            assertEquals(Integer.valueOf(9), it.next());
+            assertFalse(it.hasNext());
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.iterator(11);
+            });
+        }
+    }
+
+    @Nested
+    class ModelTest {
+        @Test
+        void random_operations_match_array_list() {
+            Random random = new Random(7);
+            List<Integer> expected = new ArrayList<>();
+            TreeList<Integer> list = new TreeList<>();
+            for (int step = 0; step < 20000; step++) {
+                int op = random.nextInt(10);
+                if (op < 5 || expected.isEmpty()) {
+                    int index = random.nextInt(expected.size() + 1);
+                    expected.add(index, step);
+                    list.insert(step, index);
+                } else if (op < 8) {
+                    int index = random.nextInt(expected.size());
+                    assertEquals(expected.remove(index), list.remove(index));
+                } else {
+                    int index = random.nextInt(expected.size());
+                    assertEquals(expected.get(index), list.get(index - expected.size()));
+                }
+            }
+            assertEquals(expected.size(), list.size());
+            int i = 0;
+            for (Integer value : list) {
+                assertEquals(expected.get(i++), value);
+            }
+        }
+    }
+}
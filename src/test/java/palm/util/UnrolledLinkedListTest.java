@@ -0,0 +1,287 @@
+package palm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class UnrolledLinkedListTest {
+
+    static final int CAP = UnrolledLinkedList.NODE_CAPACITY;
+
+    @Nested
+    class GetTest {
+        UnrolledLinkedList<String> list;
+
+        @BeforeEach
+        void initList() {
+            list = UnrolledLinkedList.of("Foo", "Bar");
+        }
+
+        @Test
+        void get_under() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.get(-5);
+            });
+        }
+
+        @Test
+        void get_over() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                list.get(2);
+            });
+        }
+
+        @Test
+        void get_negative() {
+            assertEquals("Bar", list.get(-1));
+            assertEquals("Foo", list.get(-2));
+        }
+    }
+
+    @Nested
+    class InsertTest {
+        @Test
+        void insert_index_over() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                UnrolledLinkedList.of("Foo").insert("Hi", 2);
+            });
+        }
+
+        @Test
+        void insert_index_negative() {
+            UnrolledLinkedList<String> list = UnrolledLinkedList.of("Foo", "Bar");
+            list.insert("Hi", -2);
+            list.insert("End", -1);
+            assertEquals("Hi", list.get(1));
+            assertEquals("End", list.get(-1));
+            assertEquals(4, list.size());
+        }
+
+        @Test
+        void insertAll_front() {
+            UnrolledLinkedList<Integer> list = UnrolledLinkedList.of(0, 1, 2);
+            list.insertAll(DynamicArray.of(7, 8), 0);
+            assertEquals(5, list.size());
+            assertEquals(Integer.valueOf(7), list.get(0));
+            assertEquals(Integer.valueOf(0), list.get(2));
+        }
+
+        @Test
+        void addAll_self() {
+            UnrolledLinkedList<Integer> list = UnrolledLinkedList.of(0, 1, 2);
+            list.addAll(list);
+            assertEquals(6, list.size());
+            for (int i = 0; i < 6; i++) {
+                assertEquals(Integer.valueOf(i % 3), list.get(i));
+            }
+        }
+
+        @Test
+        void insertAll_self() {
+            UnrolledLinkedList<Integer> list = UnrolledLinkedList.of(0, 1, 2);
+            list.insertAll(list, 1);
+            assertEquals(6, list.size());
+            int[] expected = { 0, 0, 1, 2, 1, 2 };
+            for (int i = 0; i < 6; i++) {
+                assertEquals(Integer.valueOf(expected[i]), list.get(i));
+            }
+        }
+    }
+
+    @Nested
+    class RemoveTest {
+        @Test
+        void remove_index_invalid() {
+            assertThrows(IndexOutOfBoundsException.class, () -> {
+                UnrolledLinkedList.of().remove(0);
+            });
+        }
+
+        @Test
+        void remove_item() {
+            UnrolledLinkedList<String> list = UnrolledLinkedList.of("Foo", "Bar", "Baz");
+            assertEquals("Bar", list.remove("Bar"));
+            assertNull(list.remove("Bar"));
+            assertEquals(2, list.size());
+            assertEquals(-1, list.indexOf("Bar"));
+            assertEquals(1, list.indexOf("Baz"));
+        }
+
+        @Test
+        void remove_last_item_unlinks_node() {
+            UnrolledLinkedList<String> list = UnrolledLinkedList.of("Foo");
+            assertEquals("Foo", list.remove(0));
+            assertEquals(0, list.getNodeCount());
+            list.add("Bar");
+            assertEquals("Bar", list.get(0));
+            assertEquals(1, list.getNodeCount());
+        }
+    }
+
+    /**
+     * The boundaries where nodes are split and merged, starting from
+     * exactly one full node.
+     */
+    @Nested
+    class NodeTest {
+        UnrolledLinkedList<Integer> list;
+
+        @BeforeEach
+        void initList() {
+            list = new UnrolledLinkedList<>();
+            for (int i = 0; i < CAP; i++) {
+                list.add(i);
+            }
+        }
+
+        void assertRange(int from, int to, int offset) {
+            for (int i = from; i < to; i++) {
+                assertEquals(Integer.valueOf(i + offset), list.get(i));
+            }
+        }
+
+        @Test
+        void full_node_then_add() {
+            assertEquals(1, list.getNodeCount());
+            list.add(CAP);
+            assertEquals(2, list.getNodeCount());
+            assertRange(0, CAP + 1, 0);
+            assertEquals(Integer.valueOf(CAP), list.get(-1));
+        }
+
+        @Test
+        void get_across_nodes() {
+            for (int i = CAP; i < 10 * CAP + 3; i++) {
+                list.add(i);
+            }
+            assertEquals(11, list.getNodeCount());
+            for (int i = 0; i < list.size(); i++) {
+                assertEquals(Integer.valueOf(i), list.get(i));
+                assertEquals(Integer.valueOf(list.size() - 1 - i), list.get(-i - 1));
+            }
+        }
+
+        @Test
+        void insert_splits_full_node_front_half() {
+            list.insert(-1, 3);
+            assertEquals(2, list.getNodeCount());
+            assertEquals(Integer.valueOf(-1), list.get(3));
+            assertRange(0, 3, 0);
+            assertRange(4, CAP + 1, -1);
+        }
+
+        @Test
+        void insert_splits_full_node_back_half() {
+            list.insert(-1, CAP - 2);
+            assertEquals(2, list.getNodeCount());
+            assertEquals(Integer.valueOf(-1), list.get(CAP - 2));
+            assertRange(0, CAP - 2, 0);
+            assertRange(CAP - 1, CAP + 1, -1);
+        }
+
+        @Test
+        void insert_at_end_of_full_node() {
+            list.insert(-1, -1);
+            assertEquals(2, list.getNodeCount());
+            assertEquals(Integer.valueOf(-1), list.get(-1));
+            assertRange(0, CAP, 0);
+        }
+
+        @Test
+        void insertAll_fills_new_nodes() {
+            DynamicArray<Integer> items = new DynamicArray<>();
+            for (int i = 0; i < 2 * CAP; i++) {
+                items.add(1000 + i);
+            }
+            list.insertAll(items, 5);
+            assertEquals(3 * CAP, list.size());
+            assertEquals(4, list.getNodeCount());
+            assertRange(0, 5, 0);
+            assertRange(5, 5 + 2 * CAP, 1000 - 5);
+            assertRange(5 + 2 * CAP, 3 * CAP, -2 * CAP);
+        }
+
+        @Test
+        void remove_merges_sparse_node() {
+            list.add(CAP);
+            assertEquals(2, list.getNodeCount());
+            // the one item in the second node now fits into the first
+            list.remove(0);
+            assertEquals(1, list.getNodeCount());
+            assertRange(0, CAP, 1);
+        }
+
+        @Test
+        void remove_keeps_nodes_that_do_not_fit() {
+            for (int i = CAP; i < 2 * CAP; i++) {
+                list.add(i);
+            }
+            list.remove(-1);
+            list.remove(0);
+            assertEquals(2, list.getNodeCount());
+            assertRange(0, list.size(), 1);
+        }
+
+        @Test
+        void removeIf_compacts() {
+            for (int i = CAP; i < 10 * CAP; i++) {
+                list.add(i);
+            }
+            assertTrue(list.removeIf(i -> i % 4 != 0));
+            assertEquals(10 * CAP / 4, list.size());
+            assertEquals(3, list.getNodeCount());
+            assertEquals(Integer.valueOf(8), list.get(2));
+            assertTrue(list.retainAll(DynamicArray.of(0, 4)));
+            assertEquals(2, list.size());
+        }
+
+        @Test
+        void clear_drops_nodes() {
+            list.clear();
+            assertEquals(0, list.size());
+            assertEquals(0, list.getNodeCount());
+        }
+    }
+
+    @Nested
+    class ModelTest {
+        @Test
+        void random_operations_match_array_list() {
+            Random random = new Random(42);
+            List<Integer> expected = new ArrayList<>();
+            UnrolledLinkedList<Integer> list = new UnrolledLinkedList<>();
+            for (int step = 0; step < 20000; step++) {
+                int op = random.nextInt(10);
+                if (op < 4 || expected.isEmpty()) {
+                    int index = random.nextInt(expected.size() + 1);
+                    expected.add(index, step);
+                    list.insert(step, index);
+                } else if (op < 6) {
+                    expected.add(step);
+                    list.add(step);
+                } else {
+                    int index = random.nextInt(expected.size());
+                    assertEquals(expected.remove(index), list.remove(index - expected.size() - 1));
+                }
+            }
+            assertEquals(expected.size(), list.size());
+            int i = 0;
+            for (Integer value : list) {
+                assertEquals(expected.get(i++), value);
+            }
+            assertTrue(list.getNodeCount() <= 4 * expected.size() / CAP + 2);
+        }
+
+        @Test
+        void stream_sum() {
+            UnrolledLinkedList<Integer> list = new UnrolledLinkedList<>();
+            for (int i = 0; i < 1000; i++) {
+                list.add(i);
+            }
+            assertEquals(499500L, list.parallelStream().mapToLong(i -> i).sum());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package palm.util.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+class LruCacheTest {
+
+    @Nested
+    class GetSetTest {
+        LruCache<Integer, String> cache;
+
+        @BeforeEach
+        void initCache() {
+            cache = new LruCache<>(3);
+            cache.set(1, "One");
+            cache.set(2, "Two");
+        }
+
+        @Test
+        void get_existing_key() {
+            assertEquals("One", cache.get(1));
+            assertNull(cache.get(5));
+            assertEquals(2, cache.size());
+        }
+
+        @Test
+        void set_same_key() {
+            cache.set(1, "Uno");
+            assertEquals("Uno", cache.get(1));
+            assertEquals(2, cache.size());
+        }
+
+        @Test
+        void remove_key() {
+            assertEquals("One", cache.remove(1));
+            assertNull(cache.remove(1));
+            assertFalse(cache.containsKey(1));
+            assertEquals(1, cache.weight());
+        }
+
+        @Test
+        void null_not_supported() {
+            assertThrows(IllegalArgumentException.class, () -> cache.set(null, "x"));
+            assertThrows(IllegalArgumentException.class, () -> cache.set(3, null));
+            assertThrows(IllegalArgumentException.class, () -> new LruCache<Integer, String>(0));
+        }
+
+        @Test
+        void clear_keeps_stats() {
+            cache.get(1);
+            cache.clear();
+            assertEquals(0, cache.size());
+            assertEquals(0, cache.weight());
+            assertNull(cache.get(1));
+            assertEquals(1, cache.stats().hitCount());
+            assertEquals(1, cache.stats().missCount());
+        }
+    }
+
+    @Nested
+    class EvictionTest {
+        @Test
+        void evicts_least_recently_used() {
+            LruCache<Integer, String> cache = new LruCache<>(3);
+            cache.set(1, "One");
+            cache.set(2, "Two");
+            cache.set(3, "Three");
+            cache.get(1);
+            cache.set(4, "Four");
+            assertFalse(cache.containsKey(2));
+            assertTrue(cache.containsKey(1));
+            assertTrue(cache.containsKey(3));
+            assertEquals(3, cache.size());
+            assertEquals(1, cache.stats().evictionCount());
+        }
+
+        @Test
+        void evicts_by_weight() {
+            LruCache<Integer, String> cache = new LruCache<>(10, (key, value) -> value.length());
+            cache.set(1, "aaaa");
+            cache.set(2, "bbbb");
+            cache.set(3, "cc");
+            assertEquals(10, cache.weight());
+            cache.set(4, "d");
+            assertFalse(cache.containsKey(1));
+            assertEquals(7, cache.weight());
+            cache.set(3, "cccccc");
+            assertFalse(cache.containsKey(2));
+            assertEquals(7, cache.weight());
+        }
+
+        @Test
+        void too_heavy_entry_not_kept() {
+            LruCache<Integer, String> cache = new LruCache<>(3, (key, value) -> value.length());
+            cache.set(1, "a");
+            cache.set(2, "toolong");
+            assertEquals(1, cache.size());
+            assertEquals(1, cache.weight());
+            assertFalse(cache.containsKey(2));
+            assertEquals(1, cache.stats().evictionCount());
+        }
+
+        @Test
+        void oversized_set_keeps_existing_entries() {
+            LruCache<Integer, Integer> cache = new LruCache<>(1000, (key, value) -> value);
+            for (int i = 0; i < 900; i++) {
+                cache.set(i, 1);
+            }
+            cache.set(5, 1001);
+            assertEquals(899, cache.size());
+            assertEquals(899, cache.weight());
+            assertFalse(cache.containsKey(5));
+            assertTrue(cache.containsKey(6));
+            assertEquals(1, cache.stats().evictionCount());
+        }
+    }
+
+    @Nested
+    class LoaderTest {
+        @Test
+        void loader_called_once_per_miss() {
+            LruCache<Integer, String> cache = new LruCache<>(10);
+            int[] calls = new int[1];
+            for (int i = 0; i < 3; i++) {
+                assertEquals("v7", cache.get(7, key -> {
+                    calls[0]++;
+                    return "v" + key;
+                }));
+            }
+            assertEquals(1, calls[0]);
+            CacheStats stats = cache.stats();
+            assertEquals(2, stats.hitCount());
+            assertEquals(1, stats.missCount());
+            assertEquals(1, stats.loadCount());
+            assertEquals(2.0 / 3, stats.hitRate(), 1e-9);
+        }
+
+        @Test
+        void null_from_loader_not_cached() {
+            LruCache<Integer, String> cache = new LruCache<>(10);
+            assertNull(cache.get(7, key -> null));
+            assertFalse(cache.containsKey(7));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package palm.util.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+class TinyLfuCacheTest {
+
+    /**
+     * Run a trace where a small hot set is used constantly, interleaved
+     * with a long scan of keys that are never used again.
+     */
+    static double hitRateWithScan(Cache<Integer, Integer> cache) {
+        Random random = new Random(1);
+        int scanKey = 1000;
+        for (int i = 0; i < 200000; i++) {
+            int key = (i % 2 == 0) ? random.nextInt(50) : scanKey++;
+            cache.get(key, k -> k);
+        }
+        return cache.stats().hitRate();
+    }
+
+    @Nested
+    class GetSetTest {
+        TinyLfuCache<Integer, String> cache;
+
+        @BeforeEach
+        void initCache() {
+            cache = new TinyLfuCache<>(100);
+            cache.set(1, "One");
+            cache.set(2, "Two");
+        }
+
+        @Test
+        void get_existing_key() {
+            assertEquals("One", cache.get(1));
+            assertNull(cache.get(5));
+        }
+
+        @Test
+        void set_same_key() {
+            cache.set(1, "Uno");
+            assertEquals("Uno", cache.get(1));
+            assertEquals(2, cache.size());
+        }
+
+        @Test
+        void remove_key() {
+            cache.get(1);
+            assertEquals("One", cache.remove(1));
+            assertNull(cache.remove(1));
+            assertEquals(1, cache.size());
+            assertEquals(1, cache.weight());
+        }
+
+        @Test
+        void clear_test() {
+            cache.clear();
+            assertEquals(0, cache.size());
+            assertEquals(0, cache.weight());
+        }
+    }
+
+    @Nested
+    class EvictionTest {
+        @Test
+        void never_over_maximum() {
+            TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100);
+            Random random = new Random(5);
+            for (int i = 0; i < 100000; i++) {
+                int key = random.nextInt(1000);
+                if (cache.get(key) == null) {
+                    cache.set(key, key);
+                }
+                assertTrue(cache.size() <= 100);
+            }
+            assertEquals(cache.size(), cache.weight());
+            assertTrue(cache.stats().evictionCount() > 0);
+        }
+
+        @Test
+        void never_over_maximum_weight() {
+            TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(500, (key, value) -> value);
+            Random random = new Random(6);
+            for (int i = 0; i < 50000; i++) {
+                int key = random.nextInt(1000);
+                cache.set(key, 1 + random.nextInt(20));
+                assertTrue(cache.weight() <= 500);
+            }
+        }
+
+        @Test
+        void oversized_set_keeps_existing_entries() {
+            TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(1000, (key, value) -> value);
+            for (int i = 0; i < 900; i++) {
+                cache.set(i, 1);
+            }
+            cache.set(5000, 1001);
+            assertEquals(900, cache.size());
+            assertEquals(900, cache.weight());
+            assertFalse(cache.containsKey(5000));
+            assertEquals(1, cache.stats().evictionCount());
+        }
+
+        @Test
+        void candidate_heavier_than_main_space_not_admitted() {
+            // the window holds 10 and the main space 990
+            TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(1000, (key, value) -> value);
+            for (int i = 0; i < 900; i++) {
+                cache.set(i, 1);
+            }
+            // misses count too, so the candidate looks popular
+            for (int i = 0; i < 10; i++) {
+                cache.get(5000);
+            }
+            cache.set(5000, 995);
+            for (int i = 900; i < 920; i++) {
+                cache.set(i, 1);
+            }
+            assertFalse(cache.containsKey(5000));
+            assertTrue(cache.size() >= 900);
+            assertTrue(cache.weight() <= 1000);
+        }
+
+        @Test
+        void popular_keys_survive_scan() {
+            double tinyLfu = hitRateWithScan(new TinyLfuCache<>(100));
+            double lru = hitRateWithScan(new LruCache<>(100));
+            // the hot half of the trace should nearly always hit
+            assertTrue(tinyLfu > 0.45, "W-TinyLFU hit rate " + tinyLfu);
+            assertTrue(tinyLfu > lru, "W-TinyLFU " + tinyLfu + " vs LRU " + lru);
+        }
+    }
+
+    @Nested
+    class SketchTest {
+        @Test
+        void frequency_counts_and_saturates() {
+            FrequencySketch sketch = new FrequencySketch(64);
+            for (int i = 0; i < 5; i++) {
+                sketch.increment("a");
+            }
+            assertTrue(sketch.frequency("a") >= 5);
+            for (int i = 0; i < 100; i++) {
+                sketch.increment("b");
+            }
+            assertEquals(15, sketch.frequency("b"));
+        }
+
+        @Test
+        void frequency_ages() {
+            FrequencySketch sketch = new FrequencySketch(16);
+            for (int i = 0; i < 15; i++) {
+                sketch.increment("a");
+            }
+            // enough other additions to trigger a reset
+            for (int i = 0; i < 1000; i++) {
+                sketch.increment(i);
+            }
+            assertTrue(sketch.frequency("a") < 15);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package palm.util.io;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.zip.CRC32;
+
+import palm.util.Dictionary;
+import palm.util.DynamicArray;
+import palm.util.LinkedList;
+
+class BinaryFormatTest {
+
+    ByteArrayOutputStream bytes;
+
+    @BeforeEach
+    void initBytes() {
+        bytes = new ByteArrayOutputStream();
+    }
+
+    ByteBuffer written() {
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    @Nested
+    class RoundTripTest {
+        @Test
+        void dynamic_array() throws IOException {
+            DynamicArray<String> arr = DynamicArray.of("Foo", null, "B\u00e4r", "");
+            long size = BinaryFormat.write(arr, Codecs.STRING, Channels.newChannel(bytes));
+            assertEquals(size, bytes.size());
+
+            DynamicArray<String> read = BinaryFormat.readDynamicArray(written(), Codecs.STRING);
+            assertEquals(4, read.size());
+            assertEquals("Foo", read.get(0));
+            assertNull(read.get(1));
+            assertEquals("B\u00e4r", read.get(2));
+            assertEquals("", read.get(3));
+        }
+
+        @Test
+        void dynamic_array_shrinks_after_load() throws IOException {
+            DynamicArray<Integer> arr = new DynamicArray<>();
+            for (int i = 0; i < 1000; i++) {
+                arr.add(i);
+            }
+            BinaryFormat.write(arr, Codecs.INT, Channels.newChannel(bytes));
+
+            DynamicArray<Integer> read = BinaryFormat.readDynamicArray(written(), Codecs.INT);
+            assertEquals(1000, read.stats().capacity());
+            read.removeIf(i -> i >= 10);
+            assertTrue(read.stats().capacity() <= 40);
+            read.clear();
+            read.trimToSize();
+            assertEquals(0, read.stats().capacity());
+        }
+
+        @Test
+        void linked_list() throws IOException {
+            LinkedList<Long> list = LinkedList.of(1L, 2L, 3L);
+            BinaryFormat.write(list, Codecs.LONG, Channels.newChannel(bytes));
+
+            LinkedList<Long> read = BinaryFormat.readLinkedList(written(), Codecs.LONG);
+            assertEquals(3, read.size());
+            assertEquals(Long.valueOf(3), read.get(-1));
+        }
+
+        @Test
+        void dictionary() throws IOException {
+            Dictionary<Integer, String> dict = new Dictionary<>();
+            for (int i = 0; i < 100000; i++) {
+                dict.set(i, i % 10 == 0 ? null : "v" + i);
+            }
+            BinaryFormat.write(dict, Codecs.INT, Codecs.STRING, Channels.newChannel(bytes));
+
+            Dictionary<Integer, String> read = BinaryFormat.readDictionary(written(), Codecs.INT, Codecs.STRING);
+            assertEquals(100000, read.size());
+            assertEquals("v99999", read.get(99999));
+            assertTrue(read.containsKey(10));
+            assertNull(read.get(10));
+        }
+
+        @Test
+        void empty() throws IOException {
+            BinaryFormat.write(new Dictionary<Integer, Integer>(), Codecs.INT, Codecs.INT, Channels.newChannel(bytes));
+            assertEquals(0, BinaryFormat.readDictionary(written(), Codecs.INT, Codecs.INT).size());
+        }
+
+        @Test
+        void several_in_one_buffer() throws IOException {
+            BinaryFormat.write(DynamicArray.of(1, 2), Codecs.INT, Channels.newChannel(bytes));
+            BinaryFormat.write(LinkedList.of(3), Codecs.INT, Channels.newChannel(bytes));
+            ByteBuffer buffer = written();
+            assertEquals(2, BinaryFormat.readDynamicArray(buffer, Codecs.INT).size());
+            assertEquals(Integer.valueOf(3), BinaryFormat.readLinkedList(buffer, Codecs.INT).get(0));
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Nested
+    class CorruptTest {
+        @BeforeEach
+        void writeArray() throws IOException {
+            BinaryFormat.write(DynamicArray.of(1, 2, 3), Codecs.INT, Channels.newChannel(bytes));
+        }
+
+        @Test
+        void wrong_kind() {
+            assertThrows(IOException.class, () -> {
+                BinaryFormat.readLinkedList(written(), Codecs.INT);
+            });
+        }
+
+        @Test
+        void flipped_bit() {
+            byte[] data = bytes.toByteArray();
+            data[data.length - 6] ^= 1;
+            assertThrows(IOException.class, () -> {
+                BinaryFormat.readDynamicArray(ByteBuffer.wrap(data), Codecs.INT);
+            });
+        }
+
+        @Test
+        void truncated() {
+            byte[] data = bytes.toByteArray();
+            ByteBuffer buffer = ByteBuffer.wrap(data, 0, data.length - 1);
+            assertThrows(IOException.class, () -> {
+                BinaryFormat.readDynamicArray(buffer, Codecs.INT);
+            });
+        }
+
+        @Test
+        void newer_version() {
+            byte[] data = bytes.toByteArray();
+            data[9] = 2;
+            assertThrows(IOException.class, () -> {
+                BinaryFormat.readDynamicArray(ByteBuffer.wrap(data), Codecs.INT);
+            });
+        }
+
+        @Test
+        void bad_count() {
+            for (int count : new int[] { -1, 2, 4, Integer.MAX_VALUE }) {
+                ByteBuffer data = withCount(count);
+                assertThrows(IOException.class, () -> {
+                    BinaryFormat.readDynamicArray(data.duplicate(), Codecs.INT);
+                });
+                assertThrows(IOException.class, () -> {
+                    BinaryFormat.readLinkedList(asKind(data, (byte) 2), Codecs.INT);
+                });
+            }
+        }
+
+        /**
+         * Get the written data with the header's count replaced,
+         * and the checksum fixed up to match.
+         */
+        ByteBuffer withCount(int count) {
+            ByteBuffer data = written();
+            data.putInt(12, count);
+            return withChecksum(data);
+        }
+
+        ByteBuffer asKind(ByteBuffer source, byte kind) {
+            ByteBuffer data = ByteBuffer.allocate(source.remaining()).put(source.duplicate());
+            data.put(10, kind);
+            return withChecksum(data);
+        }
+
+        ByteBuffer withChecksum(ByteBuffer data) {
+            CRC32 crc = new CRC32();
+            crc.update(data.array(), 0, data.capacity() - 4);
+            data.putInt(data.capacity() - 4, (int) crc.getValue());
+            data.clear();
+            return data;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package palm.util.io;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import palm.util.Dictionary;
+
+class DurableDictionaryTest {
+
+    Path dir;
+
+    @BeforeEach
+    void createDir() throws IOException {
+        dir = Files.createTempDirectory("durable");
+    }
+
+    @AfterEach
+    void deleteDir() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    DurableDictionary<String, Integer> open(SyncPolicy policy) throws IOException {
+        return DurableDictionary.open(dir, Codecs.STRING, Codecs.INT, policy);
+    }
+
+    @Nested
+    class RecoveryTest {
+        @Test
+        void recover_from_log() throws IOException {
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.always())) {
+                dict.set("Foo", 1);
+                dict.set("Bar", 2);
+                dict.set("Foo", 3);
+                dict.add(Dictionary.Entry.of("Hello", null));
+                assertEquals(Integer.valueOf(2), dict.remove("Bar"));
+                assertNull(dict.remove("Something"));
+            }
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.always())) {
+                assertEquals(2, dict.size());
+                assertEquals(Integer.valueOf(3), dict.get("Foo"));
+                assertTrue(dict.containsKey("Hello"));
+                assertNull(dict.get("Hello"));
+                assertFalse(dict.containsKey("Bar"));
+            }
+        }
+
+        @Test
+        void recover_from_snapshot_and_log() throws IOException {
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.never())) {
+                for (int i = 0; i < 1000; i++) {
+                    dict.set("k" + i, i);
+                }
+                dict.snapshot();
+                assertEquals(0, dict.getLogBytes());
+                dict.remove("k0");
+                dict.set("k1", -1);
+            }
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.never())) {
+                assertEquals(999, dict.size());
+                assertFalse(dict.containsKey("k0"));
+                assertEquals(Integer.valueOf(-1), dict.get("k1"));
+                assertEquals(Integer.valueOf(999), dict.get("k999"));
+            }
+        }
+
+        @Test
+        void snapshot_then_stale_log_is_skipped() throws IOException {
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.always())) {
+                dict.set("Foo", 1);
+                dict.remove("Foo");
+            }
+            byte[] staleLog = Files.readAllBytes(dir.resolve(DurableDictionary.LOG_FILE));
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.always())) {
+                dict.set("Foo", 2);
+                dict.snapshot();
+            }
+            // as if the crash came after the snapshot rename but before the log was emptied
+            Files.write(dir.resolve(DurableDictionary.LOG_FILE), staleLog);
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.always())) {
+                assertEquals(Integer.valueOf(2), dict.get("Foo"));
+            }
+        }
+
+        @Test
+        void torn_record_is_dropped() throws IOException {
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.always())) {
+                dict.set("Foo", 1);
+                dict.set("Bar", 2);
+            }
+            Path log = dir.resolve(DurableDictionary.LOG_FILE);
+            long intact = Files.size(log);
+            try (FileChannel channel = FileChannel.open(log, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2, 3}));
+            }
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.always())) {
+                assertEquals(2, dict.size());
+                assertEquals(intact, Files.size(log));
+                dict.set("Hello", 3);
+            }
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.always())) {
+                assertEquals(Integer.valueOf(3), dict.get("Hello"));
+            }
+        }
+
+        @Test
+        void recover_files_larger_than_buffer() throws IOException {
+            // both files span many reads, and one key is bigger than the buffer
+            char[] chars = new char[100000];
+            java.util.Arrays.fill(chars, 'x');
+            String bigKey = new String(chars);
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.never())) {
+                for (int i = 0; i < 20000; i++) {
+                    dict.set("snapshot-key-" + i, i);
+                }
+                dict.set(bigKey, -1);
+                dict.snapshot();
+                for (int i = 0; i < 20000; i++) {
+                    dict.set("log-key-" + i, i);
+                }
+                dict.set(bigKey + "y", -2);
+                dict.remove("snapshot-key-7");
+            }
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.never())) {
+                assertEquals(40001, dict.size());
+                assertEquals(Integer.valueOf(19999), dict.get("snapshot-key-19999"));
+                assertEquals(Integer.valueOf(19999), dict.get("log-key-19999"));
+                assertEquals(Integer.valueOf(-1), dict.get(bigKey));
+                assertEquals(Integer.valueOf(-2), dict.get(bigKey + "y"));
+                assertFalse(dict.containsKey("snapshot-key-7"));
+            }
+        }
+
+        @Test
+        void corrupt_snapshot_fails() throws IOException {
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.always())) {
+                dict.set("Foo", 1);
+                dict.snapshot();
+            }
+            Path snapshot = dir.resolve(DurableDictionary.SNAPSHOT_FILE);
+            byte[] bytes = Files.readAllBytes(snapshot);
+            bytes[bytes.length - 6] ^= 1;
+            Files.write(snapshot, bytes);
+            assertThrows(IOException.class, () -> {
+                open(SyncPolicy.always());
+            });
+        }
+    }
+
+    @Nested
+    class PolicyTest {
+        @Test
+        void writes_reach_the_log_before_a_sync() throws IOException {
+            for (SyncPolicy policy : new SyncPolicy[] {
+                    SyncPolicy.never(), SyncPolicy.everyWrites(3), SyncPolicy.everyMillis(60_000) }) {
+                try (DurableDictionary<String, Integer> dict = open(policy)) {
+                    Path log = dir.resolve(DurableDictionary.LOG_FILE);
+                    dict.set("a", 1);
+                    assertEquals(dict.getLogBytes(), Files.size(log));
+                    dict.remove("a");
+                    assertEquals(dict.getLogBytes(), Files.size(log));
+                    dict.snapshot();
+                }
+            }
+        }
+
+        @Test
+        void auto_snapshot() throws IOException {
+            try (DurableDictionary<String, Integer> dict = DurableDictionary.open(
+                    dir, Codecs.STRING, Codecs.INT, SyncPolicy.never(), 1000)) {
+                for (int i = 0; i < 500; i++) {
+                    dict.set("k" + i, i);
+                }
+                assertTrue(dict.getLogBytes() < 1000);
+                assertTrue(Files.exists(dir.resolve(DurableDictionary.SNAPSHOT_FILE)));
+            }
+            try (DurableDictionary<String, Integer> dict = open(SyncPolicy.never())) {
+                assertEquals(500, dict.size());
+            }
+        }
+
+        @Test
+        void invalid_policies() {
+            assertThrows(IllegalArgumentException.class, () -> SyncPolicy.everyWrites(0));
+            assertThrows(IllegalArgumentException.class, () -> SyncPolicy.everyMillis(0));
+        }
+    }
+}